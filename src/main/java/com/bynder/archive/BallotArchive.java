@@ -0,0 +1,509 @@
+package com.bynder.archive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bynder.codec.BallotSegmentCodec;
+import com.bynder.constants.Constants;
+import com.bynder.model.Ballot;
+import com.bynder.model.BallotSegment;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotQueries;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.BallotSegmentQueries;
+import com.bynder.repository.LotteryQueries;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Archive of the ballots of closed lotteries, used if ballot.archive.enabled
+ * is set:
+ * 		* moves the ballots of every closed lottery from BALLOT into segments of
+ * 		  BALLOT_ARCHIVE, checked every ballot.archive.interval-ms
+ * 		* reads archived ballots in ballotId order, to be merged with the
+ * 		  ballots still in BALLOT
+ *
+ * A segment holds up to ballot.archive.segment-size ballots of one lottery,
+ * consecutive in ballotId order, encoded with BallotSegmentCodec. It is indexed
+ * by lotteryId, by the userIds of its ballots and by its first ballotId.
+ *
+ * A lottery is claimed by setting archiveClaimedDate, so one node archives it
+ * at a time. The claim is renewed before every segment is written or purged,
+ * and the node stops archiving as soon as it finds its claim taken over. Its
+ * archiveStatus moves from ARCHIVING (segments being written) to PURGING
+ * (archived ballots being deleted from BALLOT) to ARCHIVED. A claim left
+ * behind by a node which died is taken over after
+ * ballot.archive.claim-timeout-ms: segments of an ARCHIVING lottery are written
+ * again, the ballots of a PURGING lottery are deleted again. While a lottery
+ * is PURGING its ballots are in both collections, readers skip the duplicates.
+ *
+ * Only the ballots held by the segments are deleted from BALLOT, so a ballot
+ * written after the segments were read stays in BALLOT and is still merged
+ * into the ballots read.
+ *
+ * Requires storage.engine=mongo.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "ballot.archive.enabled", havingValue = "true")
+@Slf4j
+public class BallotArchive {
+
+	private static final int READ_BATCH_SIZE = 1000;
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Value("${ballot.archive.segment-size:10000}")
+	private int segmentSize;
+
+	@Value("${ballot.archive.claim-timeout-ms:600000}")
+	private long claimTimeoutMs;
+
+	/**
+	 * Scheduler job runs every ballot.archive.interval-ms
+	 *
+	 * Archives the ballots of every closed lottery which is not archived yet. A
+	 * lottery failing to be archived is retried with the next run once its
+	 * claim has timed out.
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${ballot.archive.interval-ms:60000}")
+	public void archiveClosedLotteries() {
+
+		for (Lottery lottery : mongoOperations.find(BallotSegmentQueries.unarchivedLotteries(), Lottery.class)) {
+
+			try {
+				archiveLottery(lottery.getLotteryId());
+			} catch (IOException | RuntimeException exception) {
+				log.error("Failed to archive the ballots of lottery {}", lottery.getLotteryId(), exception);
+			}
+		}
+	}
+
+	/**
+	 * Moves the ballots of a closed lottery into the archive, unless the lottery
+	 * is archived or claimed by another node
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return whether the lottery was archived by this call
+	 *
+	 * @throws IOException                       - thrown if the ballots cannot be
+	 *                                           encoded
+	 * @throws OptimisticLockingFailureException - thrown if the claim was taken
+	 *                                           over by another node meanwhile
+	 */
+	public boolean archiveLottery(String lotteryId) throws IOException {
+
+		long start = System.nanoTime();
+		Date now = new Date();
+
+		Lottery claimed = mongoOperations.findAndModify(
+				BallotSegmentQueries.claimableLottery(lotteryId, new Date(now.getTime() - claimTimeoutMs)),
+				new Update().set(BallotSegmentQueries.ARCHIVE_CLAIMED_DATE, now), Lottery.class);
+
+		if (claimed == null) {
+			return false;
+		}
+
+		Claim claim = new Claim(lotteryId, now);
+		int segments = 0;
+
+		// the ballots of a PURGING lottery are all in its segments already
+		if (!Constants.PURGING.equals(claimed.getArchiveStatus())) {
+
+			claim.renew(Constants.ARCHIVING);
+
+			// segments of an earlier attempt may be incomplete
+			mongoOperations.remove(LotteryQueries.byLotteryId(lotteryId), BallotSegment.class);
+			segments = writeSegments(claim);
+
+			claim.renew(Constants.PURGING);
+		}
+
+		long deleted = purgeBallots(claim);
+		claim.renew(Constants.ARCHIVED);
+
+		log.info("Archived {} ballots of lottery {} into {} segments in {} ms", deleted, lotteryId, segments,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+		return true;
+	}
+
+	/**
+	 * Returns the next page of archived ballots matching the optional userId and
+	 * lotteryId, ordered by ballotId.
+	 *
+	 * Segments are read in the order of their first ballotId, until the page is
+	 * full and no further segment starts before its last ballot. One more ballot
+	 * than the page size is returned if another archived ballot follows.
+	 *
+	 * @param userId        - unique identifier related to a customer
+	 * @param lotteryId     - unique identifier related to a lottery
+	 * @param afterBallotId - ballotId of the last ballot of the previous page,
+	 *                      null for the first page
+	 * @param limit         - page size
+	 *
+	 * @return archived ballots of the page
+	 */
+	public List<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		TreeMap<String, Ballot> page = new TreeMap<>();
+
+		try (CloseableIterator<BallotSegment> segments = mongoOperations
+				.stream(BallotSegmentQueries.segments(userId, lotteryId, afterBallotId), BallotSegment.class)) {
+
+			while (segments.hasNext()) {
+
+				BallotSegment segment = segments.next();
+
+				if (page.size() > limit && segment.getFirstBallotId().compareTo(page.lastKey()) > 0) {
+					break;
+				}
+
+				for (Ballot ballot : decode(segment)) {
+
+					if ((StringUtils.isBlank(userId) || userId.equals(ballot.getUserId()))
+							&& (afterBallotId == null || ballot.getBallotId().compareTo(afterBallotId) > 0)) {
+
+						page.put(ballot.getBallotId(), ballot);
+
+						if (page.size() > limit + 1) {
+							page.pollLastEntry();
+						}
+					}
+				}
+			}
+		}
+
+		return new ArrayList<>(page.values());
+	}
+
+	/**
+	 * Returns all archived ballots matching the optional userId and lotteryId,
+	 * ordered by ballotId, read one page at a time
+	 *
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 *
+	 * @return iterator of archived ballots
+	 */
+	public CloseableIterator<Ballot> streamBallots(String userId, String lotteryId) {
+
+		return new CloseableIterator<Ballot>() {
+
+			private List<Ballot> page = new ArrayList<>();
+
+			private int position;
+
+			private boolean lastPage;
+
+			@Override
+			public boolean hasNext() {
+
+				if (position == page.size() && !lastPage) {
+
+					String afterBallotId = page.isEmpty() ? null : page.get(page.size() - 1).getBallotId();
+
+					page = findPage(userId, lotteryId, afterBallotId, READ_BATCH_SIZE - 1);
+					position = 0;
+					lastPage = page.size() < READ_BATCH_SIZE;
+				}
+
+				return position < page.size();
+			}
+
+			@Override
+			public Ballot next() {
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return page.get(position++);
+			}
+
+			@Override
+			public void close() {
+
+				// segments are read one page at a time, nothing is held open
+			}
+		};
+	}
+
+	/**
+	 * Merges two pages of ballots ordered by ballotId, dropping ballots present
+	 * in both
+	 *
+	 * @param first  - page of ballots, one more than the page size if another
+	 *               page follows
+	 * @param second - page of ballots, one more than the page size if another
+	 *               page follows
+	 * @param limit  - page size
+	 *
+	 * @return merged page, one more ballot than the page size if another page
+	 *         follows
+	 */
+	public static List<Ballot> mergePages(List<Ballot> first, List<Ballot> second, int limit) {
+
+		List<Ballot> page = new ArrayList<>();
+
+		try (CloseableIterator<Ballot> ballots = merge(iterator(first), iterator(second))) {
+			while (ballots.hasNext() && page.size() <= limit) {
+				page.add(ballots.next());
+			}
+		}
+
+		return page;
+	}
+
+	/**
+	 * Merges two iterators of ballots ordered by ballotId, dropping ballots
+	 * present in both. Closing the merged iterator closes both.
+	 *
+	 * @param first  - ballots ordered by ballotId
+	 * @param second - ballots ordered by ballotId
+	 *
+	 * @return merged ballots ordered by ballotId
+	 */
+	public static CloseableIterator<Ballot> merge(CloseableIterator<Ballot> first, CloseableIterator<Ballot> second) {
+
+		return new CloseableIterator<Ballot>() {
+
+			private Ballot firstNext;
+
+			private Ballot secondNext;
+
+			@Override
+			public boolean hasNext() {
+
+				if (firstNext == null && first.hasNext()) {
+					firstNext = first.next();
+				}
+
+				if (secondNext == null && second.hasNext()) {
+					secondNext = second.next();
+				}
+
+				return firstNext != null || secondNext != null;
+			}
+
+			@Override
+			public Ballot next() {
+
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				int order = firstNext == null ? 1
+						: secondNext == null ? -1 : firstNext.getBallotId().compareTo(secondNext.getBallotId());
+				Ballot ballot = order <= 0 ? firstNext : secondNext;
+
+				if (order <= 0) {
+					firstNext = null;
+				}
+
+				if (order >= 0) {
+					secondNext = null;
+				}
+
+				return ballot;
+			}
+
+			@Override
+			public void close() {
+
+				try {
+					first.close();
+				} finally {
+					second.close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Writes the ballots of the lottery into segments, read from BALLOT in
+	 * ballotId order, renewing the claim before every segment
+	 *
+	 * @return number of written segments
+	 */
+	private int writeSegments(Claim claim) throws IOException {
+
+		String lotteryId = claim.lotteryId;
+		List<Ballot> ballots = new ArrayList<>(segmentSize);
+		int segments = 0;
+
+		try (CloseableIterator<Ballot> iterator = ballotRepository.streamBallots(null, lotteryId)) {
+
+			while (iterator.hasNext()) {
+
+				ballots.add(iterator.next());
+
+				if (ballots.size() == segmentSize) {
+					claim.renew(null);
+					insertSegment(lotteryId, ballots);
+					segments++;
+					ballots.clear();
+				}
+			}
+		}
+
+		if (!ballots.isEmpty()) {
+			claim.renew(null);
+			insertSegment(lotteryId, ballots);
+			segments++;
+		}
+
+		return segments;
+	}
+
+	/**
+	 * Deletes the ballots held by the segments of the lottery from BALLOT, one
+	 * segment at a time, renewing the claim before every segment
+	 *
+	 * @return number of deleted ballots
+	 */
+	private long purgeBallots(Claim claim) {
+
+		long deleted = 0;
+
+		try (CloseableIterator<BallotSegment> segments = mongoOperations
+				.stream(BallotSegmentQueries.segments(null, claim.lotteryId, null), BallotSegment.class)) {
+
+			while (segments.hasNext()) {
+
+				List<String> ballotIds = new ArrayList<>();
+				decode(segments.next()).forEach(ballot -> ballotIds.add(ballot.getBallotId()));
+
+				claim.renew(null);
+				deleted += mongoOperations.remove(BallotQueries.byBallotIds(claim.lotteryId, ballotIds), Ballot.class)
+						.getDeletedCount();
+			}
+		}
+
+		return deleted;
+	}
+
+	private void insertSegment(String lotteryId, List<Ballot> ballots) throws IOException {
+
+		LinkedHashSet<String> userIds = new LinkedHashSet<>();
+		ballots.forEach(ballot -> userIds.add(ballot.getUserId()));
+
+		BallotSegment segment = new BallotSegment();
+		segment.setLotteryId(lotteryId);
+		segment.setFirstBallotId(ballots.get(0).getBallotId());
+		segment.setLastBallotId(ballots.get(ballots.size() - 1).getBallotId());
+		segment.setBallotCount(ballots.size());
+		segment.setUserIds(new ArrayList<>(userIds));
+		segment.setData(BallotSegmentCodec.encode(ballots));
+
+		mongoOperations.insert(segment);
+	}
+
+	private List<Ballot> decode(BallotSegment segment) {
+
+		try {
+			return BallotSegmentCodec.decode(segment.getData(), segment.getLotteryId());
+		} catch (IOException exception) {
+			throw new DataRetrievalFailureException("Ballot segment of lottery " + segment.getLotteryId()
+					+ " starting at " + segment.getFirstBallotId() + " cannot be decoded", exception);
+		}
+	}
+
+	/**
+	 * Claim of a lottery held by this node, renewed by moving its claim date
+	 * forward as long as no other node has taken it over
+	 */
+	private final class Claim {
+
+		private final String lotteryId;
+
+		private Date claimedDate;
+
+		private Claim(String lotteryId, Date claimedDate) {
+
+			this.lotteryId = lotteryId;
+			this.claimedDate = claimedDate;
+		}
+
+		/**
+		 * Renews the claim and sets the archive status of the lottery, if given
+		 *
+		 * @param archiveStatus - new archive status, null to keep it
+		 *
+		 * @throws OptimisticLockingFailureException - thrown if the claim was taken
+		 *                                           over by another node
+		 */
+		private void renew(String archiveStatus) {
+
+			Date renewedDate = new Date();
+			Update update = new Update().set(BallotSegmentQueries.ARCHIVE_CLAIMED_DATE, renewedDate);
+
+			if (archiveStatus != null) {
+				update.set(BallotSegmentQueries.ARCHIVE_STATUS, archiveStatus);
+			}
+
+			if (mongoOperations.updateFirst(BallotSegmentQueries.claimedLottery(lotteryId, claimedDate), update,
+					Lottery.class).getMatchedCount() == 0) {
+				throw new OptimisticLockingFailureException(
+						"Archive claim of lottery " + lotteryId + " was taken over by another node");
+			}
+
+			claimedDate = renewedDate;
+		}
+
+	}
+
+	private static CloseableIterator<Ballot> iterator(List<Ballot> ballots) {
+
+		Iterator<Ballot> iterator = ballots.iterator();
+
+		return new CloseableIterator<Ballot>() {
+
+			@Override
+			public boolean hasNext() {
+
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Ballot next() {
+
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+
+				// nothing is held open
+			}
+		};
+	}
+
+}
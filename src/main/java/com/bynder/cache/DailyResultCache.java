@@ -0,0 +1,112 @@
+package com.bynder.cache;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process cache of the pages of lottery results by result date, keyed by
+ * their date range, cursor and page size.
+ *
+ * Only pages of recent days which are over in every time zone are cached, as
+ * no lottery can be closed on such a day any more and their pages do not
+ * change. Pages of older days are read from storage, so listing the whole
+ * history does not evict the recent days, and pages including a day which is
+ * not over yet are always read from storage. Entries expire after
+ * lottery.results.cache-ttl-ms, which bounds how long a result written late,
+ * e.g. by the backfill of another node, is missing from a cached page.
+ *
+ * @author arathy
+ *
+ */
+@Component
+public class DailyResultCache {
+
+	private static final String CACHE_NAME = "dailyResult";
+
+	// no time zone finishes a day later than this offset
+	private static final ZoneOffset LATEST_OFFSET = ZoneOffset.MIN;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${lottery.results.cache-maximum-size:1000}")
+	private long maximumSize;
+
+	@Value("${lottery.results.cache-ttl-ms:3600000}")
+	private long ttlMs;
+
+	@Value("${lottery.results.cache-days:31}")
+	private int cacheDays;
+
+	private Cache<String, PageDTO<DailyResultDTO>> cache;
+
+	/**
+	 * Creates the cache and registers its hit and miss metrics
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+				.recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+		Gauge.builder("cache.miss.ratio", cache, c -> c.stats().missRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Returns a page of results between the given dates, from the cache if all
+	 * its days are recent and over, loading it otherwise
+	 *
+	 * @param fromDate - first result date
+	 * @param toDate   - last result date
+	 * @param afterKey - key of the last result of the previous page, null for
+	 *                 the first page
+	 * @param limit    - page size
+	 * @param loader   - reads the page from storage
+	 *
+	 * @return page of results
+	 */
+	public PageDTO<DailyResultDTO> getPage(LocalDate fromDate, LocalDate toDate, String afterKey, int limit,
+			Supplier<PageDTO<DailyResultDTO>> loader) {
+
+		LocalDate today = LocalDate.now(LATEST_OFFSET);
+
+		if (!toDate.isBefore(today) || fromDate.isBefore(today.minusDays(cacheDays))) {
+			return loader.get();
+		}
+
+		return cache.get(fromDate + "/" + toDate + "/" + limit + "/" + (afterKey == null ? "" : afterKey),
+				key -> loader.get());
+	}
+
+	/**
+	 * Removes all cached pages
+	 *
+	 */
+	public void invalidateAll() {
+
+		cache.invalidateAll();
+	}
+
+}
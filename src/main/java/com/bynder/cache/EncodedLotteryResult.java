@@ -0,0 +1,21 @@
+package com.bynder.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Lottery result serialized as JSON, with the strong entity tag of the
+ * serialized bytes
+ *
+ * @author arathy
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class EncodedLotteryResult {
+
+	private final byte[] body;
+
+	private final String eTag;
+
+}
@@ -0,0 +1,122 @@
+package com.bynder.cache;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.bynder.dto.LotteryResultDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process cache of the results of closed lotteries keyed by lotteryId, held
+ * as serialized JSON with their entity tag, so a result is neither read from
+ * storage nor serialized again for every request.
+ *
+ * The result of a closed lottery never changes, so entries do not expire and
+ * are only evicted once the cache holds lottery.result-cache.maximum-size
+ * results. The entity tag is a digest of the serialized result, so every node
+ * returns the same tag for the same result.
+ *
+ * @author arathy
+ *
+ */
+@Component
+public class LotteryResultCache {
+
+	private static final String CACHE_NAME = "lotteryResult";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${lottery.result-cache.maximum-size:10000}")
+	private long maximumSize;
+
+	private Cache<String, EncodedLotteryResult> cache;
+
+	/**
+	 * Creates the cache and registers its hit and miss metrics
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+		Gauge.builder("cache.miss.ratio", cache, c -> c.stats().missRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Returns the cached result of a lottery
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return cached lottery result, null if not cached
+	 */
+	public EncodedLotteryResult getResult(String lotteryId) {
+
+		return lotteryId == null ? null : cache.getIfPresent(lotteryId);
+	}
+
+	/**
+	 * Serializes the result of a closed lottery and caches it
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param result    - result of the closed lottery
+	 *
+	 * @return cached lottery result
+	 */
+	public EncodedLotteryResult putResult(String lotteryId, LotteryResultDTO result) {
+
+		EncodedLotteryResult encodedResult = encode(result);
+		cache.put(lotteryId, encodedResult);
+
+		return encodedResult;
+	}
+
+	/**
+	 * Serializes a lottery result without caching it
+	 *
+	 * @param result - lottery result
+	 *
+	 * @return serialized lottery result with its entity tag
+	 */
+	public EncodedLotteryResult encode(LotteryResultDTO result) {
+
+		try {
+
+			byte[] body = objectMapper.writeValueAsBytes(result);
+			return new EncodedLotteryResult(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+
+		} catch (JsonProcessingException exception) {
+
+			throw new IllegalStateException("Lottery result cannot be serialized", exception);
+		}
+	}
+
+	/**
+	 * Removes all cached lottery results
+	 *
+	 */
+	public void invalidateAll() {
+
+		cache.invalidateAll();
+	}
+
+}
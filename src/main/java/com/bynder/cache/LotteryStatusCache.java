@@ -0,0 +1,209 @@
+package com.bynder.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process cache of lottery status keyed by lotteryId, used to validate
+ * ballots without reading the lottery from storage for every ballot.
+ *
+ * The close date of a lottery is cached with its status, so every node stops
+ * accepting ballots for an open lottery once its close date has passed, even
+ * if the status written by the closing node is not read yet. Entries expire
+ * after the configured time to live, which bounds how long any other status
+ * change made on another node, e.g. closing a lottery without a close date, can
+ * be served. Status changes made on this node are applied to the cache right
+ * away.
+ *
+ * @author arathy
+ *
+ */
+@Component
+public class LotteryStatusCache {
+
+	private static final String CACHE_NAME = "lotteryStatus";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${lottery.status-cache.maximum-size:10000}")
+	private long maximumSize;
+
+	@Value("${lottery.status-cache.ttl-ms:2000}")
+	private long ttlMs;
+
+	private Cache<String, CachedStatus> cache;
+
+	/**
+	 * Creates the cache and registers its hit and miss metrics
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+				.recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+		Gauge.builder("cache.miss.ratio", cache, c -> c.stats().missRate()).tag("cache", CACHE_NAME)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Returns the cached status of a lottery, loading it if not cached.
+	 *
+	 * If the loader returns null, e.g. because the lottery is not present, nothing
+	 * is cached.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param loader    - loads the lottery from storage
+	 *
+	 * @return lottery status, null if not present
+	 */
+	public String getStatus(String lotteryId, Function<String, Lottery> loader) {
+
+		CachedStatus cachedStatus = cache.get(lotteryId, id -> toCachedStatus(loader.apply(id)));
+
+		return cachedStatus == null ? null : cachedStatus.status;
+	}
+
+	/**
+	 * Returns the status of a lottery at the given time, loading it if not
+	 * cached.
+	 *
+	 * An open lottery whose close date is not after the given time is reported as
+	 * CLOSED, as it does not accept ballots any more even if its winner is not
+	 * drawn yet.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param atMs      - time in epoch ms, e.g. the creation date of a ballot
+	 * @param loader    - loads the lottery from storage
+	 *
+	 * @return lottery status at the given time, null if not present
+	 */
+	public String getStatus(String lotteryId, long atMs, Function<String, Lottery> loader) {
+
+		CachedStatus cachedStatus = cache.get(lotteryId, id -> toCachedStatus(loader.apply(id)));
+
+		return cachedStatus == null ? null : cachedStatus.statusAt(atMs);
+	}
+
+	/**
+	 * Returns the cached status of a lottery without loading it, used by callers
+	 * which load the lottery without blocking
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return cached lottery status, null if not cached
+	 */
+	public String getCachedStatus(String lotteryId) {
+
+		CachedStatus cachedStatus = cache.getIfPresent(lotteryId);
+
+		return cachedStatus == null ? null : cachedStatus.status;
+	}
+
+	/**
+	 * Returns the cached status of a lottery at the given time without loading
+	 * it, used by callers which load the lottery without blocking
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param atMs      - time in epoch ms, e.g. the creation date of a ballot
+	 *
+	 * @return cached lottery status at the given time, null if not cached
+	 */
+	public String getCachedStatus(String lotteryId, long atMs) {
+
+		CachedStatus cachedStatus = cache.getIfPresent(lotteryId);
+
+		return cachedStatus == null ? null : cachedStatus.statusAt(atMs);
+	}
+
+	/**
+	 * Caches the status and close date of a lottery loaded by the caller and
+	 * returns its status at the given time
+	 *
+	 * @param lottery - lottery loaded from storage
+	 * @param atMs    - time in epoch ms, e.g. the creation date of a ballot
+	 *
+	 * @return lottery status at the given time
+	 */
+	public String cacheStatus(Lottery lottery, long atMs) {
+
+		CachedStatus cachedStatus = toCachedStatus(lottery);
+		cache.put(lottery.getLotteryId(), cachedStatus);
+
+		return cachedStatus.statusAt(atMs);
+	}
+
+	/**
+	 * Replaces the cached status of a lottery, so the change is visible to the
+	 * next ballot validated on this node
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param status    - new lottery status
+	 */
+	public void updateStatus(String lotteryId, String status) {
+
+		cache.asMap().compute(lotteryId,
+				(id, cachedStatus) -> new CachedStatus(status, cachedStatus == null ? null : cachedStatus.closeMs));
+	}
+
+	/**
+	 * Removes all cached lottery statuses
+	 *
+	 */
+	public void invalidateAll() {
+
+		cache.invalidateAll();
+	}
+
+	private static CachedStatus toCachedStatus(Lottery lottery) {
+
+		if (lottery == null) {
+			return null;
+		}
+
+		return new CachedStatus(lottery.getStatus() == null ? "" : lottery.getStatus(),
+				lottery.getCloseDate() == null ? null : lottery.getCloseDate().getTime());
+	}
+
+	/**
+	 * Status of a lottery with its close date, if any
+	 */
+	private static final class CachedStatus {
+
+		private final String status;
+
+		private final Long closeMs;
+
+		private CachedStatus(String status, Long closeMs) {
+			this.status = status;
+			this.closeMs = closeMs;
+		}
+
+		private String statusAt(long atMs) {
+
+			return Constants.OPEN.equals(status) && closeMs != null && closeMs <= atMs ? Constants.CLOSED : status;
+		}
+
+	}
+
+}
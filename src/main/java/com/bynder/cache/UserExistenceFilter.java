@@ -0,0 +1,169 @@
+package com.bynder.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bynder.model.User;
+import com.bynder.repository.UserRepository;
+import com.bynder.utils.BloomFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter of registered userIds, used to reject ballots of unknown users
+ * without reading the user from storage:
+ * 		* built from the USER collection at startup and rebuilt periodically.
+ * 		* updated with every user registered on this node.
+ * 
+ * Users registered on other nodes are only known after the next rebuild, so
+ * by default a user missing from the filter is confirmed with an existence
+ * query and added if found. Only a single node can reject misses without
+ * reading storage, by setting user.existence-filter.confirm-misses=false.
+ * 
+ * Enabled by setting user.existence-filter.enabled=true.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "user.existence-filter.enabled", havingValue = "true")
+@Slf4j
+public class UserExistenceFilter {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${user.existence-filter.memory-budget-bytes:16777216}")
+	private long memoryBudgetBytes;
+
+	@Value("${user.existence-filter.expected-users:10000000}")
+	private long expectedUsers;
+
+	@Value("${user.existence-filter.confirm-positives:false}")
+	private boolean confirmPositives;
+
+	@Value("${user.existence-filter.confirm-misses:true}")
+	private boolean confirmMisses;
+
+	private volatile BloomFilter filter;
+
+	// filter being rebuilt, receives registrations made while the rebuild is running
+	private volatile BloomFilter rebuildingFilter;
+
+	/**
+	 * Rebuilds the filter from all userIds present in storage
+	 * 
+	 */
+	@Scheduled(fixedDelayString = "${user.existence-filter.rebuild-interval-ms:300000}")
+	public void rebuild() {
+
+		Timer.Sample sample = Timer.start(meterRegistry);
+
+		BloomFilter newFilter = new BloomFilter(memoryBudgetBytes, expectedUsers);
+		rebuildingFilter = newFilter;
+
+		AtomicLong userCount = new AtomicLong();
+
+		try (Stream<User> users = userRepository.streamAllUserIds()) {
+
+			if (users != null) {
+				users.forEach(user -> {
+					newFilter.put(user.getUserId());
+					userCount.incrementAndGet();
+				});
+			}
+
+			filter = newFilter;
+
+		} finally {
+			rebuildingFilter = null;
+		}
+
+		sample.stop(meterRegistry.timer("user.existence-filter.rebuild"));
+
+		log.info("User existence filter built with {} users, {} bits, expected false positive rate {}",
+				userCount.get(), newFilter.getBitCount(), newFilter.expectedFalsePositiveRate(userCount.get()));
+	}
+
+	/**
+	 * Returns true once the filter has been built
+	 * 
+	 * @return true if the filter can be queried
+	 */
+	public boolean isReady() {
+
+		return filter != null;
+	}
+
+	/**
+	 * Checks if a user might be registered
+	 * 
+	 * @param userId - unique identifier of user
+	 * 
+	 * @return false if the user was neither registered when the filter was built
+	 *         nor on this node since, true if it might be registered
+	 */
+	public boolean mightContain(String userId) {
+
+		boolean present = filter.mightContain(userId);
+
+		if (!present) {
+			meterRegistry.counter("user.existence-filter.rejected").increment();
+		}
+
+		return present;
+	}
+
+	/**
+	 * Adds a newly registered user to the filter
+	 * 
+	 * @param userId - unique identifier of user
+	 */
+	public void add(String userId) {
+
+		// rebuilding filter is read first, as it replaces the current filter before it is cleared
+		BloomFilter rebuilding = rebuildingFilter;
+		BloomFilter current = filter;
+
+		if (rebuilding != null) {
+			rebuilding.put(userId);
+		}
+
+		if (current != null) {
+			current.put(userId);
+		}
+	}
+
+	/**
+	 * Returns true if users found in the filter must be confirmed in storage
+	 * 
+	 * @return true if positives must be confirmed
+	 */
+	public boolean isConfirmPositives() {
+
+		return confirmPositives;
+	}
+
+	/**
+	 * Returns true if users missing from the filter must be confirmed in storage,
+	 * as they may have been registered on another node since the last rebuild
+	 * 
+	 * @return true if misses must be confirmed
+	 */
+	public boolean isConfirmMisses() {
+
+		return confirmMisses;
+	}
+
+}
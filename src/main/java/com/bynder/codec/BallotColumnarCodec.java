@@ -0,0 +1,349 @@
+package com.bynder.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.bynder.dto.BallotDTO;
+
+/**
+ * Util class to encode lists of ballots column by column in a compact binary
+ * format:
+ * 		* lotteryIds and userIds are written once into a dictionary each, and
+ * 		  every ballot refers to them by index.
+ * 		* numeric ballotIds are written as the difference to the previous
+ * 		  ballotId, which is small for ballots read in ballotId order.
+ * 		* created dates are written as the difference in seconds to the
+ * 		  previous created date.
+ *
+ * Integers are written as variable length integers, signed differences zigzag
+ * encoded first, and strings as their UTF-8 length followed by their bytes.
+ * BallotIds which are not all numeric and created dates which are not all in
+ * LOTTERY_DATE_FORMAT are written as strings instead, so any list of ballots is
+ * decoded to the same values.
+ *
+ * Layout: version, number of ballots, lotteryId dictionary, userId dictionary,
+ * lotteryId column, userId column, ballotId column, createdDate column.
+ *
+ * @author arathy
+ *
+ */
+public class BallotColumnarCodec {
+
+	public static final String MEDIA_TYPE_VALUE = "application/x-ballot-columnar";
+
+	private static final int VERSION = 1;
+
+	private static final int DELTA_COLUMN = 0;
+
+	private static final int STRING_COLUMN = 1;
+
+	private static final long NULL_VALUE = Long.MIN_VALUE;
+
+	// LOTTERY_DATE_FORMAT with a proleptic year, parsed strictly so every parsed
+	// date is formatted back to the same string
+	private static final DateTimeFormatter CREATED_DATE_FORMAT = DateTimeFormatter
+			.ofPattern("uuuu-MM-dd'T'HH:mm:ss").withResolverStyle(ResolverStyle.STRICT);
+
+	private static final int CREATED_DATE_LENGTH = 19;
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private BallotColumnarCodec() {
+
+	}
+
+	/**
+	 * Encodes the given ballots. The output stream is left open.
+	 *
+	 * @param ballots      - ballots to be encoded
+	 * @param outputStream - stream to write to
+	 *
+	 * @throws IOException - thrown if writing fails
+	 */
+	public static void encode(List<BallotDTO> ballots, OutputStream outputStream) throws IOException {
+
+		Map<String, Integer> lotteryIds = dictionary(ballots, BallotDTO::getLotteryId);
+		Map<String, Integer> userIds = dictionary(ballots, BallotDTO::getUserId);
+
+		writeVarint(outputStream, VERSION);
+		writeVarint(outputStream, ballots.size());
+		writeDictionary(outputStream, lotteryIds);
+		writeDictionary(outputStream, userIds);
+
+		for (BallotDTO ballot : ballots) {
+			writeVarint(outputStream, lotteryIds.get(ballot.getLotteryId()));
+		}
+
+		for (BallotDTO ballot : ballots) {
+			writeVarint(outputStream, userIds.get(ballot.getUserId()));
+		}
+
+		writeColumn(outputStream, ballots, BallotDTO::getBallotId, BallotColumnarCodec::parseBallotId);
+		writeColumn(outputStream, ballots, BallotDTO::getCreatedDate, BallotColumnarCodec::parseCreatedDate);
+	}
+
+	/**
+	 * Decodes ballots written by encode
+	 *
+	 * @param inputStream - stream to read from
+	 *
+	 * @return decoded ballots
+	 *
+	 * @throws IOException - thrown if reading fails or the input is not valid
+	 */
+	public static List<BallotDTO> decode(InputStream inputStream) throws IOException {
+
+		int version = (int) readVarint(inputStream);
+
+		if (version != VERSION) {
+			throw new IOException("Unsupported ballot encoding version " + version);
+		}
+
+		int size = (int) readVarint(inputStream);
+		String[] lotteryIds = readDictionary(inputStream);
+		String[] userIds = readDictionary(inputStream);
+
+		List<BallotDTO> ballots = new ArrayList<>(size);
+
+		for (int i = 0; i < size; i++) {
+			ballots.add(new BallotDTO(lotteryIds[(int) readVarint(inputStream)], null, null, null));
+		}
+
+		for (BallotDTO ballot : ballots) {
+			ballot.setUserId(userIds[(int) readVarint(inputStream)]);
+		}
+
+		String[] ballotIds = readColumn(inputStream, size, String::valueOf);
+		String[] createdDates = readColumn(inputStream, size,
+				seconds -> CREATED_DATE_FORMAT.format(LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC)));
+
+		for (int i = 0; i < size; i++) {
+			ballots.get(i).setBallotId(ballotIds[i]);
+			ballots.get(i).setCreatedDate(createdDates[i]);
+		}
+
+		return ballots;
+	}
+
+	/**
+	 * Assigns an index to every distinct value in order of appearance, index 0
+	 * stands for null
+	 */
+	private static Map<String, Integer> dictionary(List<BallotDTO> ballots, Function<BallotDTO, String> field) {
+
+		Map<String, Integer> dictionary = new LinkedHashMap<>();
+		dictionary.put(null, 0);
+
+		for (BallotDTO ballot : ballots) {
+			dictionary.putIfAbsent(field.apply(ballot), dictionary.size());
+		}
+
+		return dictionary;
+	}
+
+	private static void writeDictionary(OutputStream outputStream, Map<String, Integer> dictionary)
+			throws IOException {
+
+		writeVarint(outputStream, dictionary.size() - 1);
+
+		for (String value : dictionary.keySet()) {
+			if (value != null) {
+				writeString(outputStream, value);
+			}
+		}
+	}
+
+	private static String[] readDictionary(InputStream inputStream) throws IOException {
+
+		String[] dictionary = new String[(int) readVarint(inputStream) + 1];
+
+		for (int i = 1; i < dictionary.length; i++) {
+			dictionary[i] = readString(inputStream);
+		}
+
+		return dictionary;
+	}
+
+	/**
+	 * Writes a column as differences between consecutive parsed values if every
+	 * value can be parsed, else as strings
+	 *
+	 * @param parser - returns the value as a long, NULL_VALUE for null and null if
+	 *               it cannot be restored from a long
+	 */
+	private static void writeColumn(OutputStream outputStream, List<BallotDTO> ballots,
+			Function<BallotDTO, String> field, Function<String, Long> parser) throws IOException {
+
+		long[] values = new long[ballots.size()];
+
+		for (int i = 0; i < values.length; i++) {
+
+			Long value = parser.apply(field.apply(ballots.get(i)));
+
+			if (value == null) {
+
+				writeVarint(outputStream, STRING_COLUMN);
+				for (BallotDTO ballot : ballots) {
+					writeString(outputStream, field.apply(ballot));
+				}
+				return;
+			}
+
+			values[i] = value;
+		}
+
+		writeVarint(outputStream, DELTA_COLUMN);
+
+		long previous = 0;
+		for (long value : values) {
+			// differences wrap around, the sum on decoding wraps back
+			long delta = value - previous;
+			writeVarint(outputStream, (delta << 1) ^ (delta >> 63));
+			previous = value;
+		}
+	}
+
+	private static String[] readColumn(InputStream inputStream, int size, Function<Long, String> formatter)
+			throws IOException {
+
+		String[] values = new String[size];
+		int encoding = (int) readVarint(inputStream);
+
+		if (encoding == STRING_COLUMN) {
+
+			for (int i = 0; i < size; i++) {
+				values[i] = readString(inputStream);
+			}
+			return values;
+		}
+
+		if (encoding != DELTA_COLUMN) {
+			throw new IOException("Unknown column encoding " + encoding);
+		}
+
+		long previous = 0;
+		for (int i = 0; i < size; i++) {
+			long zigzag = readVarint(inputStream);
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			values[i] = previous == NULL_VALUE ? null : formatter.apply(previous);
+		}
+
+		return values;
+	}
+
+	private static Long parseBallotId(String ballotId) {
+
+		if (ballotId == null) {
+			return NULL_VALUE;
+		}
+
+		try {
+			long value = Long.parseLong(ballotId);
+			return value != NULL_VALUE && String.valueOf(value).equals(ballotId) ? value : null;
+		} catch (NumberFormatException exception) {
+			return null;
+		}
+	}
+
+	private static Long parseCreatedDate(String createdDate) {
+
+		if (createdDate == null) {
+			return NULL_VALUE;
+		}
+
+		// years beyond 9999 or before 0 are not formatted back to the same length
+		if (createdDate.length() != CREATED_DATE_LENGTH) {
+			return null;
+		}
+
+		try {
+			return LocalDateTime.parse(createdDate, CREATED_DATE_FORMAT).toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeException exception) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length plus one followed by its bytes, a length
+	 * of 0 stands for null
+	 */
+	static void writeString(OutputStream outputStream, String value) throws IOException {
+
+		if (value == null) {
+			writeVarint(outputStream, 0);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(outputStream, bytes.length + 1L);
+		outputStream.write(bytes);
+	}
+
+	static String readString(InputStream inputStream) throws IOException {
+
+		int length = (int) readVarint(inputStream);
+
+		if (length == 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length - 1];
+		int read = 0;
+
+		while (read < bytes.length) {
+
+			int count = inputStream.read(bytes, read, bytes.length - read);
+			if (count < 0) {
+				throw new EOFException();
+			}
+			read += count;
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeVarint(OutputStream outputStream, long value) throws IOException {
+
+		while ((value & ~0x7FL) != 0) {
+			outputStream.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+
+		outputStream.write((int) value);
+	}
+
+	static long readVarint(InputStream inputStream) throws IOException {
+
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+
+			int b = inputStream.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed variable length integer");
+	}
+
+}
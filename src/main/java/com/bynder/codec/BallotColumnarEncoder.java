@@ -0,0 +1,70 @@
+package com.bynder.codec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import com.bynder.dto.BallotDTO;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Encoder writing lists of ballots in the columnar encoding of
+ * BallotColumnarCodec on the reactive stack, for requests accepting
+ * application/x-ballot-columnar
+ *
+ * @author arathy
+ *
+ */
+public class BallotColumnarEncoder extends AbstractEncoder<List<BallotDTO>> {
+
+	public BallotColumnarEncoder() {
+
+		super(BallotColumnarHttpMessageConverter.MEDIA_TYPE);
+	}
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+
+		return BallotColumnarHttpMessageConverter.isBallotList(elementType) && super.canEncode(elementType, mimeType);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<? extends List<BallotDTO>> inputStream, DataBufferFactory bufferFactory,
+			ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+
+		return Flux.from(inputStream).map(ballots -> encodeValue(ballots, bufferFactory, elementType, mimeType, hints));
+	}
+
+	@Override
+	public DataBuffer encodeValue(List<BallotDTO> ballots, DataBufferFactory bufferFactory, ResolvableType valueType,
+			MimeType mimeType, Map<String, Object> hints) {
+
+		DataBuffer buffer = bufferFactory.allocateBuffer();
+
+		try {
+			BallotColumnarCodec.encode(ballots, buffer.asOutputStream());
+			return buffer;
+		} catch (IOException exception) {
+			DataBufferUtils.release(buffer);
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@Override
+	public List<MimeType> getEncodableMimeTypes() {
+
+		return Collections.singletonList(BallotColumnarHttpMessageConverter.MEDIA_TYPE);
+	}
+
+}
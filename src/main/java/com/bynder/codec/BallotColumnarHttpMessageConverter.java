@@ -0,0 +1,89 @@
+package com.bynder.codec;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.bynder.dto.BallotDTO;
+
+/**
+ * Message converter writing lists of ballots in the columnar encoding of
+ * BallotColumnarCodec, for requests accepting application/x-ballot-columnar
+ *
+ * @author arathy
+ *
+ */
+public class BallotColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<BallotDTO>> {
+
+	public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(BallotColumnarCodec.MEDIA_TYPE_VALUE);
+
+	public BallotColumnarHttpMessageConverter() {
+
+		super(MEDIA_TYPE);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+
+		return List.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+
+		return false;
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+
+		return false;
+	}
+
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+
+		return isBallotList(type == null ? ResolvableType.forClass(clazz) : ResolvableType.forType(type))
+				&& canWrite(mediaType);
+	}
+
+	/**
+	 * Returns whether the given type is a list of ballots
+	 *
+	 * @param type - type of the value to be written
+	 *
+	 * @return true if the type is a list of BallotDTO
+	 */
+	static boolean isBallotList(ResolvableType type) {
+
+		return List.class.isAssignableFrom(type.toClass())
+				&& BallotDTO.class.isAssignableFrom(type.asCollection().getGeneric().toClass());
+	}
+
+	@Override
+	protected void writeInternal(List<BallotDTO> ballots, Type type, HttpOutputMessage outputMessage)
+			throws IOException {
+
+		BallotColumnarCodec.encode(ballots, outputMessage.getBody());
+	}
+
+	@Override
+	public List<BallotDTO> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+
+		throw new HttpMessageNotReadableException("Ballots are not read in columnar encoding", inputMessage);
+	}
+
+	@Override
+	protected List<BallotDTO> readInternal(Class<? extends List<BallotDTO>> clazz, HttpInputMessage inputMessage) {
+
+		throw new HttpMessageNotReadableException("Ballots are not read in columnar encoding", inputMessage);
+	}
+
+}
@@ -0,0 +1,257 @@
+package com.bynder.codec;
+
+import static com.bynder.codec.BallotColumnarCodec.readString;
+import static com.bynder.codec.BallotColumnarCodec.readVarint;
+import static com.bynder.codec.BallotColumnarCodec.writeString;
+import static com.bynder.codec.BallotColumnarCodec.writeVarint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.bynder.model.Ballot;
+
+/**
+ * Util class to encode the ballots of an archived lottery column by column,
+ * compressed with deflate:
+ * 		* userIds are written once into a dictionary, and every ballot refers to
+ * 		  them by index.
+ * 		* numeric ballotIds, created dates in epoch ms and ordinals are written
+ * 		  as the difference to the value of the previous ballot, which is small
+ * 		  for ballots of one lottery read in ballotId order.
+ *
+ * The lotteryId is not encoded, all ballots of a segment belong to the lottery
+ * of the segment. BallotIds which are not all numeric are written as strings,
+ * with the variable length integers and strings of BallotColumnarCodec.
+ *
+ * Layout: version, number of ballots, userId dictionary, userId column,
+ * ballotId column, createdDate column, ordinal column.
+ *
+ * @author arathy
+ *
+ */
+public class BallotSegmentCodec {
+
+	private static final int VERSION = 1;
+
+	private static final int DELTA_COLUMN = 0;
+
+	private static final int STRING_COLUMN = 1;
+
+	private static final long NULL_VALUE = Long.MIN_VALUE;
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private BallotSegmentCodec() {
+
+	}
+
+	/**
+	 * Encodes and compresses the given ballots
+	 *
+	 * @param ballots - ballots to be encoded
+	 *
+	 * @return compressed segment data
+	 *
+	 * @throws IOException - thrown if encoding fails
+	 */
+	public static byte[] encode(List<Ballot> ballots) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (OutputStream outputStream = new BufferedOutputStream(new DeflaterOutputStream(bytes))) {
+
+			Map<String, Integer> userIds = new LinkedHashMap<>();
+			userIds.put(null, 0);
+			ballots.forEach(ballot -> userIds.putIfAbsent(ballot.getUserId(), userIds.size()));
+
+			writeVarint(outputStream, VERSION);
+			writeVarint(outputStream, ballots.size());
+
+			writeVarint(outputStream, userIds.size() - 1);
+			for (String userId : userIds.keySet()) {
+				if (userId != null) {
+					writeString(outputStream, userId);
+				}
+			}
+
+			for (Ballot ballot : ballots) {
+				writeVarint(outputStream, userIds.get(ballot.getUserId()));
+			}
+
+			long[] ballotIds = parseBallotIds(ballots);
+
+			if (ballotIds == null) {
+
+				writeVarint(outputStream, STRING_COLUMN);
+				for (Ballot ballot : ballots) {
+					writeString(outputStream, ballot.getBallotId());
+				}
+
+			} else {
+
+				writeVarint(outputStream, DELTA_COLUMN);
+				writeDeltas(outputStream, ballotIds);
+			}
+
+			writeDeltas(outputStream, values(ballots,
+					ballot -> ballot.getCreatedDate() == null ? null : ballot.getCreatedDate().getTime()));
+			writeDeltas(outputStream, values(ballots, Ballot::getOrdinal));
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes ballots written by encode
+	 *
+	 * @param data      - compressed segment data
+	 * @param lotteryId - lotteryId of the segment
+	 *
+	 * @return decoded ballots
+	 *
+	 * @throws IOException - thrown if the data is not valid
+	 */
+	public static List<Ballot> decode(byte[] data, String lotteryId) throws IOException {
+
+		try (InputStream inputStream = new BufferedInputStream(
+				new InflaterInputStream(new ByteArrayInputStream(data)))) {
+
+			int version = (int) readVarint(inputStream);
+
+			if (version != VERSION) {
+				throw new IOException("Unsupported ballot segment version " + version);
+			}
+
+			int size = (int) readVarint(inputStream);
+
+			String[] userIds = new String[(int) readVarint(inputStream) + 1];
+			for (int i = 1; i < userIds.length; i++) {
+				userIds[i] = readString(inputStream);
+			}
+
+			List<Ballot> ballots = new ArrayList<>(size);
+
+			for (int i = 0; i < size; i++) {
+
+				Ballot ballot = new Ballot();
+				ballot.setLotteryId(lotteryId);
+				ballot.setUserId(userIds[(int) readVarint(inputStream)]);
+				ballots.add(ballot);
+			}
+
+			int encoding = (int) readVarint(inputStream);
+
+			if (encoding == STRING_COLUMN) {
+
+				for (Ballot ballot : ballots) {
+					ballot.setBallotId(readString(inputStream));
+				}
+
+			} else if (encoding == DELTA_COLUMN) {
+
+				long[] ballotIds = readDeltas(inputStream, size);
+				for (int i = 0; i < size; i++) {
+					ballots.get(i).setBallotId(ballotIds[i] == NULL_VALUE ? null : String.valueOf(ballotIds[i]));
+				}
+
+			} else {
+
+				throw new IOException("Unknown column encoding " + encoding);
+			}
+
+			long[] createdDates = readDeltas(inputStream, size);
+			long[] ordinals = readDeltas(inputStream, size);
+
+			for (int i = 0; i < size; i++) {
+				ballots.get(i).setCreatedDate(createdDates[i] == NULL_VALUE ? null : new Date(createdDates[i]));
+				ballots.get(i).setOrdinal(ordinals[i] == NULL_VALUE ? null : ordinals[i]);
+			}
+
+			return ballots;
+		}
+	}
+
+	/**
+	 * Returns the ballotIds as numbers, null if any ballotId cannot be restored
+	 * from a number
+	 */
+	private static long[] parseBallotIds(List<Ballot> ballots) {
+
+		long[] ballotIds = new long[ballots.size()];
+
+		for (int i = 0; i < ballotIds.length; i++) {
+
+			String ballotId = ballots.get(i).getBallotId();
+
+			if (ballotId == null) {
+				ballotIds[i] = NULL_VALUE;
+				continue;
+			}
+
+			try {
+				ballotIds[i] = Long.parseLong(ballotId);
+			} catch (NumberFormatException exception) {
+				return null;
+			}
+
+			if (ballotIds[i] == NULL_VALUE || !String.valueOf(ballotIds[i]).equals(ballotId)) {
+				return null;
+			}
+		}
+
+		return ballotIds;
+	}
+
+	private static long[] values(List<Ballot> ballots, Function<Ballot, Long> field) {
+
+		long[] values = new long[ballots.size()];
+
+		for (int i = 0; i < values.length; i++) {
+			Long value = field.apply(ballots.get(i));
+			values[i] = value == null ? NULL_VALUE : value;
+		}
+
+		return values;
+	}
+
+	private static void writeDeltas(OutputStream outputStream, long[] values) throws IOException {
+
+		long previous = 0;
+
+		for (long value : values) {
+			// differences wrap around, the sum on decoding wraps back
+			long delta = value - previous;
+			writeVarint(outputStream, (delta << 1) ^ (delta >> 63));
+			previous = value;
+		}
+	}
+
+	private static long[] readDeltas(InputStream inputStream, int size) throws IOException {
+
+		long[] values = new long[size];
+		long previous = 0;
+
+		for (int i = 0; i < size; i++) {
+			long zigzag = readVarint(inputStream);
+			previous += (zigzag >>> 1) ^ -(zigzag & 1);
+			values[i] = previous;
+		}
+
+		return values;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.bynder.config;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.bynder.codec.BallotColumnarHttpMessageConverter;
+
+/**
+ * Configuration class for registering the columnar ballot encoding with the
+ * servlet stack.
+ * 
+ * The converter is added after the default converters, so JSON stays the
+ * default encoding. Smile is registered by Spring MVC itself.
+ * 
+ * @author arathy
+ *
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class CodecConfig implements WebMvcConfigurer {
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+
+		converters.add(new BallotColumnarHttpMessageConverter());
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.bynder.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.bynder.codec.BallotColumnarEncoder;
+
+/**
+ * Configuration class for registering the columnar ballot encoding with the
+ * reactive stack. Smile is registered by Spring WebFlux itself.
+ * 
+ * @author arathy
+ *
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveCodecConfig implements WebFluxConfigurer {
+
+	@Override
+	public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+
+		configurer.customCodecs().register(new BallotColumnarEncoder());
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.bynder.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration properties related to sequence generation
+ *
+ * Block size is configured per sequence name, e.g.
+ * sequence.block-size[BALLOT_ID_SEQUENCE]=1000. Sequences without a configured
+ * block size are incremented one by one in storage.
+ *
+ * @author arathy
+ *
+ */
+@Configuration
+@ConfigurationProperties(prefix = "sequence")
+@Getter
+@Setter
+public class SequenceProperties {
+
+	private Map<String, Long> blockSize = new HashMap<>();
+
+	/**
+	 * Returns the number of sequence values reserved in one storage call for the
+	 * given sequence name
+	 *
+	 * @param sequenceName - name of the sequence
+	 *
+	 * @return configured block size, 1 if not configured
+	 */
+	public long blockSizeFor(String sequenceName) {
+
+		Long size = blockSize.get(sequenceName);
+		return size == null ? 1 : size;
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.bynder.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Applies storage.engine=memory to the environment, so the property alone
+ * starts the application without Mongo:
+ * 		* the Mongo auto-configurations are excluded, in addition to any
+ * 		  configured spring.autoconfigure.exclude, so no Mongo client and no
+ * 		  Mongo repositories are created next to the in-memory repositories
+ * 		* features backed by Mongo collections are switched to their in-memory
+ * 		  equivalent, logging each property which is changed
+ *
+ * Runs after the configuration files are loaded, so profiles and command line
+ * arguments setting storage.engine are taken into account.
+ *
+ * @author arathy
+ *
+ */
+public class StorageEngineEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+	static final String PROPERTY_SOURCE_NAME = "storageEngineMemory";
+
+	static final String EXCLUDE_PROPERTY = "spring.autoconfigure.exclude";
+
+	static final String[] MONGO_AUTO_CONFIGURATIONS = {
+			"org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration",
+			"org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+			"org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration",
+			"org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+			"org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration",
+			"org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration" };
+
+	// logging is not initialized yet, messages are replayed once it is
+	private final Log log;
+
+	/**
+	 * Creates the post processor
+	 *
+	 * @param logFactory - factory of logs deferred until logging is initialized
+	 */
+	public StorageEngineEnvironmentPostProcessor(DeferredLogFactory logFactory) {
+
+		this.log = logFactory.getLog(StorageEngineEnvironmentPostProcessor.class);
+	}
+
+	@Override
+	public int getOrder() {
+
+		return ConfigDataEnvironmentPostProcessor.ORDER + 1;
+	}
+
+	/**
+	 * Excludes the Mongo auto-configurations and switches Mongo-backed features,
+	 * if storage.engine is set to memory
+	 *
+	 * @param environment - environment of the application
+	 * @param application - application being started
+	 */
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+
+		if (!StringUtils.equalsIgnoreCase(environment.getProperty("storage.engine"), "memory")) {
+			return;
+		}
+
+		Set<String> excludes = new LinkedHashSet<>(Binder.get(environment)
+				.bind(EXCLUDE_PROPERTY, Bindable.listOf(String.class)).orElse(Collections.emptyList()));
+		excludes.addAll(Arrays.asList(MONGO_AUTO_CONFIGURATIONS));
+
+		Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put(EXCLUDE_PROPERTY, String.join(",", excludes));
+
+		switchProperty(environment, properties, "mongo.index.reconcile", "true", "true", "false");
+		switchProperty(environment, properties, "sequence.generator", "mongo", "mongo", "memory");
+		switchProperty(environment, properties, "idempotency.store", "memory", "mongo", "memory");
+		switchProperty(environment, properties, "scheduler.coordination", "none", "lease", "none");
+
+		environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+	}
+
+	/**
+	 * Replaces the value of a property selecting a Mongo-backed feature with its
+	 * in-memory equivalent
+	 *
+	 * @param environment  - environment of the application
+	 * @param properties   - properties overriding the environment
+	 * @param name         - name of the property
+	 * @param defaultValue - value used if the property is not set
+	 * @param mongoValue   - value selecting the Mongo-backed feature
+	 * @param memoryValue  - value selecting the in-memory equivalent
+	 */
+	private void switchProperty(ConfigurableEnvironment environment, Map<String, Object> properties, String name,
+			String defaultValue, String mongoValue, String memoryValue) {
+
+		String value = environment.getProperty(name, defaultValue);
+
+		if (StringUtils.equalsIgnoreCase(value, mongoValue)) {
+			log.info(String.format("%s=%s requires Mongo, using %s with storage.engine=memory", name, value,
+					memoryValue));
+			properties.put(name, memoryValue);
+		}
+	}
+
+}
@@ -17,15 +17,15 @@ public final class Constants {
 
 	public static final String STATUS = "status";
 
-	public static final String REQUIRED = "required";
+	public static final String CLOSED = "CLOSED";
 
-	public static final String NAME = "name";
+	public static final String OPEN = "OPEN";
 
-	public static final String VALUE = "value";
+	public static final String ARCHIVING = "ARCHIVING";
 
-	public static final String CLOSED = "CLOSED";
+	public static final String PURGING = "PURGING";
 
-	public static final String OPEN = "OPEN";
+	public static final String ARCHIVED = "ARCHIVED";
 
 	public static final String SEQ_NAME = "seqName";
 
@@ -37,6 +37,17 @@ public final class Constants {
 
 	public static final String LOTTERY_SEQUENCE = "LOTTERY_ID_SEQUENCE";
 
+	public static final String BALLOT_ORDINAL_SEQUENCE = "BALLOT_ORDINAL_SEQUENCE_";
+
 	public static final String LOTTERY_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
 
+	public static final String RESULT_DATE_FORMAT = "yyyy-MM-dd";
+
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+	// results of closed lotteries never change, so they are cached for a year
+	public static final String LOTTERY_RESULT_CACHE_CONTROL = "max-age=31536000, public, immutable";
+
 }
@@ -1,56 +1,124 @@
 package com.bynder.controller;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bynder.codec.BallotColumnarCodec;
+import com.bynder.constants.Constants;
+import com.bynder.dto.BallotBatchDTO;
 import com.bynder.dto.BallotDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.IdempotencyConflictException;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.idempotency.IdempotencyHandler;
 import com.bynder.service.BallotService;
+import com.bynder.utils.NdjsonUtils;
 
 /**
  * Controller class to handle the requests related to Ballot operations: 
- * 		* get the ballots for a given userId. 
+ * 		* get the ballots for a given userId, one page at a time. 
+ * 		* stream the ballots for a given userId as JSON lines.
  * 		* save a new ballot related to a lottery.
+ * 		* save a batch of ballots in one request.
  * 
  * @author arathy
  *
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class BallotController {
 
 	@Autowired
 	private BallotService ballotService;
 
+	@Autowired
+	private IdempotencyHandler idempotencyHandler;
+
+	private static final String IDEMPOTENCY_SCOPE = "ballot:";
+
 	/**
-	 * Returns the list of ballots.
+	 * Returns a page of ballots.
 	 * 
 	 * Takes 2 optional parameters userId and lotteryId, based on which
 	 * corresponding ballots are returned. If both are not provided, then all the
 	 * ballots are returned.
 	 * 
+	 * Ballots are returned one page of at most limit ballots at a time. If more
+	 * ballots follow, the cursor of the next page is returned in the X-Next-Cursor
+	 * header and is passed as after to get the next page.
+	 * 
 	 * If no ballots exists for the particular user, exception with the appropriate
 	 * error message is returned.
 	 * 
 	 * @param userId    - unique identifier related to a customer
 	 * @param lotteryId - unique identifier related to a lottery
+	 * @param limit     - optional page size
+	 * @param after     - optional cursor returned with the previous page
 	 * 
 	 * @return list of ballots, if any present
 	 * 
+	 * @throws InvalidRequestException   - exception thrown if the page size or
+	 *                                   cursor is invalid
 	 * @throws ResourceNotFoundException - exception thrown if no ballots are
 	 *                                   present
 	 */
-	@GetMapping(value = "/ballots")
-	public List<BallotDTO> getBallots(@RequestParam(value = "userId", required = false) String userId,
-			@RequestParam(value = "lotteryId", required = false) String lotteryId) throws ResourceNotFoundException {
+	@GetMapping(value = "/ballots", produces = { MediaType.APPLICATION_JSON_VALUE, Constants.APPLICATION_SMILE_VALUE,
+			BallotColumnarCodec.MEDIA_TYPE_VALUE })
+	public ResponseEntity<List<BallotDTO>> getBallots(@RequestParam(value = "userId", required = false) String userId,
+			@RequestParam(value = "lotteryId", required = false) String lotteryId,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after)
+			throws InvalidRequestException, ResourceNotFoundException {
+
+		PageDTO<BallotDTO> page = ballotService.getBallots(userId, lotteryId, limit, after);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+
+		return response.body(page.getItems());
+
+	}
+
+	/**
+	 * Streams all ballots as newline delimited JSON.
+	 * 
+	 * Takes the same optional parameters as getBallots. Ballots are written as
+	 * they are read from storage, so any number of ballots can be returned in one
+	 * response.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param response  - response the ballots are written to
+	 * 
+	 * @throws IOException - thrown if writing the response fails
+	 */
+	@GetMapping(value = "/ballots/stream", produces = NdjsonUtils.APPLICATION_NDJSON_VALUE)
+	public void streamBallots(@RequestParam(value = "userId", required = false) String userId,
+			@RequestParam(value = "lotteryId", required = false) String lotteryId, HttpServletResponse response)
+			throws IOException {
 
-		return ballotService.getBallots(userId, lotteryId);
+		response.setContentType(NdjsonUtils.APPLICATION_NDJSON_VALUE);
+		ballotService.streamBallots(userId, lotteryId, response.getOutputStream());
 
 	}
 
@@ -60,21 +128,70 @@ public class BallotController {
 	 * If the given user or lottery does not exists or lottery is not active, then
 	 * exception with the appropriate error message is returned.
 	 * 
-	 * @param ballotDto - ballot dto object request containing userId and lotteryId
+	 * The response is sent once the ballot is committed to storage, which can be
+	 * deferred to the next batch of the write-behind buffer.
+	 * 
+	 * If an Idempotency-Key header is given, the response is stored against the
+	 * key and retries with the same key return the stored response without
+	 * creating another ballot. The key is released if the ballot is not created,
+	 * and cannot be reused for a request with another body.
+	 * 
+	 * @param idempotencyKey - optional key identifying retries of the same request
+	 * @param ballotDto      - ballot dto object request containing userId and
+	 *                       lotteryId
 	 * 
 	 * @return success response with created ballotId
 	 * 
-	 * @throws ResourceNotFoundException - exception thrown if the user or lottery
-	 *                                   is not present
-	 * @throws LotteryStatusException    - exception thrown if ballot is submitted
-	 *                                   for a closed lottery
+	 * @throws ResourceNotFoundException    - exception thrown if the user or
+	 *                                      lottery is not present
+	 * @throws LotteryStatusException       - exception thrown if ballot is
+	 *                                      submitted for a closed lottery
+	 * @throws IdempotencyConflictException - exception thrown if a request with
+	 *                                      the same key is still being processed,
+	 *                                      or the key was used for another request
 	 */
 	@PostMapping(value = "/ballot")
-	public String createBallot(@RequestBody(required = true) BallotDTO ballotDto)
-			throws ResourceNotFoundException, LotteryStatusException {
+	public CompletableFuture<String> createBallot(
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody(required = true) BallotDTO ballotDto)
+			throws ResourceNotFoundException, LotteryStatusException, IdempotencyConflictException {
+
+		if (StringUtils.isBlank(idempotencyKey)) {
+			return ballotService.createBallotAsync(ballotDto).thenApply(ballotId -> "Ballot created with id:" + ballotId);
+		}
+
+		return idempotencyHandler.<ResourceNotFoundException, LotteryStatusException>executeAsync(
+				IDEMPOTENCY_SCOPE + idempotencyKey, ballotDto, () -> ballotService.createBallotAsync(ballotDto)
+						.thenApply(ballotId -> "Ballot created with id:" + ballotId));
+
+	}
+
+	/**
+	 * Creates a batch of ballots in one request.
+	 * 
+	 * Ballots can be given as a list of userId and lotteryId pairs, or as a single
+	 * userId and lotteryId with the quantity of ballots to be created.
+	 * 
+	 * If any of the given users or lotteries does not exist or any lottery is not
+	 * active, no ballot is created and exception with the appropriate error
+	 * message is returned.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return created ballots
+	 * 
+	 * @throws InvalidRequestException   - exception thrown if the batch is empty
+	 *                                   or exceeds the maximum batch size
+	 * @throws ResourceNotFoundException - exception thrown if any user or lottery
+	 *                                   is not present
+	 * @throws LotteryStatusException    - exception thrown if any ballot is
+	 *                                   submitted for a closed lottery
+	 */
+	@PostMapping(value = "/ballots/batch")
+	public List<BallotDTO> createBallots(@RequestBody(required = true) BallotBatchDTO ballotBatchDto)
+			throws InvalidRequestException, ResourceNotFoundException, LotteryStatusException {
 
-		String ballotId = ballotService.createBallot(ballotDto);
-		return "Ballot created with id:" + ballotId;
+		return ballotService.createBallots(ballotBatchDto);
 
 	}
 
@@ -1,37 +1,58 @@
 package com.bynder.controller;
 
+import java.io.IOException;
 import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.constants.Constants;
 import com.bynder.dto.LotteryDTO;
-import com.bynder.dto.LotteryResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
 import com.bynder.service.LotteryService;
+import com.bynder.subscription.LotteryResultSubscriptions;
+import com.bynder.utils.NdjsonUtils;
 
 /**
  * Controller class to handle the requests related to Lottery operations: 
  * 		* get all the lottery present in storage. 
- * 		* get the lottery list based on status(open/closed). 
+ * 		* get the lottery list based on status(open/closed), one page at a time. 
+ * 		* stream the lottery list based on status as JSON lines.
+ * 		* get the result of a closed lottery, cacheable by clients.
+ * 		* wait for the result of a lottery as Server-Sent Events.
  * 		* save a new lottery into the storage.
  * 
  * @author arathy
  *
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class LotteryController {
 
 	@Autowired
 	private LotteryService lotteryService;
 
+	@Autowired
+	private LotteryResultSubscriptions lotteryResultSubscriptions;
+
 	/**
-	 * Returns the list of lotteries present in the storage.
+	 * Returns a page of lotteries present in the storage.
 	 * 
 	 * Takes an optional parameter status(value can be OPEN/CLOSED) based on which
 	 * list of open/closed lottery list is returned.
@@ -39,18 +60,57 @@ public class LotteryController {
 	 * If status is not present in request, returns all the lotteries in the
 	 * storage.
 	 * 
+	 * Lotteries are returned one page of at most limit lotteries at a time. If
+	 * more lotteries follow, the cursor of the next page is returned in the
+	 * X-Next-Cursor header and is passed as after to get the next page.
+	 * 
 	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * @param limit  - optional page size
+	 * @param after  - optional cursor returned with the previous page
 	 * 
 	 * @return list of lotteries in the storage based on input request
 	 * 
+	 * @throws InvalidRequestException   - exception thrown if the page size or
+	 *                                   cursor is invalid
 	 * @throws ResourceNotFoundException - exception thrown if no lotteries based on
 	 *                                   the request is present in storage
 	 */
-	@GetMapping(value = "/lotteries")
-	public List<LotteryDTO> getLotteries(@RequestParam(value = "status", required = false) String status)
-			throws ResourceNotFoundException {
+	@GetMapping(value = "/lotteries", produces = { MediaType.APPLICATION_JSON_VALUE,
+			Constants.APPLICATION_SMILE_VALUE })
+	public ResponseEntity<List<LotteryDTO>> getLotteries(
+			@RequestParam(value = "status", required = false) String status,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after)
+			throws InvalidRequestException, ResourceNotFoundException {
+
+		PageDTO<LotteryDTO> page = lotteryService.getLotteries(status, limit, after);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+
+		return response.body(page.getItems());
+
+	}
+
+	/**
+	 * Streams all lotteries as newline delimited JSON.
+	 * 
+	 * Takes the same optional status parameter as getLotteries. Lotteries are
+	 * written as they are read from storage.
+	 * 
+	 * @param status   - optional input parameter(value can be OPEN/CLOSED)
+	 * @param response - response the lotteries are written to
+	 * 
+	 * @throws IOException - thrown if writing the response fails
+	 */
+	@GetMapping(value = "/lotteries/stream", produces = NdjsonUtils.APPLICATION_NDJSON_VALUE)
+	public void streamLotteries(@RequestParam(value = "status", required = false) String status,
+			HttpServletResponse response) throws IOException {
 
-		return lotteryService.getLotteries(status);
+		response.setContentType(NdjsonUtils.APPLICATION_NDJSON_VALUE);
+		lotteryService.streamLotteries(status, response.getOutputStream());
 
 	}
 
@@ -62,6 +122,10 @@ public class LotteryController {
 	 * If no winner is present for the lottery, then appropriate error message is
 	 * returned.
 	 * 
+	 * The result is written from its cached JSON with a strong ETag and as
+	 * immutable, so clients and proxies can keep it. A request whose
+	 * If-None-Match header matches the ETag gets 304 Not Modified without a body.
+	 * 
 	 * 
 	 * @param lotteryId - unique identifier of the lottery for which result is
 	 *                  requested
@@ -76,24 +140,57 @@ public class LotteryController {
 	 *                                    closed and winner is not selected
 	 */
 	@GetMapping(value = "/lotteryResult")
-	public LotteryResultDTO getLotteryResult(@RequestParam(value = "lotteryId", required = true) String lotteryId)
+	public ResponseEntity<byte[]> getLotteryResult(
+			@RequestParam(value = "lotteryId", required = true) String lotteryId)
 			throws ResourceNotFoundException, LotteryStatusException {
 
-		return lotteryService.getLotteryResult(lotteryId);
+		EncodedLotteryResult result = lotteryService.getEncodedLotteryResult(lotteryId);
+
+		// conditional requests are answered with 304 by the ResponseEntity handling
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(result.getETag())
+				.header(HttpHeaders.CACHE_CONTROL, Constants.LOTTERY_RESULT_CACHE_CONTROL).body(result.getBody());
+
+	}
+
+	/**
+	 * Streams the result of a lottery as Server-Sent Events.
+	 * 
+	 * The result is sent as one "result" event once the lottery is closed, or
+	 * right away if it is closed already, and the stream is completed. The event
+	 * data is the same JSON as returned by getLotteryResult and the event id is
+	 * its ETag. No thread is held while the client waits.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return event stream of the lottery result
+	 * 
+	 * @throws ResourceNotFoundException - exception thrown if no lottery is present
+	 *                                   in storage for the request
+	 */
+	// no produces, so errors are still written as JSON, the emitter sets text/event-stream
+	@GetMapping(value = "/lotteryResult/stream")
+	public SseEmitter streamLotteryResult(@RequestParam(value = "lotteryId", required = true) String lotteryId)
+			throws ResourceNotFoundException {
+
+		return lotteryResultSubscriptions.subscribe(lotteryId);
 
 	}
 
 	/**
 	 * Creates a new lottery in the storage.
 	 * 
-	 * @param lotteryDto - input request containing the lotteryId, name, prizeMoney
-	 *                   and startDate
+	 * @param lotteryDto - input request containing the lotteryId, name,
+	 *                   prizeMoney, startDate, closeTime and timeZone
 	 * 
 	 * @return success message with created lotteryId
 	 * 
+	 * @throws InvalidRequestException - exception thrown if the time zone is
+	 *                                 unknown or the close time is invalid
+	 * 
 	 */
 	@PostMapping(value = "/lottery")
-	public String createLottery(@RequestBody(required = true) LotteryDTO lotteryDto) {
+	public String createLottery(@RequestBody(required = true) LotteryDTO lotteryDto) throws InvalidRequestException {
 
 		return "Lottery created with lotteryId:" + lotteryService.createLottery(lotteryDto);
 
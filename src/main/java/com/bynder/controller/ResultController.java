@@ -0,0 +1,80 @@
+package com.bynder.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bynder.constants.Constants;
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.service.DailyResultService;
+
+/**
+ * Controller class to handle the requests related to lottery results by date:
+ * 		* get the results of the lotteries closed on a date, one page at a time.
+ * 		* get the results of the lotteries closed between two dates, one page at
+ * 		  a time.
+ *
+ * @author arathy
+ *
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class ResultController {
+
+	@Autowired
+	private DailyResultService dailyResultService;
+
+	/**
+	 * Returns the results of the lotteries closed on a date, or between two dates
+	 * inclusive, as yyyy-MM-dd in the time zone of each lottery.
+	 *
+	 * Either date or both from and to have to be given. Results are ordered by
+	 * date and lotteryId and returned one page of at most limit results at a
+	 * time. If more results follow, the cursor of the next page is returned in
+	 * the X-Next-Cursor header and is passed as after to get the next page.
+	 *
+	 * @param date  - result date, if no range is given
+	 * @param from  - first result date of the range
+	 * @param to    - last result date of the range
+	 * @param limit - optional page size
+	 * @param after - optional cursor returned with the previous page
+	 *
+	 * @return results of the lotteries closed on the requested dates
+	 *
+	 * @throws InvalidRequestException   - exception thrown if the dates, page size
+	 *                                   or cursor are invalid
+	 * @throws ResourceNotFoundException - exception thrown if no lottery was closed
+	 *                                   on the requested dates
+	 */
+	@GetMapping(value = "/results", produces = { MediaType.APPLICATION_JSON_VALUE,
+			Constants.APPLICATION_SMILE_VALUE })
+	public ResponseEntity<List<DailyResultDTO>> getResults(
+			@RequestParam(value = "date", required = false) String date,
+			@RequestParam(value = "from", required = false) String from,
+			@RequestParam(value = "to", required = false) String to,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after)
+			throws InvalidRequestException, ResourceNotFoundException {
+
+		PageDTO<DailyResultDTO> page = dailyResultService.getResults(date, from, to, limit, after);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+
+		return response.body(page.getItems());
+
+	}
+
+}
@@ -1,12 +1,18 @@
 package com.bynder.controller;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.bynder.dto.UserDTO;
 import com.bynder.exception.EntityExistsException;
+import com.bynder.exception.IdempotencyConflictException;
+import com.bynder.idempotency.IdempotencyHandler;
 import com.bynder.service.UserService;
 
 /**
@@ -17,29 +23,50 @@ import com.bynder.service.UserService;
  *
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class UserController {
 
 	@Autowired
 	private UserService userService;
 
+	@Autowired
+	private IdempotencyHandler idempotencyHandler;
+
+	private static final String IDEMPOTENCY_SCOPE = "register:";
+
 	/**
 	 * Registers a new user
 	 * 
 	 * If username is already present in the storage, appropriate error message is
 	 * returned, else user is saved in the storage
 	 * 
-	 * @param userDto - input request containing user details like first name, last
-	 *                name and user name
+	 * If an Idempotency-Key header is given, the response is stored against the
+	 * key and retries with the same key return the stored response without
+	 * registering the user again. The key is released if registration fails, and
+	 * cannot be reused for a request with another body.
+	 * 
+	 * @param idempotencyKey - optional key identifying retries of the same request
+	 * @param userDto        - input request containing user details like first
+	 *                       name, last name and user name
 	 * 
 	 * @return success response with created userId
 	 * 
-	 * @throws EntityExistsException - exception thrown if username already exists
+	 * @throws EntityExistsException        - exception thrown if username already
+	 *                                      exists
+	 * @throws IdempotencyConflictException - exception thrown if a request with
+	 *                                      the same key is still being processed,
+	 *                                      or the key was used for another request
 	 */
 	@PostMapping(value = "/register")
-	public String registerUser(@RequestBody(required = true) UserDTO userDto) throws EntityExistsException {
+	public String registerUser(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody(required = true) UserDTO userDto) throws EntityExistsException, IdempotencyConflictException {
+
+		if (StringUtils.isBlank(idempotencyKey)) {
+			return "User registered successfully with userID:" + userService.registerUser(userDto);
+		}
 
-		String userId = userService.registerUser(userDto);
-		return "User registered successfully with userID:" + userId;
+		return idempotencyHandler.execute(IDEMPOTENCY_SCOPE + idempotencyKey, userDto,
+				() -> "User registered successfully with userID:" + userService.registerUser(userDto));
 
 	}
 
@@ -0,0 +1,143 @@
+package com.bynder.controller.reactive;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bynder.codec.BallotColumnarCodec;
+import com.bynder.constants.Constants;
+import com.bynder.dto.BallotBatchDTO;
+import com.bynder.dto.BallotDTO;
+import com.bynder.idempotency.ReactiveIdempotencyHandler;
+import com.bynder.service.reactive.ReactiveBallotService;
+import com.bynder.utils.NdjsonUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of BallotController, serving the same API without
+ * blocking request threads. Used when the application runs as a reactive web
+ * application.
+ * 
+ * @author arathy
+ *
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveBallotController {
+
+	@Autowired
+	private ReactiveBallotService ballotService;
+
+	@Autowired
+	private ReactiveIdempotencyHandler idempotencyHandler;
+
+	private static final String IDEMPOTENCY_SCOPE = "ballot:";
+
+	/**
+	 * Returns a page of ballots, filtered by the optional userId and lotteryId.
+	 * 
+	 * If more ballots follow, the cursor of the next page is returned in the
+	 * X-Next-Cursor header.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param limit     - optional page size
+	 * @param after     - optional cursor returned with the previous page
+	 * 
+	 * @return list of ballots, if any present
+	 */
+	@GetMapping(value = "/ballots", produces = { MediaType.APPLICATION_JSON_VALUE, Constants.APPLICATION_SMILE_VALUE,
+			BallotColumnarCodec.MEDIA_TYPE_VALUE })
+	public Mono<ResponseEntity<List<BallotDTO>>> getBallots(
+			@RequestParam(value = "userId", required = false) String userId,
+			@RequestParam(value = "lotteryId", required = false) String lotteryId,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after) {
+
+		return ballotService.getBallots(userId, lotteryId, limit, after).map(page -> {
+
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.getNextCursor() != null) {
+				response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+			}
+
+			return response.body(page.getItems());
+		});
+
+	}
+
+	/**
+	 * Streams all ballots as newline delimited JSON, filtered by the optional
+	 * userId and lotteryId.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return ballots, written as they are read from storage
+	 */
+	@GetMapping(value = "/ballots/stream", produces = NdjsonUtils.APPLICATION_NDJSON_VALUE)
+	public Flux<BallotDTO> streamBallots(@RequestParam(value = "userId", required = false) String userId,
+			@RequestParam(value = "lotteryId", required = false) String lotteryId) {
+
+		return ballotService.streamBallots(userId, lotteryId);
+
+	}
+
+	/**
+	 * Creates the ballot associated to a lottery for a particular user.
+	 * 
+	 * If an Idempotency-Key header is given, retries with the same key return the
+	 * stored response without creating another ballot.
+	 * 
+	 * @param idempotencyKey - optional key identifying retries of the same request
+	 * @param ballotDto      - ballot dto object request containing userId and
+	 *                       lotteryId
+	 * 
+	 * @return success response with created ballotId
+	 */
+	@PostMapping(value = "/ballot")
+	public Mono<String> createBallot(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody(required = true) BallotDTO ballotDto) {
+
+		if (StringUtils.isBlank(idempotencyKey)) {
+			return createBallot(ballotDto);
+		}
+
+		return idempotencyHandler.execute(IDEMPOTENCY_SCOPE + idempotencyKey, ballotDto,
+				() -> createBallot(ballotDto));
+
+	}
+
+	private Mono<String> createBallot(BallotDTO ballotDto) {
+
+		return ballotService.createBallot(ballotDto).map(ballotId -> "Ballot created with id:" + ballotId);
+	}
+
+	/**
+	 * Creates a batch of ballots in one request.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return created ballots
+	 */
+	@PostMapping(value = "/ballots/batch")
+	public Mono<List<BallotDTO>> createBallots(@RequestBody(required = true) BallotBatchDTO ballotBatchDto) {
+
+		return ballotService.createBallots(ballotBatchDto);
+
+	}
+
+}
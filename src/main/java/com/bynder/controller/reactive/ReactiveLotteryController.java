@@ -0,0 +1,167 @@
+package com.bynder.controller.reactive;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bynder.constants.Constants;
+import com.bynder.dto.LotteryDTO;
+import com.bynder.exception.MissingMandatoryParamException;
+import com.bynder.service.reactive.ReactiveLotteryService;
+import com.bynder.subscription.ReactiveLotteryResultSubscriptions;
+import com.bynder.utils.NdjsonUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of LotteryController, serving the same API without
+ * blocking request threads. Used when the application runs as a reactive web
+ * application.
+ * 
+ * @author arathy
+ *
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveLotteryController {
+
+	@Autowired
+	private ReactiveLotteryService lotteryService;
+
+	@Autowired
+	private ReactiveLotteryResultSubscriptions lotteryResultSubscriptions;
+
+	/**
+	 * Returns a page of lotteries present in the storage, filtered by status if
+	 * given.
+	 * 
+	 * If more lotteries follow, the cursor of the next page is returned in the
+	 * X-Next-Cursor header.
+	 * 
+	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * @param limit  - optional page size
+	 * @param after  - optional cursor returned with the previous page
+	 * 
+	 * @return list of lotteries in the storage based on input request
+	 */
+	@GetMapping(value = "/lotteries", produces = { MediaType.APPLICATION_JSON_VALUE,
+			Constants.APPLICATION_SMILE_VALUE })
+	public Mono<ResponseEntity<List<LotteryDTO>>> getLotteries(
+			@RequestParam(value = "status", required = false) String status,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after) {
+
+		return lotteryService.getLotteries(status, limit, after).map(page -> {
+
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+			if (page.getNextCursor() != null) {
+				response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+			}
+
+			return response.body(page.getItems());
+		});
+
+	}
+
+	/**
+	 * Streams all lotteries as newline delimited JSON, filtered by status if
+	 * given.
+	 * 
+	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * 
+	 * @return lotteries, written as they are read from storage
+	 */
+	@GetMapping(value = "/lotteries/stream", produces = NdjsonUtils.APPLICATION_NDJSON_VALUE)
+	public Flux<LotteryDTO> streamLotteries(@RequestParam(value = "status", required = false) String status) {
+
+		return lotteryService.streamLotteries(status);
+
+	}
+
+	/**
+	 * Returns the lottery result for a particular lotteryId.
+	 * 
+	 * lotteryId is validated here, as the validation interceptor only applies to
+	 * the servlet stack.
+	 * 
+	 * As on the servlet stack, the result is written from its cached JSON with a
+	 * strong ETag and as immutable, and a request whose If-None-Match header
+	 * matches the ETag gets 304 Not Modified without a body.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return Lottery result with the winner ballot details and prize money
+	 */
+	@GetMapping(value = "/lotteryResult")
+	public Mono<ResponseEntity<byte[]>> getLotteryResult(
+			@RequestParam(value = "lotteryId", required = false) String lotteryId) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return Mono.error(
+					new MissingMandatoryParamException("Mandatory Parameter Missing. Please provide value for lotteryId"));
+		}
+
+		// conditional requests are answered with 304 by the ResponseEntity handling
+		return lotteryService.getEncodedLotteryResult(lotteryId)
+				.map(result -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(result.getETag())
+						.header(HttpHeaders.CACHE_CONTROL, Constants.LOTTERY_RESULT_CACHE_CONTROL)
+						.body(result.getBody()));
+
+	}
+
+	/**
+	 * Streams the result of a lottery as Server-Sent Events.
+	 * 
+	 * As on the servlet stack, the result is sent as one "result" event once the
+	 * lottery is closed, or right away if it is closed already, and the stream is
+	 * completed. The event data is the same JSON as returned by getLotteryResult
+	 * and the event id is its ETag. No thread is held while the client waits.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return event stream of the lottery result
+	 */
+	@GetMapping(value = "/lotteryResult/stream")
+	public Flux<ServerSentEvent<String>> streamLotteryResult(
+			@RequestParam(value = "lotteryId", required = false) String lotteryId) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return Flux.error(
+					new MissingMandatoryParamException("Mandatory Parameter Missing. Please provide value for lotteryId"));
+		}
+
+		return lotteryResultSubscriptions.subscribe(lotteryId).flux();
+
+	}
+
+	/**
+	 * Creates a new lottery in the storage.
+	 * 
+	 * @param lotteryDto - input request containing the name, prizeMoney,
+	 *                   startDate, closeTime and timeZone
+	 * 
+	 * @return success message with created lotteryId
+	 */
+	@PostMapping(value = "/lottery")
+	public Mono<String> createLottery(@RequestBody(required = true) LotteryDTO lotteryDto) {
+
+		return lotteryService.createLottery(lotteryDto).map(lotteryId -> "Lottery created with lotteryId:" + lotteryId);
+
+	}
+
+}
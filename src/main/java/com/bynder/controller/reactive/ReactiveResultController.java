@@ -0,0 +1,82 @@
+package com.bynder.controller.reactive;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bynder.constants.Constants;
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.service.DailyResultService;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of ResultController, serving the results of the
+ * lotteries closed on a date or between two dates. Used when the application
+ * runs as a reactive web application.
+ *
+ * Results are read from RESULTS by the same DailyResultService as on the
+ * servlet stack, with a blocking call which is moved off the event loop.
+ *
+ * @author arathy
+ *
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveResultController {
+
+	@Autowired
+	private DailyResultService dailyResultService;
+
+	/**
+	 * Returns the results of the lotteries closed on a date, or between two dates
+	 * inclusive, as yyyy-MM-dd in the time zone of each lottery.
+	 *
+	 * If more results follow, the cursor of the next page is returned in the
+	 * X-Next-Cursor header.
+	 *
+	 * @param date  - result date, if no range is given
+	 * @param from  - first result date of the range
+	 * @param to    - last result date of the range
+	 * @param limit - optional page size
+	 * @param after - optional cursor returned with the previous page
+	 *
+	 * @return results of the lotteries closed on the requested dates, or
+	 *         InvalidRequestException if the dates, page size or cursor are
+	 *         invalid and ResourceNotFoundException if no lottery was closed on
+	 *         the requested dates
+	 */
+	@GetMapping(value = "/results", produces = { MediaType.APPLICATION_JSON_VALUE,
+			Constants.APPLICATION_SMILE_VALUE })
+	public Mono<ResponseEntity<List<DailyResultDTO>>> getResults(
+			@RequestParam(value = "date", required = false) String date,
+			@RequestParam(value = "from", required = false) String from,
+			@RequestParam(value = "to", required = false) String to,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "after", required = false) String after) {
+
+		return Mono.fromCallable(() -> dailyResultService.getResults(date, from, to, limit, after))
+				.subscribeOn(Schedulers.boundedElastic()).map(this::toResponse);
+
+	}
+
+	private ResponseEntity<List<DailyResultDTO>> toResponse(PageDTO<DailyResultDTO> page) {
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+
+		return response.body(page.getItems());
+	}
+
+}
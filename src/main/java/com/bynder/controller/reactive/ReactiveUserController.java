@@ -0,0 +1,68 @@
+package com.bynder.controller.reactive;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bynder.dto.UserDTO;
+import com.bynder.idempotency.ReactiveIdempotencyHandler;
+import com.bynder.service.reactive.ReactiveUserService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of UserController, serving the same API without
+ * blocking request threads. Used when the application runs as a reactive web
+ * application.
+ * 
+ * @author arathy
+ *
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveUserController {
+
+	@Autowired
+	private ReactiveUserService userService;
+
+	@Autowired
+	private ReactiveIdempotencyHandler idempotencyHandler;
+
+	private static final String IDEMPOTENCY_SCOPE = "register:";
+
+	/**
+	 * Registers a new user
+	 * 
+	 * If an Idempotency-Key header is given, retries with the same key return the
+	 * stored response without registering the user again.
+	 * 
+	 * @param idempotencyKey - optional key identifying retries of the same request
+	 * @param userDto        - input request containing user details like first
+	 *                       name, last name and user name
+	 * 
+	 * @return success response with created userId
+	 */
+	@PostMapping(value = "/register")
+	public Mono<String> registerUser(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+			@RequestBody(required = true) UserDTO userDto) {
+
+		if (StringUtils.isBlank(idempotencyKey)) {
+			return registerUser(userDto);
+		}
+
+		return idempotencyHandler.execute(IDEMPOTENCY_SCOPE + idempotencyKey, userDto,
+				() -> registerUser(userDto));
+
+	}
+
+	private Mono<String> registerUser(UserDTO userDto) {
+
+		return userService.registerUser(userDto).map(userId -> "User registered successfully with userID:" + userId);
+	}
+
+}
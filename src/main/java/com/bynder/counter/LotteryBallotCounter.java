@@ -0,0 +1,215 @@
+package com.bynder.counter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Component to maintain the number of ballots of every lottery in the
+ * ballotCount field of the lottery, so it does not have to be counted from the
+ * BALLOT collection:
+ * 		* created ballots are counted in memory and added to the lotteries on a
+ * 		  schedule with one bulk write.
+ * 		* counts of open lotteries are recomputed from the BALLOT collection at
+ * 		  startup, so ballots counted in memory but lost in a crash are
+ * 		  restored, and hourly by default.
+ *
+ * Stored counts lag behind created ballots by at most the flush interval of
+ * every node. Counts are only ever changed by increments, so flushes of
+ * several nodes and reconciliations never overwrite each other.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@Slf4j
+public class LotteryBallotCounter {
+
+	@Autowired
+	private LotteryRepository lotteryRepository;
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Value("${lottery.ballot-counter.reconcile-on-startup:true}")
+	private boolean reconcileOnStartup;
+
+	// striped per lottery, so the ballots of a busy lottery do not contend on one counter
+	private final ConcurrentMap<String, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+	/**
+	 * Counts ballots created for a lottery
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param ballots   - number of created ballots
+	 */
+	public void increment(String lotteryId, long ballots) {
+
+		LongAdder pendingCount = pendingCounts.computeIfAbsent(lotteryId, id -> new LongAdder());
+		pendingCount.add(ballots);
+
+		// the counter was removed by a flush meanwhile, ballots it did not take are moved to the current counter
+		if (pendingCounts.get(lotteryId) != pendingCount) {
+			long late = pendingCount.sumThenReset();
+			if (late != 0) {
+				increment(lotteryId, late);
+			}
+		}
+	}
+
+	/**
+	 * Adds the ballots counted since the last flush to the stored counts.
+	 *
+	 * The counter of a lottery without new ballots since the last flush, e.g. a
+	 * closed one, is removed and then taken once more, so ballots added while it
+	 * was removed are still flushed. Counts which could not be written are kept
+	 * and retried with the next flush.
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${lottery.ballot-counter.flush-interval-ms:1000}")
+	public synchronized void flush() {
+
+		Map<String, Long> increments = new LinkedHashMap<>();
+
+		pendingCounts.forEach((lotteryId, pendingCount) -> {
+
+			long increment = pendingCount.sumThenReset();
+
+			if (increment == 0 && pendingCounts.remove(lotteryId, pendingCount)) {
+				increment = pendingCount.sumThenReset();
+			}
+
+			if (increment != 0) {
+				increments.put(lotteryId, increment);
+			}
+		});
+
+		if (increments.isEmpty()) {
+			return;
+		}
+
+		try {
+
+			lotteryRepository.incrementBallotCounts(increments);
+
+		} catch (BulkOperationException exception) {
+
+			List<String> lotteryIds = new ArrayList<>(increments.keySet());
+			for (BulkWriteError error : exception.getErrors()) {
+				String lotteryId = lotteryIds.get(error.getIndex());
+				increment(lotteryId, increments.get(lotteryId));
+			}
+			log.error("Failed to flush ballot counts of {} lotteries", exception.getErrors().size(), exception);
+
+		} catch (RuntimeException exception) {
+
+			increments.forEach(this::increment);
+			log.error("Failed to flush ballot counts of {} lotteries", increments.size(), exception);
+		}
+	}
+
+	/**
+	 * Recomputes the ballot counts of open lotteries at startup, if enabled
+	 *
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void reconcileOnStartup() {
+
+		if (reconcileOnStartup) {
+			reconcile();
+		}
+	}
+
+	/**
+	 * Recomputes the ballot counts of all open lotteries from the BALLOT
+	 * collection and corrects the stored counts by the difference, with one bulk
+	 * write of increments.
+	 *
+	 * The correction is written as an increment rather than overwriting the
+	 * count, so ballots flushed by other nodes while the ballots are counted are
+	 * not lost, and the stored counts are read again right after the ballots are
+	 * counted, so ballots flushed while they are counted are not added twice.
+	 * The count and the stored counts are still not read at the same instant:
+	 * ballots created and flushed between the two reads are left out of the
+	 * correction, and ballots counted in memory by other nodes but not yet
+	 * flushed are counted twice, both at most the ballots of one flush interval
+	 * of every node. The drift is corrected by the next reconciliation.
+	 *
+	 */
+	@Scheduled(cron = "${lottery.ballot-counter.reconcile-cron:0 30 * * * *}")
+	public void reconcile() {
+
+		flush();
+
+		List<Lottery> openLotteries = lotteryRepository.findByStatus(Constants.OPEN);
+
+		if (CollectionUtils.isEmpty(openLotteries)) {
+			return;
+		}
+
+		Set<String> lotteryIds = new HashSet<>();
+		openLotteries.forEach(lottery -> lotteryIds.add(lottery.getLotteryId()));
+
+		long startTime = System.currentTimeMillis();
+		Map<String, Long> ballotCounts = ballotRepository.countByLotteryIds(lotteryIds);
+		List<Lottery> countedLotteries = lotteryRepository.findByStatus(Constants.OPEN);
+		log.debug("Counted the ballots of {} open lotteries in {} ms", lotteryIds.size(),
+				System.currentTimeMillis() - startTime);
+
+		Map<String, Long> corrections = new LinkedHashMap<>();
+
+		for (Lottery lottery : countedLotteries) {
+
+			// lotteries created while the ballots were counted are reconciled next time
+			if (!lotteryIds.contains(lottery.getLotteryId())) {
+				continue;
+			}
+
+			long ballotCount = ballotCounts.getOrDefault(lottery.getLotteryId(), 0L);
+
+			if (ballotCount != lottery.getBallotCount()) {
+				corrections.put(lottery.getLotteryId(), ballotCount - lottery.getBallotCount());
+				log.info("Ballot count of lottery {} reconciled from {} to {}", lottery.getLotteryId(),
+						lottery.getBallotCount(), ballotCount);
+			}
+		}
+
+		lotteryRepository.incrementBallotCounts(corrections);
+	}
+
+	/**
+	 * Flushes the ballots counted in memory before the application shuts down
+	 *
+	 */
+	@PreDestroy
+	public void shutdown() {
+
+		flush();
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.bynder.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class BallotBatchDTO {
+
+	private List<BallotDTO> ballots;
+
+	private String userId;
+
+	private String lotteryId;
+
+	private Integer quantity;
+
+}
@@ -0,0 +1,33 @@
+package com.bynder.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Result of a closed lottery as listed by its result date
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class DailyResultDTO {
+
+	private String lotteryId;
+
+	private String name;
+
+	private String resultDate;
+
+	private String winnerBallot;
+
+	private String message;
+
+	private String endDate;
+
+	private long prizeMoney;
+
+}
@@ -27,4 +27,10 @@ public class LotteryDTO {
 
 	private String endDate;
 
+	private String closeTime;
+
+	private String timeZone;
+
+	private Long ballotCount;
+
 }
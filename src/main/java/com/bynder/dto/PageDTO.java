@@ -0,0 +1,21 @@
+package com.bynder.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Page of items with the cursor of the next page, null on the last page
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class PageDTO<T> {
+
+	private List<T> items;
+
+	private String nextCursor;
+
+}
@@ -0,0 +1,19 @@
+package com.bynder.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Event published once the close of a lottery is committed, so its result is
+ * pushed to the clients waiting for it
+ *
+ * @author arathy
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class LotteryClosedEvent {
+
+	private final String lotteryId;
+
+}
@@ -0,0 +1,21 @@
+package com.bynder.event;
+
+import com.bynder.model.Lottery;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Event published once a lottery is saved, so its close is scheduled without
+ * waiting for the next reload of open lotteries
+ *
+ * @author arathy
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class LotteryCreatedEvent {
+
+	private final Lottery lottery;
+
+}
@@ -0,0 +1,11 @@
+package com.bynder.exception;
+
+public class IdempotencyConflictException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyConflictException(String message) {
+		super(message);
+	}
+
+}
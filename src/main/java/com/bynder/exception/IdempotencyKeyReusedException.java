@@ -0,0 +1,11 @@
+package com.bynder.exception;
+
+public class IdempotencyKeyReusedException extends IdempotencyConflictException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyReusedException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.bynder.exception;
+
+public class InvalidRequestException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidRequestException(String message) {
+		super(message);
+	}
+
+}
@@ -9,6 +9,9 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.bynder.exception.APIResponseView;
 import com.bynder.exception.EntityExistsException;
+import com.bynder.exception.IdempotencyConflictException;
+import com.bynder.exception.IdempotencyKeyReusedException;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.MissingMandatoryParamException;
 import com.bynder.exception.ResourceNotFoundException;
@@ -83,4 +86,49 @@ public class ExceptionHandlerAdvice {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseView);
 	}
 
+	/**
+	 * Handles Invalid Request exceptions
+	 * 
+	 * @param exception - InvalidRequestException
+	 * 
+	 * @return Returns errorMessage and timestamp with HTTP Status code 400
+	 */
+	@ExceptionHandler(InvalidRequestException.class)
+	public ResponseEntity<Object> handleInvalidRequestException(InvalidRequestException exception) {
+
+		APIResponseView responseView = new APIResponseView(LocalDateTime.now().toString(), exception.getMessage());
+
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(responseView);
+	}
+
+	/**
+	 * Handles Idempotency Conflict exceptions
+	 * 
+	 * @param exception - IdempotencyConflictException
+	 * 
+	 * @return Returns errorMessage and timestamp with HTTP Status code 409
+	 */
+	@ExceptionHandler(IdempotencyConflictException.class)
+	public ResponseEntity<Object> handleIdempotencyConflictException(IdempotencyConflictException exception) {
+
+		APIResponseView responseView = new APIResponseView(LocalDateTime.now().toString(), exception.getMessage());
+
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(responseView);
+	}
+
+	/**
+	 * Handles Idempotency Key Reused exceptions
+	 * 
+	 * @param exception - IdempotencyKeyReusedException
+	 * 
+	 * @return Returns errorMessage and timestamp with HTTP Status code 422
+	 */
+	@ExceptionHandler(IdempotencyKeyReusedException.class)
+	public ResponseEntity<Object> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException exception) {
+
+		APIResponseView responseView = new APIResponseView(LocalDateTime.now().toString(), exception.getMessage());
+
+		return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(responseView);
+	}
+
 }
@@ -0,0 +1,143 @@
+package com.bynder.idempotency;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+
+import com.bynder.exception.IdempotencyConflictException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Applies an Idempotency-Key to requests of the servlet controllers: a stored
+ * response is returned as is, else the key is claimed with the hash of the
+ * request body, completed with the response or released on failure. Every
+ * execution claims the key with its own owner token.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class IdempotencyHandler {
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Executes the request once per key
+	 * 
+	 * @param key         - scoped idempotency key
+	 * @param requestBody - request body, hashed to detect a key reused for another
+	 *                    request
+	 * @param request     - request to be executed if the key is claimed
+	 * 
+	 * @return stored response, or response of the executed request
+	 * 
+	 * @throws E1                           - exception thrown by the request
+	 * @throws E2                           - exception thrown by the request
+	 * @throws IdempotencyConflictException - exception thrown if a request with
+	 *                                      the same key is still being processed,
+	 *                                      or the key was used for another request
+	 */
+	public <E1 extends Exception, E2 extends Exception> String execute(String key, Object requestBody,
+			IdempotentRequest<String, E1, E2> request) throws E1, E2, IdempotencyConflictException {
+
+		String owner = UUID.randomUUID().toString();
+		String storedResponse = idempotencyStore.claim(key, requestHash(requestBody), owner);
+
+		if (storedResponse != null) {
+			return storedResponse;
+		}
+
+		try {
+
+			String response = request.execute();
+			idempotencyStore.complete(key, owner, response);
+			return response;
+
+		} catch (Exception exception) {
+			idempotencyStore.release(key, owner);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Executes the asynchronous request once per key, completing or releasing the
+	 * key once its response is completed
+	 * 
+	 * @param key         - scoped idempotency key
+	 * @param requestBody - request body, hashed to detect a key reused for another
+	 *                    request
+	 * @param request     - request to be executed if the key is claimed
+	 * 
+	 * @return stored response, or response of the executed request
+	 * 
+	 * @throws E1                           - exception thrown by the request
+	 * @throws E2                           - exception thrown by the request
+	 * @throws IdempotencyConflictException - exception thrown if a request with
+	 *                                      the same key is still being processed,
+	 *                                      or the key was used for another request
+	 */
+	public <E1 extends Exception, E2 extends Exception> CompletableFuture<String> executeAsync(String key,
+			Object requestBody, IdempotentRequest<CompletableFuture<String>, E1, E2> request)
+			throws E1, E2, IdempotencyConflictException {
+
+		String owner = UUID.randomUUID().toString();
+		String storedResponse = idempotencyStore.claim(key, requestHash(requestBody), owner);
+
+		if (storedResponse != null) {
+			return CompletableFuture.completedFuture(storedResponse);
+		}
+
+		CompletableFuture<String> response;
+
+		try {
+			response = request.execute();
+		} catch (Exception exception) {
+			idempotencyStore.release(key, owner);
+			throw exception;
+		}
+
+		return response.whenComplete((result, exception) -> {
+			if (exception == null) {
+				idempotencyStore.complete(key, owner, result);
+			} else {
+				idempotencyStore.release(key, owner);
+			}
+		});
+	}
+
+	/**
+	 * Returns the hash of a request body, as stored with its idempotency key
+	 * 
+	 * @param requestBody - deserialized request body
+	 * 
+	 * @return hash of the request body
+	 */
+	public String requestHash(Object requestBody) {
+
+		return RequestHashes.hash(objectMapper, requestBody);
+	}
+
+	/**
+	 * Request executed once per idempotency key
+	 * 
+	 * @param <T>  - response type
+	 * @param <E1> - exception thrown by the request
+	 * @param <E2> - exception thrown by the request
+	 */
+	@FunctionalInterface
+	public interface IdempotentRequest<T, E1 extends Exception, E2 extends Exception> {
+
+		T execute() throws E1, E2;
+
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.bynder.idempotency;
+
+import com.bynder.exception.IdempotencyConflictException;
+
+/**
+ * Store of responses related to idempotency keys, so a retried request returns
+ * the original response instead of being processed again.
+ * 
+ * A key is claimed before the request is processed, then either completed with
+ * the response or released if processing failed. A claim is held for a short
+ * lease, so a key left pending by a node which died can be claimed again. The
+ * hash of the request body is stored with the key, so a key reused for another
+ * request is rejected. A claim is made with an owner token, and only completed
+ * or released by its owner, so a request whose lease expired and was taken over
+ * by a retry does not complete or release the claim of the retry.
+ * 
+ * @author arathy
+ *
+ */
+public interface IdempotencyStore {
+
+	String claim(String key, String requestHash, String owner) throws IdempotencyConflictException;
+
+	void complete(String key, String owner, String response);
+
+	void release(String key, String owner);
+
+}
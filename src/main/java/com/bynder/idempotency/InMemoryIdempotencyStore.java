@@ -0,0 +1,172 @@
+package com.bynder.idempotency;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.bynder.exception.IdempotencyConflictException;
+import com.bynder.exception.IdempotencyKeyReusedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Idempotency store keeping responses in a bounded in-memory cache, entries
+ * expire after the configured time to live.
+ * 
+ * Pending entries expire after idempotency.pending-lease-ms instead, and have
+ * no weight, so they are never evicted to keep the cache within its maximum
+ * size while their request is processed. Once a pending entry expired, a retry
+ * claims the key with a new entry, which the expired claim does not complete
+ * or release.
+ * 
+ * Only deduplicates retries which reach the same node.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+	@Value("${idempotency.maximum-size:100000}")
+	private long maximumSize;
+
+	@Value("${idempotency.ttl-seconds:86400}")
+	private long ttlSeconds;
+
+	@Value("${idempotency.pending-lease-ms:30000}")
+	private long pendingLeaseMs;
+
+	private Cache<String, IdempotencyEntry> cache;
+
+	/**
+	 * Creates the cache
+	 * 
+	 */
+	@PostConstruct
+	public void init() {
+
+		long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		long pendingLeaseNanos = TimeUnit.MILLISECONDS.toNanos(pendingLeaseMs);
+
+		cache = Caffeine.newBuilder().maximumWeight(maximumSize)
+				.weigher((String key, IdempotencyEntry entry) -> entry.isPending() ? 0 : 1)
+				.expireAfter(new Expiry<String, IdempotencyEntry>() {
+
+					public long expireAfterCreate(String key, IdempotencyEntry entry, long currentTime) {
+						return entry.isPending() ? pendingLeaseNanos : ttlNanos;
+					}
+
+					public long expireAfterUpdate(String key, IdempotencyEntry entry, long currentTime,
+							long currentDuration) {
+						return entry.isPending() ? pendingLeaseNanos : ttlNanos;
+					}
+
+					public long expireAfterRead(String key, IdempotencyEntry entry, long currentTime,
+							long currentDuration) {
+						return currentDuration;
+					}
+
+				}).build();
+	}
+
+	/**
+	 * Claims the key for processing, unless a response is already stored for it.
+	 * 
+	 * @param key         - idempotency key
+	 * @param requestHash - hash of the request body
+	 * @param owner       - token of the caller, required to complete or release
+	 *                    the claim
+	 * 
+	 * @return stored response, null if the key was claimed by the caller
+	 * 
+	 * @throws IdempotencyKeyReusedException - exception thrown if the key was used
+	 *                                       for a request with another body
+	 * @throws IdempotencyConflictException  - exception thrown if a request with
+	 *                                       the same key is still being processed
+	 */
+	public String claim(String key, String requestHash, String owner) throws IdempotencyConflictException {
+
+		IdempotencyEntry entry = cache.asMap().putIfAbsent(key, new IdempotencyEntry(requestHash, owner, null));
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.requestHash != null && !StringUtils.equals(entry.requestHash, requestHash)) {
+			throw new IdempotencyKeyReusedException("Idempotency-Key was already used for another request");
+		}
+
+		if (entry.isPending()) {
+			throw new IdempotencyConflictException("Request with the same Idempotency-Key is still being processed");
+		}
+
+		return entry.response;
+	}
+
+	/**
+	 * Stores the response of a processed request, unless another caller claimed
+	 * the key since
+	 * 
+	 * @param key      - idempotency key
+	 * @param owner    - token the key was claimed with
+	 * @param response - response to be returned for retries
+	 */
+	public void complete(String key, String owner, String response) {
+
+		cache.asMap().compute(key, (entryKey, entry) -> {
+
+			if (entry == null) {
+				return new IdempotencyEntry(null, owner, response);
+			}
+
+			return entry.isPending() && StringUtils.equals(entry.owner, owner)
+					? new IdempotencyEntry(entry.requestHash, owner, response)
+					: entry;
+		});
+	}
+
+	/**
+	 * Releases the claim of a request which failed, so it can be retried, unless
+	 * another caller claimed the key since
+	 * 
+	 * @param key   - idempotency key
+	 * @param owner - token the key was claimed with
+	 */
+	public void release(String key, String owner) {
+
+		cache.asMap().computeIfPresent(key,
+				(entryKey, entry) -> entry.isPending() && StringUtils.equals(entry.owner, owner) ? null : entry);
+	}
+
+	/**
+	 * Hash of the request, owner of its claim and its stored response, pending
+	 * while the request is processed
+	 */
+	private static final class IdempotencyEntry {
+
+		private final String requestHash;
+
+		private final String owner;
+
+		private final String response;
+
+		private IdempotencyEntry(String requestHash, String owner, String response) {
+			this.requestHash = requestHash;
+			this.owner = owner;
+			this.response = response;
+		}
+
+		private boolean isPending() {
+			return response == null;
+		}
+
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.bynder.idempotency;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.bynder.exception.IdempotencyConflictException;
+import com.bynder.exception.IdempotencyKeyReusedException;
+import com.bynder.model.IdempotencyRecord;
+
+/**
+ * Idempotency store keeping responses in the IDEMPOTENCY_KEYS collection, so
+ * retries reaching any node are deduplicated. Records are removed by a TTL
+ * index after the configured time to live.
+ * 
+ * A pending record holds a lease of idempotency.pending-lease-ms, after which
+ * it can be claimed again and is removed by a second TTL index, so a key left
+ * pending by a node which died does not block retries until the record
+ * expires. The lease has to exceed the time a request takes to be processed.
+ * 
+ * Enabled by setting idempotency.store=mongo.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "mongo")
+public class MongoIdempotencyStore implements IdempotencyStore {
+
+	private static final String KEY = "_id";
+
+	private static final String COMPLETED = "completed";
+
+	private static final String LEASE_EXPIRES_DATE = "leaseExpiresDate";
+
+	private static final String OWNER = "owner";
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Value("${idempotency.ttl-seconds:86400}")
+	private long ttlSeconds;
+
+	@Value("${idempotency.pending-lease-ms:30000}")
+	private long pendingLeaseMs;
+
+	/**
+	 * Creates the TTL indexes which remove expired records and pending records
+	 * whose lease expired
+	 * 
+	 */
+	@PostConstruct
+	public void init() {
+
+		mongoOperations.indexOps(IdempotencyRecord.class)
+				.ensureIndex(new Index().on("createdDate", Sort.Direction.ASC).expire(ttlSeconds, TimeUnit.SECONDS));
+		mongoOperations.indexOps(IdempotencyRecord.class)
+				.ensureIndex(new Index().on(LEASE_EXPIRES_DATE, Sort.Direction.ASC).expire(0, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Claims the key for processing by inserting a pending record, unless a record
+	 * is already stored for it. A pending record whose lease expired is claimed
+	 * again with a conditional update, so only one caller takes it over.
+	 * 
+	 * @param key         - idempotency key
+	 * @param requestHash - hash of the request body
+	 * @param owner       - token of the caller, required to complete or release
+	 *                    the claim
+	 * 
+	 * @return stored response, null if the key was claimed by the caller
+	 * 
+	 * @throws IdempotencyKeyReusedException - exception thrown if the key was used
+	 *                                       for a request with another body
+	 * @throws IdempotencyConflictException  - exception thrown if a request with
+	 *                                       the same key is still being processed
+	 */
+	public String claim(String key, String requestHash, String owner) throws IdempotencyConflictException {
+
+		Date now = new Date();
+		Date leaseExpiresDate = new Date(now.getTime() + pendingLeaseMs);
+
+		try {
+
+			mongoOperations.insert(new IdempotencyRecord(key, requestHash, owner, null, false, now,
+					leaseExpiresDate));
+			return null;
+
+		} catch (DuplicateKeyException exception) {
+
+			IdempotencyRecord idempotencyRecord = mongoOperations.findById(key, IdempotencyRecord.class);
+
+			if (idempotencyRecord != null && idempotencyRecord.getRequestHash() != null
+					&& !StringUtils.equals(idempotencyRecord.getRequestHash(), requestHash)) {
+				throw new IdempotencyKeyReusedException("Idempotency-Key was already used for another request");
+			}
+
+			if (idempotencyRecord != null && idempotencyRecord.isCompleted()) {
+				return idempotencyRecord.getResponse();
+			}
+
+			if (idempotencyRecord == null || idempotencyRecord.getLeaseExpiresDate() == null
+					|| idempotencyRecord.getLeaseExpiresDate().after(now)
+					|| !takeOver(key, idempotencyRecord.getLeaseExpiresDate(), owner, leaseExpiresDate)) {
+				throw new IdempotencyConflictException(
+						"Request with the same Idempotency-Key is still being processed");
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Claims a pending record whose lease expired, unless another caller claimed
+	 * or completed it in the meantime
+	 * 
+	 * @param key              - idempotency key
+	 * @param expiredLeaseDate - end of the expired lease
+	 * @param owner            - token of the caller taking the record over
+	 * @param leaseExpiresDate - end of the new lease
+	 * 
+	 * @return true if the record was claimed
+	 */
+	private boolean takeOver(String key, Date expiredLeaseDate, String owner, Date leaseExpiresDate) {
+
+		return mongoOperations.updateFirst(
+				new Query(Criteria.where(KEY).is(key).and(COMPLETED).is(false).and(LEASE_EXPIRES_DATE)
+						.is(expiredLeaseDate)),
+				new Update().set(OWNER, owner).set(LEASE_EXPIRES_DATE, leaseExpiresDate), IdempotencyRecord.class)
+				.getModifiedCount() > 0;
+	}
+
+	/**
+	 * Stores the response of a processed request, if the caller still holds the
+	 * claim
+	 * 
+	 * @param key      - idempotency key
+	 * @param owner    - token the key was claimed with
+	 * @param response - response to be returned for retries
+	 */
+	public void complete(String key, String owner, String response) {
+
+		mongoOperations.updateFirst(ownedClaim(key, owner),
+				new Update().set("response", response).set(COMPLETED, true).unset(LEASE_EXPIRES_DATE),
+				IdempotencyRecord.class);
+	}
+
+	/**
+	 * Removes the pending record of a request which failed, so it can be retried,
+	 * if the caller still holds the claim
+	 * 
+	 * @param key   - idempotency key
+	 * @param owner - token the key was claimed with
+	 */
+	public void release(String key, String owner) {
+
+		mongoOperations.remove(ownedClaim(key, owner), IdempotencyRecord.class);
+	}
+
+	/**
+	 * Matches the pending record of the key while it is claimed by the given
+	 * owner, not once a retry took it over
+	 */
+	private static Query ownedClaim(String key, String owner) {
+
+		return new Query(Criteria.where(KEY).is(key).and(COMPLETED).is(false).and(OWNER).is(owner));
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.bynder.idempotency;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Applies an Idempotency-Key to requests of the reactive stack, with the same
+ * semantics as the servlet controllers: a stored response is returned as is,
+ * else the key is claimed with the hash of the request body, completed with the
+ * response or released on failure.
+ * 
+ * Store calls can block (mongo store), so they run on the bounded elastic
+ * scheduler instead of the event loop.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveIdempotencyHandler {
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Executes the request once per key
+	 * 
+	 * @param key         - scoped idempotency key
+	 * @param requestBody - request body, hashed to detect a key reused for another
+	 *                    request
+	 * @param request     - supplies the request to be executed if the key is
+	 *                    claimed
+	 * 
+	 * @return stored response, or response of the executed request
+	 */
+	public Mono<String> execute(String key, Object requestBody, Supplier<Mono<String>> request) {
+
+		String requestHash = RequestHashes.hash(objectMapper, requestBody);
+		String owner = UUID.randomUUID().toString();
+
+		return Mono.fromCallable(() -> idempotencyStore.claim(key, requestHash, owner))
+				.subscribeOn(Schedulers.boundedElastic())
+				.switchIfEmpty(Mono.defer(() -> request.get()
+						.flatMap(response -> Mono.fromRunnable(() -> idempotencyStore.complete(key, owner, response))
+								.subscribeOn(Schedulers.boundedElastic()).thenReturn(response))
+						.onErrorResume(exception -> release(key, owner).then(Mono.error(exception)))
+						// the cancelling thread can be the event loop, the release is not awaited
+						.doOnCancel(() -> release(key, owner).subscribe())));
+	}
+
+	/**
+	 * Releases the claim of a request which failed or was cancelled, off the
+	 * event loop
+	 * 
+	 * @param key   - scoped idempotency key
+	 * @param owner - token the key was claimed with
+	 * 
+	 * @return completes once the claim is released
+	 */
+	private Mono<Void> release(String key, String owner) {
+
+		return Mono.<Void>fromRunnable(() -> idempotencyStore.release(key, owner))
+				.subscribeOn(Schedulers.boundedElastic());
+	}
+
+}
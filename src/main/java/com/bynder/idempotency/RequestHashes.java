@@ -0,0 +1,41 @@
+package com.bynder.idempotency;
+
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Hashes request bodies stored with idempotency keys, so a key reused for
+ * another request can be told apart from a retry
+ * 
+ * @author arathy
+ *
+ */
+final class RequestHashes {
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private RequestHashes() {
+
+	}
+
+	/**
+	 * Returns the MD5 hash of the JSON form of a request body
+	 * 
+	 * @param objectMapper - mapper writing the request body as JSON
+	 * @param requestBody  - deserialized request body
+	 * 
+	 * @return hex encoded hash
+	 */
+	static String hash(ObjectMapper objectMapper, Object requestBody) {
+
+		try {
+			return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(requestBody));
+		} catch (JsonProcessingException exception) {
+			throw new IllegalArgumentException("Request body cannot be hashed", exception);
+		}
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.bynder.index;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Component to reconcile the indexes declared on the models with the indexes
+ * present in Mongo at startup:
+ * 		* declared indexes missing in Mongo are created.
+ * 		* indexes whose options (unique, sparse, partial filter or expiry) differ
+ * 		  from the declaration are reported.
+ * 		* indexes present in Mongo but not declared are reported and left in place.
+ *
+ * Once indexes are reconciled, the query plans of all repository queries are
+ * verified. Both run before the application starts serving requests.
+ *
+ * Enabled unless mongo.index.reconcile is set to false.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "mongo.index.reconcile", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class IndexReconciler implements SmartInitializingSingleton {
+
+	private static final String ID_INDEX = "_id_";
+
+	private static final String UNIQUE = "unique";
+
+	private static final String SPARSE = "sparse";
+
+	private static final String PARTIAL_FILTER = "partialFilterExpression";
+
+	private static final String EXPIRE_AFTER_SECONDS = "expireAfterSeconds";
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Autowired
+	private MongoMappingContext mappingContext;
+
+	@Autowired
+	private QueryPlanVerifier queryPlanVerifier;
+
+	@Override
+	public void afterSingletonsInstantiated() {
+
+		reconcile();
+		queryPlanVerifier.verify();
+	}
+
+	/**
+	 * Reconciles the declared indexes of every document collection
+	 *
+	 */
+	public void reconcile() {
+
+		IndexResolver indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+		for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+
+			if (entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+				reconcile(entity, indexResolver);
+			}
+		}
+	}
+
+	/**
+	 * Creates the declared indexes of the entity's collection which are missing
+	 * in Mongo, and reports indexes which differ from the declaration
+	 *
+	 * @param entity        - document entity
+	 * @param indexResolver - resolver of the indexes declared on the entity
+	 */
+	private void reconcile(MongoPersistentEntity<?> entity, IndexResolver indexResolver) {
+
+		String collection = entity.getCollection();
+		IndexOperations indexOperations = mongoOperations.indexOps(entity.getType());
+		List<IndexInfo> existingIndexes = indexOperations.getIndexInfo();
+
+		Set<String> declaredKeys = new HashSet<>();
+
+		for (IndexDefinition declaredIndex : indexResolver.resolveIndexFor(entity.getType())) {
+
+			String keys = declaredIndex.getIndexKeys().toJson();
+			declaredKeys.add(keys);
+
+			IndexInfo existingIndex = findByKeys(existingIndexes, keys);
+
+			if (existingIndex == null) {
+
+				String name = indexOperations.ensureIndex(declaredIndex);
+				log.info("Created index {} {} on {}", name, keys, collection);
+				continue;
+			}
+
+			List<String> differences = differingOptions(declaredIndex.getIndexOptions(), existingIndex);
+
+			if (!differences.isEmpty()) {
+				log.warn("Index {} on {} differs from its declaration: {}", existingIndex.getName(), collection,
+						differences);
+			}
+		}
+
+		for (IndexInfo existingIndex : existingIndexes) {
+
+			if (!ID_INDEX.equals(existingIndex.getName()) && !declaredKeys.contains(keysOf(existingIndex))) {
+				log.info("Index {} on {} is not declared by the model, left in place", existingIndex.getName(),
+						collection);
+			}
+		}
+	}
+
+	/**
+	 * Returns the options of an existing index which differ from the declared
+	 * options of an index with the same keys.
+	 *
+	 * Compares the options changing which documents an index holds or accepts:
+	 * unique, sparse, partial filter expression and expiry. The index name is not
+	 * compared, as it does not change how the index serves queries.
+	 *
+	 * @param declaredOptions - options of the declared index
+	 * @param existingIndex   - index present in Mongo
+	 *
+	 * @return differences as option: existing value, declared value, empty if
+	 *         the options match
+	 */
+	static List<String> differingOptions(Document declaredOptions, IndexInfo existingIndex) {
+
+		List<String> differences = new ArrayList<>();
+
+		compare(differences, UNIQUE, existingIndex.isUnique(), declaredOptions.getBoolean(UNIQUE, false));
+		compare(differences, SPARSE, existingIndex.isSparse(), declaredOptions.getBoolean(SPARSE, false));
+
+		Object declaredFilter = declaredOptions.get(PARTIAL_FILTER);
+		compare(differences, PARTIAL_FILTER,
+				existingIndex.getPartialFilterExpression() == null ? null
+						: Document.parse(existingIndex.getPartialFilterExpression()),
+				declaredFilter instanceof String ? Document.parse((String) declaredFilter) : declaredFilter);
+
+		Object declaredExpiry = declaredOptions.get(EXPIRE_AFTER_SECONDS);
+		compare(differences, EXPIRE_AFTER_SECONDS,
+				existingIndex.getExpireAfter().map(Duration::getSeconds).orElse(null),
+				declaredExpiry == null ? null : ((Number) declaredExpiry).longValue());
+
+		return differences;
+	}
+
+	private static void compare(List<String> differences, String option, Object existing, Object declared) {
+
+		if (!Objects.equals(existing, declared)) {
+			differences.add(option + ": " + existing + ", declared " + declared);
+		}
+	}
+
+	/**
+	 * Returns the existing index with the given keys
+	 *
+	 * @param existingIndexes - indexes present in Mongo
+	 * @param keys            - index keys as JSON
+	 *
+	 * @return existing index, null if no index has the given keys
+	 */
+	private IndexInfo findByKeys(List<IndexInfo> existingIndexes, String keys) {
+
+		for (IndexInfo existingIndex : existingIndexes) {
+			if (keys.equals(keysOf(existingIndex))) {
+				return existingIndex;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the keys of an existing index in the format of declared index keys,
+	 * so field order is taken into account when comparing them
+	 *
+	 * @param indexInfo - index present in Mongo
+	 *
+	 * @return index keys as JSON
+	 */
+	private String keysOf(IndexInfo indexInfo) {
+
+		Document keys = new Document();
+
+		for (IndexField indexField : indexInfo.getIndexFields()) {
+
+			Sort.Direction direction = indexField.getDirection();
+			keys.append(indexField.getKey(), direction == null ? "special" : direction.isAscending() ? 1 : -1);
+		}
+
+		return keys.toJson();
+	}
+
+}
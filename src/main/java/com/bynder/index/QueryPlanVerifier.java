@@ -0,0 +1,295 @@
+package com.bynder.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Ballot;
+import com.bynder.model.BallotSegment;
+import com.bynder.model.Lottery;
+import com.bynder.model.LotteryResult;
+import com.bynder.model.Sequences;
+import com.bynder.model.User;
+import com.bynder.repository.BallotQueries;
+import com.bynder.repository.BallotSegmentQueries;
+import com.bynder.repository.LotteryQueries;
+import com.bynder.repository.LotteryResultQueries;
+import com.mongodb.client.MongoCollection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Component to verify that every repository query is served by an index.
+ *
+ * Each query is explained against Mongo and its winning plan is checked for a
+ * collection scan. Depending on mongo.index.query-plan-check, a collection
+ * scan aborts the startup (fail), is logged (warn) or the check is skipped
+ * (off).
+ *
+ * Queries which read a whole collection on purpose, like the userId export of
+ * the user existence filter, are not verified.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "mongo.index.reconcile", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class QueryPlanVerifier {
+
+	public static final String FAIL = "fail";
+
+	public static final String OFF = "off";
+
+	private static final String COLLSCAN = "COLLSCAN";
+
+	private static final String WINNING_PLAN = "winningPlan";
+
+	private static final String STAGE = "stage";
+
+	// query plans do not depend on the values, only on the queried fields
+	private static final String SAMPLE = "0";
+
+	private static final int SAMPLE_LIMIT = 100;
+
+	private static final String SAMPLE_RESULT_DATE = "2023-07-10";
+
+	private static final Date SAMPLE_DATE = new Date(0);
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Value("${mongo.index.query-plan-check:warn}")
+	private String queryPlanCheck;
+
+	/**
+	 * Explains every repository query and reports the ones resolved to a
+	 * collection scan
+	 *
+	 * @throws IllegalStateException - thrown if any query is resolved to a
+	 *                               collection scan and the check is configured
+	 *                               to fail
+	 */
+	public void verify() {
+
+		if (OFF.equalsIgnoreCase(queryPlanCheck)) {
+			return;
+		}
+
+		List<QueryShape> queryShapes = queryShapes();
+		List<String> collectionScans = new ArrayList<>();
+
+		for (QueryShape queryShape : queryShapes) {
+
+			if (usesCollectionScan(queryShape.explain(mongoOperations))) {
+				collectionScans.add(queryShape.name);
+			}
+		}
+
+		if (collectionScans.isEmpty()) {
+			log.info("Verified query plans of {} repository queries", queryShapes.size());
+			return;
+		}
+
+		String message = "Repository queries resolved to a collection scan: " + collectionScans;
+
+		if (FAIL.equalsIgnoreCase(queryPlanCheck)) {
+			throw new IllegalStateException(message);
+		}
+
+		log.warn(message);
+	}
+
+	/**
+	 * Returns whether the winning plan of an explain result contains a collection
+	 * scan.
+	 *
+	 * The winning plan is searched wherever it is nested, so plans of find
+	 * commands and of aggregation pipelines are both covered. Rejected plans are
+	 * ignored.
+	 *
+	 * @param explain - explain result
+	 *
+	 * @return true if the winning plan scans the collection
+	 */
+	public static boolean usesCollectionScan(Document explain) {
+
+		return containsCollectionScan(explain, false);
+	}
+
+	private static boolean containsCollectionScan(Object node, boolean inWinningPlan) {
+
+		if (node instanceof Map) {
+
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+
+				if (inWinningPlan && STAGE.equals(entry.getKey()) && COLLSCAN.equals(entry.getValue())) {
+					return true;
+				}
+
+				if (containsCollectionScan(entry.getValue(), inWinningPlan || WINNING_PLAN.equals(entry.getKey()))) {
+					return true;
+				}
+			}
+
+		} else if (node instanceof List) {
+
+			for (Object element : (List<?>) node) {
+				if (containsCollectionScan(element, inWinningPlan)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the queries issued by the repositories and services, named after
+	 * the method issuing them.
+	 *
+	 * Queries are built by the same query factories the repositories use, so a
+	 * changed query is verified as it is issued.
+	 *
+	 * @return queries to be verified
+	 */
+	private List<QueryShape> queryShapes() {
+
+		List<QueryShape> queryShapes = new ArrayList<>();
+
+		queryShapes.add(QueryShape.find("BallotRepository.findByUserId", Ballot.class, equalTo("userId")));
+		queryShapes.add(QueryShape.find("BallotRepository.findByLotteryId", Ballot.class, equalTo("lotteryId")));
+		queryShapes.add(QueryShape.find("BallotRepository.findByUserIdAndLotteryId", Ballot.class,
+				new Query(Criteria.where("userId").is(SAMPLE).and("lotteryId").is(SAMPLE))));
+		queryShapes.add(QueryShape.find("BallotRepository.existsByLotteryId", Ballot.class, equalTo("lotteryId")));
+		queryShapes.add(QueryShape.aggregate("BallotRepository.countByLotteryIds", Ballot.class,
+				BallotQueries.countByLotteryIds(Arrays.asList(SAMPLE, SAMPLE))));
+		queryShapes.add(QueryShape.find("BallotRepository.findByLotteryIdAndOrdinal", Ballot.class,
+				new Query(Criteria.where("lotteryId").is(SAMPLE).and("ordinal").is(1L))));
+		queryShapes.add(QueryShape.find("BallotRepository.findLastOrdinal", Ballot.class,
+				BallotQueries.lastOrdinal(SAMPLE)));
+		queryShapes.add(QueryShape.aggregate("BallotRepository.findRandomBallot", Ballot.class,
+				BallotQueries.randomBallot(SAMPLE)));
+		queryShapes.add(QueryShape.find("BallotRepository.findPage", Ballot.class,
+				BallotQueries.page(null, null, SAMPLE, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("BallotRepository.findPage(userId)", Ballot.class,
+				BallotQueries.page(SAMPLE, null, SAMPLE, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("BallotRepository.findPage(lotteryId)", Ballot.class,
+				BallotQueries.page(null, SAMPLE, SAMPLE, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("BallotRepository.findPage(userId, lotteryId)", Ballot.class,
+				BallotQueries.page(SAMPLE, SAMPLE, SAMPLE, SAMPLE_LIMIT)));
+
+		queryShapes.add(QueryShape.find("LotteryRepository.findByLotteryId", Lottery.class,
+				LotteryQueries.byLotteryId(SAMPLE)));
+		queryShapes.add(QueryShape.find("LotteryRepository.findByStatus", Lottery.class, equalTo("status")));
+		queryShapes.add(QueryShape.find("LotteryRepository.findPage", Lottery.class,
+				LotteryQueries.page(null, SAMPLE, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("LotteryRepository.findPage(status)", Lottery.class,
+				LotteryQueries.page(Constants.OPEN, SAMPLE, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("LotteryRepository.closeLotteries", Lottery.class,
+				LotteryQueries.openLottery(SAMPLE)));
+		queryShapes.add(QueryShape.find("LotteryRepository.closeLotteries(closedByOthers)", Lottery.class,
+				LotteryQueries.closedByOthers(Arrays.asList(SAMPLE, SAMPLE), SAMPLE_DATE)));
+		queryShapes.add(QueryShape.find("LotteryRepository.updateReservoir", Lottery.class,
+				LotteryQueries.reservoirBelow(SAMPLE, 1L)));
+		queryShapes.add(QueryShape.find("LotteryRepository.rebuildReservoir", Lottery.class,
+				LotteryQueries.reservoirAtOrBelow(SAMPLE, 1L)));
+
+		queryShapes.add(QueryShape.find("LotteryResultRepository.findByLotteryId", LotteryResult.class,
+				LotteryResultQueries.byLotteryId(SAMPLE)));
+		queryShapes.add(QueryShape.find("LotteryResultRepository.findPage", LotteryResult.class,
+				LotteryResultQueries.page(SAMPLE_RESULT_DATE, SAMPLE_RESULT_DATE, null, null, SAMPLE_LIMIT)));
+		queryShapes.add(QueryShape.find("LotteryResultRepository.findPage(after)", LotteryResult.class,
+				LotteryResultQueries.page(SAMPLE_RESULT_DATE, SAMPLE_RESULT_DATE, SAMPLE_RESULT_DATE, SAMPLE,
+						SAMPLE_LIMIT)));
+
+		queryShapes.add(QueryShape.find("BallotArchive.archiveClosedLotteries", Lottery.class,
+				BallotSegmentQueries.unarchivedLotteries()));
+		queryShapes.add(QueryShape.find("BallotArchive.archiveLottery(claim)", Lottery.class,
+				BallotSegmentQueries.claimableLottery(SAMPLE, SAMPLE_DATE)));
+		queryShapes.add(QueryShape.find("BallotArchive.archiveLottery(renew)", Lottery.class,
+				BallotSegmentQueries.claimedLottery(SAMPLE, SAMPLE_DATE)));
+		queryShapes.add(QueryShape.find("BallotArchive.archiveLottery(removeSegments)", BallotSegment.class,
+				LotteryQueries.byLotteryId(SAMPLE)));
+		queryShapes.add(QueryShape.find("BallotArchive.purgeBallots", Ballot.class,
+				BallotQueries.byBallotIds(SAMPLE, Arrays.asList(SAMPLE, SAMPLE))));
+		queryShapes.add(QueryShape.find("BallotArchive.findPage(lotteryId)", BallotSegment.class,
+				BallotSegmentQueries.segments(null, SAMPLE, SAMPLE)));
+		queryShapes.add(QueryShape.find("BallotArchive.findPage(userId)", BallotSegment.class,
+				BallotSegmentQueries.segments(SAMPLE, null, SAMPLE)));
+
+		queryShapes.add(QueryShape.find("UserRepository.findByUserId", User.class, equalTo("userId")));
+		queryShapes.add(QueryShape.find("UserRepository.findByUserName", User.class, equalTo("userName")));
+
+		queryShapes.add(QueryShape.find("SequenceGeneratorService.getNextSequenceNumber", Sequences.class,
+				equalTo(Constants.SEQ_NAME)));
+		queryShapes.add(QueryShape.find("BallotOrdinalService.getLastOrdinal", Sequences.class,
+				equalTo(Constants.SEQ_NAME)));
+
+		return queryShapes;
+	}
+
+	private static Query equalTo(String field) {
+
+		return new Query(Criteria.where(field).is(SAMPLE));
+	}
+
+	/**
+	 * Repository query to be explained, either a find with its sort and limit or
+	 * an aggregation pipeline
+	 */
+	private static final class QueryShape {
+
+		private final String name;
+
+		private final Class<?> entityType;
+
+		private final Query query;
+
+		private final List<Document> pipeline;
+
+		private QueryShape(String name, Class<?> entityType, Query query, List<Document> pipeline) {
+
+			this.name = name;
+			this.entityType = entityType;
+			this.query = query;
+			this.pipeline = pipeline;
+		}
+
+		private static QueryShape find(String name, Class<?> entityType, Query query) {
+			return new QueryShape(name, entityType, query, null);
+		}
+
+		private static QueryShape aggregate(String name, Class<?> entityType, Aggregation aggregation) {
+			return new QueryShape(name, entityType, null, aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT));
+		}
+
+		private Document explain(MongoOperations mongoOperations) {
+
+			MongoCollection<Document> collection = mongoOperations
+					.getCollection(mongoOperations.getCollectionName(entityType));
+
+			if (pipeline != null) {
+				return collection.aggregate(pipeline).explain();
+			}
+
+			return collection.find(query.getQueryObject()).projection(query.getFieldsObject())
+					.sort(query.getSortObject()).limit(query.getLimit()).explain();
+		}
+
+	}
+
+}
@@ -1,32 +1,41 @@
 package com.bynder.interceptors;
 
-import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import com.bynder.constants.Constants;
 import com.bynder.exception.MissingMandatoryParamException;
 
 /**
  * Interceptor class handles validation logic for mandatory request parameters
  * 
+ * The names of the required request parameters of a handler method are
+ * resolved once by reflection and cached per method, so validating a request
+ * only reads its parameters.
+ * 
  * @author arathy
  *
  */
 @Component
 public class ValidationInterceptor implements HandlerInterceptor {
 
+	private static final String[] NO_PARAMETERS = new String[0];
+
+	// names of the required request parameters, keyed by handler method
+	private final ConcurrentMap<Method, String[]> requiredParameters = new ConcurrentHashMap<>();
+
 	/**
 	 * Validates incoming requests and check if all the required parameters are
 	 * provided in the request.
@@ -43,16 +52,11 @@ public class ValidationInterceptor implements HandlerInterceptor {
 
 		if (handler instanceof HandlerMethod) {
 
-			HandlerMethod handlerMethod = (HandlerMethod) handler;
-
-			if (ArrayUtils.isNotEmpty(handlerMethod.getMethod().getParameters())) {
-
-				for (Parameter parameter : handlerMethod.getMethod().getParameters()) {
-
-					Map<String, Object> parameterDetails = retrieveParameterAttributes(parameter, request);
-					checkForMandatoryParameter(parameterDetails);
-				}
+			String[] parameterNames = requiredParameters.computeIfAbsent(((HandlerMethod) handler).getMethod(),
+					ValidationInterceptor::retrieveRequiredParameters);
 
+			for (String parameterName : parameterNames) {
+				checkForMandatoryParameter(parameterName, request);
 			}
 		}
 
@@ -60,77 +64,49 @@ public class ValidationInterceptor implements HandlerInterceptor {
 	}
 
 	/**
-	 * Retrieves the attributes related to the request parameters
+	 * Retrieves the names of the request parameters of a handler method which are
+	 * annotated as required
 	 * 
-	 * @param parameter - includes information about method parameters like its name
-	 *                  and modifiers
-	 * @param request   - current HTTP request
+	 * @param method - handler method
 	 * 
-	 * @return request parameter attributes
+	 * @return names of the required request parameters
 	 */
-	private Map<String, Object> retrieveParameterAttributes(Parameter parameter, HttpServletRequest request) {
+	private static String[] retrieveRequiredParameters(Method method) {
 
-		Map<String, Object> parameterDetails = new HashMap<>();
+		List<String> parameterNames = new ArrayList<>();
 
-		for (Annotation annotation : parameter.getAnnotations()) {
+		for (Parameter parameter : method.getParameters()) {
 
-			if (annotation.annotationType().equals(RequestParam.class)) {
+			RequestParam param = parameter.getAnnotation(RequestParam.class);
 
-				RequestParam param = (RequestParam) annotation;
-				parameterDetails.put(Constants.REQUIRED, param.required());
-				parameterDetails.put(Constants.NAME, param.value());
-				parameterDetails.put(Constants.VALUE, request.getParameter(param.value()));
+			if (param != null && param.required()) {
+				parameterNames.add(param.value());
 			}
-
 		}
 
-		return parameterDetails;
+		return parameterNames.isEmpty() ? NO_PARAMETERS : parameterNames.toArray(NO_PARAMETERS);
 	}
 
 	/**
-	 * Checks if any mandatory parameter/parameter value is missing
+	 * Checks if a mandatory parameter/parameter value is missing
+	 * 
+	 * A value which is empty or contains whitespace only is considered missing
 	 * 
-	 * @param parameterDetails- request parameter attributes
+	 * @param parameterName - name of the mandatory request parameter
+	 * @param request       - current HTTP request
 	 * 
 	 * @throws MissingMandatoryParamException - thrown if mandatory
 	 *                                        parameter/parameter value is missing
 	 */
-	private void checkForMandatoryParameter(Map<String, Object> parameterDetails)
+	private void checkForMandatoryParameter(String parameterName, HttpServletRequest request)
 			throws MissingMandatoryParamException {
 
-		if (parameterDetails.get(Constants.REQUIRED) != null && (Boolean) parameterDetails.get(Constants.REQUIRED)
-				&& isNullOrEmpty(parameterDetails.get(Constants.VALUE))) {
+		if (StringUtils.isBlank(request.getParameter(parameterName))) {
 
 			throw new MissingMandatoryParamException(
-					"Mandatory Parameter Missing. Please provide value for " + parameterDetails.get(Constants.NAME));
-		}
-
-	}
-
-	/**
-	 * Check if an object is null
-	 * 
-	 * For string objects, checks whether it is null, empty or contains whitespace
-	 * 
-	 * For collection objects, checks whether if the supplied collection is null or
-	 * empty
-	 * 
-	 * @param paramValue - parameter for which null/empty check needs to be
-	 *                   performed
-	 * 
-	 * @return true/false depending on the checked conditions
-	 */
-	private boolean isNullOrEmpty(Object parameter) {
-
-		if (parameter == null) {
-			return true;
-		}
-
-		if (parameter instanceof String) {
-			return StringUtils.isBlank((String) parameter);
+					"Mandatory Parameter Missing. Please provide value for " + parameterName);
 		}
 
-		return false;
 	}
 
 }
@@ -0,0 +1,158 @@
+package com.bynder.lease;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Component to partition the lotteries closed by the scheduler between nodes:
+ * 		* lotteries are split into a fixed number of slices by their lotteryId.
+ * 		* a node closes the lotteries of a slice only while it holds the lease of
+ * 		  the slice, so each lottery is drawn by one node.
+ * 		* held leases are renewed on a schedule, so they do not expire while the
+ * 		  slice is processed, and released once it is done or the node shuts
+ * 		  down.
+ * 		* a slice whose node dies is free again once its lease expires.
+ * 
+ * Enabled by setting scheduler.coordination=lease.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "scheduler.coordination", havingValue = "lease")
+@Slf4j
+public class LeaseCoordinator {
+
+	private static final String SLICE_LEASE = "lottery-close-";
+
+	@Autowired
+	private LeaseStore leaseStore;
+
+	@Value("${scheduler.lease.node-id:}")
+	private String nodeId;
+
+	@Value("${scheduler.lease.slices:16}")
+	private int slices;
+
+	@Value("${scheduler.lease.ttl-ms:60000}")
+	private long ttlMs;
+
+	private final Set<Integer> heldSlices = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Generates a node id, if none is configured
+	 * 
+	 */
+	@PostConstruct
+	public void init() {
+
+		if (StringUtils.isBlank(nodeId)) {
+			nodeId = UUID.randomUUID().toString();
+		}
+
+		log.info("Lease coordinator started as node {} with {} slices", nodeId, slices);
+	}
+
+	/**
+	 * Returns the slice of a lottery
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * 
+	 * @return slice between 0 and the number of slices
+	 */
+	public int sliceOf(String lotteryId) {
+
+		return Math.floorMod(lotteryId.hashCode(), slices);
+	}
+
+	/**
+	 * Returns the slice this node tries first, so nodes starting at the same time
+	 * spread over the slices instead of competing for the same one
+	 * 
+	 * @return first slice of this node
+	 */
+	public int firstSlice() {
+
+		return Math.floorMod(nodeId.hashCode(), slices);
+	}
+
+	public int getSlices() {
+		return slices;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Acquires the lease of a slice, if it is free, expired or already held by
+	 * this node
+	 * 
+	 * @param slice - slice to be acquired
+	 * 
+	 * @return true if this node holds the lease
+	 */
+	public boolean tryAcquire(int slice) {
+
+		if (leaseStore.acquire(SLICE_LEASE + slice, nodeId, ttlMs)) {
+			heldSlices.add(slice);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Releases the lease of a slice held by this node
+	 * 
+	 * @param slice - slice to be released
+	 */
+	public void release(int slice) {
+
+		heldSlices.remove(slice);
+		leaseStore.release(SLICE_LEASE + slice, nodeId);
+	}
+
+	/**
+	 * Extends the leases held by this node
+	 * 
+	 */
+	@Scheduled(fixedDelayString = "${scheduler.lease.renew-interval-ms:20000}")
+	public void renew() {
+
+		if (heldSlices.isEmpty()) {
+			return;
+		}
+
+		try {
+			leaseStore.renew(nodeId, ttlMs);
+		} catch (RuntimeException exception) {
+			log.error("Failed to renew leases of slices {}", heldSlices, exception);
+		}
+	}
+
+	/**
+	 * Releases the leases held by this node before the application shuts down, so
+	 * other nodes do not wait for them to expire
+	 * 
+	 */
+	@PreDestroy
+	public void shutdown() {
+
+		heldSlices.forEach(this::release);
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.bynder.lease;
+
+/**
+ * Store of expiring leases, each held by at most one owner at a time.
+ * 
+ * A lease is acquired if it is free, expired or already held by the caller,
+ * kept by renewing it before it expires and released once the work it guards
+ * is done.
+ * 
+ * @author arathy
+ *
+ */
+public interface LeaseStore {
+
+	boolean acquire(String name, String owner, long ttlMs);
+
+	int renew(String owner, long ttlMs);
+
+	void release(String name, String owner);
+
+}
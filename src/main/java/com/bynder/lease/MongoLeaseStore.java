@@ -0,0 +1,99 @@
+package com.bynder.lease;
+
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.bynder.model.Lease;
+
+/**
+ * Lease store keeping leases in the LEASES collection, so they are shared by
+ * all nodes.
+ * 
+ * Expiry times are set from the clock of the node acquiring or renewing the
+ * lease, so the lease time to live has to exceed the clock skew between nodes.
+ * 
+ * Enabled by setting scheduler.coordination=lease.
+ * 
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "scheduler.coordination", havingValue = "lease")
+public class MongoLeaseStore implements LeaseStore {
+
+	private static final String NAME = "_id";
+
+	private static final String OWNER = "owner";
+
+	private static final String EXPIRES_AT = "expiresAt";
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	/**
+	 * Acquires the lease if it is not present, expired or already held by the
+	 * owner, with a single upsert.
+	 * 
+	 * If the lease is held by another owner, the upsert does not match and its
+	 * insert is rejected by the unique _id.
+	 * 
+	 * @param name  - lease name
+	 * @param owner - identifier of the acquiring node
+	 * @param ttlMs - time to live of the lease
+	 * 
+	 * @return true if the lease is held by the owner
+	 */
+	public boolean acquire(String name, String owner, long ttlMs) {
+
+		Date now = new Date();
+
+		Query query = new Query(Criteria.where(NAME).is(name)
+				.orOperator(Criteria.where(OWNER).is(owner), Criteria.where(EXPIRES_AT).lt(now)));
+
+		try {
+
+			mongoOperations.upsert(query,
+					new Update().set(OWNER, owner).set(EXPIRES_AT, new Date(now.getTime() + ttlMs)), Lease.class);
+			return true;
+
+		} catch (DuplicateKeyException exception) {
+
+			return false;
+		}
+	}
+
+	/**
+	 * Extends all leases held by the owner
+	 * 
+	 * @param owner - identifier of the renewing node
+	 * @param ttlMs - time to live of the leases from now
+	 * 
+	 * @return number of renewed leases
+	 */
+	public int renew(String owner, long ttlMs) {
+
+		return (int) mongoOperations.updateMulti(new Query(Criteria.where(OWNER).is(owner)),
+				new Update().set(EXPIRES_AT, new Date(System.currentTimeMillis() + ttlMs)), Lease.class)
+				.getModifiedCount();
+	}
+
+	/**
+	 * Releases the lease, if it is still held by the owner
+	 * 
+	 * @param name  - lease name
+	 * @param owner - identifier of the releasing node
+	 */
+	public void release(String name, String owner) {
+
+		mongoOperations.remove(new Query(Criteria.where(NAME).is(name).and(OWNER).is(owner)), Lease.class);
+	}
+
+}
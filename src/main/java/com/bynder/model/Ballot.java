@@ -2,6 +2,8 @@ package com.bynder.model;
 
 import java.util.Date;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -9,6 +11,10 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Document(collection = "BALLOT")
+@CompoundIndexes({ @CompoundIndex(name = "lotteryId_ballotId", def = "{ 'lotteryId' : 1, 'ballotId' : 1 }"),
+		@CompoundIndex(name = "userId_ballotId", def = "{ 'userId' : 1, 'ballotId' : 1 }"),
+		@CompoundIndex(name = "lotteryId_ordinal", def = "{ 'lotteryId' : 1, 'ordinal' : 1 }", unique = true,
+				partialFilter = "{ 'ordinal' : { '$exists' : true } }") })
 @Getter
 @Setter
 public class Ballot {
@@ -22,4 +28,6 @@ public class Ballot {
 
 	private Date createdDate;
 
+	private Long ordinal;
+
 }
@@ -0,0 +1,42 @@
+package com.bynder.model;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Archived ballots of a closed lottery, consecutive in ballotId order and
+ * encoded with BallotSegmentCodec
+ *
+ * @author arathy
+ *
+ */
+@Document(collection = "BALLOT_ARCHIVE")
+@CompoundIndexes({
+		@CompoundIndex(name = "lotteryId_firstBallotId", def = "{ 'lotteryId' : 1, 'firstBallotId' : 1 }",
+				unique = true),
+		@CompoundIndex(name = "userIds_firstBallotId", def = "{ 'userIds' : 1, 'firstBallotId' : 1 }") })
+@Getter
+@Setter
+public class BallotSegment {
+
+	private String lotteryId;
+
+	@Indexed
+	private String firstBallotId;
+
+	private String lastBallotId;
+
+	private int ballotCount;
+
+	private List<String> userIds;
+
+	private byte[] data;
+
+}
@@ -0,0 +1,37 @@
+package com.bynder.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Document(collection = "IDEMPOTENCY_KEYS")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+	@Id
+	private String key;
+
+	private String requestHash;
+
+	// token of the caller holding the claim, replaced when an expired lease is taken over
+	private String owner;
+
+	private String response;
+
+	private boolean completed;
+
+	private Date createdDate;
+
+	// end of the lease of a pending record, removed once completed
+	private Date leaseExpiresDate;
+
+}
@@ -0,0 +1,27 @@
+package com.bynder.model;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Document(collection = "LEASES")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Lease {
+
+	@Id
+	private String name;
+
+	private String owner;
+
+	private Date expiresAt;
+
+}
@@ -2,6 +2,8 @@ package com.bynder.model;
 
 import java.util.Date;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -10,6 +12,8 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Document(collection = "LOTTERY")
+@CompoundIndexes({ @CompoundIndex(name = "status_lotteryId", def = "{ 'status' : 1, 'lotteryId' : 1 }"),
+		@CompoundIndex(name = "status_archiveStatus", def = "{ 'status' : 1, 'archiveStatus' : 1 }") })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +34,20 @@ public class Lottery {
 
 	private Date endDate;
 
+	private Date closeDate;
+
+	private String timeZone;
+
+	private long ballotCount;
+
+	private String reservoirBallot;
+
+	private Long reservoirOrdinal;
+
+	private String archiveStatus;
+
+	private Date archiveClaimedDate;
+
 	public Lottery(String lotteryId, String name, long prizeMoney, Date startDate) {
 
 		this.lotteryId = lotteryId;
@@ -0,0 +1,40 @@
+package com.bynder.model;
+
+import java.util.Date;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Result of a closed lottery, keyed by the date it was closed on in the time
+ * zone of the lottery, so results of a date are read without reading LOTTERY
+ *
+ * @author arathy
+ *
+ */
+@Document(collection = "RESULTS")
+@CompoundIndex(name = "resultDate_lotteryId", def = "{ 'resultDate' : 1, 'lotteryId' : 1 }", unique = true)
+@Getter
+@Setter
+public class LotteryResult {
+
+	@Indexed(unique = true)
+	private String lotteryId;
+
+	private String resultDate;
+
+	private String name;
+
+	private long prizeMoney;
+
+	private String winnerBallot;
+
+	private Date endDate;
+
+	private String timeZone;
+
+}
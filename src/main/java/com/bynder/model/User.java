@@ -14,6 +14,7 @@ public class User {
 	@Indexed(unique = true)
 	private String userId;
 
+	@Indexed
 	private String userName;
 
 	private String firstName;
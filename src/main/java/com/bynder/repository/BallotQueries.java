@@ -0,0 +1,139 @@
+package com.bynder.repository;
+
+import java.util.Collection;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Queries on the BALLOT collection shared by the blocking and the reactive
+ * repositories
+ * 
+ * @author arathy
+ *
+ */
+public final class BallotQueries {
+
+	public static final String BALLOT_ID = "ballotId";
+
+	public static final String ORDINAL = "ordinal";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private BallotQueries() {
+
+	}
+
+	/**
+	 * Returns query of the ballots matching the optional userId and lotteryId,
+	 * ordered by ballotId
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return ballot query
+	 */
+	public static Query filter(String userId, String lotteryId) {
+
+		Criteria criteria = new Criteria();
+
+		if (StringUtils.isNotBlank(userId)) {
+			criteria.and("userId").is(userId);
+		}
+
+		if (StringUtils.isNotBlank(lotteryId)) {
+			criteria.and("lotteryId").is(lotteryId);
+		}
+
+		return new Query(criteria).with(Sort.by(Sort.Direction.ASC, BALLOT_ID));
+	}
+
+	/**
+	 * Returns query of the next page of ballots matching the optional userId and
+	 * lotteryId, continuing after the given ballotId.
+	 * 
+	 * One more ballot than the page size is requested, to know whether another
+	 * page follows.
+	 * 
+	 * @param userId        - unique identifier related to a customer
+	 * @param lotteryId     - unique identifier related to a lottery
+	 * @param afterBallotId - ballotId of the last ballot of the previous page,
+	 *                      null for the first page
+	 * @param limit         - page size
+	 * 
+	 * @return ballot page query
+	 */
+	public static Query page(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		Query query = filter(userId, lotteryId);
+
+		if (afterBallotId != null) {
+			query.addCriteria(Criteria.where(BALLOT_ID).gt(afterBallotId));
+		}
+
+		return query.limit(limit + 1);
+	}
+
+	/**
+	 * Returns query of the given ballots of a lottery, used to delete archived
+	 * ballots without touching ballots of the lottery written later
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param ballotIds - ballotIds of the ballots
+	 * 
+	 * @return ballot query
+	 */
+	public static Query byBallotIds(String lotteryId, Collection<String> ballotIds) {
+
+		return new Query(Criteria.where("lotteryId").is(lotteryId).and(BALLOT_ID).in(ballotIds));
+	}
+
+	/**
+	 * Returns query of the ballot with the highest ordinal of a lottery, read
+	 * backwards through the partial (lotteryId, ordinal) index, which requires
+	 * the ordinal to exist
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return last ordinal query
+	 */
+	public static Query lastOrdinal(String lotteryId) {
+
+		Query query = new Query(Criteria.where("lotteryId").is(lotteryId).and(ORDINAL).exists(true))
+				.with(Sort.by(Sort.Direction.DESC, ORDINAL)).limit(1);
+		query.fields().include(ORDINAL);
+		return query;
+	}
+
+	/**
+	 * Returns aggregation drawing one random ballot of a lottery
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return random ballot aggregation
+	 */
+	public static Aggregation randomBallot(String lotteryId) {
+
+		return Aggregation.newAggregation(Aggregation.match(Criteria.where("lotteryId").is(lotteryId)),
+				Aggregation.sample(1));
+	}
+
+	/**
+	 * Returns aggregation counting the ballots of each of the given lotteries,
+	 * with the lotteryId as _id and the number of ballots as count
+	 * 
+	 * @param lotteryIds - unique identifiers of the lotteries
+	 * 
+	 * @return ballot count aggregation
+	 */
+	public static Aggregation countByLotteryIds(Collection<String> lotteryIds) {
+
+		return Aggregation.newAggregation(Aggregation.match(Criteria.where("lotteryId").in(lotteryIds)),
+				Aggregation.group("lotteryId").count().as("count"));
+	}
+
+}
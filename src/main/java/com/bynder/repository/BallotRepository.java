@@ -2,14 +2,13 @@ package com.bynder.repository;
 
 import java.util.List;
 
-import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.bynder.model.Ballot;
 
 @Repository
-public interface BallotRepository extends MongoRepository<Ballot, Long>{
+public interface BallotRepository extends MongoRepository<Ballot, Long>, BallotRepositoryCustom {
 
 	List<Ballot> findByUserId(String userId);
 
@@ -17,12 +16,8 @@ public interface BallotRepository extends MongoRepository<Ballot, Long>{
 	
 	List<Ballot> findByUserIdAndLotteryId(String userId, String lotteryId);
 	
-	Long countByLotteryId(String lotteryId);
+	boolean existsByLotteryId(String lotteryId);
+
+	Ballot findByLotteryIdAndOrdinal(String lotteryId, long ordinal);
 
-	@Aggregation(pipeline = {
-	        "{'$match':{'lotteryId':?0 }}",
-	        "{'$sample':{size: 1}}"
-	})
-	Ballot findRandomBallot(String lotteryId);
-	
 }
@@ -0,0 +1,25 @@
+package com.bynder.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.util.CloseableIterator;
+
+import com.bynder.model.Ballot;
+
+public interface BallotRepositoryCustom {
+
+	void insertUnordered(List<Ballot> ballots);
+
+	List<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit);
+
+	CloseableIterator<Ballot> streamBallots(String userId, String lotteryId);
+
+	Map<String, Long> countByLotteryIds(Collection<String> lotteryIds);
+
+	Ballot findRandomBallot(String lotteryId);
+
+	long findLastOrdinal(String lotteryId);
+
+}
@@ -0,0 +1,136 @@
+package com.bynder.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.util.CloseableIterator;
+
+import com.bynder.model.Ballot;
+
+/**
+ * Implementation of the ballot storage operations which are not derived from
+ * repository method names
+ * 
+ * @author arathy
+ *
+ */
+public class BallotRepositoryCustomImpl implements BallotRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	/**
+	 * Inserts the given ballots with a single unordered bulk write, so one failing
+	 * document does not stop the remaining ones from being inserted.
+	 * 
+	 * @param ballots - ballots to be inserted
+	 */
+	public void insertUnordered(List<Ballot> ballots) {
+
+		if (!ballots.isEmpty()) {
+			mongoOperations.bulkOps(BulkMode.UNORDERED, Ballot.class).insert(ballots).execute();
+		}
+	}
+
+	/**
+	 * Returns the next page of ballots matching the optional userId and
+	 * lotteryId, ordered by ballotId.
+	 * 
+	 * ballotIds are Strings, so the order is lexicographic, not numeric: "10"
+	 * comes before "9". Pages follow this order consistently, but do not list
+	 * ballots in the order they were created.
+	 * 
+	 * One more ballot than the page size is returned if another page follows.
+	 * 
+	 * @param userId        - unique identifier related to a customer
+	 * @param lotteryId     - unique identifier related to a lottery
+	 * @param afterBallotId - ballotId of the last ballot of the previous page,
+	 *                      null for the first page
+	 * @param limit         - page size
+	 * 
+	 * @return ballots of the page
+	 */
+	public List<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		return mongoOperations.find(BallotQueries.page(userId, lotteryId, afterBallotId, limit), Ballot.class);
+	}
+
+	/**
+	 * Returns an iterator over all ballots matching the optional userId and
+	 * lotteryId, backed by a Mongo cursor so ballots are not held in memory.
+	 * 
+	 * The iterator must be closed by the caller.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return ballot iterator
+	 */
+	public CloseableIterator<Ballot> streamBallots(String userId, String lotteryId) {
+
+		return mongoOperations.stream(BallotQueries.filter(userId, lotteryId), Ballot.class);
+	}
+
+	/**
+	 * Counts the ballots of each of the given lotteries with a single
+	 * aggregation.
+	 * 
+	 * @param lotteryIds - unique identifiers of the lotteries
+	 * 
+	 * @return number of ballots keyed by lotteryId, lotteries without ballots
+	 *         are not included
+	 */
+	public Map<String, Long> countByLotteryIds(Collection<String> lotteryIds) {
+
+		Map<String, Long> ballotCounts = new HashMap<>();
+
+		if (lotteryIds.isEmpty()) {
+			return ballotCounts;
+		}
+
+		for (Document result : mongoOperations.aggregate(BallotQueries.countByLotteryIds(lotteryIds), Ballot.class,
+				Document.class)) {
+			ballotCounts.put(result.getString("_id"), ((Number) result.get("count")).longValue());
+		}
+
+		return ballotCounts;
+	}
+
+	/**
+	 * Returns a random ballot of a lottery, drawn by Mongo with $sample
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return random ballot, null if the lottery has no ballots
+	 */
+	public Ballot findRandomBallot(String lotteryId) {
+
+		return mongoOperations.aggregate(BallotQueries.randomBallot(lotteryId), Ballot.class, Ballot.class)
+				.getUniqueMappedResult();
+	}
+
+	/**
+	 * Returns the highest ordinal assigned to a stored ballot of a lottery,
+	 * which is below the last ordinal reserved for the lottery while reserved
+	 * blocks are not used up
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return last assigned ordinal, 0 if no ballot of the lottery has an
+	 *         ordinal
+	 */
+	public long findLastOrdinal(String lotteryId) {
+
+		Ballot ballot = mongoOperations.findOne(BallotQueries.lastOrdinal(lotteryId), Ballot.class);
+
+		return ballot == null || ballot.getOrdinal() == null ? 0 : ballot.getOrdinal();
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.bynder.repository;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.bynder.constants.Constants;
+
+/**
+ * Queries on the BALLOT_ARCHIVE collection and on the archive status of
+ * closed lotteries
+ *
+ * @author arathy
+ *
+ */
+public final class BallotSegmentQueries {
+
+	public static final String FIRST_BALLOT_ID = "firstBallotId";
+
+	public static final String LAST_BALLOT_ID = "lastBallotId";
+
+	public static final String ARCHIVE_STATUS = "archiveStatus";
+
+	public static final String ARCHIVE_CLAIMED_DATE = "archiveClaimedDate";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private BallotSegmentQueries() {
+
+	}
+
+	/**
+	 * Returns query of the segments which may hold ballots matching the optional
+	 * userId and lotteryId after the given ballotId, ordered by their first
+	 * ballotId
+	 *
+	 * @param userId        - unique identifier related to a customer
+	 * @param lotteryId     - unique identifier related to a lottery
+	 * @param afterBallotId - ballotId the ballots follow, null for all ballots
+	 *
+	 * @return segment query
+	 */
+	public static Query segments(String userId, String lotteryId, String afterBallotId) {
+
+		Criteria criteria = new Criteria();
+
+		if (StringUtils.isNotBlank(lotteryId)) {
+			criteria.and("lotteryId").is(lotteryId);
+		}
+
+		if (StringUtils.isNotBlank(userId)) {
+			criteria.and("userIds").is(userId);
+		}
+
+		if (afterBallotId != null) {
+			criteria.and(LAST_BALLOT_ID).gt(afterBallotId);
+		}
+
+		return new Query(criteria).with(Sort.by(Sort.Direction.ASC, FIRST_BALLOT_ID));
+	}
+
+	/**
+	 * Returns query of the closed lotteries whose ballots are not archived yet,
+	 * including lotteries claimed for archiving
+	 *
+	 * @return lottery query
+	 */
+	public static Query unarchivedLotteries() {
+
+		return new Query(Criteria.where(Constants.STATUS).is(Constants.CLOSED).and(ARCHIVE_STATUS)
+				.in(Arrays.asList(null, Constants.ARCHIVING, Constants.PURGING)));
+	}
+
+	/**
+	 * Returns query of the lottery, if it is still claimed for archiving with the
+	 * given claim date, i.e. its claim was not taken over by another node
+	 *
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param claimedDate - date of the claim held by the caller
+	 *
+	 * @return lottery query
+	 */
+	public static Query claimedLottery(String lotteryId, Date claimedDate) {
+
+		return new Query(Criteria.where(LotteryQueries.LOTTERY_ID).is(lotteryId).and(ARCHIVE_CLAIMED_DATE)
+				.is(claimedDate));
+	}
+
+	/**
+	 * Returns query of the lottery, if it is closed and its ballots are neither
+	 * archived nor claimed for archiving since the given date
+	 *
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param staleBefore - date before which a claim is abandoned
+	 *
+	 * @return lottery query
+	 */
+	public static Query claimableLottery(String lotteryId, Date staleBefore) {
+
+		return new Query(Criteria.where(LotteryQueries.LOTTERY_ID).is(lotteryId).and(Constants.STATUS)
+				.is(Constants.CLOSED).orOperator(Criteria.where(ARCHIVE_STATUS).is(null),
+						Criteria.where(ARCHIVE_STATUS).in(Constants.ARCHIVING, Constants.PURGING)
+								.and(ARCHIVE_CLAIMED_DATE).lt(staleBefore)));
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.bynder.repository;
+
+import java.util.Collection;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.bynder.constants.Constants;
+
+/**
+ * Queries on the LOTTERY collection shared by the blocking and the reactive
+ * repositories
+ * 
+ * @author arathy
+ *
+ */
+public final class LotteryQueries {
+
+	public static final String LOTTERY_ID = "lotteryId";
+
+	public static final String RESERVOIR_ORDINAL = "reservoirOrdinal";
+
+	public static final String END_DATE = "endDate";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private LotteryQueries() {
+
+	}
+
+	/**
+	 * Returns query of the lottery with the given lotteryId
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return lottery query
+	 */
+	public static Query byLotteryId(String lotteryId) {
+
+		return new Query(Criteria.where(LOTTERY_ID).is(lotteryId));
+	}
+
+	/**
+	 * Returns query of the lottery with the given lotteryId, if it is still open
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return lottery query
+	 */
+	public static Query openLottery(String lotteryId) {
+
+		return new Query(Criteria.where(LOTTERY_ID).is(lotteryId).and(Constants.STATUS).is(Constants.OPEN));
+	}
+
+	/**
+	 * Returns query of the lotteries matching the optional status, ordered by
+	 * lotteryId
+	 * 
+	 * @param status - lottery status(OPEN/CLOSED)
+	 * 
+	 * @return lottery query
+	 */
+	public static Query filter(String status) {
+
+		Criteria criteria = new Criteria();
+
+		if (StringUtils.isNotBlank(status)) {
+			criteria.and("status").is(status);
+		}
+
+		return new Query(criteria).with(Sort.by(Sort.Direction.ASC, LOTTERY_ID));
+	}
+
+	/**
+	 * Returns query of the next page of lotteries matching the optional status,
+	 * continuing after the given lotteryId.
+	 * 
+	 * One more lottery than the page size is requested, to know whether another
+	 * page follows.
+	 * 
+	 * @param status         - lottery status(OPEN/CLOSED)
+	 * @param afterLotteryId - lotteryId of the last lottery of the previous page,
+	 *                       null for the first page
+	 * @param limit          - page size
+	 * 
+	 * @return lottery page query
+	 */
+	public static Query page(String status, String afterLotteryId, int limit) {
+
+		Query query = filter(status);
+
+		if (afterLotteryId != null) {
+			query.addCriteria(Criteria.where(LOTTERY_ID).gt(afterLotteryId));
+		}
+
+		return query.limit(limit + 1);
+	}
+
+	/**
+	 * Returns query of the lottery whose reservoir holds no ballot or a ballot
+	 * with a lower ordinal than the given one
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param ordinal   - ordinal of the new reservoir ballot
+	 * 
+	 * @return reservoir replacement query
+	 */
+	public static Query reservoirBelow(String lotteryId, long ordinal) {
+
+		return new Query(Criteria.where(LOTTERY_ID).is(lotteryId).orOperator(
+				Criteria.where(RESERVOIR_ORDINAL).exists(false), Criteria.where(RESERVOIR_ORDINAL).lt(ordinal)));
+	}
+
+	/**
+	 * Returns query of the lottery whose reservoir holds no ballot or a ballot
+	 * with the same or a lower ordinal than the given one
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param ordinal   - last ordinal covered by the rebuilt reservoir
+	 * 
+	 * @return reservoir rebuild query
+	 */
+	public static Query reservoirAtOrBelow(String lotteryId, long ordinal) {
+
+		return new Query(Criteria.where(LOTTERY_ID).is(lotteryId).orOperator(
+				Criteria.where(RESERVOIR_ORDINAL).exists(false), Criteria.where(RESERVOIR_ORDINAL).lte(ordinal)));
+	}
+
+	/**
+	 * Returns query of the given lotteries whose end date differs from the given
+	 * one, i.e. which were not closed by the close with that end date, with only
+	 * their lotteryId
+	 * 
+	 * @param lotteryIds - unique identifiers of the closed lotteries
+	 * @param endDate    - end date written by the close
+	 * 
+	 * @return query of the lotteries closed by another close
+	 */
+	public static Query closedByOthers(Collection<String> lotteryIds, Date endDate) {
+
+		Query query = new Query(Criteria.where(LOTTERY_ID).in(lotteryIds).and(END_DATE).ne(endDate));
+		query.fields().include(LOTTERY_ID);
+		return query;
+	}
+
+}
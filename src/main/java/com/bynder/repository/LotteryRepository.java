@@ -11,7 +11,7 @@ import org.springframework.stereotype.Repository;
 import com.bynder.model.Lottery;
 
 @Repository
-public interface LotteryRepository extends MongoRepository<Lottery, Long> {
+public interface LotteryRepository extends MongoRepository<Lottery, Long>, LotteryRepositoryCustom {
 
 	List<Lottery> findByStatus(String status);
 
@@ -0,0 +1,28 @@
+package com.bynder.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.util.CloseableIterator;
+
+import com.bynder.model.Lottery;
+
+public interface LotteryRepositoryCustom {
+
+	List<Lottery> findPage(String status, String afterLotteryId, int limit);
+
+	CloseableIterator<Lottery> streamLotteries(String status);
+
+	void incrementBallotCounts(Map<String, Long> increments);
+
+	void setBallotCount(String lotteryId, long ballotCount);
+
+	Set<String> closeLotteries(Map<String, String> winnerBallots, Date endDate);
+
+	boolean updateReservoir(String lotteryId, String ballotId, long ordinal);
+
+	boolean rebuildReservoir(String lotteryId, String ballotId, long ordinal);
+
+}
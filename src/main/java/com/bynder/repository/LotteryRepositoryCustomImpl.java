@@ -0,0 +1,192 @@
+package com.bynder.repository;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Implementation of the lottery storage operations which are not derived from
+ * repository method names
+ * 
+ * @author arathy
+ *
+ */
+public class LotteryRepositoryCustomImpl implements LotteryRepositoryCustom {
+
+	private static final String BALLOT_COUNT = "ballotCount";
+
+	private static final String END_DATE = "endDate";
+
+	private static final String WINNER_BALLOT = "winnerBallot";
+
+	private static final String RESERVOIR_BALLOT = "reservoirBallot";
+
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	/**
+	 * Returns the next page of lotteries matching the optional status, ordered by
+	 * lotteryId.
+	 * 
+	 * One more lottery than the page size is returned if another page follows.
+	 * 
+	 * @param status         - lottery status(OPEN/CLOSED)
+	 * @param afterLotteryId - lotteryId of the last lottery of the previous page,
+	 *                       null for the first page
+	 * @param limit          - page size
+	 * 
+	 * @return lotteries of the page
+	 */
+	public List<Lottery> findPage(String status, String afterLotteryId, int limit) {
+
+		return mongoOperations.find(LotteryQueries.page(status, afterLotteryId, limit), Lottery.class);
+	}
+
+	/**
+	 * Returns an iterator over all lotteries matching the optional status, backed
+	 * by a Mongo cursor so lotteries are not held in memory.
+	 * 
+	 * The iterator must be closed by the caller.
+	 * 
+	 * @param status - lottery status(OPEN/CLOSED)
+	 * 
+	 * @return lottery iterator
+	 */
+	public CloseableIterator<Lottery> streamLotteries(String status) {
+
+		return mongoOperations.stream(LotteryQueries.filter(status), Lottery.class);
+	}
+
+	/**
+	 * Adds the given number of ballots to the ballot count of each lottery with a
+	 * single unordered bulk write.
+	 * 
+	 * Updates are issued in the iteration order of the given map, which is the
+	 * order of the indexes reported by a failed bulk write.
+	 * 
+	 * @param increments - number of ballots to be added, keyed by lotteryId
+	 */
+	public void incrementBallotCounts(Map<String, Long> increments) {
+
+		if (increments.isEmpty()) {
+			return;
+		}
+
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkMode.UNORDERED, Lottery.class);
+
+		increments.forEach((lotteryId, increment) -> bulkOperations
+				.updateOne(LotteryQueries.byLotteryId(lotteryId), new Update().inc(BALLOT_COUNT, increment)));
+
+		bulkOperations.execute();
+	}
+
+	/**
+	 * Overwrites the ballot count of a lottery
+	 * 
+	 * @param lotteryId   - unique identifier related to a lottery
+	 * @param ballotCount - number of ballots of the lottery
+	 */
+	public void setBallotCount(String lotteryId, long ballotCount) {
+
+		mongoOperations.updateFirst(LotteryQueries.byLotteryId(lotteryId),
+				new Update().set(BALLOT_COUNT, ballotCount), Lottery.class);
+	}
+
+	/**
+	 * Closes the given lotteries which are still open with their winner ballot
+	 * and end date with a single unordered bulk write.
+	 * 
+	 * Updates are issued in the iteration order of the given map, which is the
+	 * order of the indexes reported by a failed bulk write.
+	 * 
+	 * If fewer lotteries were matched than given, the lotteries which were closed
+	 * before, e.g. by another node, are read back by their end date, as a bulk
+	 * write only reports the total number of matched updates.
+	 * 
+	 * @param winnerBallots - ballotId of the winner, keyed by lotteryId
+	 * @param endDate       - lottery end date
+	 * 
+	 * @return lotteryIds of the lotteries which were not open any more
+	 */
+	public Set<String> closeLotteries(Map<String, String> winnerBallots, Date endDate) {
+
+		if (winnerBallots.isEmpty()) {
+			return Collections.emptySet();
+		}
+
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkMode.UNORDERED, Lottery.class);
+
+		// a lottery already closed by another node keeps its winner
+		winnerBallots.forEach((lotteryId, winnerBallot) -> bulkOperations.updateOne(
+				LotteryQueries.openLottery(lotteryId), new Update().set(END_DATE, endDate)
+						.set(WINNER_BALLOT, winnerBallot).set(Constants.STATUS, Constants.CLOSED)));
+
+		BulkWriteResult result = bulkOperations.execute();
+
+		if (result.getMatchedCount() == winnerBallots.size()) {
+			return Collections.emptySet();
+		}
+
+		Set<String> closedLotteryIds = new LinkedHashSet<>();
+		mongoOperations.find(LotteryQueries.closedByOthers(winnerBallots.keySet(), endDate), Lottery.class)
+				.forEach(lottery -> closedLotteryIds.add(lottery.getLotteryId()));
+		return closedLotteryIds;
+	}
+
+	/**
+	 * Replaces the reservoir ballot of a lottery, unless the reservoir already
+	 * holds a ballot with the same or a higher ordinal.
+	 * 
+	 * The condition is checked by the update itself, so concurrent replacements
+	 * of several nodes keep the ballot with the highest ordinal in any order.
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param ballotId  - ballotId of the new reservoir ballot
+	 * @param ordinal   - ordinal of the new reservoir ballot
+	 * 
+	 * @return true if the reservoir was replaced
+	 */
+	public boolean updateReservoir(String lotteryId, String ballotId, long ordinal) {
+
+		return mongoOperations.updateFirst(LotteryQueries.reservoirBelow(lotteryId, ordinal),
+				new Update().set(RESERVOIR_BALLOT, ballotId).set(LotteryQueries.RESERVOIR_ORDINAL, ordinal),
+				Lottery.class).getModifiedCount() > 0;
+	}
+
+	/**
+	 * Replaces the reservoir ballot of a lottery with a ballot drawn among the
+	 * ordinals up to the given one, unless the reservoir already holds a ballot
+	 * with a higher ordinal.
+	 * 
+	 * A reservoir holding the given ordinal is replaced as well, as the drawn
+	 * ballot covers it.
+	 * 
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param ballotId  - ballotId of the drawn ballot
+	 * @param ordinal   - last ordinal covered by the draw
+	 * 
+	 * @return true if the reservoir was replaced
+	 */
+	public boolean rebuildReservoir(String lotteryId, String ballotId, long ordinal) {
+
+		return mongoOperations.updateFirst(LotteryQueries.reservoirAtOrBelow(lotteryId, ordinal),
+				new Update().set(RESERVOIR_BALLOT, ballotId).set(LotteryQueries.RESERVOIR_ORDINAL, ordinal),
+				Lottery.class).getModifiedCount() > 0;
+	}
+
+}
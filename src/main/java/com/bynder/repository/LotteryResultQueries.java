@@ -0,0 +1,84 @@
+package com.bynder.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Queries on the RESULTS collection
+ *
+ * @author arathy
+ *
+ */
+public final class LotteryResultQueries {
+
+	public static final String RESULT_DATE = "resultDate";
+
+	public static final String MIGRATIONS_COLLECTION = "MIGRATIONS";
+
+	public static final String BACKFILL_MIGRATION = "results-backfill";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private LotteryResultQueries() {
+
+	}
+
+	/**
+	 * Returns query of the next page of results closed between the given dates,
+	 * ordered by resultDate and lotteryId, continuing after the given result.
+	 *
+	 * One more result than the page size is requested, to know whether another
+	 * page follows.
+	 *
+	 * @param fromDate       - first result date, yyyy-MM-dd
+	 * @param toDate         - last result date, yyyy-MM-dd
+	 * @param afterDate      - resultDate of the last result of the previous page,
+	 *                       null for the first page
+	 * @param afterLotteryId - lotteryId of the last result of the previous page,
+	 *                       null for the first page
+	 * @param limit          - page size
+	 *
+	 * @return result page query
+	 */
+	public static Query page(String fromDate, String toDate, String afterDate, String afterLotteryId, int limit) {
+
+		Criteria criteria;
+
+		if (afterDate == null) {
+			criteria = Criteria.where(RESULT_DATE).gte(fromDate).lte(toDate);
+		} else {
+			// the index bounds start at the date of the previous page
+			criteria = Criteria.where(RESULT_DATE).gte(afterDate.compareTo(fromDate) > 0 ? afterDate : fromDate)
+					.lte(toDate).orOperator(Criteria.where(RESULT_DATE).gt(afterDate),
+							Criteria.where(LotteryQueries.LOTTERY_ID).gt(afterLotteryId));
+		}
+
+		return new Query(criteria).with(Sort.by(Sort.Direction.ASC, RESULT_DATE, LotteryQueries.LOTTERY_ID))
+				.limit(limit + 1);
+	}
+
+	/**
+	 * Returns query of the result of a lottery
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return result query
+	 */
+	public static Query byLotteryId(String lotteryId) {
+
+		return new Query(Criteria.where(LotteryQueries.LOTTERY_ID).is(lotteryId));
+	}
+
+	/**
+	 * Returns query of the marker of the results backfill in MIGRATIONS
+	 *
+	 * @return marker query
+	 */
+	public static Query backfillMarker() {
+
+		return new Query(Criteria.where("_id").is(BACKFILL_MIGRATION));
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.bynder.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.LotteryResult;
+
+@Repository
+public interface LotteryResultRepository extends MongoRepository<LotteryResult, Long>, LotteryResultRepositoryCustom {
+
+	LotteryResult findByLotteryId(String lotteryId);
+
+}
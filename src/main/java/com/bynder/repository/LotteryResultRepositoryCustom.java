@@ -0,0 +1,17 @@
+package com.bynder.repository;
+
+import java.util.List;
+
+import com.bynder.model.LotteryResult;
+
+public interface LotteryResultRepositoryCustom {
+
+	List<LotteryResult> findPage(String fromDate, String toDate, String afterDate, String afterLotteryId, int limit);
+
+	void insertResults(List<LotteryResult> results);
+
+	boolean isBackfilled();
+
+	void markBackfilled();
+
+}
@@ -0,0 +1,100 @@
+package com.bynder.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.bynder.model.LotteryResult;
+
+/**
+ * Implementation of the lottery result storage operations which are not
+ * derived from repository method names
+ *
+ * @author arathy
+ *
+ */
+public class LotteryResultRepositoryCustomImpl implements LotteryResultRepositoryCustom {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	/**
+	 * Returns the next page of results closed between the given dates, ordered by
+	 * resultDate and lotteryId.
+	 *
+	 * One more result than the page size is returned if another page follows.
+	 *
+	 * @param fromDate       - first result date, yyyy-MM-dd
+	 * @param toDate         - last result date, yyyy-MM-dd
+	 * @param afterDate      - resultDate of the last result of the previous page,
+	 *                       null for the first page
+	 * @param afterLotteryId - lotteryId of the last result of the previous page,
+	 *                       null for the first page
+	 * @param limit          - page size
+	 *
+	 * @return results of the page
+	 */
+	public List<LotteryResult> findPage(String fromDate, String toDate, String afterDate, String afterLotteryId,
+			int limit) {
+
+		return mongoOperations.find(LotteryResultQueries.page(fromDate, toDate, afterDate, afterLotteryId, limit),
+				LotteryResult.class);
+	}
+
+	/**
+	 * Inserts the given results with a single unordered bulk write, keeping the
+	 * results already stored for their lotteries.
+	 *
+	 * Results are upserted by lotteryId and only set on insert, so a result
+	 * written twice, e.g. by a close and a backfill, is stored once.
+	 *
+	 * @param results - results of closed lotteries
+	 */
+	public void insertResults(List<LotteryResult> results) {
+
+		if (results.isEmpty()) {
+			return;
+		}
+
+		BulkOperations bulkOperations = mongoOperations.bulkOps(BulkMode.UNORDERED, LotteryResult.class);
+
+		for (LotteryResult result : results) {
+
+			bulkOperations.upsert(LotteryResultQueries.byLotteryId(result.getLotteryId()),
+					new Update().setOnInsert(LotteryResultQueries.RESULT_DATE, result.getResultDate())
+							.setOnInsert("name", result.getName()).setOnInsert("prizeMoney", result.getPrizeMoney())
+							.setOnInsert("winnerBallot", result.getWinnerBallot())
+							.setOnInsert("endDate", result.getEndDate()).setOnInsert("timeZone", result.getTimeZone()));
+		}
+
+		bulkOperations.execute();
+	}
+
+	/**
+	 * Checks whether the results of all closed lotteries were backfilled once,
+	 * from the marker document in MIGRATIONS
+	 *
+	 * @return true if the backfill was completed
+	 */
+	public boolean isBackfilled() {
+
+		return mongoOperations.exists(LotteryResultQueries.backfillMarker(), LotteryResultQueries.MIGRATIONS_COLLECTION);
+	}
+
+	/**
+	 * Writes the marker document of a completed backfill into MIGRATIONS
+	 *
+	 */
+	public void markBackfilled() {
+
+		mongoOperations.save(new Document("_id", LotteryResultQueries.BACKFILL_MIGRATION).append("completedDate",
+				new Date()), LotteryResultQueries.MIGRATIONS_COLLECTION);
+	}
+
+}
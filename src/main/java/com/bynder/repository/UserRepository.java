@@ -1,6 +1,9 @@
 package com.bynder.repository;
 
+import java.util.stream.Stream;
+
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import com.bynder.model.User;
 
@@ -10,4 +13,9 @@ public interface UserRepository extends MongoRepository<User, Long> {
 
 	User findByUserName(String userName);
 
+	boolean existsByUserId(String userId);
+
+	@Query(value = "{}", fields = "{ 'userId' : 1 }")
+	Stream<User> streamAllUserIds();
+
 }
@@ -0,0 +1,221 @@
+package com.bynder.repository.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only log of ballots in fixed-width records, kept in memory-mapped
+ * segment files of a directory.
+ *
+ * A record holds ballotId, lotteryId, userId, createdDate in epoch millis and
+ * ordinal as longs and is addressed by its record number, the position of the
+ * ballot in the log. Every segment holds the same number of records, so the
+ * segment and offset of a record are computed from its record number.
+ *
+ * The ballotId of a record is written last and ballotIds start at 1, so the
+ * end of the log is the first record with ballotId 0 when the log is opened
+ * again. Records are written to the page cache and survive a crash of the
+ * process, they are only on disk once the segments are forced.
+ *
+ * Records are appended by one thread at a time. A record is read by any
+ * thread once its record number has been published to it.
+ *
+ * @author arathy
+ *
+ */
+class BallotLog implements Closeable {
+
+	static final int RECORD_SIZE = 40;
+
+	/**
+	 * Stored for a missing lotteryId, userId or ordinal, which are never 0
+	 */
+	static final long NONE = 0;
+
+	/**
+	 * Stored for a missing createdDate
+	 */
+	static final long NO_DATE = Long.MIN_VALUE;
+
+	private static final int BALLOT_ID = 0;
+
+	private static final int LOTTERY_ID = 8;
+
+	private static final int USER_ID = 16;
+
+	private static final int CREATED_DATE = 24;
+
+	private static final int ORDINAL = 32;
+
+	private static final String SEGMENT_FILE_FORMAT = "ballots-%06d.log";
+
+	private final Path directory;
+
+	private final int segmentRecords;
+
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	private volatile long size;
+
+	private BallotLog(Path directory, int segmentRecords) {
+
+		this.directory = directory;
+		this.segmentRecords = segmentRecords;
+	}
+
+	/**
+	 * Opens the log of the directory, creating the directory if missing
+	 *
+	 * @param directory      - directory of the segment files
+	 * @param segmentRecords - number of records per segment file
+	 *
+	 * @return log positioned after its last record
+	 *
+	 * @throws IOException - thrown if a segment cannot be mapped
+	 */
+	static BallotLog open(Path directory, int segmentRecords) throws IOException {
+
+		if (segmentRecords <= 0 || segmentRecords > Integer.MAX_VALUE / RECORD_SIZE) {
+			throw new IllegalArgumentException("Records per segment must be between 1 and "
+					+ Integer.MAX_VALUE / RECORD_SIZE + ", not " + segmentRecords);
+		}
+
+		Files.createDirectories(directory);
+
+		BallotLog log = new BallotLog(directory, segmentRecords);
+
+		while (Files.exists(log.segmentPath(log.segments.length))) {
+			log.mapSegment();
+		}
+
+		long size = (long) Math.max(log.segments.length - 1, 0) * segmentRecords;
+		while (size < log.capacity() && log.ballotId(size) != NONE) {
+			size++;
+		}
+		log.size = size;
+
+		return log;
+	}
+
+	/**
+	 * Appends a record, mapping a new segment if the last one is full
+	 *
+	 * @return record number of the appended record
+	 *
+	 * @throws IOException - thrown if a new segment cannot be mapped
+	 */
+	synchronized long append(long ballotId, long lotteryId, long userId, long createdDate, long ordinal)
+			throws IOException {
+
+		long record = size;
+
+		if (record == capacity()) {
+			mapSegment();
+		}
+
+		MappedByteBuffer segment = segments[segment(record)];
+		int offset = offset(record);
+
+		segment.putLong(offset + LOTTERY_ID, lotteryId);
+		segment.putLong(offset + USER_ID, userId);
+		segment.putLong(offset + CREATED_DATE, createdDate);
+		segment.putLong(offset + ORDINAL, ordinal);
+		segment.putLong(offset + BALLOT_ID, ballotId);
+
+		size = record + 1;
+		return record;
+	}
+
+	long size() {
+
+		return size;
+	}
+
+	long ballotId(long record) {
+
+		return read(record, BALLOT_ID);
+	}
+
+	long lotteryId(long record) {
+
+		return read(record, LOTTERY_ID);
+	}
+
+	long userId(long record) {
+
+		return read(record, USER_ID);
+	}
+
+	long createdDate(long record) {
+
+		return read(record, CREATED_DATE);
+	}
+
+	long ordinal(long record) {
+
+		return read(record, ORDINAL);
+	}
+
+	/**
+	 * Writes the records of all segments to disk
+	 *
+	 */
+	void force() {
+
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+	}
+
+	@Override
+	public void close() {
+
+		force();
+	}
+
+	private long read(long record, int field) {
+
+		return segments[segment(record)].getLong(offset(record) + field);
+	}
+
+	private long capacity() {
+
+		return (long) segments.length * segmentRecords;
+	}
+
+	private int segment(long record) {
+
+		return (int) (record / segmentRecords);
+	}
+
+	private int offset(long record) {
+
+		return (int) (record % segmentRecords) * RECORD_SIZE;
+	}
+
+	private Path segmentPath(int segment) {
+
+		return directory.resolve(String.format(SEGMENT_FILE_FORMAT, segment));
+	}
+
+	private void mapSegment() throws IOException {
+
+		MappedByteBuffer[] mapped = Arrays.copyOf(segments, segments.length + 1);
+
+		try (FileChannel channel = FileChannel.open(segmentPath(segments.length), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// the mapping stays valid after the channel is closed
+			mapped[segments.length] = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					(long) segmentRecords * RECORD_SIZE);
+		}
+
+		segments = mapped;
+	}
+
+}
@@ -0,0 +1,542 @@
+package com.bynder.repository.log;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.memory.AbstractDocumentRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ballot repository appending ballots to a memory-mapped ballot log, used if
+ * storage.ballot-log.enabled is set, in place of the ballot repository of the
+ * storage engine.
+ *
+ * Ballots are stored as fixed-width records of the log in the directory
+ * storage.ballot-log.directory, so the ballotId, lotteryId and userId have to
+ * be positive decimal numbers, as handed out by the sequence generators. The
+ * indexes of the BALLOT collection are kept on the heap as arrays of record
+ * numbers: by ballotId, by lotteryId, by userId and by lotteryId and ordinal.
+ * They are rebuilt from the log at startup.
+ *
+ * Ballots are appended on one thread at a time. The log is forced to disk
+ * every storage.ballot-log.force-interval-ms and at shutdown.
+ *
+ * The log is local to the node, so the ballot log is for single node
+ * deployments only: the application does not start with the log unless the
+ * deployment is declared as a single node with storage.ballot-log.single-node. The indexes take about 56 bytes of heap per
+ * ballot, 16 for each of the three record indexes and 8 for the ordinal index,
+ * and up to twice that while their arrays grow. Ballots are never removed, so
+ * the heap has to be sized for all ballots ever written.
+ *
+ * @author arathy
+ *
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "storage.ballot-log.enabled", havingValue = "true")
+@Slf4j
+public class LogBallotRepository extends AbstractDocumentRepository<Ballot> implements BallotRepository {
+
+	private static final int DUPLICATE_KEY_ERROR = 11000;
+
+	private static final int READ_BATCH_SIZE = 1000;
+
+	@Value("${storage.ballot-log.directory:ballot-log}")
+	private String directory;
+
+	@Value("${storage.ballot-log.segment-records:1048576}")
+	private int segmentRecords;
+
+	@Value("${storage.ballot-log.single-node:false}")
+	private boolean singleNode;
+
+	private BallotLog ballotLog;
+
+	private final RecordIndex ballotIndex = new RecordIndex();
+
+	private final ConcurrentMap<Long, RecordIndex> lotteryIndex = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Long, RecordIndex> userIndex = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Long, OrdinalIndex> ordinalIndex = new ConcurrentHashMap<>();
+
+	public LogBallotRepository() {
+
+		super(Ballot.class, "BALLOT");
+	}
+
+	/**
+	 * Opens the ballot log and rebuilds the indexes from its records
+	 *
+	 * @throws IOException           - thrown if the log cannot be opened
+	 * @throws IllegalStateException - thrown if storage.ballot-log.single-node is
+	 *                               not set, as several nodes would each keep
+	 *                               part of the ballots in their own log
+	 */
+	@PostConstruct
+	public void open() throws IOException {
+
+		if (!singleNode) {
+			throw new IllegalStateException(
+					"The ballot log is local to a node and requires storage.ballot-log.single-node=true");
+		}
+
+		long startTime = System.nanoTime();
+
+		ballotLog = BallotLog.open(Paths.get(directory), segmentRecords);
+
+		for (long record = 0; record < ballotLog.size(); record++) {
+			index(record, ballotLog.ballotId(record), ballotLog.lotteryId(record), ballotLog.userId(record),
+					ballotLog.ordinal(record));
+		}
+
+		log.info("Opened ballot log {} with {} ballots in {} ms", directory, ballotLog.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+	}
+
+	/**
+	 * Writes the appended ballots to disk
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${storage.ballot-log.force-interval-ms:1000}")
+	public void force() {
+
+		ballotLog.force();
+	}
+
+	@PreDestroy
+	public void close() {
+
+		ballotLog.close();
+	}
+
+	/**
+	 * Appends the ballot to the log and adds it to the indexes
+	 *
+	 * @param ballot - ballot to be appended
+	 */
+	@Override
+	protected synchronized void insertDocument(Ballot ballot) {
+
+		long ballotId = parseId("ballotId", ballot.getBallotId());
+		long lotteryId = parseOptionalId("lotteryId", ballot.getLotteryId());
+		long userId = parseOptionalId("userId", ballot.getUserId());
+		long ordinal = ballot.getOrdinal() == null ? BallotLog.NONE : ballot.getOrdinal();
+
+		if (ballotIndex.find(ballotId) >= 0) {
+			throw duplicateKey("ballotId", "{ ballotId: \"" + ballot.getBallotId() + "\" }");
+		}
+
+		if (ordinal != BallotLog.NONE && lotteryId != BallotLog.NONE) {
+
+			OrdinalIndex ordinals = ordinalIndex.get(lotteryId);
+
+			if (ordinals != null && ordinals.find(ordinal) >= 0) {
+				throw duplicateKey("lotteryId_ordinal",
+						"{ lotteryId: \"" + ballot.getLotteryId() + "\", ordinal: " + ordinal + " }");
+			}
+		}
+
+		long createdDate = ballot.getCreatedDate() == null ? BallotLog.NO_DATE : ballot.getCreatedDate().getTime();
+
+		try {
+			index(ballotLog.append(ballotId, lotteryId, userId, createdDate, ordinal), ballotId, lotteryId, userId,
+					ordinal);
+		} catch (IOException exception) {
+			throw new DataAccessResourceFailureException("Ballot log " + directory + " cannot be extended",
+					exception);
+		}
+	}
+
+	@Override
+	protected void removeDocument(Ballot ballot) {
+
+		throw appendOnly();
+	}
+
+	@Override
+	protected void removeDocuments() {
+
+		throw appendOnly();
+	}
+
+	@Override
+	protected Collection<Ballot> documents() {
+
+		return new AbstractCollection<Ballot>() {
+
+			@Override
+			public Iterator<Ballot> iterator() {
+
+				return streamBallots(null, null);
+			}
+
+			@Override
+			public int size() {
+
+				return ballotIndex.size();
+			}
+		};
+	}
+
+	@Override
+	protected Ballot copy(Ballot ballot) {
+
+		Ballot copy = new Ballot();
+		copy.setBallotId(ballot.getBallotId());
+		copy.setLotteryId(ballot.getLotteryId());
+		copy.setUserId(ballot.getUserId());
+		copy.setCreatedDate(ballot.getCreatedDate());
+		copy.setOrdinal(ballot.getOrdinal());
+		return copy;
+	}
+
+	/**
+	 * Appends every ballot on its own, so one duplicate ballot does not stop the
+	 * remaining ones from being appended. Duplicates are reported with their
+	 * index in the list, as by an unordered Mongo bulk write.
+	 *
+	 * @param ballots - ballots to be appended
+	 *
+	 * @throws BulkOperationException - thrown if any ballot was not appended
+	 */
+	public void insertUnordered(List<Ballot> ballots) {
+
+		List<BulkWriteError> errors = new ArrayList<>();
+
+		for (int i = 0; i < ballots.size(); i++) {
+			try {
+				insertDocument(ballots.get(i));
+			} catch (DuplicateKeyException exception) {
+				errors.add(new BulkWriteError(DUPLICATE_KEY_ERROR, exception.getMessage(), new BsonDocument(), i));
+			}
+		}
+
+		if (!errors.isEmpty()) {
+
+			BulkWriteResult result = BulkWriteResult.acknowledged(ballots.size() - errors.size(), 0, 0, 0,
+					Collections.emptyList());
+			throw new BulkOperationException("Bulk write operation error on ballot log " + directory,
+					new MongoBulkWriteException(result, errors, null, new ServerAddress(), Collections.emptySet()));
+		}
+	}
+
+	public List<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		List<Ballot> page = new ArrayList<>();
+
+		// one more ballot than the page size, to know whether another page follows
+		for (BallotIterator iterator = new BallotIterator(userId, lotteryId, afterBallotId,
+				Math.min(limit + 1, READ_BATCH_SIZE)); iterator.hasNext() && page.size() <= limit;) {
+			page.add(iterator.next());
+		}
+
+		return page;
+	}
+
+	public CloseableIterator<Ballot> streamBallots(String userId, String lotteryId) {
+
+		return new BallotIterator(userId, lotteryId, null, READ_BATCH_SIZE);
+	}
+
+	public Map<String, Long> countByLotteryIds(Collection<String> lotteryIds) {
+
+		Map<String, Long> ballotCounts = new HashMap<>();
+
+		for (String lotteryId : lotteryIds) {
+
+			RecordIndex lotteryBallots = lotteryIndex(lotteryId);
+			if (lotteryBallots != null && lotteryBallots.size() > 0) {
+				ballotCounts.put(lotteryId, (long) lotteryBallots.size());
+			}
+		}
+
+		return ballotCounts;
+	}
+
+	public List<Ballot> findByUserId(String userId) {
+
+		return readAll(new BallotIterator(userId, null, null, READ_BATCH_SIZE));
+	}
+
+	public List<Ballot> findByLotteryId(String lotteryId) {
+
+		return readAll(new BallotIterator(null, lotteryId, null, READ_BATCH_SIZE));
+	}
+
+	public List<Ballot> findByUserIdAndLotteryId(String userId, String lotteryId) {
+
+		return readAll(new BallotIterator(userId, lotteryId, null, READ_BATCH_SIZE));
+	}
+
+	public boolean existsByLotteryId(String lotteryId) {
+
+		RecordIndex lotteryBallots = lotteryIndex(lotteryId);
+		return lotteryBallots != null && lotteryBallots.size() > 0;
+	}
+
+	public Ballot findByLotteryIdAndOrdinal(String lotteryId, long ordinal) {
+
+		long id = parseQueryId(lotteryId);
+		OrdinalIndex ordinals = id == BallotLog.NONE ? null : ordinalIndex.get(id);
+		long record = ordinals == null ? -1 : ordinals.find(ordinal);
+
+		return record < 0 ? null : read(record);
+	}
+
+	public long findLastOrdinal(String lotteryId) {
+
+		long id = parseQueryId(lotteryId);
+		OrdinalIndex ordinals = id == BallotLog.NONE ? null : ordinalIndex.get(id);
+
+		return ordinals == null ? 0 : ordinals.last();
+	}
+
+	/**
+	 * Returns a uniformly sampled ballot of the lottery, read at a random record
+	 * of the lottery's index
+	 *
+	 * @param lotteryId - unique identifier related to a lottery
+	 *
+	 * @return random ballot, null if the lottery has no ballots
+	 */
+	public Ballot findRandomBallot(String lotteryId) {
+
+		RecordIndex lotteryBallots = lotteryIndex(lotteryId);
+		long record = lotteryBallots == null ? -1 : lotteryBallots.randomRecord();
+
+		return record < 0 ? null : read(record);
+	}
+
+	private void index(long record, long ballotId, long lotteryId, long userId, long ordinal) {
+
+		ballotIndex.add(ballotId, record);
+
+		if (lotteryId != BallotLog.NONE) {
+
+			lotteryIndex.computeIfAbsent(lotteryId, key -> new RecordIndex()).add(ballotId, record);
+
+			if (ordinal != BallotLog.NONE) {
+				ordinalIndex.computeIfAbsent(lotteryId, key -> new OrdinalIndex()).add(ordinal, record);
+			}
+		}
+
+		if (userId != BallotLog.NONE) {
+			userIndex.computeIfAbsent(userId, key -> new RecordIndex()).add(ballotId, record);
+		}
+	}
+
+	private Ballot read(long record) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(Long.toString(ballotLog.ballotId(record)));
+		ballot.setLotteryId(toId(ballotLog.lotteryId(record)));
+		ballot.setUserId(toId(ballotLog.userId(record)));
+
+		long createdDate = ballotLog.createdDate(record);
+		ballot.setCreatedDate(createdDate == BallotLog.NO_DATE ? null : new Date(createdDate));
+
+		long ordinal = ballotLog.ordinal(record);
+		ballot.setOrdinal(ordinal == BallotLog.NONE ? null : ordinal);
+		return ballot;
+	}
+
+	private RecordIndex lotteryIndex(String lotteryId) {
+
+		long id = parseQueryId(lotteryId);
+		return id == BallotLog.NONE ? null : lotteryIndex.get(id);
+	}
+
+	private static List<Ballot> readAll(BallotIterator iterator) {
+
+		List<Ballot> ballots = new ArrayList<>();
+		iterator.forEachRemaining(ballots::add);
+		return ballots;
+	}
+
+	private static String toId(long id) {
+
+		return id == BallotLog.NONE ? null : Long.toString(id);
+	}
+
+	/**
+	 * Returns the id of a stored ballot as a number
+	 *
+	 * @throws InvalidDataAccessApiUsageException - thrown if the id is not a
+	 *                                            positive decimal number
+	 */
+	private static long parseId(String field, String id) {
+
+		long parsed = parseQueryId(id);
+
+		if (parsed == BallotLog.NONE) {
+			throw new InvalidDataAccessApiUsageException(
+					"The ballot log stores positive decimal ids only, " + field + " is " + id);
+		}
+
+		return parsed;
+	}
+
+	private static long parseOptionalId(String field, String id) {
+
+		return id == null ? BallotLog.NONE : parseId(field, id);
+	}
+
+	/**
+	 * Returns the id as a number, 0 if it is not the decimal string of a positive
+	 * number and so matches no stored ballot
+	 */
+	private static long parseQueryId(String id) {
+
+		if (StringUtils.isEmpty(id) || id.length() > 19 || !StringUtils.isNumeric(id) || id.charAt(0) == '0') {
+			return BallotLog.NONE;
+		}
+
+		try {
+			return Long.parseLong(id);
+		} catch (NumberFormatException exception) {
+			return BallotLog.NONE;
+		}
+	}
+
+	private UnsupportedOperationException appendOnly() {
+
+		return new UnsupportedOperationException("Ballots of the ballot log " + directory + " cannot be removed");
+	}
+
+	/**
+	 * Iterator of the ballots matching the optional userId and lotteryId in
+	 * ballotId order, reading the records from the smallest matching index in
+	 * batches continuing after the last read ballotId
+	 *
+	 */
+	private final class BallotIterator implements CloseableIterator<Ballot> {
+
+		private final RecordIndex index;
+
+		private final long lotteryFilter;
+
+		private final int batchSize;
+
+		private String afterBallotId;
+
+		private long[] records = new long[0];
+
+		private int position;
+
+		private boolean exhausted;
+
+		private Ballot next;
+
+		BallotIterator(String userId, String lotteryId, String afterBallotId, int batchSize) {
+
+			this.afterBallotId = afterBallotId;
+			this.batchSize = batchSize;
+
+			// a user is assumed to have fewer ballots than a lottery
+			if (StringUtils.isNotBlank(userId)) {
+
+				long id = parseQueryId(userId);
+				this.index = id == BallotLog.NONE ? null : userIndex.get(id);
+				this.lotteryFilter = StringUtils.isNotBlank(lotteryId) ? parseQueryId(lotteryId) : BallotLog.NONE;
+				this.exhausted = index == null
+						|| (StringUtils.isNotBlank(lotteryId) && lotteryFilter == BallotLog.NONE);
+
+			} else if (StringUtils.isNotBlank(lotteryId)) {
+
+				this.index = lotteryIndex(lotteryId);
+				this.lotteryFilter = BallotLog.NONE;
+				this.exhausted = index == null;
+
+			} else {
+
+				this.index = ballotIndex;
+				this.lotteryFilter = BallotLog.NONE;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			while (next == null && !exhausted) {
+
+				if (position == records.length) {
+
+					records = index.page(afterBallotId, batchSize);
+					position = 0;
+
+					if (records.length == 0) {
+						exhausted = true;
+						break;
+					}
+
+					afterBallotId = Long.toString(ballotLog.ballotId(records[records.length - 1]));
+				}
+
+				long record = records[position++];
+
+				if (lotteryFilter == BallotLog.NONE || ballotLog.lotteryId(record) == lotteryFilter) {
+					next = read(record);
+				}
+			}
+
+			return next != null;
+		}
+
+		@Override
+		public Ballot next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			Ballot ballot = next;
+			next = null;
+			return ballot;
+		}
+
+		@Override
+		public void close() {
+
+			// records are read from the mapped log, nothing is held open
+		}
+
+	}
+
+}
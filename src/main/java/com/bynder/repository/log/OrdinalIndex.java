@@ -0,0 +1,76 @@
+package com.bynder.repository.log;
+
+import java.util.Arrays;
+
+/**
+ * Record numbers of the ballots of a lottery by ordinal.
+ *
+ * Ordinals are numbered densely from 1, so the record of an ordinal is kept at
+ * the position of the ordinal in an array.
+ *
+ * @author arathy
+ *
+ */
+final class OrdinalIndex {
+
+	private static final long NO_RECORD = -1;
+
+	private long[] records = new long[0];
+
+	private long lastOrdinal;
+
+	/**
+	 * Adds the record of the ordinal, if the ordinal has no record yet
+	 *
+	 * @param ordinal - positive ordinal
+	 * @param record  - record number of the ballot
+	 *
+	 * @return whether the record was added
+	 */
+	synchronized boolean add(long ordinal, long record) {
+
+		if (ordinal <= 0 || ordinal > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Ordinal " + ordinal + " is not an ordinal of a lottery");
+		}
+
+		int position = (int) ordinal;
+
+		if (position >= records.length) {
+
+			int length = records.length;
+			records = Arrays.copyOf(records, Math.max(position + 1, Math.min(length * 2, Integer.MAX_VALUE - 8)));
+			Arrays.fill(records, length, records.length, NO_RECORD);
+		}
+
+		if (records[position] != NO_RECORD) {
+			return false;
+		}
+
+		records[position] = record;
+		lastOrdinal = Math.max(lastOrdinal, ordinal);
+		return true;
+	}
+
+	/**
+	 * Returns the record of the ordinal
+	 *
+	 * @param ordinal - ordinal of the ballot
+	 *
+	 * @return record number, -1 if no ballot has the ordinal
+	 */
+	synchronized long find(long ordinal) {
+
+		return ordinal <= 0 || ordinal >= records.length ? NO_RECORD : records[(int) ordinal];
+	}
+
+	/**
+	 * Returns the highest ordinal with a record
+	 *
+	 * @return last ordinal, 0 if no ordinal has a record
+	 */
+	synchronized long last() {
+
+		return lastOrdinal;
+	}
+
+}
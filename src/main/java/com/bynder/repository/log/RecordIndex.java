@@ -0,0 +1,235 @@
+package com.bynder.repository.log;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Record numbers of the ballots of a lottery, of a user or of the whole log,
+ * in ballotId order.
+ *
+ * BallotIds are positive decimal numbers and are ordered as strings, like the
+ * pages of the BALLOT collection. Numbers with the same count of digits are
+ * ordered as strings and as numbers alike, so the entries are kept in one
+ * array sorted by value per count of digits, and pages are merged from these
+ * arrays. BallotIds are handed out in ascending order, so an entry is appended
+ * at the end of its array or moved back by a few entries only.
+ *
+ * @author arathy
+ *
+ */
+final class RecordIndex {
+
+	private static final int MAX_DIGITS = 19;
+
+	private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < MAX_DIGITS; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final Entries[] entriesByDigits = new Entries[MAX_DIGITS + 1];
+
+	private int size;
+
+	/**
+	 * Adds the record of a ballot, whose ballotId is not in the index yet
+	 *
+	 * @param ballotId - positive ballotId
+	 * @param record   - record number of the ballot
+	 */
+	synchronized void add(long ballotId, long record) {
+
+		int digits = digits(ballotId);
+
+		if (entriesByDigits[digits] == null) {
+			entriesByDigits[digits] = new Entries();
+		}
+
+		entriesByDigits[digits].add(ballotId, record);
+		size++;
+	}
+
+	synchronized int size() {
+
+		return size;
+	}
+
+	/**
+	 * Returns the record of the ballot
+	 *
+	 * @param ballotId - positive ballotId
+	 *
+	 * @return record number, -1 if the ballot is not in the index
+	 */
+	synchronized long find(long ballotId) {
+
+		Entries entries = entriesByDigits[digits(ballotId)];
+		int position = entries == null ? -1 : Arrays.binarySearch(entries.ballotIds, 0, entries.size, ballotId);
+
+		return position < 0 ? -1 : entries.records[position];
+	}
+
+	/**
+	 * Returns the record of a uniformly sampled ballot
+	 *
+	 * @return record number, -1 if the index is empty
+	 */
+	synchronized long randomRecord() {
+
+		if (size == 0) {
+			return -1;
+		}
+
+		int remaining = ThreadLocalRandom.current().nextInt(size);
+
+		for (Entries entries : entriesByDigits) {
+
+			if (entries != null) {
+				if (remaining < entries.size) {
+					return entries.records[remaining];
+				}
+				remaining -= entries.size;
+			}
+		}
+
+		throw new IllegalStateException("Index holds fewer than " + size + " records");
+	}
+
+	/**
+	 * Returns the records of the next ballots in ballotId order
+	 *
+	 * @param afterBallotId - ballotId the page starts after, null for the first
+	 *                      page
+	 * @param limit         - maximum number of records
+	 *
+	 * @return record numbers, fewer than the limit if no more ballots follow
+	 */
+	synchronized long[] page(String afterBallotId, int limit) {
+
+		int[] positions = new int[entriesByDigits.length];
+
+		for (int digits = 1; digits < entriesByDigits.length; digits++) {
+			if (entriesByDigits[digits] != null) {
+				positions[digits] = entriesByDigits[digits].positionAfter(afterBallotId);
+			}
+		}
+
+		long[] records = new long[Math.min(limit, size)];
+		int count = 0;
+
+		while (count < records.length) {
+
+			int next = -1;
+
+			for (int digits = 1; digits < entriesByDigits.length; digits++) {
+
+				Entries entries = entriesByDigits[digits];
+
+				if (entries != null && positions[digits] < entries.size && (next < 0 || isBefore(
+						entries.ballotIds[positions[digits]], digits, entriesByDigits[next].ballotIds[positions[next]],
+						next))) {
+					next = digits;
+				}
+			}
+
+			if (next < 0) {
+				break;
+			}
+
+			records[count++] = entriesByDigits[next].records[positions[next]++];
+		}
+
+		return count == records.length ? records : Arrays.copyOf(records, count);
+	}
+
+	/**
+	 * Returns whether the first ballotId precedes the second as a string, given
+	 * they differ in their count of digits
+	 */
+	private static boolean isBefore(long first, int firstDigits, long second, int secondDigits) {
+
+		if (firstDigits < secondDigits) {
+			// a prefix precedes the longer strings starting with it
+			return first <= second / POWERS_OF_TEN[secondDigits - firstDigits];
+		}
+
+		return first / POWERS_OF_TEN[firstDigits - secondDigits] < second;
+	}
+
+	private static int digits(long ballotId) {
+
+		int digits = 1;
+
+		while (digits < MAX_DIGITS && ballotId >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+
+		return digits;
+	}
+
+	/**
+	 * Entries of ballotIds with the same count of digits, sorted by ballotId
+	 *
+	 */
+	private static final class Entries {
+
+		private long[] ballotIds = new long[8];
+
+		private long[] records = new long[8];
+
+		private int size;
+
+		void add(long ballotId, long record) {
+
+			if (size == ballotIds.length) {
+				ballotIds = Arrays.copyOf(ballotIds, size * 2);
+				records = Arrays.copyOf(records, size * 2);
+			}
+
+			int position = size;
+
+			while (position > 0 && ballotIds[position - 1] > ballotId) {
+				position--;
+			}
+
+			System.arraycopy(ballotIds, position, ballotIds, position + 1, size - position);
+			System.arraycopy(records, position, records, position + 1, size - position);
+
+			ballotIds[position] = ballotId;
+			records[position] = record;
+			size++;
+		}
+
+		/**
+		 * Returns the position of the first ballotId following the given ballotId
+		 * as a string
+		 */
+		int positionAfter(String afterBallotId) {
+
+			if (afterBallotId == null) {
+				return 0;
+			}
+
+			int low = 0;
+			int high = size;
+
+			while (low < high) {
+
+				int middle = (low + high) >>> 1;
+
+				if (Long.toString(ballotIds[middle]).compareTo(afterBallotId) <= 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			return low;
+		}
+
+	}
+
+}
@@ -0,0 +1,266 @@
+package com.bynder.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+
+/**
+ * Base class of the repositories keeping their documents in a storage engine
+ * other than a Mongo collection.
+ *
+ * Documents are stored as copies and returned as copies, so changes to a
+ * returned document are not visible to other callers until it is written
+ * again, as with Mongo. Documents are inserted with the same unique keys as the
+ * indexes of their collection, a duplicate key is rejected with a
+ * DuplicateKeyException.
+ *
+ * The documents have no id, so the id, example, sort and paging based methods
+ * of MongoRepository are not supported. Documents are queried by the methods
+ * of the repository interface instead.
+ *
+ * @author arathy
+ *
+ * @param <T> - document type
+ */
+public abstract class AbstractDocumentRepository<T> implements MongoRepository<T, Long> {
+
+	private final Class<T> documentType;
+
+	private final String collectionName;
+
+	protected AbstractDocumentRepository(Class<T> documentType, String collectionName) {
+
+		this.documentType = documentType;
+		this.collectionName = collectionName;
+	}
+
+	/**
+	 * Stores a copy of the document
+	 *
+	 * @param document - document to be stored
+	 *
+	 * @throws DuplicateKeyException - thrown if a document with the same unique
+	 *                               key is present
+	 */
+	protected abstract void insertDocument(T document);
+
+	/**
+	 * Removes the document with the same unique key as the given document
+	 *
+	 * @param document - document to be removed
+	 */
+	protected abstract void removeDocument(T document);
+
+	/**
+	 * Removes all documents
+	 *
+	 */
+	protected abstract void removeDocuments();
+
+	/**
+	 * Returns the stored documents, not copied, in their key order
+	 *
+	 * @return view of the stored documents
+	 */
+	protected abstract Collection<T> documents();
+
+	/**
+	 * Returns a copy of the document
+	 *
+	 * @param document - document to be copied
+	 *
+	 * @return copy of the document
+	 */
+	protected abstract T copy(T document);
+
+	Class<T> getDocumentType() {
+
+		return documentType;
+	}
+
+	String getCollectionName() {
+
+		return collectionName;
+	}
+
+	@Override
+	public <S extends T> S save(S entity) {
+
+		insertDocument(entity);
+		return entity;
+	}
+
+	@Override
+	public <S extends T> List<S> saveAll(Iterable<S> entities) {
+
+		List<S> saved = new ArrayList<>();
+
+		// inserted in order up to the first duplicate, like an ordered insert
+		for (S entity : entities) {
+			saved.add(save(entity));
+		}
+
+		return saved;
+	}
+
+	@Override
+	public <S extends T> S insert(S entity) {
+
+		return save(entity);
+	}
+
+	@Override
+	public <S extends T> List<S> insert(Iterable<S> entities) {
+
+		return saveAll(entities);
+	}
+
+	@Override
+	public List<T> findAll() {
+
+		List<T> result = new ArrayList<>();
+		documents().forEach(document -> result.add(copy(document)));
+		return result;
+	}
+
+	@Override
+	public long count() {
+
+		return documents().size();
+	}
+
+	@Override
+	public void delete(T entity) {
+
+		removeDocument(entity);
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends T> entities) {
+
+		entities.forEach(this::removeDocument);
+	}
+
+	@Override
+	public void deleteAll() {
+
+		removeDocuments();
+	}
+
+	@Override
+	public Optional<T> findById(Long id) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public List<T> findAllById(Iterable<Long> ids) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public void deleteAllById(Iterable<? extends Long> ids) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public List<T> findAll(Sort sort) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public Page<T> findAll(Pageable pageable) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> Optional<S> findOne(Example<S> example) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> List<S> findAll(Example<S> example) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> long count(Example<S> example) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T> boolean exists(Example<S> example) {
+
+		throw unsupported();
+	}
+
+	@Override
+	public <S extends T, R> R findBy(Example<S> example,
+			Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+
+		throw unsupported();
+	}
+
+	/**
+	 * Returns the exception thrown on a duplicate unique key, with the message of
+	 * the Mongo error
+	 *
+	 * @param index - name of the unique index
+	 * @param key   - duplicate key
+	 *
+	 * @return duplicate key exception
+	 */
+	protected DuplicateKeyException duplicateKey(String index, Object key) {
+
+		return new DuplicateKeyException(
+				"E11000 duplicate key error collection: " + collectionName + " index: " + index + " dup key: " + key);
+	}
+
+	private UnsupportedOperationException unsupported() {
+
+		return new UnsupportedOperationException(
+				"Documents of " + collectionName + " have no id, query them by the methods of their repository");
+	}
+
+}
@@ -0,0 +1,374 @@
+package com.bynder.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonDocument;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.BallotRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Ballot repository keeping ballots in memory, used if storage.engine is set
+ * to memory.
+ *
+ * Ballots are held in a sorted map by ballotId, so pages are read from the
+ * ballot after the cursor in the same order as from Mongo. Sorted secondary
+ * indexes by lotteryId and by userId, and an index by lotteryId and ordinal,
+ * mirror the indexes of the BALLOT collection, so no query scans all ballots.
+ *
+ * Ballots are not updated once inserted.
+ *
+ * @author arathy
+ *
+ */
+@Repository
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+public class InMemoryBallotRepository extends InMemoryRepository<Ballot> implements BallotRepository {
+
+	private static final int DUPLICATE_KEY_ERROR = 11000;
+
+	private final ConcurrentSkipListMap<String, Ballot> ballots = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentMap<String, ConcurrentSkipListMap<String, Ballot>> lotteryIndex = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, ConcurrentSkipListMap<String, Ballot>> userIndex = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, ConcurrentSkipListMap<Long, Ballot>> ordinalIndex = new ConcurrentHashMap<>();
+
+	public InMemoryBallotRepository() {
+
+		super(Ballot.class, "BALLOT");
+	}
+
+	/**
+	 * Stores a copy of the ballot and adds it to the indexes.
+	 *
+	 * The ordinal is reserved before the ballotId and released again if the
+	 * ballotId is taken, so a rejected ballot leaves no trace.
+	 *
+	 * @param ballot - ballot to be stored
+	 */
+	@Override
+	protected void insertDocument(Ballot ballot) {
+
+		Ballot stored = copy(ballot);
+		Objects.requireNonNull(stored.getBallotId(), "ballotId");
+
+		ConcurrentMap<Long, Ballot> ordinals = null;
+
+		if (stored.getOrdinal() != null && stored.getLotteryId() != null) {
+
+			ordinals = ordinalIndex.computeIfAbsent(stored.getLotteryId(), key -> new ConcurrentSkipListMap<>());
+
+			if (ordinals.putIfAbsent(stored.getOrdinal(), stored) != null) {
+				throw duplicateKey("lotteryId_ordinal",
+						"{ lotteryId: \"" + stored.getLotteryId() + "\", ordinal: " + stored.getOrdinal() + " }");
+			}
+		}
+
+		if (ballots.putIfAbsent(stored.getBallotId(), stored) != null) {
+
+			if (ordinals != null) {
+				ordinals.remove(stored.getOrdinal(), stored);
+			}
+			throw duplicateKey("ballotId", "{ ballotId: \"" + stored.getBallotId() + "\" }");
+		}
+
+		addToIndex(lotteryIndex, stored.getLotteryId(), stored);
+		addToIndex(userIndex, stored.getUserId(), stored);
+	}
+
+	@Override
+	protected void removeDocument(Ballot ballot) {
+
+		Ballot stored = ballots.remove(ballot.getBallotId());
+
+		if (stored == null) {
+			return;
+		}
+
+		removeFromIndex(lotteryIndex, stored.getLotteryId(), stored);
+		removeFromIndex(userIndex, stored.getUserId(), stored);
+
+		if (stored.getOrdinal() != null && stored.getLotteryId() != null) {
+			ConcurrentMap<Long, Ballot> ordinals = ordinalIndex.get(stored.getLotteryId());
+			if (ordinals != null) {
+				ordinals.remove(stored.getOrdinal(), stored);
+			}
+		}
+	}
+
+	@Override
+	protected void removeDocuments() {
+
+		ballots.clear();
+		lotteryIndex.clear();
+		userIndex.clear();
+		ordinalIndex.clear();
+	}
+
+	@Override
+	protected Collection<Ballot> documents() {
+
+		return ballots.values();
+	}
+
+	@Override
+	protected Ballot copy(Ballot ballot) {
+
+		Ballot copy = new Ballot();
+		copy.setBallotId(ballot.getBallotId());
+		copy.setLotteryId(ballot.getLotteryId());
+		copy.setUserId(ballot.getUserId());
+		copy.setCreatedDate(ballot.getCreatedDate());
+		copy.setOrdinal(ballot.getOrdinal());
+		return copy;
+	}
+
+	/**
+	 * Inserts every ballot on its own, so one duplicate ballot does not stop the
+	 * remaining ones from being inserted. Duplicates are reported with their
+	 * index in the list, as by an unordered Mongo bulk write.
+	 *
+	 * @param ballots - ballots to be inserted
+	 *
+	 * @throws BulkOperationException - thrown if any ballot was not inserted
+	 */
+	public void insertUnordered(List<Ballot> ballots) {
+
+		List<BulkWriteError> errors = new ArrayList<>();
+
+		for (int i = 0; i < ballots.size(); i++) {
+			try {
+				insertDocument(ballots.get(i));
+			} catch (DuplicateKeyException exception) {
+				errors.add(new BulkWriteError(DUPLICATE_KEY_ERROR, exception.getMessage(), new BsonDocument(), i));
+			}
+		}
+
+		if (!errors.isEmpty()) {
+
+			BulkWriteResult result = BulkWriteResult.acknowledged(ballots.size() - errors.size(), 0, 0, 0,
+					Collections.emptyList());
+			throw new BulkOperationException("Bulk write operation error on in-memory storage",
+					new MongoBulkWriteException(result, errors, null, new ServerAddress(), Collections.emptySet()));
+		}
+	}
+
+	public List<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		NavigableMap<String, Ballot> source = index(userId, lotteryId);
+
+		if (afterBallotId != null) {
+			source = source.tailMap(afterBallotId, false);
+		}
+
+		Predicate<Ballot> filter = filter(userId, lotteryId);
+		List<Ballot> page = new ArrayList<>();
+
+		// one more ballot than the page size, to know whether another page follows
+		for (Iterator<Ballot> iterator = source.values().iterator(); iterator.hasNext() && page.size() <= limit;) {
+
+			Ballot ballot = iterator.next();
+			if (filter.test(ballot)) {
+				page.add(copy(ballot));
+			}
+		}
+
+		return page;
+	}
+
+	public CloseableIterator<Ballot> streamBallots(String userId, String lotteryId) {
+
+		Iterator<Ballot> iterator = index(userId, lotteryId).values().stream().filter(filter(userId, lotteryId))
+				.map(this::copy).iterator();
+
+		return new CloseableIterator<Ballot>() {
+
+			@Override
+			public boolean hasNext() {
+
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Ballot next() {
+
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+
+				// nothing is held open
+			}
+		};
+	}
+
+	public Map<String, Long> countByLotteryIds(Collection<String> lotteryIds) {
+
+		Map<String, Long> ballotCounts = new HashMap<>();
+
+		for (String lotteryId : lotteryIds) {
+
+			NavigableMap<String, Ballot> lotteryBallots = lotteryIndex.get(lotteryId);
+			if (lotteryBallots != null && !lotteryBallots.isEmpty()) {
+				ballotCounts.put(lotteryId, (long) lotteryBallots.size());
+			}
+		}
+
+		return ballotCounts;
+	}
+
+	public List<Ballot> findByUserId(String userId) {
+
+		return copyAll(userIndex.get(userId));
+	}
+
+	public List<Ballot> findByLotteryId(String lotteryId) {
+
+		return copyAll(lotteryIndex.get(lotteryId));
+	}
+
+	public List<Ballot> findByUserIdAndLotteryId(String userId, String lotteryId) {
+
+		List<Ballot> result = new ArrayList<>();
+
+		NavigableMap<String, Ballot> userBallots = userIndex.get(userId);
+		if (userBallots != null) {
+			userBallots.values().stream().filter(ballot -> Objects.equals(lotteryId, ballot.getLotteryId()))
+					.forEach(ballot -> result.add(copy(ballot)));
+		}
+
+		return result;
+	}
+
+	public boolean existsByLotteryId(String lotteryId) {
+
+		NavigableMap<String, Ballot> lotteryBallots = lotteryIndex.get(lotteryId);
+		return lotteryBallots != null && !lotteryBallots.isEmpty();
+	}
+
+	public Ballot findByLotteryIdAndOrdinal(String lotteryId, long ordinal) {
+
+		ConcurrentMap<Long, Ballot> ordinals = ordinalIndex.get(lotteryId);
+		Ballot ballot = ordinals == null ? null : ordinals.get(ordinal);
+
+		return ballot == null ? null : copy(ballot);
+	}
+
+	public long findLastOrdinal(String lotteryId) {
+
+		ConcurrentSkipListMap<Long, Ballot> ordinals = ordinalIndex.get(lotteryId);
+		Map.Entry<Long, Ballot> last = ordinals == null ? null : ordinals.lastEntry();
+
+		return last == null ? 0 : last.getKey();
+	}
+
+	/**
+	 * Returns a uniformly sampled ballot of the lottery, sampled in one pass over
+	 * the lottery's ballots
+	 *
+	 * @param lotteryId - unique identifier related to a lottery
+	 *
+	 * @return random ballot, null if the lottery has no ballots
+	 */
+	public Ballot findRandomBallot(String lotteryId) {
+
+		NavigableMap<String, Ballot> lotteryBallots = lotteryIndex.get(lotteryId);
+
+		if (lotteryBallots == null) {
+			return null;
+		}
+
+		Ballot sample = null;
+		int seen = 0;
+
+		for (Ballot ballot : lotteryBallots.values()) {
+			if (ThreadLocalRandom.current().nextInt(++seen) == 0) {
+				sample = ballot;
+			}
+		}
+
+		return sample == null ? null : copy(sample);
+	}
+
+	/**
+	 * Returns the smallest index holding all ballots matching the optional userId
+	 * and lotteryId. A user is assumed to have fewer ballots than a lottery.
+	 */
+	private NavigableMap<String, Ballot> index(String userId, String lotteryId) {
+
+		if (StringUtils.isNotBlank(userId)) {
+			return userIndex.getOrDefault(userId, new ConcurrentSkipListMap<>());
+		}
+
+		if (StringUtils.isNotBlank(lotteryId)) {
+			return lotteryIndex.getOrDefault(lotteryId, new ConcurrentSkipListMap<>());
+		}
+
+		return ballots;
+	}
+
+	private static Predicate<Ballot> filter(String userId, String lotteryId) {
+
+		if (StringUtils.isNotBlank(userId) && StringUtils.isNotBlank(lotteryId)) {
+			return ballot -> lotteryId.equals(ballot.getLotteryId());
+		}
+
+		return ballot -> true;
+	}
+
+	private List<Ballot> copyAll(NavigableMap<String, Ballot> index) {
+
+		List<Ballot> result = new ArrayList<>();
+
+		if (index != null) {
+			index.values().forEach(ballot -> result.add(copy(ballot)));
+		}
+
+		return result;
+	}
+
+	private static void addToIndex(ConcurrentMap<String, ConcurrentSkipListMap<String, Ballot>> index, String key,
+			Ballot ballot) {
+
+		if (key != null) {
+			index.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(ballot.getBallotId(), ballot);
+		}
+	}
+
+	private static void removeFromIndex(ConcurrentMap<String, ConcurrentSkipListMap<String, Ballot>> index,
+			String key, Ballot ballot) {
+
+		ConcurrentSkipListMap<String, Ballot> entries = key == null ? null : index.get(key);
+
+		if (entries != null) {
+			entries.remove(ballot.getBallotId(), ballot);
+		}
+	}
+
+}
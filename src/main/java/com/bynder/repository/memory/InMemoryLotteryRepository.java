@@ -0,0 +1,256 @@
+package com.bynder.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.bynder.repository.LotteryRepository;
+
+/**
+ * Lottery repository keeping lotteries in memory, used if storage.engine is set
+ * to memory.
+ *
+ * Lotteries are held in a sorted map by lotteryId, so pages are read in the
+ * same order as from Mongo. A stored lottery is never changed, an update
+ * replaces it with an updated copy atomically, so a conditional update such as
+ * closing an open lottery is applied at most once by concurrent callers.
+ *
+ * @author arathy
+ *
+ */
+@Repository
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+public class InMemoryLotteryRepository extends InMemoryRepository<Lottery> implements LotteryRepository {
+
+	private final ConcurrentSkipListMap<String, Lottery> lotteries = new ConcurrentSkipListMap<>();
+
+	public InMemoryLotteryRepository() {
+
+		super(Lottery.class, "LOTTERY");
+	}
+
+	@Override
+	protected void insertDocument(Lottery lottery) {
+
+		Objects.requireNonNull(lottery.getLotteryId(), "lotteryId");
+
+		if (lotteries.putIfAbsent(lottery.getLotteryId(), copy(lottery)) != null) {
+			throw duplicateKey("lotteryId", "{ lotteryId: \"" + lottery.getLotteryId() + "\" }");
+		}
+	}
+
+	@Override
+	protected void removeDocument(Lottery lottery) {
+
+		lotteries.remove(lottery.getLotteryId());
+	}
+
+	@Override
+	protected void removeDocuments() {
+
+		lotteries.clear();
+	}
+
+	@Override
+	protected Collection<Lottery> documents() {
+
+		return lotteries.values();
+	}
+
+	@Override
+	protected Lottery copy(Lottery lottery) {
+
+		Lottery copy = new Lottery(lottery.getLotteryId(), lottery.getName(), lottery.getPrizeMoney(),
+				lottery.getStartDate());
+		copy.setStatus(lottery.getStatus());
+		copy.setWinnerBallot(lottery.getWinnerBallot());
+		copy.setEndDate(lottery.getEndDate());
+		copy.setCloseDate(lottery.getCloseDate());
+		copy.setTimeZone(lottery.getTimeZone());
+		copy.setBallotCount(lottery.getBallotCount());
+		copy.setReservoirBallot(lottery.getReservoirBallot());
+		copy.setReservoirOrdinal(lottery.getReservoirOrdinal());
+		copy.setArchiveStatus(lottery.getArchiveStatus());
+		copy.setArchiveClaimedDate(lottery.getArchiveClaimedDate());
+		return copy;
+	}
+
+	public List<Lottery> findByStatus(String status) {
+
+		List<Lottery> result = new ArrayList<>();
+
+		lotteries.values().stream().filter(lottery -> Objects.equals(status, lottery.getStatus()))
+				.forEach(lottery -> result.add(copy(lottery)));
+
+		return result;
+	}
+
+	public Lottery findByLotteryId(String lotteryId) {
+
+		Lottery lottery = lotteryId == null ? null : lotteries.get(lotteryId);
+		return lottery == null ? null : copy(lottery);
+	}
+
+	public void updateLottery(String lotteryId, Date endDate, String winnerBallot, String status) {
+
+		update(lotteryId, lottery -> true, lottery -> {
+			lottery.setEndDate(endDate);
+			lottery.setWinnerBallot(winnerBallot);
+			lottery.setStatus(status);
+		});
+	}
+
+	public List<Lottery> findPage(String status, String afterLotteryId, int limit) {
+
+		NavigableMap<String, Lottery> source = afterLotteryId == null ? lotteries
+				: lotteries.tailMap(afterLotteryId, false);
+
+		Predicate<Lottery> filter = filter(status);
+		List<Lottery> page = new ArrayList<>();
+
+		// one more lottery than the page size, to know whether another page follows
+		for (Iterator<Lottery> iterator = source.values().iterator(); iterator.hasNext() && page.size() <= limit;) {
+
+			Lottery lottery = iterator.next();
+			if (filter.test(lottery)) {
+				page.add(copy(lottery));
+			}
+		}
+
+		return page;
+	}
+
+	public CloseableIterator<Lottery> streamLotteries(String status) {
+
+		Iterator<Lottery> iterator = lotteries.values().stream().filter(filter(status)).map(this::copy).iterator();
+
+		return new CloseableIterator<Lottery>() {
+
+			@Override
+			public boolean hasNext() {
+
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Lottery next() {
+
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+
+				// nothing is held open
+			}
+		};
+	}
+
+	public void incrementBallotCounts(Map<String, Long> increments) {
+
+		increments.forEach((lotteryId, increment) -> update(lotteryId, lottery -> true,
+				lottery -> lottery.setBallotCount(lottery.getBallotCount() + increment)));
+	}
+
+	public void setBallotCount(String lotteryId, long ballotCount) {
+
+		update(lotteryId, lottery -> true, lottery -> lottery.setBallotCount(ballotCount));
+	}
+
+	public Set<String> closeLotteries(Map<String, String> winnerBallots, Date endDate) {
+
+		Set<String> closedLotteryIds = new LinkedHashSet<>();
+
+		// a lottery already closed keeps its winner
+		winnerBallots.forEach((lotteryId, winnerBallot) -> {
+			if (!update(lotteryId, lottery -> Constants.OPEN.equals(lottery.getStatus()), lottery -> {
+				lottery.setEndDate(endDate);
+				lottery.setWinnerBallot(winnerBallot);
+				lottery.setStatus(Constants.CLOSED);
+			}) && lotteries.containsKey(lotteryId)) {
+				closedLotteryIds.add(lotteryId);
+			}
+		});
+
+		return closedLotteryIds;
+	}
+
+	public boolean updateReservoir(String lotteryId, String ballotId, long ordinal) {
+
+		return update(lotteryId,
+				lottery -> lottery.getReservoirOrdinal() == null || lottery.getReservoirOrdinal() < ordinal,
+				lottery -> {
+					lottery.setReservoirBallot(ballotId);
+					lottery.setReservoirOrdinal(ordinal);
+				});
+	}
+
+	public boolean rebuildReservoir(String lotteryId, String ballotId, long ordinal) {
+
+		return update(lotteryId,
+				lottery -> lottery.getReservoirOrdinal() == null || lottery.getReservoirOrdinal() <= ordinal,
+				lottery -> {
+					lottery.setReservoirBallot(ballotId);
+					lottery.setReservoirOrdinal(ordinal);
+				});
+	}
+
+	/**
+	 * Replaces the lottery with an updated copy if it matches the condition.
+	 *
+	 * The replacement is computed again if the lottery was replaced concurrently,
+	 * so the returned result is the one of the replacement which was stored.
+	 *
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param condition - condition the stored lottery has to match
+	 * @param update    - changes applied to the copy
+	 *
+	 * @return true if the lottery was updated
+	 */
+	private boolean update(String lotteryId, Predicate<Lottery> condition, Consumer<Lottery> update) {
+
+		if (lotteryId == null) {
+			return false;
+		}
+
+		boolean[] updated = new boolean[1];
+
+		lotteries.computeIfPresent(lotteryId, (key, lottery) -> {
+
+			updated[0] = condition.test(lottery);
+
+			if (!updated[0]) {
+				return lottery;
+			}
+
+			Lottery copy = copy(lottery);
+			update.accept(copy);
+			return copy;
+		});
+
+		return updated[0];
+	}
+
+	private static Predicate<Lottery> filter(String status) {
+
+		return StringUtils.isNotBlank(status) ? lottery -> status.equals(lottery.getStatus()) : lottery -> true;
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.bynder.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.LotteryResult;
+import com.bynder.repository.LotteryResultRepository;
+
+/**
+ * Lottery result repository keeping results in memory, used if storage.engine
+ * is set to memory.
+ *
+ * Results are held in a sorted map by resultDate and lotteryId, so pages are
+ * read in the same order as from Mongo, with a secondary index by lotteryId.
+ * Results are not updated once inserted. The backfill marker is not part of
+ * the snapshot, so an enabled startup backfill runs on every start of this
+ * engine, over the lotteries held in memory.
+ *
+ * @author arathy
+ *
+ */
+@Repository
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+public class InMemoryLotteryResultRepository extends InMemoryRepository<LotteryResult>
+		implements LotteryResultRepository {
+
+	// resultDate has a fixed length, so keys sort by resultDate and then lotteryId
+	private static final String KEY_SEPARATOR = "/";
+
+	private final ConcurrentSkipListMap<String, LotteryResult> results = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentMap<String, LotteryResult> resultsByLotteryId = new ConcurrentHashMap<>();
+
+	private volatile boolean backfilled;
+
+	public InMemoryLotteryResultRepository() {
+
+		super(LotteryResult.class, "RESULTS");
+	}
+
+	@Override
+	protected void insertDocument(LotteryResult result) {
+
+		LotteryResult stored = copy(result);
+		Objects.requireNonNull(stored.getLotteryId(), "lotteryId");
+		Objects.requireNonNull(stored.getResultDate(), "resultDate");
+
+		if (resultsByLotteryId.putIfAbsent(stored.getLotteryId(), stored) != null) {
+			throw duplicateKey("lotteryId", "{ lotteryId: \"" + stored.getLotteryId() + "\" }");
+		}
+
+		results.put(key(stored.getResultDate(), stored.getLotteryId()), stored);
+	}
+
+	@Override
+	protected void removeDocument(LotteryResult result) {
+
+		LotteryResult stored = resultsByLotteryId.remove(result.getLotteryId());
+
+		if (stored != null) {
+			results.remove(key(stored.getResultDate(), stored.getLotteryId()));
+		}
+	}
+
+	@Override
+	protected void removeDocuments() {
+
+		results.clear();
+		resultsByLotteryId.clear();
+	}
+
+	@Override
+	protected Collection<LotteryResult> documents() {
+
+		return results.values();
+	}
+
+	@Override
+	protected LotteryResult copy(LotteryResult result) {
+
+		LotteryResult copy = new LotteryResult();
+		copy.setLotteryId(result.getLotteryId());
+		copy.setResultDate(result.getResultDate());
+		copy.setName(result.getName());
+		copy.setPrizeMoney(result.getPrizeMoney());
+		copy.setWinnerBallot(result.getWinnerBallot());
+		copy.setEndDate(result.getEndDate());
+		copy.setTimeZone(result.getTimeZone());
+		return copy;
+	}
+
+	public LotteryResult findByLotteryId(String lotteryId) {
+
+		LotteryResult result = lotteryId == null ? null : resultsByLotteryId.get(lotteryId);
+		return result == null ? null : copy(result);
+	}
+
+	public List<LotteryResult> findPage(String fromDate, String toDate, String afterDate, String afterLotteryId,
+			int limit) {
+
+		NavigableMap<String, LotteryResult> source = afterDate == null || afterDate.compareTo(fromDate) < 0
+				? results.tailMap(key(fromDate, ""), true)
+				: results.tailMap(key(afterDate, afterLotteryId), false);
+
+		List<LotteryResult> page = new ArrayList<>();
+
+		// one more result than the page size, to know whether another page follows
+		for (Iterator<LotteryResult> iterator = source.values().iterator(); iterator.hasNext()
+				&& page.size() <= limit;) {
+
+			LotteryResult result = iterator.next();
+			if (result.getResultDate().compareTo(toDate) > 0) {
+				break;
+			}
+			page.add(copy(result));
+		}
+
+		return page;
+	}
+
+	public void insertResults(List<LotteryResult> lotteryResults) {
+
+		for (LotteryResult result : lotteryResults) {
+
+			try {
+				insertDocument(result);
+			} catch (DuplicateKeyException exception) {
+				// the result already stored for the lottery is kept
+			}
+		}
+	}
+
+	public boolean isBackfilled() {
+
+		return backfilled;
+	}
+
+	public void markBackfilled() {
+
+		backfilled = true;
+	}
+
+	private static String key(String resultDate, String lotteryId) {
+
+		return resultDate + KEY_SEPARATOR + lotteryId;
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.bynder.repository.memory;
+
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Base class of the repositories keeping their documents in memory instead of
+ * a Mongo collection.
+ *
+ * The documents are written to the snapshot of the in-memory storage and
+ * restored from it when the repository is registered.
+ *
+ * @author arathy
+ *
+ * @param <T> - document type
+ */
+public abstract class InMemoryRepository<T> extends AbstractDocumentRepository<T> {
+
+	@Autowired
+	private InMemoryStorage storage;
+
+	protected InMemoryRepository(Class<T> documentType, String collectionName) {
+
+		super(documentType, collectionName);
+	}
+
+	/**
+	 * Registers the repository with the storage, which restores its documents
+	 * from the last snapshot
+	 *
+	 * @throws IOException - thrown if the snapshot cannot be read
+	 */
+	@PostConstruct
+	public void register() throws IOException {
+
+		storage.register(this);
+	}
+
+}
@@ -0,0 +1,275 @@
+package com.bynder.repository.memory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Storage of the in-memory storage engine, used if storage.engine is set to
+ * memory:
+ * 		* holds the sequences, as the SEQUENCES collection does for Mongo
+ * 		* restores the documents of every in-memory repository and the sequences
+ * 		  from the snapshot file at startup
+ * 		* writes all documents and sequences to the snapshot file every
+ * 		  storage.memory.snapshot-interval-ms and at shutdown
+ *
+ * A snapshot is written while ballots and lotteries keep changing, so it holds
+ * every document written before it started, and possibly some written while
+ * it was taken. Documents written after the last snapshot are lost if the
+ * process dies. Sequences are written last, so a restored sequence is never
+ * behind the ids of the restored documents.
+ *
+ * The snapshot is a JSON object holding an array of documents per collection,
+ * written to a temporary file which then replaces the previous snapshot. No
+ * snapshot is read or written if storage.memory.snapshot-path is empty.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+@Slf4j
+public class InMemoryStorage {
+
+	private static final String SEQUENCES = "SEQUENCES";
+
+	@Value("${storage.memory.snapshot-path:}")
+	private String snapshotPath;
+
+	private final ObjectMapper objectMapper = new ObjectMapper()
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+	private final ConcurrentMap<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+	private final List<InMemoryRepository<?>> repositories = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Restores the sequences from the last snapshot
+	 *
+	 * @throws IOException - thrown if the snapshot cannot be read
+	 */
+	@PostConstruct
+	public void restoreSequences() throws IOException {
+
+		readSnapshot(SEQUENCES, parser -> {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String sequenceName = parser.getCurrentName();
+				parser.nextToken();
+				sequences.put(sequenceName, new AtomicLong(parser.getLongValue()));
+			}
+		});
+	}
+
+	/**
+	 * Restores the documents of the repository from the last snapshot and
+	 * includes them in the following snapshots
+	 *
+	 * @param repository - in-memory repository
+	 *
+	 * @throws IOException - thrown if the snapshot cannot be read
+	 */
+	<T> void register(InMemoryRepository<T> repository) throws IOException {
+
+		long[] restored = new long[1];
+
+		readSnapshot(repository.getCollectionName(), parser -> {
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				repository.insertDocument(objectMapper.readValue(parser, repository.getDocumentType()));
+				restored[0]++;
+			}
+		});
+
+		repositories.add(repository);
+
+		if (restored[0] > 0) {
+			log.info("Restored {} documents of {} from snapshot", restored[0], repository.getCollectionName());
+		}
+	}
+
+	/**
+	 * Increments the sequence by the given value and returns the incremented
+	 * value, a sequence starts at 0
+	 *
+	 * @param sequenceName - sequence name to be incremented
+	 * @param incrementBy  - value by which sequence is incremented
+	 *
+	 * @return sequence value after increment
+	 */
+	public long incrementSequence(String sequenceName, long incrementBy) {
+
+		return sequences.computeIfAbsent(sequenceName, name -> new AtomicLong()).addAndGet(incrementBy);
+	}
+
+	/**
+	 * Returns the current value of the sequence
+	 *
+	 * @param sequenceName - sequence name
+	 *
+	 * @return sequence value, 0 if never incremented
+	 */
+	public long getSequence(String sequenceName) {
+
+		AtomicLong sequence = sequences.get(sequenceName);
+		return sequence == null ? 0 : sequence.get();
+	}
+
+	/**
+	 * Removes a sequence which is not used any more
+	 *
+	 * @param sequenceName - sequence name
+	 */
+	public void removeSequence(String sequenceName) {
+
+		sequences.remove(sequenceName);
+	}
+
+	/**
+	 * Writes a snapshot on the configured interval
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${storage.memory.snapshot-interval-ms:60000}",
+			initialDelayString = "${storage.memory.snapshot-interval-ms:60000}")
+	public void scheduledSnapshot() {
+
+		try {
+			writeSnapshot();
+		} catch (IOException exception) {
+			log.error("Snapshot could not be written to {}", snapshotPath, exception);
+		}
+	}
+
+	/**
+	 * Writes a last snapshot at shutdown, after the repositories' users are
+	 * destroyed, as the repositories depend on the storage
+	 *
+	 * @throws IOException - thrown if the snapshot cannot be written
+	 */
+	@PreDestroy
+	public void shutdown() throws IOException {
+
+		writeSnapshot();
+	}
+
+	/**
+	 * Writes all documents and sequences to the snapshot file
+	 *
+	 * @throws IOException - thrown if the snapshot cannot be written
+	 */
+	public synchronized void writeSnapshot() throws IOException {
+
+		if (StringUtils.isBlank(snapshotPath)) {
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		long written = 0;
+
+		Path path = Paths.get(snapshotPath);
+		Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try (JsonGenerator generator = objectMapper.getFactory()
+				.createGenerator(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+
+			generator.writeStartObject();
+
+			for (InMemoryRepository<?> repository : repositories) {
+
+				generator.writeArrayFieldStart(repository.getCollectionName());
+				for (Object document : repository.documents()) {
+					objectMapper.writeValue(generator, document);
+					written++;
+				}
+				generator.writeEndArray();
+			}
+
+			generator.writeObjectFieldStart(SEQUENCES);
+			for (Map.Entry<String, AtomicLong> sequence : sequences.entrySet()) {
+				generator.writeNumberField(sequence.getKey(), sequence.getValue().get());
+			}
+			generator.writeEndObject();
+
+			generator.writeEndObject();
+		}
+
+		Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		log.info("Wrote snapshot of {} documents to {} in {} ms", written, path,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+	}
+
+	/**
+	 * Reads the value of the given top level field of the snapshot, if a snapshot
+	 * is present
+	 *
+	 * @param fieldName - name of the field
+	 * @param reader    - reader of the value, called with the parser positioned at
+	 *                  the start of the value
+	 */
+	private void readSnapshot(String fieldName, SnapshotReader reader) throws IOException {
+
+		if (StringUtils.isBlank(snapshotPath) || !Files.exists(Paths.get(snapshotPath))) {
+			return;
+		}
+
+		try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(Paths.get(snapshotPath)));
+				JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Snapshot " + snapshotPath + " is not a JSON object");
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+				String name = parser.getCurrentName();
+				parser.nextToken();
+
+				if (fieldName.equals(name)) {
+					reader.read(parser);
+					return;
+				}
+
+				parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Reader of a part of the snapshot
+	 */
+	@FunctionalInterface
+	private interface SnapshotReader {
+
+		void read(JsonParser parser) throws IOException;
+
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.bynder.repository.memory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.User;
+import com.bynder.repository.UserRepository;
+
+/**
+ * User repository keeping users in memory, used if storage.engine is set to
+ * memory.
+ *
+ * Users are held in a map by userId, with a secondary index by userName, and
+ * are not updated once inserted.
+ *
+ * @author arathy
+ *
+ */
+@Repository
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+public class InMemoryUserRepository extends InMemoryRepository<User> implements UserRepository {
+
+	private final ConcurrentSkipListMap<String, User> users = new ConcurrentSkipListMap<>();
+
+	private final ConcurrentMap<String, ConcurrentSkipListMap<String, User>> usersByName = new ConcurrentHashMap<>();
+
+	public InMemoryUserRepository() {
+
+		super(User.class, "USER");
+	}
+
+	@Override
+	protected void insertDocument(User user) {
+
+		User stored = copy(user);
+		Objects.requireNonNull(stored.getUserId(), "userId");
+
+		if (users.putIfAbsent(stored.getUserId(), stored) != null) {
+			throw duplicateKey("userId", "{ userId: \"" + stored.getUserId() + "\" }");
+		}
+
+		if (stored.getUserName() != null) {
+			usersByName.computeIfAbsent(stored.getUserName(), key -> new ConcurrentSkipListMap<>())
+					.put(stored.getUserId(), stored);
+		}
+	}
+
+	@Override
+	protected void removeDocument(User user) {
+
+		User stored = users.remove(user.getUserId());
+
+		if (stored != null && stored.getUserName() != null) {
+			Map<String, User> namedUsers = usersByName.get(stored.getUserName());
+			if (namedUsers != null) {
+				namedUsers.remove(stored.getUserId(), stored);
+			}
+		}
+	}
+
+	@Override
+	protected void removeDocuments() {
+
+		users.clear();
+		usersByName.clear();
+	}
+
+	@Override
+	protected Collection<User> documents() {
+
+		return users.values();
+	}
+
+	@Override
+	protected User copy(User user) {
+
+		User copy = new User();
+		copy.setUserId(user.getUserId());
+		copy.setUserName(user.getUserName());
+		copy.setFirstName(user.getFirstName());
+		copy.setLastName(user.getLastName());
+		return copy;
+	}
+
+	public User findByUserId(String userId) {
+
+		User user = userId == null ? null : users.get(userId);
+		return user == null ? null : copy(user);
+	}
+
+	/**
+	 * Returns the user with the given userName, the one with the lowest userId if
+	 * several users share it
+	 *
+	 * @param userName - name of the user
+	 *
+	 * @return user, null if no user has the name
+	 */
+	public User findByUserName(String userName) {
+
+		ConcurrentSkipListMap<String, User> namedUsers = userName == null ? null : usersByName.get(userName);
+		Map.Entry<String, User> first = namedUsers == null ? null : namedUsers.firstEntry();
+
+		return first == null ? null : copy(first.getValue());
+	}
+
+	public boolean existsByUserId(String userId) {
+
+		return userId != null && users.containsKey(userId);
+	}
+
+	/**
+	 * Returns all users with only their userId set, as returned by the projected
+	 * Mongo query
+	 *
+	 * @return stream of users
+	 */
+	public Stream<User> streamAllUserIds() {
+
+		return users.keySet().stream().map(userId -> {
+			User user = new User();
+			user.setUserId(userId);
+			return user;
+		});
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.bynder.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.Ballot;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ReactiveBallotRepository extends ReactiveMongoRepository<Ballot, Long>, ReactiveBallotRepositoryCustom {
+
+	Flux<Ballot> findByUserId(String userId);
+
+	Flux<Ballot> findByLotteryId(String lotteryId);
+
+	Flux<Ballot> findByUserIdAndLotteryId(String userId, String lotteryId);
+
+}
@@ -0,0 +1,13 @@
+package com.bynder.repository.reactive;
+
+import com.bynder.model.Ballot;
+
+import reactor.core.publisher.Flux;
+
+public interface ReactiveBallotRepositoryCustom {
+
+	Flux<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit);
+
+	Flux<Ballot> streamBallots(String userId, String lotteryId);
+
+}
@@ -0,0 +1,45 @@
+package com.bynder.repository.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.BallotQueries;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Implementation of the reactive ballot storage operations which are not
+ * derived from repository method names
+ * 
+ * @author arathy
+ *
+ */
+public class ReactiveBallotRepositoryCustomImpl implements ReactiveBallotRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoOperations reactiveMongoOperations;
+
+	/**
+	 * Returns the next page of ballots, one more than the page size if another
+	 * page follows
+	 * 
+	 * @see BallotQueries#page(String, String, String, int)
+	 */
+	public Flux<Ballot> findPage(String userId, String lotteryId, String afterBallotId, int limit) {
+
+		return reactiveMongoOperations.find(BallotQueries.page(userId, lotteryId, afterBallotId, limit), Ballot.class);
+	}
+
+	/**
+	 * Returns all ballots matching the optional userId and lotteryId, read from
+	 * the Mongo cursor as they are requested by the subscriber
+	 * 
+	 * @see BallotQueries#filter(String, String)
+	 */
+	public Flux<Ballot> streamBallots(String userId, String lotteryId) {
+
+		return reactiveMongoOperations.find(BallotQueries.filter(userId, lotteryId), Ballot.class);
+	}
+
+}
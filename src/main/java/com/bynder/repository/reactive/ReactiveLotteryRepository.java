@@ -0,0 +1,18 @@
+package com.bynder.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.bynder.model.Lottery;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveLotteryRepository extends ReactiveMongoRepository<Lottery, Long>, ReactiveLotteryRepositoryCustom {
+
+	Flux<Lottery> findByStatus(String status);
+
+	Mono<Lottery> findByLotteryId(String lotteryId);
+
+}
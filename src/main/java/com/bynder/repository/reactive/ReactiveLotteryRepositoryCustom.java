@@ -0,0 +1,13 @@
+package com.bynder.repository.reactive;
+
+import com.bynder.model.Lottery;
+
+import reactor.core.publisher.Flux;
+
+public interface ReactiveLotteryRepositoryCustom {
+
+	Flux<Lottery> findPage(String status, String afterLotteryId, int limit);
+
+	Flux<Lottery> streamLotteries(String status);
+
+}
@@ -0,0 +1,45 @@
+package com.bynder.repository.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+
+import com.bynder.model.Lottery;
+import com.bynder.repository.LotteryQueries;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Implementation of the reactive lottery storage operations which are not
+ * derived from repository method names
+ * 
+ * @author arathy
+ *
+ */
+public class ReactiveLotteryRepositoryCustomImpl implements ReactiveLotteryRepositoryCustom {
+
+	@Autowired
+	private ReactiveMongoOperations reactiveMongoOperations;
+
+	/**
+	 * Returns the next page of lotteries, one more than the page size if another
+	 * page follows
+	 * 
+	 * @see LotteryQueries#page(String, String, int)
+	 */
+	public Flux<Lottery> findPage(String status, String afterLotteryId, int limit) {
+
+		return reactiveMongoOperations.find(LotteryQueries.page(status, afterLotteryId, limit), Lottery.class);
+	}
+
+	/**
+	 * Returns all lotteries matching the optional status, read from the Mongo
+	 * cursor as they are requested by the subscriber
+	 * 
+	 * @see LotteryQueries#filter(String)
+	 */
+	public Flux<Lottery> streamLotteries(String status) {
+
+		return reactiveMongoOperations.find(LotteryQueries.filter(status), Lottery.class);
+	}
+
+}
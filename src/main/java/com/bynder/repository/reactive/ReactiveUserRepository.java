@@ -0,0 +1,15 @@
+package com.bynder.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.bynder.model.User;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, Long> {
+
+	Mono<User> findByUserName(String userName);
+
+	Mono<Boolean> existsByUserId(String userId);
+
+}
@@ -0,0 +1,41 @@
+package com.bynder.scheduler;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Summary of a run of the lottery closing job
+ * 
+ * @author arathy
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class LotteryCloseSummary {
+
+	private final int lotteries;
+
+	private final int closed;
+
+	// lotteries closed by another node before this run wrote their winner
+	private final int alreadyClosed;
+
+	private final long durationMs;
+
+	private final String slowestLotteryId;
+
+	private final long slowestLotteryMs;
+
+	// failure reason, keyed by lotteryId
+	private final Map<String, String> failures;
+
+	@Override
+	public String toString() {
+
+		return "closed " + closed + " of " + lotteries + " lotteries (" + alreadyClosed
+				+ " already closed by another node) in " + durationMs + " ms, slowest lottery " + slowestLotteryId + " took " + slowestLotteryMs + " ms, failures: " + failures;
+	}
+
+}
@@ -1,24 +1,67 @@
 package com.bynder.scheduler;
 
-import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import com.bynder.constants.Constants;
+import com.bynder.event.LotteryCreatedEvent;
+import com.bynder.lease.LeaseCoordinator;
 import com.bynder.model.Lottery;
 import com.bynder.service.BallotService;
+import com.bynder.service.LotteryCloseResult;
 import com.bynder.service.LotteryService;
+import com.bynder.utils.CoarseClock;
 import com.bynder.utils.DateUtils;
+import com.bynder.utils.TimingWheel;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Scheduler class to handle scheduled jobs related to lottery processing 
- * 		*end a lottery event at midnight
+ * 		* close every lottery at its own close date, driven by a timing wheel
+ * 		* end a lottery event closing all open lotteries at once, if
+ * 		  end.lottery.event is set
+ * 
+ * Close dates of open lotteries are held in an in-memory hierarchical timing
+ * wheel, which is rebuilt from LOTTERY every lottery.close.reload-ms and on
+ * restart. Lotteries created on this node are added right away. Lotteries
+ * without a close date close at the next midnight of the system time zone, and
+ * keep that midnight if their close fails, so they are retried with the next
+ * reload instead of a day later.
+ * 
+ * Winners are drawn lottery.close.grace-ms after the close date, so ballots
+ * accepted before the close date and still buffered by any node are written
+ * first, and only once the ballots buffered on this node are written.
+ * 
+ * With scheduler.coordination=lease, every node runs the jobs but closes only
+ * the slices of lotteries whose lease it holds, see LeaseCoordinator.
  * 
  * @author arathy
  *
@@ -33,38 +76,519 @@ public class LotteryScheduler {
 	@Autowired
 	private BallotService ballotService;
 
+	@Autowired(required = false)
+	private LeaseCoordinator leaseCoordinator;
+
+	@Value("${lottery.close.concurrency:8}")
+	private int concurrency;
+
+	@Value("${lottery.close.timeout-ms:30000}")
+	private long timeoutMs;
+
+	@Value("${scheduler.lease.poll-interval-ms:5000}")
+	private long pollIntervalMs;
+
+	@Value("${scheduler.lease.job-timeout-ms:600000}")
+	private long jobTimeoutMs;
+
+	@Value("${lottery.close.tick-ms:1000}")
+	private long tickMs;
+
+	@Value("${lottery.close.wheel-size:60}")
+	private int wheelSize;
+
+	@Value("${lottery.close.grace-ms:0}")
+	private long graceMs;
+
+	// close dates of open lotteries, guarded by this
+	private TimingWheel<String> closeWheel;
+
+	// close date in epoch ms of every lottery in the wheel, keyed by lotteryId
+	private final Map<String, Long> scheduledCloses = new HashMap<>();
+
+	// midnight every lottery without close date is due at, kept while it is open
+	private final Map<String, Long> midnightCloses = new HashMap<>();
+
+	// lotteries added after their close date passed, closed with the next tick
+	private final Set<String> dueLotteries = new LinkedHashSet<>();
+
+	/**
+	 * Schedules the close of a lottery created on this node
+	 * 
+	 * @param event - event of the created lottery
+	 */
+	@EventListener
+	public void lotteryCreated(LotteryCreatedEvent event) {
+
+		scheduleClose(event.getLottery(), System.currentTimeMillis());
+	}
+
+	/**
+	 * Rebuilds the scheduled closes from the open lotteries in storage.
+	 * 
+	 * Runs at startup and every lottery.close.reload-ms, so lotteries created on
+	 * other nodes, lotteries whose close failed and lotteries left to another
+	 * node which died are picked up. Lotteries which are no longer open are
+	 * dropped.
+	 * 
+	 */
+	@Scheduled(fixedDelayString = "${lottery.close.reload-ms:60000}")
+	public void reloadCloses() {
+
+		List<Lottery> lotteryList = lotteryService.getActiveLotteries();
+		long nowMs = System.currentTimeMillis();
+
+		synchronized (this) {
+
+			Set<String> openLotteryIds = new HashSet<>();
+
+			if (lotteryList != null) {
+				lotteryList.forEach(lottery -> {
+					openLotteryIds.add(lottery.getLotteryId());
+					scheduleClose(lottery, nowMs);
+				});
+			}
+
+			scheduledCloses.keySet().retainAll(openLotteryIds);
+			midnightCloses.keySet().retainAll(openLotteryIds);
+		}
+	}
+
+	/**
+	 * Adds a lottery to the timing wheel, unless it is scheduled at the same
+	 * close date already
+	 * 
+	 * @param lottery - open lottery
+	 * @param nowMs   - current time
+	 */
+	private synchronized void scheduleClose(Lottery lottery, long nowMs) {
+
+		Long scheduledMs = scheduledCloses.get(lottery.getLotteryId());
+		long closeMs;
+
+		if (lottery.getCloseDate() != null) {
+			closeMs = lottery.getCloseDate().getTime() + graceMs;
+		} else if (scheduledMs != null) {
+			// a lottery without close date keeps the midnight it was scheduled for
+			return;
+		} else {
+			closeMs = midnightCloses.computeIfAbsent(lottery.getLotteryId(),
+					lotteryId -> DateUtils.nextMidnight(ZoneId.systemDefault()).getTime());
+		}
+
+		scheduledCloses.put(lottery.getLotteryId(), closeMs);
+
+		if (scheduledMs != null && scheduledMs == closeMs) {
+			return;
+		}
+
+		if (closeWheel == null) {
+			closeWheel = new TimingWheel<>(tickMs, wheelSize, nowMs);
+		}
+
+		if (!closeWheel.add(lottery.getLotteryId(), closeMs)) {
+			dueLotteries.add(lottery.getLotteryId());
+		}
+	}
+
+	/**
+	 * Scheduler job runs every lottery.close.tick-ms
+	 * 
+	 * Advances the timing wheel and closes the lotteries whose close date has
+	 * passed and which are still open.
+	 * 
+	 */
+	@Scheduled(fixedDelayString = "${lottery.close.tick-ms:1000}")
+	public void closeDueLotteries() {
+
+		closeDueLotteries(System.currentTimeMillis());
+	}
+
 	/**
-	 * Scheduler job runs every day at midnight
+	 * Closes the lotteries which are due at the given time
+	 * 
+	 * @param nowMs - current time
+	 */
+	void closeDueLotteries(long nowMs) {
+
+		List<String> lotteryIds = new ArrayList<>();
+
+		synchronized (this) {
+
+			if (closeWheel != null) {
+				closeWheel.advanceClock(nowMs, dueLotteries::add);
+			}
+
+			// entries of lotteries rescheduled or dropped since they were added are
+			// skipped
+			for (String lotteryId : dueLotteries) {
+
+				Long closeMs = scheduledCloses.get(lotteryId);
+
+				if (closeMs != null && closeMs <= nowMs) {
+					scheduledCloses.remove(lotteryId);
+					lotteryIds.add(lotteryId);
+				}
+			}
+
+			dueLotteries.clear();
+		}
+
+		// lotteries may have been closed by another node since they were scheduled
+		List<Lottery> lotteryList = lotteryIds.stream().map(lotteryService::getLottery)
+				.filter(lottery -> lottery != null && Constants.OPEN.equals(lottery.getStatus()))
+				.collect(Collectors.toList());
+
+		if (lotteryList.isEmpty()) {
+			return;
+		}
+
+		if (leaseCoordinator == null) {
+			logSummary(closeLotteries(lotteryList));
+			return;
+		}
+
+		Map<Integer, List<Lottery>> slices = new TreeMap<>();
+		lotteryList.forEach(lottery -> slices
+				.computeIfAbsent(leaseCoordinator.sliceOf(lottery.getLotteryId()), slice -> new ArrayList<>())
+				.add(lottery));
+
+		// slices held by other nodes are closed by them, or picked up again by the
+		// next reload if they are still open then
+		slices.forEach((slice, lotteries) -> {
+
+			if (!leaseCoordinator.tryAcquire(slice)) {
+				return;
+			}
+
+			try {
+				logSummary(closeLotteries(lotteries));
+			} finally {
+				leaseCoordinator.release(slice);
+			}
+		});
+	}
+
+	/**
+	 * Scheduler job runs on the end.lottery.event cron, disabled by default
 	 * 
 	 * For all the active lotteries, it selects a random winner and close the
-	 * lottery
+	 * lottery, regardless of their close dates. A summary with the total duration, the slowest lottery and the
+	 * failed lotteries is logged.
 	 * 
 	 */
-	@Scheduled(cron = "${end.lottery.event}")
+	@Scheduled(cron = "${end.lottery.event:-}")
 	public void endLotteryEvent() {
 
 		List<Lottery> lotteryList = lotteryService.getActiveLotteries();
 
 		if (!CollectionUtils.isEmpty(lotteryList)) {
 
-			lotteryList.forEach(lottery -> {
+			if (leaseCoordinator == null) {
+				logSummary(closeLotteries(lotteryList));
+			} else {
+				closeLotteriesBySlice();
+			}
 
-				//selects a random winner
-				String winnerBallot = ballotService.getLotteryWinner(lottery.getLotteryId());
+		} else {
 
-				//closes the lottery
-				lotteryService.closeLottery(lottery.getLotteryId(),
-						DateUtils.toDate(LocalDateTime.now().toString(), Constants.LOTTERY_DATE_FORMAT), winnerBallot,
-						Constants.CLOSED);
+			log.error("No lotteries present to close for today!");
+		}
 
-				log.info("Winner for {} is {}", lottery.getLotteryId(), winnerBallot);
-			});
+	}
+
+	/**
+	 * Closes the open lotteries slice by slice, holding the lease of the slice
+	 * being closed.
+	 * 
+	 * Slices whose lease is held by another node are retried every
+	 * scheduler.lease.poll-interval-ms, so the slices of a node which died are
+	 * closed once its leases expire. Open lotteries are read again after a lease
+	 * is acquired, so lotteries closed by the previous holder are not drawn
+	 * again. Each lottery is attempted at most once per run by this node. The job
+	 * gives up on slices still held by others after
+	 * scheduler.lease.job-timeout-ms.
+	 * 
+	 */
+	private void closeLotteriesBySlice() {
+
+		long deadline = System.currentTimeMillis() + jobTimeoutMs;
+		Set<String> attempted = new HashSet<>();
+
+		while (true) {
+
+			Map<Integer, List<Lottery>> pendingSlices = pendingSlices(attempted);
+
+			if (pendingSlices.isEmpty()) {
+				return;
+			}
+
+			boolean closedAny = false;
 
+			for (int slice : rotate(pendingSlices.keySet())) {
+
+				if (!leaseCoordinator.tryAcquire(slice)) {
+					continue;
+				}
+
+				try {
+
+					List<Lottery> lotteries = pendingSlices(attempted).get(slice);
+
+					if (lotteries != null) {
+						lotteries.forEach(lottery -> attempted.add(lottery.getLotteryId()));
+						log.info("Closing {} lotteries of slice {}", lotteries.size(), slice);
+						logSummary(closeLotteries(lotteries));
+						closedAny = true;
+					}
+
+				} finally {
+
+					leaseCoordinator.release(slice);
+				}
+			}
+
+			if (!closedAny) {
+
+				if (System.currentTimeMillis() >= deadline) {
+					log.error("Lottery closing job gave up on slices {} held by other nodes", pendingSlices.keySet());
+					return;
+				}
+
+				try {
+					Thread.sleep(pollIntervalMs);
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the open lotteries not yet attempted by this run, grouped by slice
+	 * 
+	 * @param attempted - lotteryIds attempted by this run
+	 * 
+	 * @return open lotteries, keyed by slice
+	 */
+	private Map<Integer, List<Lottery>> pendingSlices(Set<String> attempted) {
+
+		Map<Integer, List<Lottery>> pendingSlices = new TreeMap<>();
+		List<Lottery> lotteryList = lotteryService.getActiveLotteries();
+
+		if (lotteryList != null) {
+			lotteryList.stream().filter(lottery -> !attempted.contains(lottery.getLotteryId()))
+					.forEach(lottery -> pendingSlices.computeIfAbsent(leaseCoordinator.sliceOf(lottery.getLotteryId()),
+							slice -> new ArrayList<>()).add(lottery));
+		}
+
+		return pendingSlices;
+	}
+
+	/**
+	 * Orders the given slices starting from the first slice of this node
+	 * 
+	 * @param slices - slices in ascending order
+	 * 
+	 * @return slices starting from the first slice of this node
+	 */
+	private List<Integer> rotate(Set<Integer> slices) {
+
+		int firstSlice = leaseCoordinator.firstSlice();
+		List<Integer> rotated = new ArrayList<>();
+
+		slices.stream().filter(slice -> slice >= firstSlice).forEach(rotated::add);
+		slices.stream().filter(slice -> slice < firstSlice).forEach(rotated::add);
+
+		return rotated;
+	}
+
+	private void logSummary(LotteryCloseSummary summary) {
+
+		if (summary.getFailures().isEmpty()) {
+			log.info("Lottery closing job {}", summary);
 		} else {
+			log.error("Lottery closing job {}", summary);
+		}
+	}
 
-			log.error("No lotteries present to close for today!");
+	/**
+	 * Selects the winners of the given lotteries and closes them.
+	 * 
+	 * Winners are selected on a pool of lottery.close.concurrency threads. A
+	 * lottery whose winner is not selected within lottery.close.timeout-ms, or
+	 * whose selection fails, is left open and reported as failed without
+	 * affecting the other lotteries. Each lottery is closed as soon as its winner
+	 * is selected, so it does not accept ballots while the other selections run;
+	 * winners selected at the same time are written with one bulk write.
+	 * 
+	 * No winner is selected until the ballots buffered on this node are written;
+	 * if they are not written within lottery.close.timeout-ms, all lotteries are
+	 * left open and reported as failed.
+	 * 
+	 * @param lotteryList - lotteries to be closed
+	 * 
+	 * @return summary of the run
+	 */
+	public LotteryCloseSummary closeLotteries(List<Lottery> lotteryList) {
+
+		long start = System.nanoTime();
+		Map<String, String> failures = new LinkedHashMap<>();
+		Set<String> alreadyClosed = new LinkedHashSet<>();
+
+		if (!ballotService.awaitBufferedBallots(timeoutMs)) {
+
+			lotteryList.forEach(lottery -> failures.put(lottery.getLotteryId(), "buffered ballots not written"));
+
+			return new LotteryCloseSummary(lotteryList.size(), 0, 0,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), null, 0, failures);
 		}
 
+		Map<String, CompletableFuture<String>> winnerFutures = new LinkedHashMap<>();
+		Map<String, Long> durations = new ConcurrentHashMap<>();
+		BlockingQueue<String> selectedLotteryIds = new LinkedBlockingQueue<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, lotteryList.size()),
+				threadFactory("lottery-close"));
+		ScheduledExecutorService timer = Executors
+				.newSingleThreadScheduledExecutor(threadFactory("lottery-close-timer"));
+
+		try {
+
+			for (Lottery lottery : lotteryList) {
+
+				String lotteryId = lottery.getLotteryId();
+				CompletableFuture<String> winnerFuture = new CompletableFuture<>();
+				winnerFutures.put(lotteryId, winnerFuture);
+				winnerFuture.whenComplete((winnerBallot, exception) -> selectedLotteryIds.add(lotteryId));
+
+				executor.execute(() -> selectWinner(lotteryId, winnerFuture, durations, timer));
+			}
+
+			// closes the lotteries whose selection completed since the previous write
+			for (int written = 0; written < winnerFutures.size();) {
+
+				List<String> lotteryIds = new ArrayList<>();
+				lotteryIds.add(selectedLotteryIds.take());
+				selectedLotteryIds.drainTo(lotteryIds);
+
+				writeCloses(lotteryIds, winnerFutures, failures, alreadyClosed);
+				written += lotteryIds.size();
+			}
+
+		} catch (InterruptedException exception) {
+
+			Thread.currentThread().interrupt();
+			winnerFutures.forEach((lotteryId, winnerFuture) -> {
+				if (!winnerFuture.isDone()) {
+					failures.put(lotteryId, "interrupted");
+				}
+			});
+
+		} finally {
+
+			// selections still running after their timeout are interrupted
+			executor.shutdownNow();
+			timer.shutdownNow();
+		}
+
+		Map.Entry<String, Long> slowest = durations.entrySet().stream().max(Map.Entry.comparingByValue())
+				.orElse(null);
+
+		return new LotteryCloseSummary(lotteryList.size(),
+				lotteryList.size() - failures.size() - alreadyClosed.size(), alreadyClosed.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), slowest == null ? null : slowest.getKey(),
+				slowest == null ? 0 : slowest.getValue(), failures);
+	}
+
+	/**
+	 * Closes the given lotteries whose selection completed with one bulk write and
+	 * reports the failed ones, and the ones closed by another node first, whose
+	 * selected winner is discarded
+	 * 
+	 * @param lotteryIds    - lotteries whose selection completed
+	 * @param winnerFutures - completed selections, keyed by lotteryId
+	 * @param failures      - failure reasons, keyed by lotteryId
+	 * @param alreadyClosed - lotteries closed by another node first
+	 */
+	private void writeCloses(List<String> lotteryIds, Map<String, CompletableFuture<String>> winnerFutures,
+			Map<String, String> failures, Set<String> alreadyClosed) {
+
+		Map<String, String> winnerBallots = new LinkedHashMap<>();
+
+		lotteryIds.forEach(lotteryId -> winnerFutures.get(lotteryId).handle((winnerBallot, exception) -> {
+
+			if (exception == null) {
+				winnerBallots.put(lotteryId, winnerBallot);
+			} else {
+				failures.put(lotteryId, String.valueOf(exception.getMessage()));
+			}
+			return null;
+		}));
+
+		if (winnerBallots.isEmpty()) {
+			return;
+		}
+
+		LotteryCloseResult result = lotteryService.closeLotteries(winnerBallots, CoarseClock.currentDate());
+
+		winnerBallots.forEach((lotteryId, winnerBallot) -> {
+			if (result.getFailedLotteryIds().contains(lotteryId)) {
+				failures.put(lotteryId, "status write failed");
+			} else if (result.getAlreadyClosedLotteryIds().contains(lotteryId)) {
+				alreadyClosed.add(lotteryId);
+				log.info("Lottery {} was already closed by another node, its winner is kept", lotteryId);
+			} else {
+				log.info("Winner for {} is {}", lotteryId, winnerBallot);
+			}
+		});
+	}
+
+	/**
+	 * Selects the winner of a lottery and completes the given future with it.
+	 * 
+	 * The timeout starts when the selection starts, so lotteries waiting for a
+	 * free thread are not timed out.
+	 * 
+	 * @param lotteryId    - unique identifier of lottery
+	 * @param winnerFuture - future to complete with the winner ballot
+	 * @param durations    - selection durations in ms, keyed by lotteryId
+	 * @param timer        - executor completing the future on timeout
+	 */
+	private void selectWinner(String lotteryId, CompletableFuture<String> winnerFuture, Map<String, Long> durations,
+			ScheduledExecutorService timer) {
+
+		long start = System.nanoTime();
+
+		timer.schedule(() -> winnerFuture
+				.completeExceptionally(new TimeoutException("timed out after " + timeoutMs + " ms")), timeoutMs,
+				TimeUnit.MILLISECONDS);
+
+		try {
+
+			winnerFuture.complete(ballotService.getLotteryWinner(lotteryId));
+
+		} catch (RuntimeException exception) {
+
+			log.error("Failed to select winner for {}", lotteryId, exception);
+			winnerFuture.completeExceptionally(exception);
+
+		} finally {
+
+			durations.put(lotteryId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
 	}
 
 }
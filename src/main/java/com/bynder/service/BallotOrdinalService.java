@@ -0,0 +1,13 @@
+package com.bynder.service;
+
+import java.util.List;
+
+import com.bynder.model.Ballot;
+
+public interface BallotOrdinalService {
+
+	void assignOrdinals(List<Ballot> ballots);
+
+	long getLastOrdinal(String lotteryId);
+
+}
@@ -1,17 +1,34 @@
 package com.bynder.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import com.bynder.dto.BallotBatchDTO;
 import com.bynder.dto.BallotDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
 
 public interface BallotService {
 
-	List<BallotDTO> getBallots(String userId, String lotteryId) throws ResourceNotFoundException;
+	PageDTO<BallotDTO> getBallots(String userId, String lotteryId, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException;
+
+	void streamBallots(String userId, String lotteryId, OutputStream outputStream) throws IOException;
 
 	String createBallot(BallotDTO ballotDto) throws ResourceNotFoundException, LotteryStatusException;
 
+	CompletableFuture<String> createBallotAsync(BallotDTO ballotDto)
+			throws ResourceNotFoundException, LotteryStatusException;
+
+	List<BallotDTO> createBallots(BallotBatchDTO ballotBatchDto)
+			throws InvalidRequestException, ResourceNotFoundException, LotteryStatusException;
+
+	boolean awaitBufferedBallots(long timeoutMs);
+
 	String getLotteryWinner(String lotteryId);
 
 }
@@ -0,0 +1,25 @@
+package com.bynder.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.model.Lottery;
+
+public interface DailyResultService {
+
+	PageDTO<DailyResultDTO> getResults(String date, String from, String to, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException;
+
+	void saveResults(List<Lottery> closedLotteries);
+
+	void queueResults(Collection<String> lotteryIds);
+
+	void retryResults();
+
+	void backfill();
+
+}
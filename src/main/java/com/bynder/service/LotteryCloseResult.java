@@ -0,0 +1,24 @@
+package com.bynder.service;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of closing several lotteries with one bulk write
+ * 
+ * @author arathy
+ *
+ */
+@Getter
+@AllArgsConstructor
+public class LotteryCloseResult {
+
+	// lotteries whose status could not be written, which stay open
+	private final Set<String> failedLotteryIds;
+
+	// lotteries which were not open any more, e.g. closed by another node, and keep their winner
+	private final Set<String> alreadyClosedLotteryIds;
+
+}
@@ -1,26 +1,44 @@
 package com.bynder.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
+import com.bynder.cache.EncodedLotteryResult;
 import com.bynder.dto.LotteryDTO;
 import com.bynder.dto.LotteryResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
 import com.bynder.model.Lottery;
 
 public interface LotteryService {
 
-	List<LotteryDTO> getLotteries(String status) throws ResourceNotFoundException;
+	PageDTO<LotteryDTO> getLotteries(String status, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException;
+
+	void streamLotteries(String status, OutputStream outputStream) throws IOException;
 
 	LotteryResultDTO getLotteryResult(String lotteryId) throws ResourceNotFoundException, LotteryStatusException;
 
-	String createLottery(LotteryDTO lotteryDto);
+	EncodedLotteryResult getEncodedLotteryResult(String lotteryId)
+			throws ResourceNotFoundException, LotteryStatusException;
+
+	String createLottery(LotteryDTO lotteryDto) throws InvalidRequestException;
 
 	Lottery getLottery(String lotteryId);
 
+	String getLotteryStatus(String lotteryId);
+
+	String getLotteryStatus(String lotteryId, Date date);
+
 	List<Lottery> getActiveLotteries();
 
 	void closeLottery(String lotteryId, Date endDate, String winnerBallot, String status);
 
+	LotteryCloseResult closeLotteries(Map<String, String> winnerBallots, Date endDate);
+
 }
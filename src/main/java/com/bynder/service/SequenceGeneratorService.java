@@ -4,4 +4,13 @@ public interface SequenceGeneratorService {
 
 	long getNextSequenceNumber(String sequenceName);
 
+	default long[] getNextSequenceNumbers(String sequenceName, int count) {
+
+		long[] sequenceNumbers = new long[count];
+		for (int i = 0; i < count; i++) {
+			sequenceNumbers[i] = getNextSequenceNumber(sequenceName);
+		}
+		return sequenceNumbers;
+	}
+
 }
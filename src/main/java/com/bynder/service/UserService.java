@@ -9,4 +9,6 @@ public interface UserService {
 	String registerUser(UserDTO userDto) throws EntityExistsException;
 
 	User findUser(String userId);
+
+	boolean isUserPresent(String userId);
 }
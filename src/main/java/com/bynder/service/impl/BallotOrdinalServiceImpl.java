@@ -0,0 +1,211 @@
+package com.bynder.service.impl;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.model.Ballot;
+import com.bynder.model.Sequences;
+import com.bynder.service.BallotOrdinalService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to number the ballots of every lottery from 1, so a winner can
+ * be drawn by picking a random ordinal.
+ *
+ * The last reserved ordinal of a lottery is kept in the SEQUENCES collection
+ * under BALLOT_ORDINAL_SEQUENCE_ followed by the lotteryId. Like the sequences
+ * of SequenceGeneratorServiceImpl, ordinals are reserved in blocks of
+ * lottery.ordinal.block-size per lottery with a single increment in storage
+ * and handed out locally, so concurrent ballots of a lottery do not contend on
+ * its ordinal document. With a block size of 1, ordinals are dense and only
+ * left unused if the insert of their ballot fails. With larger blocks, the
+ * ordinals left in the blocks of the nodes when the lottery is closed, or when
+ * a node restarts or drops an idle block, are never used and are redrawn by
+ * the winner draw.
+ *
+ * The ordinal document of a lottery and the block of this node are removed
+ * once the lottery is closed. Blocks of other nodes are dropped after
+ * lottery.ordinal.block-idle-ms without a ballot.
+ *
+ * Used unless storage.engine is set to memory.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "storage.engine", havingValue = "mongo", matchIfMissing = true)
+@Slf4j
+public class BallotOrdinalServiceImpl implements BallotOrdinalService {
+
+	@Autowired
+	private MongoOperations mongoOperations;
+
+	@Value("${lottery.ordinal.block-size:1}")
+	private long blockSize;
+
+	@Value("${lottery.ordinal.block-idle-ms:3600000}")
+	private long blockIdleMs;
+
+	private Cache<String, OrdinalBlock> ordinalBlocks;
+
+	/**
+	 * Creates the cache of the ordinal blocks reserved by this node
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		ordinalBlocks = Caffeine.newBuilder().expireAfterAccess(blockIdleMs, TimeUnit.MILLISECONDS).build();
+	}
+
+	/**
+	 * Assigns the next ordinals of their lottery to the given ballots.
+	 *
+	 * Ordinals are taken from the block of the lottery reserved by this node, so
+	 * the ballots of a lottery get increasing ordinals in the given order. Once
+	 * the block is exhausted, a new block covering at least the remaining ballots
+	 * of the lottery is reserved with a single increment.
+	 *
+	 * @param ballots - ballots to be numbered
+	 */
+	public void assignOrdinals(List<Ballot> ballots) {
+
+		Map<String, Integer> ballotCounts = new LinkedHashMap<>();
+		ballots.forEach(ballot -> ballotCounts.merge(ballot.getLotteryId(), 1, Integer::sum));
+
+		Map<String, long[]> ordinals = new LinkedHashMap<>();
+		ballotCounts.forEach((lotteryId, count) -> ordinals.put(lotteryId, takeOrdinals(lotteryId, count)));
+
+		Map<String, Integer> assigned = new LinkedHashMap<>();
+		for (Ballot ballot : ballots) {
+			ballot.setOrdinal(ordinals.get(ballot.getLotteryId())[assigned.merge(ballot.getLotteryId(), 1,
+					Integer::sum) - 1]);
+		}
+	}
+
+	/**
+	 * Removes the ordinal document and the block of a lottery once it is closed,
+	 * as no more ballots are numbered for it
+	 *
+	 * @param event - event of the closed lottery
+	 */
+	@EventListener
+	public void lotteryClosed(LotteryClosedEvent event) {
+
+		ordinalBlocks.invalidate(event.getLotteryId());
+
+		try {
+
+			mongoOperations.remove(byLottery(event.getLotteryId()), Sequences.class);
+
+		} catch (RuntimeException exception) {
+
+			log.warn("Failed to remove the ordinal sequence of closed lottery {}", event.getLotteryId(), exception);
+		}
+	}
+
+	/**
+	 * Returns the last ordinal reserved for the lottery by any node, which is at
+	 * least the last ordinal assigned to a ballot of the lottery. With blocks
+	 * larger than 1, the ordinals after the last assigned one are left unused
+	 * until a ballot takes them from its node's block.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return last reserved ordinal, 0 if no ordinal is reserved
+	 */
+	public long getLastOrdinal(String lotteryId) {
+
+		Sequences sequence = mongoOperations.findOne(byLottery(lotteryId), Sequences.class);
+
+		return sequence == null ? 0 : sequence.getSeqValue();
+	}
+
+	/**
+	 * Takes the given number of ordinals from the block of the lottery, reserving
+	 * a new block whenever it is exhausted
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 * @param count     - number of ordinals to be taken
+	 *
+	 * @return increasing ordinals
+	 */
+	private long[] takeOrdinals(String lotteryId, int count) {
+
+		long[] ordinals = new long[count];
+		OrdinalBlock block = ordinalBlocks.get(lotteryId, id -> new OrdinalBlock());
+
+		synchronized (block) {
+
+			for (int i = 0; i < count; i++) {
+
+				if (block.nextOrdinal > block.lastOrdinal) {
+
+					long reserved = Math.max(blockSize, count - i);
+					block.lastOrdinal = incrementOrdinal(lotteryId, reserved);
+					block.nextOrdinal = block.lastOrdinal - reserved + 1;
+				}
+
+				ordinals[i] = block.nextOrdinal++;
+			}
+		}
+
+		return ordinals;
+	}
+
+	/**
+	 * Increments the ordinal sequence of the lottery in storage and returns the
+	 * incremented value
+	 *
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param incrementBy - number of ordinals to be reserved
+	 *
+	 * @return last reserved ordinal
+	 */
+	private long incrementOrdinal(String lotteryId, long incrementBy) {
+
+		Sequences sequence = mongoOperations.findAndModify(byLottery(lotteryId),
+				new Update().inc(Constants.SEQ_VALUE, incrementBy),
+				new FindAndModifyOptions().returnNew(true).upsert(true), Sequences.class);
+
+		return sequence == null ? incrementBy : sequence.getSeqValue();
+	}
+
+	private Query byLottery(String lotteryId) {
+
+		return new Query(Criteria.where(Constants.SEQ_NAME).is(Constants.BALLOT_ORDINAL_SEQUENCE + lotteryId));
+	}
+
+	/**
+	 * Range of ordinals of a lottery reserved in storage and handed out by this
+	 * node, guarded by its own monitor
+	 */
+	private static final class OrdinalBlock {
+
+		private long nextOrdinal = 1;
+
+		private long lastOrdinal;
+
+	}
+
+}
@@ -1,37 +1,68 @@
 package com.bynder.service.impl;
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import com.bynder.archive.BallotArchive;
 import com.bynder.constants.Constants;
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.dto.BallotBatchDTO;
 import com.bynder.dto.BallotDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
 import com.bynder.model.Ballot;
-import com.bynder.model.Lottery;
 import com.bynder.repository.BallotRepository;
+import com.bynder.service.BallotOrdinalService;
 import com.bynder.service.BallotService;
 import com.bynder.service.LotteryService;
 import com.bynder.service.SequenceGeneratorService;
 import com.bynder.service.UserService;
+import com.bynder.utils.CoarseClock;
 import com.bynder.utils.DateUtils;
+import com.bynder.utils.NdjsonUtils;
+import com.bynder.utils.PaginationUtils;
+import com.bynder.winner.WinnerSelectionStrategy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service class to handle the requests related to Ballot operations:
- * 		* get the ballots for a given userId.
+ * 		* get the ballots for a given userId, one page at a time.
+ * 		* stream the ballots for a given userId as JSON lines.
+ * 		* merge ballots of closed lotteries read from the archive, if enabled.
  * 		* save a new ballot related to a lottery.
+ * 		* save a new ballot through the write-behind buffer, if enabled.
+ * 		* save a batch of ballots in one request.
+ * 		* wait for the ballots of the write-behind buffer before a draw.
  * 		* selects winner ballot for a lottery.
  * 
  * @author arathy
  *
  */
 @Service
+@Slf4j
 public class BallotServiceImpl implements BallotService {
 
 	@Autowired
@@ -46,50 +77,109 @@ public class BallotServiceImpl implements BallotService {
 	@Autowired
 	private SequenceGeneratorService sequenceService;
 
+	@Autowired(required = false)
+	private BallotWriteBehindBuffer ballotWriteBehindBuffer;
+
+	@Autowired(required = false)
+	private BallotArchive ballotArchive;
+
+	@Autowired
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Autowired
+	private BallotOrdinalService ballotOrdinalService;
+
+	@Autowired
+	private WinnerSelectionStrategy winnerSelectionStrategy;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${ballot.batch.max-size:1000}")
+	private int maxBatchSize;
+
+	@Value("${pagination.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${pagination.max-limit:1000}")
+	private int maxPageLimit;
+
+	private static final String CURSOR_KIND = "ballot";
+
 	/**
-	 * Returns the list of ballots.
+	 * Returns a page of ballots.
 	 * 
 	 * Takes 2 optional parameters userId and lotteryId, based on which
 	 * corresponding ballots are returned. If both are not provided, then all the
 	 * ballots are returned.
 	 * 
+	 * Ballots are ordered by ballotId and returned one page at a time: the cursor
+	 * returned with a page is passed as after to get the next page. Pages are read
+	 * with a range query on ballotId, so reading a page does not depend on how
+	 * many pages precede it.
+	 * 
+	 * If the ballot archive is enabled, the page is merged with the matching page
+	 * of archived ballots.
+	 * 
 	 * If no ballots exists for the particular user, exception with the appropriate
 	 * error message is returned.
 	 * 
 	 * @param userId    - unique identifier related to a customer
 	 * @param lotteryId - unique identifier related to a lottery
+	 * @param limit     - optional page size
+	 * @param after     - optional cursor returned with the previous page
 	 * 
-	 * @return list of ballots, if any present
+	 * @return page of ballots with the cursor of the next page, if any
 	 * 
+	 * @throws InvalidRequestException   - exception thrown if the page size or
+	 *                                   cursor is invalid
 	 * @throws ResourceNotFoundException - exception thrown if no ballots are
 	 *                                   present
 	 */
-	public List<BallotDTO> getBallots(String userId, String lotteryId) throws ResourceNotFoundException {
-
-		List<Ballot> ballotList = null;
+	public PageDTO<BallotDTO> getBallots(String userId, String lotteryId, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException {
 
-		if (StringUtils.isNoneBlank(userId, lotteryId)) {
+		int pageLimit = PaginationUtils.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+		String afterBallotId = PaginationUtils.decodeCursor(CURSOR_KIND, after);
 
-			ballotList = ballotRepository.findByUserIdAndLotteryId(userId, lotteryId);
+		List<Ballot> ballotList = ballotRepository.findPage(userId, lotteryId, afterBallotId, pageLimit);
 
-		} else if (StringUtils.isNotBlank(userId)) {
-
-			ballotList = ballotRepository.findByUserId(userId);
-
-		} else if (StringUtils.isNotBlank(lotteryId)) {
-			
-			ballotList = ballotRepository.findByLotteryId(lotteryId);
-			
-		} else {
-			
-			ballotList = ballotRepository.findAll();
+		if (ballotArchive != null) {
+			ballotList = BallotArchive.mergePages(ballotList,
+					ballotArchive.findPage(userId, lotteryId, afterBallotId, pageLimit), pageLimit);
 		}
 
-		if (CollectionUtils.isEmpty(ballotList)) {
+		// an empty page after a cursor only means the previous page was the last one
+		if (CollectionUtils.isEmpty(ballotList) && afterBallotId == null) {
 			throw new ResourceNotFoundException("Ballots Not Found");
 		}
 
-		return mapBallotDTO(ballotList);
+		return PaginationUtils.toPage(ballotList, pageLimit, CURSOR_KIND, Ballot::getBallotId, this::mapBallotDTO);
+
+	}
+
+	/**
+	 * Writes all ballots matching the optional userId and lotteryId as JSON
+	 * lines, ordered by ballotId.
+	 * 
+	 * Ballots are read from a Mongo cursor and written one at a time, so memory
+	 * use does not depend on the number of ballots. If the ballot archive is
+	 * enabled, archived ballots are merged in ballotId order.
+	 * 
+	 * @param userId       - unique identifier related to a customer
+	 * @param lotteryId    - unique identifier related to a lottery
+	 * @param outputStream - stream to write to
+	 * 
+	 * @throws IOException - thrown if writing fails
+	 */
+	public void streamBallots(String userId, String lotteryId, OutputStream outputStream) throws IOException {
+
+		CloseableIterator<Ballot> hotBallots = ballotRepository.streamBallots(userId, lotteryId);
+
+		try (CloseableIterator<Ballot> ballots = ballotArchive == null ? hotBallots
+				: BallotArchive.merge(hotBallots, ballotArchive.streamBallots(userId, lotteryId))) {
+			NdjsonUtils.writeLines(objectMapper, ballots, this::mapBallotDTO, outputStream);
+		}
 
 	}
 
@@ -103,14 +193,26 @@ public class BallotServiceImpl implements BallotService {
 	 */
 	private List<BallotDTO> mapBallotDTO(List<Ballot> ballotList) {
 
-		List<BallotDTO> ballotDTOList = new ArrayList<>();
+		List<BallotDTO> ballotDTOList = new ArrayList<>(ballotList.size());
 
-		ballotList.stream().forEach(ballot -> ballotDTOList.add(new BallotDTO(ballot.getLotteryId(), ballot.getUserId(),
-				ballot.getBallotId(), DateUtils.formatDate(ballot.getCreatedDate(), Constants.LOTTERY_DATE_FORMAT))));
+		ballotList.stream().forEach(ballot -> ballotDTOList.add(mapBallotDTO(ballot)));
 
 		return ballotDTOList;
 	}
 
+	/**
+	 * Maps a ballot returned from storage into BallotDTO.
+	 * 
+	 * @param ballot - ballot returned from storage
+	 * 
+	 * @return mapped BallotDTO object
+	 */
+	private BallotDTO mapBallotDTO(Ballot ballot) {
+
+		return new BallotDTO(ballot.getLotteryId(), ballot.getUserId(), ballot.getBallotId(),
+				DateUtils.formatDate(ballot.getCreatedDate(), Constants.LOTTERY_DATE_FORMAT));
+	}
+
 	/**
 	 * Stores the ballot associated to a lottery for a particular user.
 	 * 
@@ -129,18 +231,221 @@ public class BallotServiceImpl implements BallotService {
 	 */
 	public String createBallot(BallotDTO ballotDto) throws ResourceNotFoundException, LotteryStatusException {
 
+		Date createdDate = CoarseClock.currentDate();
+
 		// checks if given user is present in storage
 		checkIsUserPresent(ballotDto.getUserId());
 
-		// checks if lottery is still active
-		checkLotteryStatus(ballotDto.getLotteryId());
+		// checks if lottery is still active when the ballot is created
+		checkLotteryStatus(ballotDto.getLotteryId(), createdDate);
 
-		Ballot ballot = mapBallotEntity(ballotDto);
+		Ballot ballot = mapBallotEntity(ballotDto,
+				String.valueOf(sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE)), createdDate);
+		ballotOrdinalService.assignOrdinals(Collections.singletonList(ballot));
 		ballotRepository.save(ballot);
+		lotteryBallotCounter.increment(ballot.getLotteryId(), 1);
+		winnerSelectionStrategy.ballotsCreated(Collections.singletonList(ballot));
 
 		return String.valueOf(ballot.getBallotId());
 	}
 
+	/**
+	 * Stores the ballot associated to a lottery for a particular user and
+	 * completes the returned future once the ballot is committed.
+	 * 
+	 * If the write-behind buffer is enabled, the validated ballot is added to the
+	 * buffer and written to storage with the next batch, else it is stored
+	 * directly.
+	 * 
+	 * @param ballotDto - ballot dto object request containing userId and lotteryId
+	 * 
+	 * @return future completed with the created ballotId
+	 * 
+	 * @throws ResourceNotFoundException - exception thrown if the user or lottery
+	 *                                   is not present
+	 * @throws LotteryStatusException    - exception thrown if ballot is submitted
+	 *                                   for a closed lottery
+	 */
+	public CompletableFuture<String> createBallotAsync(BallotDTO ballotDto)
+			throws ResourceNotFoundException, LotteryStatusException {
+
+		if (ballotWriteBehindBuffer == null) {
+			return CompletableFuture.completedFuture(createBallot(ballotDto));
+		}
+
+		Date createdDate = CoarseClock.currentDate();
+
+		checkIsUserPresent(ballotDto.getUserId());
+		checkLotteryStatus(ballotDto.getLotteryId(), createdDate);
+
+		Ballot ballot = mapBallotEntity(ballotDto,
+				String.valueOf(sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE)), createdDate);
+		ballotOrdinalService.assignOrdinals(Collections.singletonList(ballot));
+
+		return ballotWriteBehindBuffer.submit(ballot).thenApply(ballotId -> {
+			lotteryBallotCounter.increment(ballot.getLotteryId(), 1);
+			winnerSelectionStrategy.ballotsCreated(Collections.singletonList(ballot));
+			return ballotId;
+		});
+	}
+
+	/**
+	 * Stores a batch of ballots in one request.
+	 * 
+	 * Ballots are either given as a list of userId and lotteryId pairs, or as a
+	 * single userId and lotteryId with the quantity of ballots to be created.
+	 * 
+	 * Users and lotteries are validated once per distinct id, ballotIds are
+	 * reserved from BALLOT_ID_SEQUENCE at once, ordinals are reserved once per
+	 * lottery and all ballots are written with a single unordered bulk insert.
+	 * 
+	 * As the insert is unordered, a ballot which fails to be written does not
+	 * stop the others. Only the ballots which were written are counted and
+	 * returned, in request order, so a requested ballot missing from the
+	 * response was not created and can be requested again. The batch only fails
+	 * if no ballot was written.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return created ballots
+	 * 
+	 * @throws InvalidRequestException   - exception thrown if the batch is empty,
+	 *                                   exceeds the maximum batch size or any
+	 *                                   ballot has no userId or lotteryId
+	 * @throws ResourceNotFoundException - exception thrown if any user or lottery
+	 *                                   is not present
+	 * @throws LotteryStatusException    - exception thrown if any ballot is
+	 *                                   submitted for a closed lottery
+	 */
+	public List<BallotDTO> createBallots(BallotBatchDTO ballotBatchDto)
+			throws InvalidRequestException, ResourceNotFoundException, LotteryStatusException {
+
+		List<BallotDTO> ballotDtoList = expandBallotBatch(ballotBatchDto);
+
+		Set<String> userIds = new LinkedHashSet<>();
+		Set<String> lotteryIds = new LinkedHashSet<>();
+
+		for (BallotDTO ballotDto : ballotDtoList) {
+			userIds.add(ballotDto.getUserId());
+			lotteryIds.add(ballotDto.getLotteryId());
+		}
+
+		Date createdDate = CoarseClock.currentDate();
+
+		for (String userId : userIds) {
+			checkIsUserPresent(userId);
+		}
+
+		for (String lotteryId : lotteryIds) {
+			checkLotteryStatus(lotteryId, createdDate);
+		}
+
+		long[] ballotIds = sequenceService.getNextSequenceNumbers(Constants.BALLOT_SEQUENCE, ballotDtoList.size());
+
+		List<Ballot> ballotList = new ArrayList<>(ballotDtoList.size());
+
+		for (int i = 0; i < ballotDtoList.size(); i++) {
+			ballotList.add(mapBallotEntity(ballotDtoList.get(i), String.valueOf(ballotIds[i]), createdDate));
+		}
+
+		ballotOrdinalService.assignOrdinals(ballotList);
+		ballotList = insertUnordered(ballotList);
+
+		Map<String, Long> ballotCounts = new LinkedHashMap<>();
+		ballotList.forEach(ballot -> ballotCounts.merge(ballot.getLotteryId(), 1L, Long::sum));
+		ballotCounts.forEach(lotteryBallotCounter::increment);
+		winnerSelectionStrategy.ballotsCreated(ballotList);
+
+		return mapBallotDTO(ballotList);
+	}
+
+	/**
+	 * Writes the ballots with a single unordered bulk insert.
+	 * 
+	 * @param ballotList - ballots to be written
+	 * 
+	 * @return ballots which were written, in the given order
+	 * 
+	 * @throws BulkOperationException - thrown if no ballot was written
+	 */
+	private List<Ballot> insertUnordered(List<Ballot> ballotList) {
+
+		try {
+
+			ballotRepository.insertUnordered(ballotList);
+			return ballotList;
+
+		} catch (BulkOperationException exception) {
+
+			Set<Integer> failedIndexes = new HashSet<>();
+			for (BulkWriteError error : exception.getErrors()) {
+				failedIndexes.add(error.getIndex());
+			}
+
+			if (failedIndexes.size() == ballotList.size()) {
+				throw exception;
+			}
+
+			log.error("Failed to write {} of {} ballots of a batch", failedIndexes.size(), ballotList.size(),
+					exception);
+
+			List<Ballot> insertedBallots = new ArrayList<>(ballotList.size() - failedIndexes.size());
+			for (int i = 0; i < ballotList.size(); i++) {
+				if (!failedIndexes.contains(i)) {
+					insertedBallots.add(ballotList.get(i));
+				}
+			}
+			return insertedBallots;
+		}
+	}
+
+	/**
+	 * Returns the ballots requested in a batch request.
+	 * 
+	 * If the request contains a list of ballots, the list is returned, else the
+	 * quantity of ballots for the given userId and lotteryId.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return list of requested ballots
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the batch is empty,
+	 *                                 exceeds the maximum batch size or any
+	 *                                 ballot has no userId or lotteryId
+	 */
+	private List<BallotDTO> expandBallotBatch(BallotBatchDTO ballotBatchDto) throws InvalidRequestException {
+
+		List<BallotDTO> ballotDtoList = null;
+
+		if (!CollectionUtils.isEmpty(ballotBatchDto.getBallots())) {
+
+			ballotDtoList = ballotBatchDto.getBallots();
+
+		} else if (ballotBatchDto.getQuantity() != null && ballotBatchDto.getQuantity() > 0) {
+
+			ballotDtoList = Collections.nCopies(ballotBatchDto.getQuantity(),
+					new BallotDTO(ballotBatchDto.getLotteryId(), ballotBatchDto.getUserId(), null, null));
+
+		} else {
+
+			throw new InvalidRequestException("Please provide ballots or a quantity of ballots to be created");
+		}
+
+		if (ballotDtoList.size() > maxBatchSize) {
+			throw new InvalidRequestException("A maximum of " + maxBatchSize + " ballots can be created at once");
+		}
+
+		for (BallotDTO ballotDto : ballotDtoList) {
+
+			if (ballotDto == null || StringUtils.isBlank(ballotDto.getUserId())
+					|| StringUtils.isBlank(ballotDto.getLotteryId())) {
+				throw new InvalidRequestException("Please provide a userId and lotteryId for every ballot");
+			}
+		}
+
+		return ballotDtoList;
+	}
+
 	/**
 	 * Checks if user is present in storage.
 	 * 
@@ -154,31 +459,37 @@ public class BallotServiceImpl implements BallotService {
 	 */
 	private void checkIsUserPresent(String userId) throws ResourceNotFoundException {
 
-		if (StringUtils.isBlank(userId) || userService.findUser(userId) == null) {
+		if (StringUtils.isBlank(userId) || !userService.isUserPresent(userId)) {
 
 			throw new ResourceNotFoundException("User Not found");
 		}
 	}
 
 	/**
-	 * Checks if lottery is present and is active. If not, then exception with the
-	 * appropriate error message is returned.
+	 * Checks if lottery is present and is active at the creation date of a
+	 * ballot. If not, then exception with the appropriate error message is
+	 * returned.
+	 * 
+	 * A lottery whose close date is not after the creation date is not active,
+	 * even if the node closing it has not written its status yet.
 	 * 
-	 * @param lotteryId - unique identifier of lottery
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param createdDate - creation date of the ballot
 	 * 
 	 * @throws ResourceNotFoundException - exception thrown if the lottery is not
 	 *                                   present
 	 * 
 	 * @throws LotteryStatusException    - exception thrown if lottery is not active
 	 */
-	private void checkLotteryStatus(String lotteryId) throws ResourceNotFoundException, LotteryStatusException {
+	private void checkLotteryStatus(String lotteryId, Date createdDate)
+			throws ResourceNotFoundException, LotteryStatusException {
 
-		Lottery lottery = lotteryService.getLottery(lotteryId);
+		String status = lotteryService.getLotteryStatus(lotteryId, createdDate);
 
-		if (lottery == null) {
+		if (status == null) {
 			throw new ResourceNotFoundException("Lottery Not found");
 
-		} else if (StringUtils.equalsIgnoreCase(lottery.getStatus(), Constants.CLOSED)) {
+		} else if (StringUtils.equalsIgnoreCase(status, Constants.CLOSED)) {
 
 			throw new LotteryStatusException("Lottery is Closed");
 		}
@@ -187,25 +498,50 @@ public class BallotServiceImpl implements BallotService {
 	/**
 	 * Maps the BallotDTO object into Ballot entity.
 	 * 
-	 * BallotId is generated from BALLOT_ID_SEQUENCE
-	 * 
-	 * @param ballotDto - input BallotDTO request
+	 * @param ballotDto   - input BallotDTO request
+	 * @param ballotId    - ballotId generated from BALLOT_ID_SEQUENCE
+	 * @param createdDate - creation date of the ballot
 	 * 
 	 * @return mapped Ballot entity
 	 */
-	private Ballot mapBallotEntity(BallotDTO ballotDto) {
+	private Ballot mapBallotEntity(BallotDTO ballotDto, String ballotId, Date createdDate) {
 
 		Ballot ballot = new Ballot();
 		ballot.setUserId(ballotDto.getUserId());
 		ballot.setLotteryId(ballotDto.getLotteryId());
-		ballot.setCreatedDate(DateUtils.toDate(LocalDateTime.now().toString(), Constants.LOTTERY_DATE_FORMAT));
-		ballot.setBallotId(String.valueOf(sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE)));
+		ballot.setCreatedDate(createdDate);
+		ballot.setBallotId(ballotId);
 
 		return ballot;
 	}
 
 	/**
-	 * Selects a random ballot as winner for a lottery.
+	 * Waits until the ballots buffered on this node are written, if the
+	 * write-behind buffer is enabled, so no ballot accepted before the close of a
+	 * lottery is missing from its draw.
+	 * 
+	 * @param timeoutMs - maximum time to wait
+	 * 
+	 * @return true if no ballots are buffered any more, false if the timeout
+	 *         passed first
+	 */
+	public boolean awaitBufferedBallots(long timeoutMs) {
+
+		if (ballotWriteBehindBuffer == null) {
+			return true;
+		}
+
+		try {
+			return ballotWriteBehindBuffer.awaitFlushed(timeoutMs);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Selects a random ballot as winner for a lottery with the configured winner
+	 * selection strategy.
 	 * 
 	 * If no ballots are associated with a lottery, default -1 is considered as
 	 * winner ballot.
@@ -218,17 +554,7 @@ public class BallotServiceImpl implements BallotService {
 	 */
 	public String getLotteryWinner(String lotteryId) {
 
-		// counts the number of ballots associated with lottery
-		Long ballotCount = ballotRepository.countByLotteryId(lotteryId);
-
-		// -1 is returned if no ballots are associated with lottery
-		if (ballotCount == 0) {
-			return "-1";
-		}
-
-		// finds a random ballot as winner
-		Ballot winnerBallot = ballotRepository.findRandomBallot(lotteryId);
-		return winnerBallot.getBallotId();
+		return winnerSelectionStrategy.selectWinner(lotteryId);
 	}
 
 }
@@ -0,0 +1,382 @@
+package com.bynder.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.stereotype.Service;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.BallotRepository;
+import com.mongodb.bulk.BulkWriteError;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to buffer validated ballots in memory and write them to
+ * storage in batches:
+ * 		* a batch is written once it reaches the maximum batch size or its
+ * 		  oldest ballot has waited for the maximum delay, whichever comes first.
+ * 		* callers are notified with the ballotId once the batch is committed.
+ * 		* buffered ballots are written before the application shuts down.
+ * 		* the lottery scheduler waits for the ballots buffered on this node
+ * 		  before drawing a winner.
+ *
+ * Ballots buffered on other nodes are written within max-delay-ms and the time
+ * of one bulk insert, so lottery.close.grace-ms has to be larger than
+ * max-delay-ms, else the application does not start.
+ *
+ * Enabled by setting ballot.ingestion.mode=write-behind.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "ballot.ingestion.mode", havingValue = "write-behind")
+@Slf4j
+public class BallotWriteBehindBuffer {
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${ballot.write-behind.capacity:65536}")
+	private int capacity;
+
+	@Value("${ballot.write-behind.max-batch-size:500}")
+	private int maxBatchSize;
+
+	@Value("${ballot.write-behind.max-delay-ms:50}")
+	private long maxDelayMs;
+
+	@Value("${ballot.write-behind.shutdown-timeout-ms:30000}")
+	private long shutdownTimeoutMs;
+
+	@Value("${lottery.close.grace-ms:0}")
+	private long closeGraceMs;
+
+	private BlockingQueue<PendingBallot> queue;
+
+	private Thread flusher;
+
+	private volatile boolean running;
+
+	// set once shutdown has taken the last buffered ballots, ballots added later are failed
+	private volatile boolean drained;
+
+	private DistributionSummary batchSizeSummary;
+
+	private Timer flushTimer;
+
+	private Timer commitLatencyTimer;
+
+	private Counter overflowCounter;
+
+	/**
+	 * Creates the buffer, registers its metrics and starts the background flusher
+	 *
+	 */
+	@PostConstruct
+	public void start() {
+
+		if (closeGraceMs <= maxDelayMs) {
+			throw new IllegalStateException(
+					"lottery.close.grace-ms must be larger than ballot.write-behind.max-delay-ms");
+		}
+
+		queue = new ArrayBlockingQueue<>(capacity);
+
+		Gauge.builder("ballot.write-behind.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+		batchSizeSummary = DistributionSummary.builder("ballot.write-behind.batch.size").register(meterRegistry);
+		flushTimer = Timer.builder("ballot.write-behind.flush").register(meterRegistry);
+		commitLatencyTimer = Timer.builder("ballot.write-behind.commit.latency").register(meterRegistry);
+		overflowCounter = Counter.builder("ballot.write-behind.overflow").register(meterRegistry);
+
+		running = true;
+		flusher = new Thread(this::flushLoop, "ballot-write-behind");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Adds a validated ballot to the buffer.
+	 *
+	 * If the buffer is full, the ballot is written directly by the calling thread,
+	 * which slows callers down to the rate storage can absorb.
+	 *
+	 * @param ballot - ballot to be stored
+	 *
+	 * @return future completed with the ballotId once the ballot is committed
+	 */
+	public CompletableFuture<String> submit(Ballot ballot) {
+
+		if (!running) {
+			CompletableFuture<String> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(new IllegalStateException("Ballot buffer is shut down"));
+			return rejected;
+		}
+
+		PendingBallot pendingBallot = new PendingBallot(ballot);
+
+		if (!queue.offer(pendingBallot)) {
+
+			overflowCounter.increment();
+			ballotRepository.save(ballot);
+			return CompletableFuture.completedFuture(ballot.getBallotId());
+		}
+
+		// the ballot was added after shutdown took the last buffered ballots, unless
+		// shutdown took it as well
+		if (drained && queue.remove(pendingBallot)) {
+			pendingBallot.result.completeExceptionally(new IllegalStateException("Ballot buffer is shut down"));
+		}
+
+		return pendingBallot.result;
+	}
+
+	/**
+	 * Waits until all ballots added to the buffer so far are written, used before
+	 * drawing the winner of a lottery.
+	 *
+	 * @param timeoutMs - maximum time to wait
+	 *
+	 * @return true if the ballots were written, or failed, within the timeout
+	 *
+	 * @throws InterruptedException - thrown if interrupted while waiting
+	 */
+	public boolean awaitFlushed(long timeoutMs) throws InterruptedException {
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+		// the queue is first in first out, so the barrier is reached once the ballots
+		// added before it are written
+		PendingBallot barrier = new PendingBallot(null);
+
+		if (!queue.offer(barrier, timeoutMs, TimeUnit.MILLISECONDS)) {
+			return false;
+		}
+
+		if (drained && queue.remove(barrier)) {
+			return true;
+		}
+
+		try {
+			barrier.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			return true;
+		} catch (ExecutionException | TimeoutException exception) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stops accepting ballots and waits until all buffered ballots are written
+	 *
+	 * @throws InterruptedException - thrown if interrupted while waiting for the
+	 *                              flusher
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+
+		running = false;
+
+		// wakes the flusher up, so buffered ballots are written without waiting for
+		// the delay; if the buffer is full the flusher is not waiting anyway
+		queue.offer(new PendingBallot(null));
+		flusher.join(shutdownTimeoutMs);
+
+		if (flusher.isAlive()) {
+			log.warn("Ballot write-behind flusher did not finish within {} ms", shutdownTimeoutMs);
+		}
+
+		// writes ballots which were added while the flusher was finishing
+		drained = true;
+		List<PendingBallot> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		for (int from = 0; from < remaining.size(); from += maxBatchSize) {
+			flush(remaining.subList(from, Math.min(from + maxBatchSize, remaining.size())));
+		}
+
+		log.info("Ballot write-behind buffer drained");
+	}
+
+	/**
+	 * Collects batches from the buffer and writes them until the buffer is shut
+	 * down and empty
+	 *
+	 */
+	private void flushLoop() {
+
+		List<PendingBallot> batch = new ArrayList<>(maxBatchSize);
+
+		while (running || !queue.isEmpty()) {
+
+			try {
+
+				PendingBallot first = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = first.enqueuedAt + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+
+				// a barrier is written right away with the ballots collected before it
+				while (first.ballot != null && batch.size() < maxBatchSize) {
+
+					queue.drainTo(batch, maxBatchSize - batch.size());
+
+					long remainingNanos = deadline - System.nanoTime();
+					if (containsBarrier(batch) || batch.size() >= maxBatchSize || remainingNanos <= 0) {
+						break;
+					}
+
+					PendingBallot next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					if (next.ballot == null) {
+						break;
+					}
+				}
+
+				flush(batch);
+
+			} catch (InterruptedException exception) {
+
+				Thread.currentThread().interrupt();
+				flush(batch);
+				return;
+
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private static boolean containsBarrier(List<PendingBallot> batch) {
+
+		return batch.stream().anyMatch(pendingBallot -> pendingBallot.ballot == null);
+	}
+
+	/**
+	 * Writes a batch of ballots with a single bulk insert and notifies the
+	 * callers.
+	 *
+	 * Ballots rejected by storage are failed individually, the remaining ones are
+	 * reported as committed. Barriers in the batch are completed once the ballots
+	 * are written.
+	 *
+	 * @param batch - ballots to be written
+	 */
+	private void flush(List<PendingBallot> batch) {
+
+		List<PendingBallot> barriers = new ArrayList<>();
+		batch.stream().filter(pendingBallot -> pendingBallot.ballot == null).forEach(barriers::add);
+
+		if (!barriers.isEmpty()) {
+			batch = new ArrayList<>(batch);
+			batch.removeAll(barriers);
+		}
+
+		try {
+			write(batch);
+		} finally {
+			barriers.forEach(barrier -> barrier.result.complete(null));
+		}
+	}
+
+	private void write(List<PendingBallot> batch) {
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		List<Ballot> ballots = new ArrayList<>(batch.size());
+		batch.forEach(pendingBallot -> ballots.add(pendingBallot.ballot));
+
+		Set<Integer> failedIndexes = new HashSet<>();
+		RuntimeException failure = null;
+
+		long start = System.nanoTime();
+
+		try {
+
+			ballotRepository.insertUnordered(ballots);
+
+		} catch (BulkOperationException exception) {
+
+			failure = exception;
+			for (BulkWriteError error : exception.getErrors()) {
+				failedIndexes.add(error.getIndex());
+			}
+
+		} catch (RuntimeException exception) {
+
+			failure = exception;
+			for (int i = 0; i < batch.size(); i++) {
+				failedIndexes.add(i);
+			}
+		}
+
+		long committedAt = System.nanoTime();
+		flushTimer.record(committedAt - start, TimeUnit.NANOSECONDS);
+		batchSizeSummary.record(batch.size());
+
+		if (failure != null) {
+			log.error("Failed to write {} of {} buffered ballots", failedIndexes.size(), batch.size(), failure);
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+
+			PendingBallot pendingBallot = batch.get(i);
+
+			if (failedIndexes.contains(i)) {
+				pendingBallot.result.completeExceptionally(failure);
+			} else {
+				commitLatencyTimer.record(committedAt - pendingBallot.enqueuedAt, TimeUnit.NANOSECONDS);
+				pendingBallot.result.complete(pendingBallot.ballot.getBallotId());
+			}
+		}
+	}
+
+	/**
+	 * Buffered ballot with the future of its caller, or a barrier without ballot
+	 * completed once the ballots added before it are written
+	 */
+	private static final class PendingBallot {
+
+		private final Ballot ballot;
+
+		private final long enqueuedAt = System.nanoTime();
+
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+
+		private PendingBallot(Ballot ballot) {
+			this.ballot = ballot;
+		}
+
+	}
+
+}
@@ -0,0 +1,430 @@
+package com.bynder.service.impl;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.bynder.cache.DailyResultCache;
+import com.bynder.constants.Constants;
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.model.Lottery;
+import com.bynder.model.LotteryResult;
+import com.bynder.repository.LotteryRepository;
+import com.bynder.repository.LotteryResultRepository;
+import com.bynder.service.DailyResultService;
+import com.bynder.utils.DateUtils;
+import com.bynder.utils.PaginationUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to handle the requests related to lottery results by date:
+ * 		* get the results of the lotteries closed on a date or between two dates,
+ * 		  one page at a time
+ * 		* write the results of closed lotteries into the RESULTS collection,
+ * 		  retrying results which could not be written
+ * 		* backfill the results of closed lotteries missing in RESULTS, once at
+ * 		  startup if enabled, and on a schedule if set
+ *
+ * A result is keyed by the date its lottery was closed on in the time zone of
+ * the lottery, and results are read through the (resultDate, lotteryId) index
+ * of RESULTS, so LOTTERY is not read to list results.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@Slf4j
+public class DailyResultServiceImpl implements DailyResultService {
+
+	@Autowired
+	private LotteryResultRepository lotteryResultRepository;
+
+	@Autowired
+	private LotteryRepository lotteryRepository;
+
+	@Autowired
+	private DailyResultCache dailyResultCache;
+
+	@Value("${pagination.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${pagination.max-limit:1000}")
+	private int maxPageLimit;
+
+	@Value("${lottery.results.backfill-on-startup:false}")
+	private boolean backfillOnStartup;
+
+	private static final String CURSOR_KIND = "result";
+
+	private static final String KEY_SEPARATOR = "/";
+
+	private static final int BACKFILL_BATCH_SIZE = 1000;
+
+	// lotteryIds of closed lotteries whose result is not written yet
+	private final Set<String> pendingLotteryIds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Returns a page of the results of the lotteries closed on the given date, or
+	 * between the given dates, inclusive.
+	 *
+	 * Results are ordered by result date and lotteryId and returned one page at a
+	 * time: the cursor returned with a page is passed as after to get the next
+	 * page.
+	 *
+	 * @param date  - result date, yyyy-MM-dd, if no range is given
+	 * @param from  - first result date of the range, yyyy-MM-dd
+	 * @param to    - last result date of the range, yyyy-MM-dd
+	 * @param limit - optional page size
+	 * @param after - optional cursor returned with the previous page
+	 *
+	 * @return page of results with the cursor of the next page, if any
+	 *
+	 * @throws InvalidRequestException   - exception thrown if the dates, page size
+	 *                                   or cursor are invalid
+	 * @throws ResourceNotFoundException - exception thrown if no lottery was closed
+	 *                                   on the requested dates
+	 */
+	public PageDTO<DailyResultDTO> getResults(String date, String from, String to, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException {
+
+		LocalDate fromDate;
+		LocalDate toDate;
+
+		if (StringUtils.isNotBlank(date)) {
+
+			if (StringUtils.isNotBlank(from) || StringUtils.isNotBlank(to)) {
+				throw new InvalidRequestException("date cannot be combined with from and to");
+			}
+			fromDate = toDate = parseDate(date, "date");
+
+		} else {
+
+			if (StringUtils.isBlank(from) || StringUtils.isBlank(to)) {
+				throw new InvalidRequestException("Either date or from and to must be given");
+			}
+			fromDate = parseDate(from, "from");
+			toDate = parseDate(to, "to");
+
+			if (fromDate.isAfter(toDate)) {
+				throw new InvalidRequestException("from must not be after to");
+			}
+		}
+
+		int pageLimit = PaginationUtils.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+		String afterKey = PaginationUtils.decodeCursor(CURSOR_KIND, after);
+		String[] afterResult = afterKey == null ? null : splitKey(afterKey);
+
+		PageDTO<DailyResultDTO> page = dailyResultCache.getPage(fromDate, toDate, afterKey, pageLimit,
+				() -> PaginationUtils.toPage(
+						lotteryResultRepository.findPage(fromDate.toString(), toDate.toString(),
+								afterResult == null ? null : afterResult[0],
+								afterResult == null ? null : afterResult[1], pageLimit),
+						pageLimit, CURSOR_KIND, DailyResultServiceImpl::key, this::mapResult));
+
+		// an empty page after a cursor only means the previous page was the last one
+		if (page.getItems().isEmpty() && afterKey == null) {
+			throw new ResourceNotFoundException("Results not found");
+		}
+
+		return page;
+
+	}
+
+	/**
+	 * Writes the results of the given closed lotteries into RESULTS with one bulk
+	 * write, keeping results already written.
+	 *
+	 * If the write fails, the lotteries are queued and their results are written
+	 * by retryResults.
+	 *
+	 * @param closedLotteries - lotteries in CLOSED status
+	 */
+	public void saveResults(List<Lottery> closedLotteries) {
+
+		if (!writeResults(closedLotteries)) {
+			closedLotteries.forEach(lottery -> pendingLotteryIds.add(lottery.getLotteryId()));
+		}
+	}
+
+	/**
+	 * Queues closed lotteries whose result could not be written, e.g. because
+	 * the lottery could not be read after it was closed, so their results are
+	 * written by retryResults.
+	 *
+	 * @param lotteryIds - unique identifiers of closed lotteries
+	 */
+	public void queueResults(Collection<String> lotteryIds) {
+
+		pendingLotteryIds.addAll(lotteryIds);
+	}
+
+	/**
+	 * Reads the queued closed lotteries and writes their results into RESULTS,
+	 * every lottery.results.retry-interval-ms.
+	 *
+	 * Lotteries which cannot be read and results which cannot be written stay
+	 * queued for the next run. The queue is held by this node: results queued
+	 * when the node stops are only written by a backfill.
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${lottery.results.retry-interval-ms:60000}")
+	public void retryResults() {
+
+		if (pendingLotteryIds.isEmpty()) {
+			return;
+		}
+
+		List<String> lotteryIds = new ArrayList<>(pendingLotteryIds);
+		pendingLotteryIds.removeAll(lotteryIds);
+
+		List<Lottery> closedLotteries = new ArrayList<>();
+
+		for (String lotteryId : lotteryIds) {
+
+			try {
+
+				Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+
+				if (lottery != null && StringUtils.equalsIgnoreCase(lottery.getStatus(), Constants.CLOSED)) {
+					closedLotteries.add(lottery);
+				} else {
+					log.warn("Lottery {} is not closed, its result is not written", lotteryId);
+				}
+
+			} catch (RuntimeException exception) {
+
+				log.error("Failed to read lottery {} to write its result", lotteryId, exception);
+				pendingLotteryIds.add(lotteryId);
+			}
+		}
+
+		if (closedLotteries.isEmpty()) {
+			return;
+		}
+
+		if (writeResults(closedLotteries)) {
+
+			// the results may belong to days whose pages are cached already
+			dailyResultCache.invalidateAll();
+			log.info("Wrote the queued results of {} lotteries", closedLotteries.size());
+
+		} else {
+
+			closedLotteries.forEach(lottery -> pendingLotteryIds.add(lottery.getLotteryId()));
+		}
+	}
+
+	/**
+	 * Backfills the results once the application is started, if enabled and not
+	 * completed before.
+	 *
+	 * The backfill is a one-time migration of the lotteries closed before RESULTS
+	 * was introduced: once it completed, a marker is written into MIGRATIONS and
+	 * later starts skip it, so LOTTERY is not scanned on every start. Nodes
+	 * started at the same time may both backfill, which writes every result once
+	 * all the same.
+	 *
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillOnStartup() {
+
+		if (!backfillOnStartup) {
+			return;
+		}
+
+		try {
+
+			if (lotteryResultRepository.isBackfilled()) {
+				log.info("Lottery results were backfilled before, skipping the startup backfill");
+				return;
+			}
+
+			if (backfillResults()) {
+				lotteryResultRepository.markBackfilled();
+			}
+
+		} catch (RuntimeException exception) {
+
+			log.error("Failed to check or mark the backfill of the lottery results", exception);
+		}
+	}
+
+	/**
+	 * Writes the results of all closed lotteries into RESULTS, keeping results
+	 * already written, in batches of BACKFILL_BATCH_SIZE lotteries.
+	 *
+	 * Adds the results of lotteries closed before RESULTS was introduced and of
+	 * lotteries whose result was still queued when their node stopped. Cached
+	 * pages are removed afterwards, as results may have been added to past days.
+	 *
+	 */
+	@Scheduled(cron = "${lottery.results.backfill-cron:-}")
+	public void backfill() {
+
+		backfillResults();
+	}
+
+	/**
+	 * Writes the results of the given closed lotteries with one bulk write,
+	 * logging a failed write
+	 *
+	 * @param closedLotteries - lotteries in CLOSED status
+	 *
+	 * @return true if the results were written
+	 */
+	private boolean writeResults(List<Lottery> closedLotteries) {
+
+		List<LotteryResult> results = new ArrayList<>();
+
+		for (Lottery lottery : closedLotteries) {
+
+			LotteryResult result = toResult(lottery);
+			if (result != null) {
+				results.add(result);
+			}
+		}
+
+		try {
+
+			lotteryResultRepository.insertResults(results);
+			return true;
+
+		} catch (RuntimeException exception) {
+
+			log.error("Failed to write the results of {} lotteries", results.size(), exception);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the results of all closed lotteries into RESULTS in batches
+	 *
+	 * @return true if the results of all closed lotteries were written
+	 */
+	private boolean backfillResults() {
+
+		long startTime = System.currentTimeMillis();
+		long lotteryCount = 0;
+		boolean completed = true;
+		List<Lottery> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+
+		try (CloseableIterator<Lottery> lotteries = lotteryRepository.streamLotteries(Constants.CLOSED)) {
+
+			while (lotteries.hasNext()) {
+
+				batch.add(lotteries.next());
+				lotteryCount++;
+
+				if (batch.size() == BACKFILL_BATCH_SIZE) {
+					completed &= writeResults(batch);
+					batch.clear();
+				}
+			}
+
+			completed &= writeResults(batch);
+
+		} catch (RuntimeException exception) {
+
+			log.error("Failed to backfill the lottery results after {} lotteries", lotteryCount, exception);
+			completed = false;
+		}
+
+		dailyResultCache.invalidateAll();
+
+		log.info("Backfilled the results of {} closed lotteries in {} ms", lotteryCount,
+				System.currentTimeMillis() - startTime);
+
+		return completed;
+	}
+
+	/**
+	 * Maps a closed lottery into its result, keyed by the date it was closed on
+	 * in its time zone
+	 *
+	 * @param lottery - closed lottery
+	 *
+	 * @return result, null if the lottery has no end date
+	 */
+	private static LotteryResult toResult(Lottery lottery) {
+
+		if (lottery.getEndDate() == null) {
+			log.warn("Closed lottery {} has no end date, its result is not written", lottery.getLotteryId());
+			return null;
+		}
+
+		LotteryResult result = new LotteryResult();
+		result.setLotteryId(lottery.getLotteryId());
+		result.setResultDate(
+				DateUtils.formatDate(lottery.getEndDate(), Constants.RESULT_DATE_FORMAT, lottery.getTimeZone()));
+		result.setName(lottery.getName());
+		result.setPrizeMoney(lottery.getPrizeMoney());
+		result.setWinnerBallot(lottery.getWinnerBallot());
+		result.setEndDate(lottery.getEndDate());
+		result.setTimeZone(lottery.getTimeZone());
+		return result;
+	}
+
+	/**
+	 * Maps a result returned from storage into DailyResultDTO, with the same
+	 * message as the lottery result if nobody won.
+	 *
+	 * @param result - result returned from storage
+	 *
+	 * @return mapped DailyResultDTO object
+	 */
+	private DailyResultDTO mapResult(LotteryResult result) {
+
+		boolean noWinner = StringUtils.equalsIgnoreCase(result.getWinnerBallot(), "-1");
+
+		return new DailyResultDTO(result.getLotteryId(), result.getName(), result.getResultDate(),
+				noWinner ? null : result.getWinnerBallot(), noWinner ? "Nobody won!" : null,
+				DateUtils.formatDate(result.getEndDate(), Constants.LOTTERY_DATE_FORMAT), result.getPrizeMoney());
+	}
+
+	private static LocalDate parseDate(String date, String parameterName) throws InvalidRequestException {
+
+		try {
+			return LocalDate.parse(date.trim());
+		} catch (DateTimeParseException exception) {
+			throw new InvalidRequestException(parameterName + " must be formatted as " + Constants.RESULT_DATE_FORMAT);
+		}
+	}
+
+	private static String key(LotteryResult result) {
+
+		return result.getResultDate() + KEY_SEPARATOR + result.getLotteryId();
+	}
+
+	/**
+	 * Splits the key of the last result of the previous page into its result date
+	 * and lotteryId
+	 */
+	private static String[] splitKey(String key) throws InvalidRequestException {
+
+		int separator = key.indexOf(KEY_SEPARATOR);
+
+		if (separator <= 0 || separator == key.length() - 1) {
+			throw new InvalidRequestException("Invalid cursor");
+		}
+
+		return new String[] { key.substring(0, separator), key.substring(separator + 1) };
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.bynder.service.impl;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.model.Ballot;
+import com.bynder.repository.memory.InMemoryStorage;
+import com.bynder.service.BallotOrdinalService;
+
+/**
+ * Service class to number the ballots of every lottery densely from 1, keeping
+ * the last ordinal of every lottery in the sequences of the in-memory storage
+ * under BALLOT_ORDINAL_SEQUENCE_ followed by the lotteryId. Ordinals are
+ * reserved from an atomic counter without contention, so they are not reserved
+ * in blocks. The sequence of a lottery is removed once it is closed.
+ *
+ * Used if storage.engine is set to memory.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "storage.engine", havingValue = "memory")
+public class InMemoryBallotOrdinalServiceImpl implements BallotOrdinalService {
+
+	@Autowired
+	private InMemoryStorage storage;
+
+	/**
+	 * Assigns the next ordinals of their lottery to the given ballots.
+	 *
+	 * Ordinals are reserved with a single increment per lottery, so the ballots of
+	 * a lottery get consecutive ordinals in the given order.
+	 *
+	 * @param ballots - ballots to be numbered
+	 */
+	public void assignOrdinals(List<Ballot> ballots) {
+
+		Map<String, Long> ballotCounts = new LinkedHashMap<>();
+		ballots.forEach(ballot -> ballotCounts.merge(ballot.getLotteryId(), 1L, Long::sum));
+
+		Map<String, Long> nextOrdinals = new LinkedHashMap<>();
+		ballotCounts.forEach((lotteryId, count) -> nextOrdinals.put(lotteryId,
+				storage.incrementSequence(Constants.BALLOT_ORDINAL_SEQUENCE + lotteryId, count) - count + 1));
+
+		for (Ballot ballot : ballots) {
+			ballot.setOrdinal(nextOrdinals.merge(ballot.getLotteryId(), 1L, Long::sum) - 1);
+		}
+	}
+
+	/**
+	 * Returns the last ordinal assigned to a ballot of the lottery
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return last ordinal, 0 if no ordinal is assigned
+	 */
+	public long getLastOrdinal(String lotteryId) {
+
+		return storage.getSequence(Constants.BALLOT_ORDINAL_SEQUENCE + lotteryId);
+	}
+
+	/**
+	 * Removes the ordinal sequence of a lottery once it is closed
+	 *
+	 * @param event - event of the closed lottery
+	 */
+	@EventListener
+	public void lotteryClosed(LotteryClosedEvent event) {
+
+		storage.removeSequence(Constants.BALLOT_ORDINAL_SEQUENCE + event.getLotteryId());
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.bynder.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.bynder.repository.memory.InMemoryStorage;
+import com.bynder.service.SequenceGeneratorService;
+
+/**
+ * Service class to handle sequence generation with the sequences of the
+ * in-memory storage
+ *
+ * Every number is a single atomic increment, so no blocks are reserved and
+ * sequence.block-size is ignored.
+ *
+ * Enabled by setting sequence.generator=memory, which requires
+ * storage.engine=memory.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "sequence.generator", havingValue = "memory")
+public class InMemorySequenceGeneratorServiceImpl implements SequenceGeneratorService {
+
+	@Autowired
+	private InMemoryStorage storage;
+
+	/**
+	 * Returns next sequence number for given sequence name, starting with 1.
+	 *
+	 * @param sequenceName - sequence name for which next sequence number is
+	 *                     requested
+	 *
+	 * @return next sequence number
+	 *
+	 */
+	public long getNextSequenceNumber(String sequenceName) {
+
+		return storage.incrementSequence(sequenceName, 1);
+	}
+
+	/**
+	 * Returns the given number of sequence numbers for given sequence name,
+	 * reserved as one contiguous range.
+	 *
+	 * @param sequenceName - sequence name for which sequence numbers are
+	 *                     requested
+	 * @param count        - number of sequence numbers requested
+	 *
+	 * @return reserved sequence numbers in ascending order
+	 *
+	 */
+	public long[] getNextSequenceNumbers(String sequenceName, int count) {
+
+		long[] sequenceNumbers = new long[count];
+
+		if (count > 0) {
+
+			long firstValue = storage.incrementSequence(sequenceName, count) - count + 1;
+			for (int i = 0; i < count; i++) {
+				sequenceNumbers[i] = firstValue + i;
+			}
+		}
+
+		return sequenceNumbers;
+	}
+
+}
@@ -1,39 +1,70 @@
 package com.bynder.service.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.cache.LotteryResultCache;
+import com.bynder.cache.LotteryStatusCache;
 import com.bynder.constants.Constants;
 import com.bynder.dto.LotteryDTO;
 import com.bynder.dto.LotteryResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.event.LotteryCreatedEvent;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.exception.LotteryStatusException;
 import com.bynder.exception.ResourceNotFoundException;
 import com.bynder.model.Lottery;
 import com.bynder.repository.LotteryRepository;
+import com.bynder.service.DailyResultService;
+import com.bynder.service.LotteryCloseResult;
 import com.bynder.service.LotteryService;
 import com.bynder.service.SequenceGeneratorService;
 import com.bynder.utils.DateUtils;
+import com.bynder.utils.NdjsonUtils;
+import com.bynder.utils.PaginationUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service class to handle the requests related to Lottery operations:
  * 		* get all the lottery present in storage
  * 		* get lottery associated with a lotteryId
- * 		* get the lottery list based on status(open/closed)
+ * 		* get status of a lottery from the status cache
+ * 		* get the lottery list based on status(open/closed), one page at a time
+ * 		* stream the lottery list based on status as JSON lines
  * 		* save a new lottery into the storage
  * 		* get result for a particular lottery if its active
+ * 		* get the serialized result of a closed lottery from the result cache
  * 		* get active lotteries
  * 		* close a lottery
+ * 		* close several lotteries at once
  * 
  * @author arathy
  *
  */
 @Service
+@Slf4j
 public class LotteryServiceImpl implements LotteryService {
 
 	@Autowired
@@ -42,59 +73,102 @@ public class LotteryServiceImpl implements LotteryService {
 	@Autowired
 	private SequenceGeneratorService sequenceService;
 
+	@Autowired
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Autowired
+	private LotteryResultCache lotteryResultCache;
+
+	@Autowired
+	private DailyResultService dailyResultService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${pagination.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${pagination.max-limit:1000}")
+	private int maxPageLimit;
+
+	private static final String CURSOR_KIND = "lottery";
+
 	/**
-	 * Returns the list of lotteries present in the storage.
+	 * Returns a page of lotteries present in the storage.
 	 * 
 	 * Takes an optional parameter status(value can be OPEN/CLOSED) based on which
 	 * list of open/closed lottery list is returned
 	 * 
 	 * If status is not present in request, returns all the lotteries in the storage
 	 * 
+	 * Lotteries are ordered by lotteryId and returned one page at a time: the
+	 * cursor returned with a page is passed as after to get the next page.
+	 * 
 	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * @param limit  - optional page size
+	 * @param after  - optional cursor returned with the previous page
 	 * 
-	 * @return list of lotteries in the storage based on input request
+	 * @return page of lotteries with the cursor of the next page, if any
 	 * 
+	 * @throws InvalidRequestException   - exception thrown if the page size or
+	 *                                   cursor is invalid
 	 * @throws ResourceNotFoundException - exception thrown if no lotteries based on
 	 *                                   the request is present in storage
 	 */
-	public List<LotteryDTO> getLotteries(String status) throws ResourceNotFoundException {
+	public PageDTO<LotteryDTO> getLotteries(String status, Integer limit, String after)
+			throws InvalidRequestException, ResourceNotFoundException {
 
-		List<Lottery> lotteryList = null;
+		int pageLimit = PaginationUtils.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+		String afterLotteryId = PaginationUtils.decodeCursor(CURSOR_KIND, after);
 
-		if (StringUtils.isNotBlank(status)) {
-			lotteryList = lotteryRepository.findByStatus(status);
-		} else {
-			lotteryList = lotteryRepository.findAll();
-		}
+		List<Lottery> lotteryList = lotteryRepository.findPage(status, afterLotteryId, pageLimit);
 
-		if (CollectionUtils.isEmpty(lotteryList)) {
+		// an empty page after a cursor only means the previous page was the last one
+		if (CollectionUtils.isEmpty(lotteryList) && afterLotteryId == null) {
 			throw new ResourceNotFoundException("Lotteries not found");
 		}
 
-		return mapLotteries(lotteryList);
+		return PaginationUtils.toPage(lotteryList, pageLimit, CURSOR_KIND, Lottery::getLotteryId, this::mapLottery);
 
 	}
 
 	/**
-	 * Maps the list of lotteries returned from storage into List of LotteryDTO
-	 * which in turn is passed as response to requester.
+	 * Writes all lotteries matching the optional status as JSON lines, ordered by
+	 * lotteryId.
+	 * 
+	 * Lotteries are read from a Mongo cursor and written one at a time, so memory
+	 * use does not depend on the number of lotteries.
 	 * 
-	 * @param lotteryList - list of lotteries returned from storage
+	 * @param status       - optional input parameter(value can be OPEN/CLOSED)
+	 * @param outputStream - stream to write to
 	 * 
-	 * @return mapped list of LotteryDTO objects
+	 * @throws IOException - thrown if writing fails
 	 */
-	private List<LotteryDTO> mapLotteries(List<Lottery> lotteryList) {
+	public void streamLotteries(String status, OutputStream outputStream) throws IOException {
 
-		List<LotteryDTO> lotteryDTOList = new ArrayList<>();
+		try (CloseableIterator<Lottery> lotteries = lotteryRepository.streamLotteries(status)) {
+			NdjsonUtils.writeLines(objectMapper, lotteries, this::mapLottery, outputStream);
+		}
 
-		lotteryList.stream()
-				.forEach(lottery -> lotteryDTOList.add(new LotteryDTO(lottery.getLotteryId(), lottery.getName(),
-						lottery.getPrizeMoney(), lottery.getStatus(), lottery.getWinnerBallot(),
-						DateUtils.formatDate(lottery.getStartDate(), Constants.LOTTERY_DATE_FORMAT),
-						DateUtils.formatDate(lottery.getEndDate(), Constants.LOTTERY_DATE_FORMAT))));
+	}
 
-		return lotteryDTOList;
+	/**
+	 * Maps a lottery returned from storage into LotteryDTO.
+	 * 
+	 * @param lottery - lottery returned from storage
+	 * 
+	 * @return mapped LotteryDTO object
+	 */
+	private LotteryDTO mapLottery(Lottery lottery) {
 
+		return new LotteryDTO(lottery.getLotteryId(), lottery.getName(), lottery.getPrizeMoney(), lottery.getStatus(),
+				lottery.getWinnerBallot(), DateUtils.formatDate(lottery.getStartDate(), Constants.LOTTERY_DATE_FORMAT),
+				DateUtils.formatDate(lottery.getEndDate(), Constants.LOTTERY_DATE_FORMAT),
+				DateUtils.formatDate(lottery.getCloseDate(), Constants.LOTTERY_DATE_FORMAT, lottery.getTimeZone()),
+				lottery.getTimeZone(), lottery.getBallotCount());
 	}
 
 	/**
@@ -111,6 +185,53 @@ public class LotteryServiceImpl implements LotteryService {
 
 	}
 
+	/**
+	 * Returns the status of the lottery associated with a lotteryId.
+	 * 
+	 * Status is served from the lottery status cache and only read from storage if
+	 * not cached.
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * 
+	 * @return lottery status, null if no lottery is present for the requested id
+	 * 
+	 */
+	public String getLotteryStatus(String lotteryId) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return null;
+		}
+
+		return lotteryStatusCache.getStatus(lotteryId, lotteryRepository::findByLotteryId);
+
+	}
+
+	/**
+	 * Returns the status of the lottery associated with a lotteryId at the given
+	 * date, used to validate ballots.
+	 * 
+	 * An open lottery whose close date is not after the given date is reported as
+	 * CLOSED, so no node accepts a ballot created after the close date, whether or
+	 * not the closing node has written the status yet.
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * @param date      - date the status is checked at, e.g. the creation date of
+	 *                  a ballot
+	 * 
+	 * @return lottery status at the given date, null if no lottery is present for
+	 *         the requested id
+	 * 
+	 */
+	public String getLotteryStatus(String lotteryId, Date date) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return null;
+		}
+
+		return lotteryStatusCache.getStatus(lotteryId, date.getTime(), lotteryRepository::findByLotteryId);
+
+	}
+
 	/**
 	 * Returns the lottery result for a particular lotteryId
 	 * 
@@ -135,7 +256,63 @@ public class LotteryServiceImpl implements LotteryService {
 	public LotteryResultDTO getLotteryResult(String lotteryId)
 			throws ResourceNotFoundException, LotteryStatusException {
 
+		return mapLotteryResult(lotteryRepository.findByLotteryId(lotteryId));
+
+	}
+
+	/**
+	 * Returns the lottery result for a particular lotteryId serialized as JSON,
+	 * with its entity tag
+	 * 
+	 * Results of closed lotteries never change, so they are served from the
+	 * lottery result cache and only read from storage and serialized if not
+	 * cached.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return serialized lottery result
+	 *
+	 * @throws ResourceNotFoundException- exception thrown if no lottery is present
+	 *                                    in storage for the request
+	 * 
+	 * @throws LotteryStatusException     - exception thrown if lottery is not yet
+	 *                                    closed and winner is not selected
+	 */
+	public EncodedLotteryResult getEncodedLotteryResult(String lotteryId)
+			throws ResourceNotFoundException, LotteryStatusException {
+
+		EncodedLotteryResult cachedResult = lotteryResultCache.getResult(lotteryId);
+
+		if (cachedResult != null) {
+			return cachedResult;
+		}
+
 		Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+		LotteryResultDTO result = mapLotteryResult(lottery);
+
+		if (StringUtils.equalsIgnoreCase(lottery.getStatus(), Constants.CLOSED)) {
+			return lotteryResultCache.putResult(lotteryId, result);
+		}
+
+		return lotteryResultCache.encode(result);
+
+	}
+
+	/**
+	 * Maps a lottery into its result, if the lottery is present and closed
+	 * 
+	 * @param lottery - lottery returned from storage
+	 * 
+	 * @return mapped LotteryResultDTO object
+	 * 
+	 * @throws ResourceNotFoundException - exception thrown if the lottery is not
+	 *                                   present
+	 * 
+	 * @throws LotteryStatusException    - exception thrown if lottery is not closed
+	 */
+	private LotteryResultDTO mapLotteryResult(Lottery lottery)
+			throws ResourceNotFoundException, LotteryStatusException {
 
 		// checks if lottery is present and is closed
 		checkLotteryStatus(lottery);
@@ -178,21 +355,35 @@ public class LotteryServiceImpl implements LotteryService {
 	 * 
 	 * lotteryId is generated from LOTTERY_ID_SEQUENCE
 	 * 
-	 * @param lotteryDto - input request containing the lotteryId, name, prizeMoney
-	 *                   and startDate
+	 * The lottery closes at its closeTime in its timeZone, or at the next
+	 * midnight of its timeZone if no closeTime is given. The system time zone is
+	 * used if no timeZone is given.
+	 * 
+	 * @param lotteryDto - input request containing the lotteryId, name,
+	 *                   prizeMoney, startDate, closeTime and timeZone
 	 * 
 	 * @return created lotteryId
 	 * 
+	 * @throws InvalidRequestException - exception thrown if the time zone is
+	 *                                 unknown or the close time is invalid
+	 * 
 	 */
-	public String createLottery(LotteryDTO lotteryDto) {
+	public String createLottery(LotteryDTO lotteryDto) throws InvalidRequestException {
+
+		ZoneId zone = DateUtils.toZoneId(lotteryDto.getTimeZone());
+		Date closeDate = DateUtils.toCloseDate(lotteryDto.getCloseTime(), Constants.LOTTERY_DATE_FORMAT, zone);
 
 		Lottery lottery = new Lottery(String.valueOf(sequenceService.getNextSequenceNumber(Constants.LOTTERY_SEQUENCE)),
 				lotteryDto.getName(), lotteryDto.getPrizeMoney(),
 				DateUtils.toDate(lotteryDto.getStartDate(), Constants.LOTTERY_DATE_FORMAT));
 
 		lottery.setStatus(Constants.OPEN);
+		lottery.setCloseDate(closeDate);
+		lottery.setTimeZone(zone.getId());
 		lotteryRepository.save(lottery);
 
+		eventPublisher.publishEvent(new LotteryCreatedEvent(lottery));
+
 		return lottery.getLotteryId();
 	}
 
@@ -210,6 +401,11 @@ public class LotteryServiceImpl implements LotteryService {
 	 * Closes the lottery and updates the status as CLOSED and end date as current
 	 * time
 	 * 
+	 * Updated status is applied to the lottery status cache right away, so no
+	 * further ballot is accepted for the lottery on this node. The result of a
+	 * closed lottery is written into RESULTS, and the lottery is announced with a
+	 * LotteryClosedEvent.
+	 * 
 	 * @param lotteryId    - unique identifier associated with lottery
 	 * @param endDate      - lottery end date
 	 * @param winnerBallot - ballotId of winner
@@ -219,7 +415,125 @@ public class LotteryServiceImpl implements LotteryService {
 	public void closeLottery(String lotteryId, Date endDate, String winnerBallot, String status) {
 
 		lotteryRepository.updateLottery(lotteryId, endDate, winnerBallot, status);
+		lotteryStatusCache.updateStatus(lotteryId, status);
+
+		if (StringUtils.equalsIgnoreCase(status, Constants.CLOSED)) {
+
+			Lottery lottery = cacheLotteryResult(lotteryId);
+			if (lottery != null) {
+				dailyResultService.saveResults(Collections.singletonList(lottery));
+			} else {
+				dailyResultService.queueResults(Collections.singletonList(lotteryId));
+			}
 
+			eventPublisher.publishEvent(new LotteryClosedEvent(lotteryId));
+		}
+
+	}
+
+	/**
+	 * Closes the given lotteries with their winner ballot, updating status as
+	 * CLOSED and end date with one bulk write.
+	 * 
+	 * Updated statuses are applied to the lottery status cache right away for the
+	 * lotteries which were closed, and their results are added to the lottery
+	 * result cache before clients start polling them and written into RESULTS
+	 * with one bulk write. Each closed lottery is then announced with a
+	 * LotteryClosedEvent. Lotteries which could not be closed are returned, so
+	 * they stay open and are closed by the next run.
+	 * 
+	 * Lotteries which were not open any more, e.g. closed by another node in the
+	 * meantime, keep their winner. They are returned separately and only their
+	 * cached status is updated, as their result and event come from the close
+	 * which won.
+	 * 
+	 * @param winnerBallots - ballotId of the winner, keyed by lotteryId
+	 * @param endDate       - lottery end date
+	 * 
+	 * @return lotteryIds of the lotteries which could not be closed and of the
+	 *         lotteries which were closed already
+	 */
+	public LotteryCloseResult closeLotteries(Map<String, String> winnerBallots, Date endDate) {
+
+		Set<String> failedLotteryIds = new LinkedHashSet<>();
+		Set<String> alreadyClosedLotteryIds = Collections.emptySet();
+
+		try {
+
+			alreadyClosedLotteryIds = lotteryRepository.closeLotteries(winnerBallots, endDate);
+
+		} catch (BulkOperationException exception) {
+
+			List<String> lotteryIds = new ArrayList<>(winnerBallots.keySet());
+			for (BulkWriteError error : exception.getErrors()) {
+				failedLotteryIds.add(lotteryIds.get(error.getIndex()));
+			}
+			log.error("Failed to close {} lotteries", failedLotteryIds.size(), exception);
+
+		} catch (RuntimeException exception) {
+
+			failedLotteryIds.addAll(winnerBallots.keySet());
+			log.error("Failed to close {} lotteries", failedLotteryIds.size(), exception);
+		}
+
+		winnerBallots.keySet().stream().filter(lotteryId -> !failedLotteryIds.contains(lotteryId))
+				.forEach(lotteryId -> lotteryStatusCache.updateStatus(lotteryId, Constants.CLOSED));
+
+		Set<String> notClosedLotteryIds = new LinkedHashSet<>(failedLotteryIds);
+		notClosedLotteryIds.addAll(alreadyClosedLotteryIds);
+
+		List<Lottery> closedLotteries = new ArrayList<>();
+		List<String> unreadLotteryIds = new ArrayList<>();
+
+		for (String lotteryId : winnerBallots.keySet()) {
+
+			if (notClosedLotteryIds.contains(lotteryId)) {
+				continue;
+			}
+
+			Lottery lottery = cacheLotteryResult(lotteryId);
+			if (lottery != null) {
+				closedLotteries.add(lottery);
+			} else {
+				unreadLotteryIds.add(lotteryId);
+			}
+		}
+
+		dailyResultService.saveResults(closedLotteries);
+		if (!unreadLotteryIds.isEmpty()) {
+			dailyResultService.queueResults(unreadLotteryIds);
+		}
+
+		winnerBallots.keySet().stream().filter(lotteryId -> !notClosedLotteryIds.contains(lotteryId))
+				.forEach(lotteryId -> eventPublisher.publishEvent(new LotteryClosedEvent(lotteryId)));
+
+		return new LotteryCloseResult(failedLotteryIds, alreadyClosedLotteryIds);
+	}
+
+	/**
+	 * Reads a closed lottery and adds its result to the lottery result cache.
+	 * 
+	 * A result which cannot be read is logged and cached by its first request
+	 * instead, the caller queues it to be written into RESULTS by the retry of
+	 * DailyResultService.
+	 * 
+	 * @param lotteryId - unique identifier of the closed lottery
+	 * 
+	 * @return closed lottery, null if it could not be read
+	 */
+	private Lottery cacheLotteryResult(String lotteryId) {
+
+		try {
+
+			Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+			lotteryResultCache.putResult(lotteryId, mapLotteryResult(lottery));
+			return lottery;
+
+		} catch (ResourceNotFoundException | LotteryStatusException | RuntimeException exception) {
+
+			log.warn("Failed to cache the result of lottery {}", lotteryId, exception);
+			return null;
+		}
 	}
 
 }
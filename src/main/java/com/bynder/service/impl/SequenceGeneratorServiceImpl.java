@@ -1,6 +1,12 @@
 package com.bynder.service.impl;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
@@ -8,42 +14,206 @@ import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.bynder.config.SequenceProperties;
 import com.bynder.constants.Constants;
 import com.bynder.model.Sequences;
 import com.bynder.service.SequenceGeneratorService;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Service class to handle sequence generation
- * 
+ *
+ * Sequences configured with a block size greater than 1 reserve a range of
+ * values with a single increment in storage and hand them out locally, so
+ * concurrent requests do not contend on the same sequence document.
+ *
+ * Used unless sequence.generator is set to another implementation.
+ *
  * @author arathy
  *
  */
 @Service
+@ConditionalOnProperty(name = "sequence.generator", havingValue = "mongo", matchIfMissing = true)
+@Slf4j
 public class SequenceGeneratorServiceImpl implements SequenceGeneratorService {
 
 	@Autowired
 	private MongoOperations mongoOperations;
 
+	@Autowired
+	private SequenceProperties sequenceProperties;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, AtomicReference<SequenceBlock>> sequenceBlocks = new ConcurrentHashMap<>();
+
 	/**
 	 * Returns next sequence number for given sequence name.
-	 * 
+	 *
 	 * Increments sequence number if sequence name is present in storage, else
 	 * creates a new sequence with starting value as 1.
-	 * 
+	 *
+	 * If a block size is configured for the sequence, the number is served from
+	 * the locally reserved block and storage is only called once the block is
+	 * exhausted.
+	 *
 	 * @param sequenceName - sequence name for which next sequence number is
 	 *                     requested
-	 * 
+	 *
 	 * @return next sequence number
-	 * 
+	 *
 	 */
 	public long getNextSequenceNumber(String sequenceName) {
 
+		long blockSize = sequenceProperties.blockSizeFor(sequenceName);
+
+		if (blockSize <= 1) {
+			return incrementSequence(sequenceName, 1);
+		}
+
+		AtomicReference<SequenceBlock> blockReference = sequenceBlocks.computeIfAbsent(sequenceName,
+				this::registerSequenceBlock);
+
+		while (true) {
+
+			SequenceBlock block = blockReference.get();
+			long sequenceNumber = block.next();
+
+			if (sequenceNumber != SequenceBlock.EXHAUSTED) {
+				return sequenceNumber;
+			}
+
+			refillSequenceBlock(sequenceName, blockSize, blockReference, block);
+		}
+
+	}
+
+	/**
+	 * Returns the given number of sequence numbers for given sequence name.
+	 *
+	 * The numbers are reserved as one contiguous range with a single increment in
+	 * storage, independent of the configured block size.
+	 *
+	 * @param sequenceName - sequence name for which sequence numbers are
+	 *                     requested
+	 * @param count        - number of sequence numbers requested
+	 *
+	 * @return reserved sequence numbers in ascending order
+	 *
+	 */
+	public long[] getNextSequenceNumbers(String sequenceName, int count) {
+
+		long[] sequenceNumbers = new long[count];
+
+		if (count > 0) {
+
+			long firstValue = incrementSequence(sequenceName, count) - count + 1;
+			for (int i = 0; i < count; i++) {
+				sequenceNumbers[i] = firstValue + i;
+			}
+		}
+
+		return sequenceNumbers;
+	}
+
+	/**
+	 * Increments the sequence in storage by the given value and returns the
+	 * incremented value.
+	 *
+	 * @param sequenceName - sequence name to be incremented
+	 * @param incrementBy  - value by which sequence is incremented
+	 *
+	 * @return sequence value after increment
+	 */
+	private long incrementSequence(String sequenceName, long incrementBy) {
+
 		Sequences sequence = mongoOperations.findAndModify(
 				new Query(Criteria.where(Constants.SEQ_NAME).is(sequenceName)),
-				new Update().inc(Constants.SEQ_VALUE, 1), new FindAndModifyOptions().returnNew(true).upsert(true),
-				Sequences.class);
+				new Update().inc(Constants.SEQ_VALUE, incrementBy),
+				new FindAndModifyOptions().returnNew(true).upsert(true), Sequences.class);
+
+		return sequence == null ? incrementBy : sequence.getSeqValue();
+	}
+
+	/**
+	 * Reserves a new block of sequence numbers from storage, unless another thread
+	 * has already replaced the exhausted block.
+	 *
+	 * @param sequenceName   - sequence name for which block is reserved
+	 * @param blockSize      - number of sequence values to be reserved
+	 * @param blockReference - holder of the current block of the sequence
+	 * @param exhaustedBlock - block which was found exhausted by the caller
+	 */
+	private void refillSequenceBlock(String sequenceName, long blockSize,
+			AtomicReference<SequenceBlock> blockReference, SequenceBlock exhaustedBlock) {
+
+		synchronized (blockReference) {
+
+			if (blockReference.get() != exhaustedBlock) {
+				return;
+			}
+
+			Timer.Sample sample = Timer.start(meterRegistry);
+
+			long lastValue = incrementSequence(sequenceName, blockSize);
+			blockReference.set(new SequenceBlock(lastValue - blockSize + 1, lastValue));
+
+			sample.stop(meterRegistry.timer("sequence.block.refill", "sequence", sequenceName));
+
+			log.debug("Reserved block [{}, {}] for sequence {}", lastValue - blockSize + 1, lastValue, sequenceName);
+		}
+	}
+
+	/**
+	 * Creates an empty block holder for the sequence and registers a gauge for the
+	 * number of values left in its current block
+	 *
+	 * @param sequenceName - sequence name
+	 *
+	 * @return block holder for the sequence
+	 */
+	private AtomicReference<SequenceBlock> registerSequenceBlock(String sequenceName) {
+
+		AtomicReference<SequenceBlock> blockReference = new AtomicReference<>(new SequenceBlock(1, 0));
+
+		Gauge.builder("sequence.block.remaining", blockReference, reference -> reference.get().remaining())
+				.tag("sequence", sequenceName).register(meterRegistry);
+
+		return blockReference;
+	}
+
+	/**
+	 * Range of sequence values reserved in storage and handed out locally
+	 */
+	private static final class SequenceBlock {
+
+		private static final long EXHAUSTED = -1;
+
+		private final AtomicLong nextValue;
+
+		private final long lastValue;
+
+		private SequenceBlock(long firstValue, long lastValue) {
+
+			this.nextValue = new AtomicLong(firstValue);
+			this.lastValue = lastValue;
+		}
+
+		private long next() {
+
+			long value = nextValue.getAndIncrement();
+			return value <= lastValue ? value : EXHAUSTED;
+		}
+
+		private long remaining() {
 
-		return sequence == null?1:sequence.getSeqValue();
+			return Math.max(0, lastValue - nextValue.get() + 1);
+		}
 
 	}
 
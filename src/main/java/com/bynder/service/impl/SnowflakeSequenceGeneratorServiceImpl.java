@@ -0,0 +1,127 @@
+package com.bynder.service.impl;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.bynder.service.SequenceGeneratorService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service class to handle sequence generation without a storage round trip
+ *
+ * Generates 64 bit ids composed of 41 bits of milliseconds since 2023-01-01,
+ * 10 bits of node id and a 12 bit per-node counter. Ids are unique across
+ * nodes as long as every node is configured with a distinct
+ * sequence.snowflake.node-id, and are roughly ordered by creation time.
+ *
+ * The generator never moves backwards in time: if the system clock regresses,
+ * ids keep being generated from the last used timestamp, borrowing the next
+ * millisecond whenever its counter is exhausted, until the clock catches up.
+ *
+ * Enabled by setting sequence.generator=snowflake. Sequence names are not
+ * needed to keep ids unique and are ignored.
+ *
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "sequence.generator", havingValue = "snowflake")
+@Slf4j
+public class SnowflakeSequenceGeneratorServiceImpl implements SequenceGeneratorService {
+
+	public static final long CUSTOM_EPOCH = 1672531200000L;
+
+	private static final int NODE_ID_BITS = 10;
+
+	private static final int COUNTER_BITS = 12;
+
+	public static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+
+	private static final long MAX_COUNTER = (1L << COUNTER_BITS) - 1;
+
+	@Value("${sequence.snowflake.node-id:-1}")
+	private long nodeId;
+
+	private Clock clock = Clock.systemUTC();
+
+	// last used timestamp and counter packed as (timestamp << COUNTER_BITS) | counter
+	private final AtomicLong lastState = new AtomicLong();
+
+	private final AtomicBoolean clockRegressionLogged = new AtomicBoolean();
+
+	/**
+	 * Validates the configured node id
+	 *
+	 */
+	@PostConstruct
+	public void validateNodeId() {
+
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalStateException(
+					"sequence.snowflake.node-id must be configured between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+		}
+	}
+
+	/**
+	 * Returns next id composed of current timestamp, node id and per-node counter
+	 *
+	 * @param sequenceName - sequence name for which next sequence number is
+	 *                     requested, not used
+	 *
+	 * @return next id
+	 *
+	 */
+	public long getNextSequenceNumber(String sequenceName) {
+
+		long currentState;
+		long nextState;
+		long now;
+
+		do {
+			currentState = lastState.get();
+			long lastTimestamp = currentState >>> COUNTER_BITS;
+			now = clock.millis() - CUSTOM_EPOCH;
+
+			if (now > lastTimestamp) {
+				nextState = now << COUNTER_BITS;
+			} else if ((currentState & MAX_COUNTER) < MAX_COUNTER) {
+				nextState = currentState + 1;
+			} else {
+				// counter exhausted for this millisecond, borrows the next one
+				nextState = (lastTimestamp + 1) << COUNTER_BITS;
+			}
+
+		} while (!lastState.compareAndSet(currentState, nextState));
+
+		long timestamp = nextState >>> COUNTER_BITS;
+		logClockRegression(now, timestamp);
+
+		return (timestamp << (NODE_ID_BITS + COUNTER_BITS)) | (nodeId << COUNTER_BITS) | (nextState & MAX_COUNTER);
+	}
+
+	/**
+	 * Logs once per regression if the system clock is behind the timestamp used
+	 * for the generated id
+	 *
+	 * @param now       - current clock value since custom epoch
+	 * @param timestamp - timestamp used for the generated id
+	 */
+	private void logClockRegression(long now, long timestamp) {
+
+		if (now >= timestamp) {
+			clockRegressionLogged.set(false);
+		} else if (timestamp - now > 1 && clockRegressionLogged.compareAndSet(false, true)) {
+			log.warn("System clock is {} ms behind the last generated id, continuing from the last timestamp",
+					timestamp - now);
+		}
+	}
+
+}
@@ -3,6 +3,7 @@ package com.bynder.service.impl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.bynder.cache.UserExistenceFilter;
 import com.bynder.constants.Constants;
 import com.bynder.dto.UserDTO;
 import com.bynder.exception.EntityExistsException;
@@ -15,6 +16,7 @@ import com.bynder.service.UserService;
  * Service class to handle the requests related to User operations:
  * 		* register a new user
  * 		* finds a user related to a userId
+ * 		* checks if a user is registered
  * 
  * @author arathy
  *
@@ -28,6 +30,9 @@ public class UserServiceImpl implements UserService {
 	@Autowired
 	SequenceGeneratorService sequenceService;
 
+	@Autowired(required = false)
+	UserExistenceFilter userExistenceFilter;
+
 	/**
 	 * Registers a new user
 	 * 
@@ -50,6 +55,11 @@ public class UserServiceImpl implements UserService {
 
 		User user = mapUserEntity(userDto);
 		userRepository.save(user);
+
+		if (userExistenceFilter != null) {
+			userExistenceFilter.add(user.getUserId());
+		}
+
 		return String.valueOf(user.getUserId());
 
 	}
@@ -88,4 +98,51 @@ public class UserServiceImpl implements UserService {
 		return userRepository.findByUserId(userId);
 	}
 
+	/**
+	 * Checks if a user is registered.
+	 * 
+	 * If the user existence filter is enabled, users not present in the filter are
+	 * rejected without reading storage on a single node, and confirmed with an
+	 * existence query with several nodes. Users present in the filter are
+	 * trusted, or confirmed with an existence query if configured. Else the user
+	 * is read from storage.
+	 * 
+	 * @param userId - unique identifier of user
+	 * 
+	 * @return true if the user is registered
+	 * 
+	 */
+	public boolean isUserPresent(String userId) {
+
+		if (userExistenceFilter != null && userExistenceFilter.isReady()) {
+
+			if (!userExistenceFilter.mightContain(userId)) {
+				return userExistenceFilter.isConfirmMisses() && confirmMiss(userId);
+			}
+
+			return !userExistenceFilter.isConfirmPositives() || userRepository.existsByUserId(userId);
+		}
+
+		return findUser(userId) != null;
+	}
+
+	/**
+	 * Checks if a user missing from the user existence filter was registered on
+	 * another node since the filter was built, and adds it to the filter if so
+	 * 
+	 * @param userId - unique identifier of user
+	 * 
+	 * @return true if the user is registered
+	 */
+	private boolean confirmMiss(String userId) {
+
+		boolean present = userRepository.existsByUserId(userId);
+
+		if (present) {
+			userExistenceFilter.add(userId);
+		}
+
+		return present;
+	}
+
 }
@@ -0,0 +1,22 @@
+package com.bynder.service.reactive;
+
+import java.util.List;
+
+import com.bynder.dto.BallotBatchDTO;
+import com.bynder.dto.BallotDTO;
+import com.bynder.dto.PageDTO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBallotService {
+
+	Mono<PageDTO<BallotDTO>> getBallots(String userId, String lotteryId, Integer limit, String after);
+
+	Flux<BallotDTO> streamBallots(String userId, String lotteryId);
+
+	Mono<String> createBallot(BallotDTO ballotDto);
+
+	Mono<List<BallotDTO>> createBallots(BallotBatchDTO ballotBatchDto);
+
+}
@@ -0,0 +1,29 @@
+package com.bynder.service.reactive;
+
+import java.util.Date;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.dto.LotteryDTO;
+import com.bynder.dto.LotteryResultDTO;
+import com.bynder.dto.PageDTO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveLotteryService {
+
+	Mono<PageDTO<LotteryDTO>> getLotteries(String status, Integer limit, String after);
+
+	Flux<LotteryDTO> streamLotteries(String status);
+
+	Mono<String> getLotteryStatus(String lotteryId);
+
+	Mono<String> getLotteryStatus(String lotteryId, Date date);
+
+	Mono<LotteryResultDTO> getLotteryResult(String lotteryId);
+
+	Mono<EncodedLotteryResult> getEncodedLotteryResult(String lotteryId);
+
+	Mono<String> createLottery(LotteryDTO lotteryDto);
+
+}
@@ -0,0 +1,12 @@
+package com.bynder.service.reactive;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveSequenceGeneratorService {
+
+	Mono<Long> getNextSequenceNumber(String sequenceName);
+
+	Flux<Long> getNextSequenceNumbers(String sequenceName, int count);
+
+}
@@ -0,0 +1,13 @@
+package com.bynder.service.reactive;
+
+import com.bynder.dto.UserDTO;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserService {
+
+	Mono<String> registerUser(UserDTO userDto);
+
+	Mono<Boolean> isUserPresent(String userId);
+
+}
@@ -0,0 +1,342 @@
+package com.bynder.service.reactive.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.dto.BallotBatchDTO;
+import com.bynder.dto.BallotDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.LotteryStatusException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.model.Ballot;
+import com.bynder.repository.reactive.ReactiveBallotRepository;
+import com.bynder.service.BallotOrdinalService;
+import com.bynder.service.reactive.ReactiveBallotService;
+import com.bynder.service.reactive.ReactiveLotteryService;
+import com.bynder.service.reactive.ReactiveSequenceGeneratorService;
+import com.bynder.service.reactive.ReactiveUserService;
+import com.bynder.utils.CoarseClock;
+import com.bynder.utils.DateUtils;
+import com.bynder.utils.PaginationUtils;
+import com.bynder.winner.WinnerSelectionStrategy;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service class to handle the requests related to Ballot operations on the
+ * reactive stack:
+ * 		* get the ballots for a given userId, one page at a time.
+ * 		* stream the ballots for a given userId.
+ * 		* save a new ballot related to a lottery.
+ * 		* save a batch of ballots in one request.
+ * 
+ * Ballots are written directly, the write-behind buffer is only used by the
+ * servlet stack. Errors are signalled with the same exceptions as
+ * BallotServiceImpl, so they are mapped to the same responses.
+ * 
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveBallotServiceImpl implements ReactiveBallotService {
+
+	@Autowired
+	private ReactiveBallotRepository ballotRepository;
+
+	@Autowired
+	private ReactiveLotteryService lotteryService;
+
+	@Autowired
+	private ReactiveUserService userService;
+
+	@Autowired
+	private ReactiveSequenceGeneratorService sequenceService;
+
+	@Autowired
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Autowired
+	private BallotOrdinalService ballotOrdinalService;
+
+	@Autowired
+	private WinnerSelectionStrategy winnerSelectionStrategy;
+
+	@Value("${ballot.batch.max-size:1000}")
+	private int maxBatchSize;
+
+	@Value("${pagination.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${pagination.max-limit:1000}")
+	private int maxPageLimit;
+
+	private static final String CURSOR_KIND = "ballot";
+
+	/**
+	 * Returns a page of ballots ordered by ballotId, filtered by the optional
+	 * userId and lotteryId.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * @param limit     - optional page size
+	 * @param after     - optional cursor returned with the previous page
+	 * 
+	 * @return page of ballots, or InvalidRequestException if the page size or
+	 *         cursor is invalid and ResourceNotFoundException if no ballots are
+	 *         present
+	 */
+	public Mono<PageDTO<BallotDTO>> getBallots(String userId, String lotteryId, Integer limit, String after) {
+
+		int pageLimit;
+		String afterBallotId;
+
+		try {
+			pageLimit = PaginationUtils.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+			afterBallotId = PaginationUtils.decodeCursor(CURSOR_KIND, after);
+		} catch (InvalidRequestException exception) {
+			return Mono.error(exception);
+		}
+
+		return ballotRepository.findPage(userId, lotteryId, afterBallotId, pageLimit).collectList()
+				.flatMap(ballotList -> ballotList.isEmpty() && afterBallotId == null
+						? Mono.<PageDTO<BallotDTO>>error(new ResourceNotFoundException("Ballots Not Found"))
+						: Mono.just(PaginationUtils.toPage(ballotList, pageLimit, CURSOR_KIND, Ballot::getBallotId,
+								this::mapBallotDTO)));
+	}
+
+	/**
+	 * Returns all ballots ordered by ballotId, filtered by the optional userId and
+	 * lotteryId, as they are read from storage.
+	 * 
+	 * @param userId    - unique identifier related to a customer
+	 * @param lotteryId - unique identifier related to a lottery
+	 * 
+	 * @return ballots
+	 */
+	public Flux<BallotDTO> streamBallots(String userId, String lotteryId) {
+
+		return ballotRepository.streamBallots(userId, lotteryId).map(this::mapBallotDTO);
+	}
+
+	/**
+	 * Stores the ballot associated to a lottery for a particular user.
+	 * 
+	 * @param ballotDto - ballot dto object request containing userId and lotteryId
+	 * 
+	 * @return created ballotId, or ResourceNotFoundException if the user or
+	 *         lottery is not present and LotteryStatusException if the lottery is
+	 *         closed
+	 */
+	public Mono<String> createBallot(BallotDTO ballotDto) {
+
+		Date createdDate = CoarseClock.currentDate();
+
+		return checkIsUserPresent(ballotDto.getUserId())
+				.then(checkLotteryStatus(ballotDto.getLotteryId(), createdDate))
+				.then(sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE))
+				.map(ballotId -> mapBallotEntity(ballotDto, String.valueOf(ballotId), createdDate))
+				.flatMap(ballot -> assignOrdinals(Collections.singletonList(ballot)).thenReturn(ballot))
+				.flatMap(ballotRepository::save).doOnNext(this::countBallot)
+				.flatMap(ballot -> ballotsCreated(Collections.singletonList(ballot)).thenReturn(ballot))
+				.map(Ballot::getBallotId);
+	}
+
+	/**
+	 * Stores a batch of ballots in one request.
+	 * 
+	 * Users and lotteries are validated once per distinct id, ballotIds are
+	 * reserved from BALLOT_ID_SEQUENCE at once, ordinals are reserved once per
+	 * lottery and all ballots are written with a single insert.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return created ballots, or InvalidRequestException if the batch is empty or
+	 *         too large, ResourceNotFoundException if any user or lottery is not
+	 *         present and LotteryStatusException if any lottery is closed
+	 */
+	public Mono<List<BallotDTO>> createBallots(BallotBatchDTO ballotBatchDto) {
+
+		List<BallotDTO> ballotDtoList;
+
+		try {
+			ballotDtoList = expandBallotBatch(ballotBatchDto);
+		} catch (InvalidRequestException exception) {
+			return Mono.error(exception);
+		}
+
+		Set<String> userIds = new LinkedHashSet<>();
+		Set<String> lotteryIds = new LinkedHashSet<>();
+
+		for (BallotDTO ballotDto : ballotDtoList) {
+			userIds.add(ballotDto.getUserId());
+			lotteryIds.add(ballotDto.getLotteryId());
+		}
+
+		Date createdDate = CoarseClock.currentDate();
+
+		return Flux.fromIterable(userIds).concatMap(this::checkIsUserPresent)
+				.thenMany(Flux.fromIterable(lotteryIds).concatMap(lotteryId -> checkLotteryStatus(lotteryId, createdDate)))
+				.thenMany(sequenceService.getNextSequenceNumbers(Constants.BALLOT_SEQUENCE, ballotDtoList.size()))
+				.index().map(indexedBallotId -> mapBallotEntity(ballotDtoList.get(indexedBallotId.getT1().intValue()),
+						String.valueOf(indexedBallotId.getT2()), createdDate))
+				.collectList().flatMap(ballotList -> assignOrdinals(ballotList).thenReturn(ballotList))
+				.flatMapMany(ballotRepository::insert).doOnNext(this::countBallot).collectList()
+				.flatMap(ballotList -> ballotsCreated(ballotList).thenReturn(ballotList))
+				.map(ballotList -> ballotList.stream().map(this::mapBallotDTO).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Returns the ballots requested in a batch request.
+	 * 
+	 * @param ballotBatchDto - batch request containing the ballots to be created
+	 * 
+	 * @return list of requested ballots
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the batch is empty or
+	 *                                 exceeds the maximum batch size
+	 */
+	private List<BallotDTO> expandBallotBatch(BallotBatchDTO ballotBatchDto) throws InvalidRequestException {
+
+		List<BallotDTO> ballotDtoList = null;
+
+		if (!CollectionUtils.isEmpty(ballotBatchDto.getBallots())) {
+
+			ballotDtoList = ballotBatchDto.getBallots();
+
+		} else if (ballotBatchDto.getQuantity() != null && ballotBatchDto.getQuantity() > 0) {
+
+			ballotDtoList = Collections.nCopies(ballotBatchDto.getQuantity(),
+					new BallotDTO(ballotBatchDto.getLotteryId(), ballotBatchDto.getUserId(), null, null));
+
+		} else {
+
+			throw new InvalidRequestException("Please provide ballots or a quantity of ballots to be created");
+		}
+
+		if (ballotDtoList.size() > maxBatchSize) {
+			throw new InvalidRequestException("A maximum of " + maxBatchSize + " ballots can be created at once");
+		}
+
+		return new ArrayList<>(ballotDtoList);
+	}
+
+	/**
+	 * Checks if user is present in storage.
+	 * 
+	 * @param userId - unique identifier of user
+	 * 
+	 * @return empty, or ResourceNotFoundException if the user is not present
+	 */
+	private Mono<Void> checkIsUserPresent(String userId) {
+
+		if (StringUtils.isBlank(userId)) {
+			return Mono.error(new ResourceNotFoundException("User Not found"));
+		}
+
+		return userService.isUserPresent(userId)
+				.flatMap(present -> present ? Mono.<Void>empty()
+						: Mono.<Void>error(new ResourceNotFoundException("User Not found")));
+	}
+
+	/**
+	 * Checks if lottery is present and is active at the creation date of a
+	 * ballot.
+	 * 
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param createdDate - creation date of the ballot
+	 * 
+	 * @return empty, or ResourceNotFoundException if the lottery is not present and
+	 *         LotteryStatusException if the lottery is not active
+	 */
+	private Mono<Void> checkLotteryStatus(String lotteryId, Date createdDate) {
+
+		return lotteryService.getLotteryStatus(lotteryId, createdDate)
+				.switchIfEmpty(Mono.error(new ResourceNotFoundException("Lottery Not found")))
+				.flatMap(status -> StringUtils.equalsIgnoreCase(status, Constants.CLOSED)
+						? Mono.<Void>error(new LotteryStatusException("Lottery is Closed"))
+						: Mono.<Void>empty());
+	}
+
+	/**
+	 * Maps the BallotDTO object into Ballot entity.
+	 * 
+	 * @param ballotDto   - input BallotDTO request
+	 * @param ballotId    - ballotId generated from BALLOT_ID_SEQUENCE
+	 * @param createdDate - creation date of the ballot
+	 * 
+	 * @return mapped Ballot entity
+	 */
+	private Ballot mapBallotEntity(BallotDTO ballotDto, String ballotId, Date createdDate) {
+
+		Ballot ballot = new Ballot();
+		ballot.setUserId(ballotDto.getUserId());
+		ballot.setLotteryId(ballotDto.getLotteryId());
+		ballot.setCreatedDate(createdDate);
+		ballot.setBallotId(ballotId);
+
+		return ballot;
+	}
+
+	private BallotDTO mapBallotDTO(Ballot ballot) {
+
+		return new BallotDTO(ballot.getLotteryId(), ballot.getUserId(), ballot.getBallotId(),
+				DateUtils.formatDate(ballot.getCreatedDate(), Constants.LOTTERY_DATE_FORMAT));
+	}
+
+	/**
+	 * Assigns the next ordinals of their lottery to the given ballots.
+	 * 
+	 * Ordinals are reserved with a blocking storage call, which is moved off the
+	 * event loop.
+	 * 
+	 * @param ballots - ballots to be numbered
+	 * 
+	 * @return empty once ordinals are assigned
+	 */
+	private Mono<Void> assignOrdinals(List<Ballot> ballots) {
+
+		return Mono.fromRunnable(() -> ballotOrdinalService.assignOrdinals(ballots))
+				.subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	/**
+	 * Offers the stored ballots to the winner selection strategy.
+	 * 
+	 * The strategy may update storage with a blocking call, which is moved off
+	 * the event loop.
+	 * 
+	 * @param ballots - stored ballots
+	 * 
+	 * @return empty once the strategy has processed the ballots
+	 */
+	private Mono<Void> ballotsCreated(List<Ballot> ballots) {
+
+		return Mono.fromRunnable(() -> winnerSelectionStrategy.ballotsCreated(ballots))
+				.subscribeOn(Schedulers.boundedElastic()).then();
+	}
+
+	private void countBallot(Ballot ballot) {
+
+		lotteryBallotCounter.increment(ballot.getLotteryId(), 1);
+	}
+
+}
@@ -0,0 +1,319 @@
+package com.bynder.service.reactive.impl;
+
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.cache.LotteryResultCache;
+import com.bynder.cache.LotteryStatusCache;
+import com.bynder.constants.Constants;
+import com.bynder.dto.LotteryDTO;
+import com.bynder.dto.LotteryResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.event.LotteryCreatedEvent;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.LotteryStatusException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.model.Lottery;
+import com.bynder.repository.reactive.ReactiveLotteryRepository;
+import com.bynder.service.reactive.ReactiveLotteryService;
+import com.bynder.service.reactive.ReactiveSequenceGeneratorService;
+import com.bynder.utils.DateUtils;
+import com.bynder.utils.PaginationUtils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class to handle the requests related to Lottery operations on the
+ * reactive stack:
+ * 		* get the lottery list based on status(open/closed), one page at a time
+ * 		* stream the lottery list based on status
+ * 		* get status of a lottery from the status cache
+ * 		* get result for a particular lottery if its closed, from the lottery
+ * 		  result cache shared with the servlet stack
+ * 		* save a new lottery into the storage
+ * 
+ * Errors are signalled with the same exceptions as LotteryServiceImpl, so they
+ * are mapped to the same responses.
+ * 
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveLotteryServiceImpl implements ReactiveLotteryService {
+
+	@Autowired
+	private ReactiveLotteryRepository lotteryRepository;
+
+	@Autowired
+	private ReactiveSequenceGeneratorService sequenceService;
+
+	@Autowired
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Autowired
+	private LotteryResultCache lotteryResultCache;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${pagination.default-limit:100}")
+	private int defaultPageLimit;
+
+	@Value("${pagination.max-limit:1000}")
+	private int maxPageLimit;
+
+	private static final String CURSOR_KIND = "lottery";
+
+	/**
+	 * Returns a page of lotteries ordered by lotteryId, filtered by status if
+	 * given.
+	 * 
+	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * @param limit  - optional page size
+	 * @param after  - optional cursor returned with the previous page
+	 * 
+	 * @return page of lotteries, or InvalidRequestException if the page size or
+	 *         cursor is invalid and ResourceNotFoundException if no lotteries are
+	 *         present
+	 */
+	public Mono<PageDTO<LotteryDTO>> getLotteries(String status, Integer limit, String after) {
+
+		int pageLimit;
+		String afterLotteryId;
+
+		try {
+			pageLimit = PaginationUtils.resolveLimit(limit, defaultPageLimit, maxPageLimit);
+			afterLotteryId = PaginationUtils.decodeCursor(CURSOR_KIND, after);
+		} catch (InvalidRequestException exception) {
+			return Mono.error(exception);
+		}
+
+		return lotteryRepository.findPage(status, afterLotteryId, pageLimit).collectList()
+				.flatMap(lotteryList -> lotteryList.isEmpty() && afterLotteryId == null
+						? Mono.<PageDTO<LotteryDTO>>error(new ResourceNotFoundException("Lotteries not found"))
+						: Mono.just(PaginationUtils.toPage(lotteryList, pageLimit, CURSOR_KIND, Lottery::getLotteryId,
+								this::mapLottery)));
+	}
+
+	/**
+	 * Returns all lotteries ordered by lotteryId, filtered by status if given, as
+	 * they are read from storage.
+	 * 
+	 * @param status - optional input parameter(value can be OPEN/CLOSED)
+	 * 
+	 * @return lotteries
+	 */
+	public Flux<LotteryDTO> streamLotteries(String status) {
+
+		return lotteryRepository.streamLotteries(status).map(this::mapLottery);
+	}
+
+	private LotteryDTO mapLottery(Lottery lottery) {
+
+		return new LotteryDTO(lottery.getLotteryId(), lottery.getName(), lottery.getPrizeMoney(), lottery.getStatus(),
+				lottery.getWinnerBallot(), DateUtils.formatDate(lottery.getStartDate(), Constants.LOTTERY_DATE_FORMAT),
+				DateUtils.formatDate(lottery.getEndDate(), Constants.LOTTERY_DATE_FORMAT),
+				DateUtils.formatDate(lottery.getCloseDate(), Constants.LOTTERY_DATE_FORMAT, lottery.getTimeZone()),
+				lottery.getTimeZone(), lottery.getBallotCount());
+	}
+
+	/**
+	 * Returns the status of the lottery associated with a lotteryId.
+	 * 
+	 * Status is served from the lottery status cache and only read from storage if
+	 * not cached.
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * 
+	 * @return lottery status, empty if no lottery is present for the requested id
+	 */
+	public Mono<String> getLotteryStatus(String lotteryId) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return Mono.empty();
+		}
+
+		String cachedStatus = lotteryStatusCache.getCachedStatus(lotteryId);
+		if (cachedStatus != null) {
+			return Mono.just(cachedStatus);
+		}
+
+		return lotteryRepository.findByLotteryId(lotteryId).map(lottery -> {
+
+			lotteryStatusCache.cacheStatus(lottery, System.currentTimeMillis());
+			return lottery.getStatus() == null ? "" : lottery.getStatus();
+		});
+	}
+
+	/**
+	 * Returns the status of the lottery associated with a lotteryId at the given
+	 * date, used to validate ballots.
+	 * 
+	 * Status is served from the lottery status cache and only read from storage if
+	 * not cached. An open lottery whose close date is not after the given date is
+	 * reported as CLOSED.
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * @param date      - date the status is checked at, e.g. the creation date of
+	 *                  a ballot
+	 * 
+	 * @return lottery status at the given date, empty if no lottery is present for
+	 *         the requested id
+	 */
+	public Mono<String> getLotteryStatus(String lotteryId, Date date) {
+
+		if (StringUtils.isBlank(lotteryId)) {
+			return Mono.empty();
+		}
+
+		String cachedStatus = lotteryStatusCache.getCachedStatus(lotteryId, date.getTime());
+		if (cachedStatus != null) {
+			return Mono.just(cachedStatus);
+		}
+
+		return lotteryRepository.findByLotteryId(lotteryId)
+				.map(lottery -> lotteryStatusCache.cacheStatus(lottery, date.getTime()));
+	}
+
+	/**
+	 * Returns the lottery result for a particular lotteryId, only for closed
+	 * lotteries.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return Lottery result with the winner ballot details and prize money, or
+	 *         ResourceNotFoundException if no lottery is present and
+	 *         LotteryStatusException if lottery is not yet closed
+	 */
+	public Mono<LotteryResultDTO> getLotteryResult(String lotteryId) {
+
+		return findClosedLottery(lotteryId).map(this::mapLotteryResult);
+	}
+
+	/**
+	 * Returns the lottery result for a particular lotteryId serialized as JSON,
+	 * with its entity tag, from the same lottery result cache as the servlet
+	 * stack.
+	 * 
+	 * Results of closed lotteries never change, so they are only read from
+	 * storage and serialized if not cached.
+	 * 
+	 * @param lotteryId - unique identifier of the lottery for which result is
+	 *                  requested
+	 * 
+	 * @return serialized lottery result, or the same errors as getLotteryResult
+	 */
+	public Mono<EncodedLotteryResult> getEncodedLotteryResult(String lotteryId) {
+
+		EncodedLotteryResult cachedResult = lotteryResultCache.getResult(lotteryId);
+
+		if (cachedResult != null) {
+			return Mono.just(cachedResult);
+		}
+
+		return findClosedLottery(lotteryId).map(lottery -> {
+
+			LotteryResultDTO result = mapLotteryResult(lottery);
+
+			return StringUtils.equalsIgnoreCase(lottery.getStatus(), Constants.CLOSED)
+					? lotteryResultCache.putResult(lotteryId, result)
+					: lotteryResultCache.encode(result);
+		});
+	}
+
+	/**
+	 * Reads a lottery which is not open any more
+	 * 
+	 * @param lotteryId - unique identifier of lottery
+	 * 
+	 * @return lottery, or ResourceNotFoundException if no lottery is present and
+	 *         LotteryStatusException if lottery is not yet closed
+	 */
+	private Mono<Lottery> findClosedLottery(String lotteryId) {
+
+		return lotteryRepository.findByLotteryId(lotteryId)
+				.switchIfEmpty(Mono.error(new ResourceNotFoundException("Lottery not found"))).flatMap(lottery -> {
+
+					if (StringUtils.equalsIgnoreCase(lottery.getStatus(), Constants.OPEN)) {
+						return Mono.error(new LotteryStatusException("Lottery is not closed yet!"));
+					}
+
+					return Mono.just(lottery);
+				});
+	}
+
+	/**
+	 * Maps a closed lottery into its result, with the same message as the
+	 * servlet stack if nobody won
+	 * 
+	 * @param lottery - closed lottery
+	 * 
+	 * @return mapped LotteryResultDTO object
+	 */
+	private LotteryResultDTO mapLotteryResult(Lottery lottery) {
+
+		String endDate = DateUtils.formatDate(lottery.getEndDate(), Constants.LOTTERY_DATE_FORMAT);
+
+		// Returns appropriate message in case of no winner for a lottery
+		if (StringUtils.equalsIgnoreCase(lottery.getWinnerBallot(), "-1")) {
+			return new LotteryResultDTO(null, "Nobody won!", endDate, lottery.getPrizeMoney());
+		}
+
+		return new LotteryResultDTO(lottery.getWinnerBallot(), null, endDate, lottery.getPrizeMoney());
+	}
+
+	/**
+	 * Creates a new lottery in the storage.
+	 * 
+	 * lotteryId is generated from LOTTERY_ID_SEQUENCE
+	 * 
+	 * The lottery closes at its closeTime in its timeZone, or at the next
+	 * midnight of its timeZone if no closeTime is given. The system time zone is
+	 * used if no timeZone is given.
+	 * 
+	 * @param lotteryDto - input request containing the name, prizeMoney,
+	 *                   startDate, closeTime and timeZone
+	 * 
+	 * @return created lotteryId, or InvalidRequestException if the time zone is
+	 *         unknown or the close time is invalid
+	 */
+	public Mono<String> createLottery(LotteryDTO lotteryDto) {
+
+		ZoneId zone;
+		Date closeDate;
+
+		try {
+			zone = DateUtils.toZoneId(lotteryDto.getTimeZone());
+			closeDate = DateUtils.toCloseDate(lotteryDto.getCloseTime(), Constants.LOTTERY_DATE_FORMAT, zone);
+		} catch (InvalidRequestException exception) {
+			return Mono.error(exception);
+		}
+
+		return sequenceService.getNextSequenceNumber(Constants.LOTTERY_SEQUENCE).map(lotteryId -> {
+
+			Lottery lottery = new Lottery(String.valueOf(lotteryId), lotteryDto.getName(),
+					lotteryDto.getPrizeMoney(),
+					DateUtils.toDate(lotteryDto.getStartDate(), Constants.LOTTERY_DATE_FORMAT));
+			lottery.setStatus(Constants.OPEN);
+			lottery.setCloseDate(closeDate);
+			lottery.setTimeZone(zone.getId());
+			return lottery;
+
+		}).flatMap(lotteryRepository::save)
+				.doOnNext(lottery -> eventPublisher.publishEvent(new LotteryCreatedEvent(lottery)))
+				.map(Lottery::getLotteryId);
+	}
+
+}
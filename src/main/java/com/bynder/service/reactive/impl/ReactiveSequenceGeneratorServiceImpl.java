@@ -0,0 +1,93 @@
+package com.bynder.service.reactive.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Sequences;
+import com.bynder.service.reactive.ReactiveSequenceGeneratorService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class to handle sequence generation for the reactive stack
+ * 
+ * Increments the same SEQUENCES documents as SequenceGeneratorServiceImpl, so
+ * both stacks can run against the same storage. Configured block sizes are
+ * not applied, every number is reserved with its own increment.
+ * 
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@ConditionalOnProperty(name = "sequence.generator", havingValue = "mongo", matchIfMissing = true)
+public class ReactiveSequenceGeneratorServiceImpl implements ReactiveSequenceGeneratorService {
+
+	@Autowired
+	private ReactiveMongoOperations reactiveMongoOperations;
+
+	/**
+	 * Returns next sequence number for given sequence name.
+	 * 
+	 * Increments sequence number if sequence name is present in storage, else
+	 * creates a new sequence with starting value as 1.
+	 * 
+	 * @param sequenceName - sequence name for which next sequence number is
+	 *                     requested
+	 * 
+	 * @return next sequence number
+	 */
+	public Mono<Long> getNextSequenceNumber(String sequenceName) {
+
+		return incrementSequence(sequenceName, 1);
+	}
+
+	/**
+	 * Returns the given number of sequence numbers for given sequence name,
+	 * reserved as one contiguous range with a single increment in storage.
+	 * 
+	 * @param sequenceName - sequence name for which sequence numbers are
+	 *                     requested
+	 * @param count        - number of sequence numbers requested
+	 * 
+	 * @return reserved sequence numbers in ascending order
+	 */
+	public Flux<Long> getNextSequenceNumbers(String sequenceName, int count) {
+
+		if (count <= 0) {
+			return Flux.empty();
+		}
+
+		return incrementSequence(sequenceName, count)
+				.flatMapMany(lastValue -> Flux.range(0, count).map(i -> lastValue - count + 1 + i));
+	}
+
+	/**
+	 * Increments the sequence in storage by the given value and returns the
+	 * incremented value.
+	 * 
+	 * @param sequenceName - sequence name to be incremented
+	 * @param incrementBy  - value by which sequence is incremented
+	 * 
+	 * @return sequence value after increment
+	 */
+	private Mono<Long> incrementSequence(String sequenceName, long incrementBy) {
+
+		return reactiveMongoOperations
+				.findAndModify(new Query(Criteria.where(Constants.SEQ_NAME).is(sequenceName)),
+						new Update().inc(Constants.SEQ_VALUE, incrementBy),
+						new FindAndModifyOptions().returnNew(true).upsert(true), Sequences.class)
+				.map(Sequences::getSeqValue).defaultIfEmpty(incrementBy);
+	}
+
+}
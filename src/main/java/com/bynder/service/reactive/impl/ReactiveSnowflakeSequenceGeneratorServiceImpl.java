@@ -0,0 +1,44 @@
+package com.bynder.service.reactive.impl;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+
+import com.bynder.service.SequenceGeneratorService;
+import com.bynder.service.reactive.ReactiveSequenceGeneratorService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class to handle sequence generation for the reactive stack with the
+ * snowflake generator, which does not block as ids are generated without a
+ * storage round trip.
+ * 
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@ConditionalOnProperty(name = "sequence.generator", havingValue = "snowflake")
+public class ReactiveSnowflakeSequenceGeneratorServiceImpl implements ReactiveSequenceGeneratorService {
+
+	@Autowired
+	private SequenceGeneratorService sequenceService;
+
+	public Mono<Long> getNextSequenceNumber(String sequenceName) {
+
+		return Mono.fromSupplier(() -> sequenceService.getNextSequenceNumber(sequenceName));
+	}
+
+	public Flux<Long> getNextSequenceNumbers(String sequenceName, int count) {
+
+		return Flux.defer(
+				() -> Flux.fromStream(Arrays.stream(sequenceService.getNextSequenceNumbers(sequenceName, count)).boxed()));
+	}
+
+}
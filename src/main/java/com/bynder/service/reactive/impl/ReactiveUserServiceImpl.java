@@ -0,0 +1,122 @@
+package com.bynder.service.reactive.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Service;
+
+import com.bynder.cache.UserExistenceFilter;
+import com.bynder.constants.Constants;
+import com.bynder.dto.UserDTO;
+import com.bynder.exception.EntityExistsException;
+import com.bynder.model.User;
+import com.bynder.repository.reactive.ReactiveUserRepository;
+import com.bynder.service.reactive.ReactiveSequenceGeneratorService;
+import com.bynder.service.reactive.ReactiveUserService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Service class to handle the requests related to User operations on the
+ * reactive stack:
+ * 		* register a new user
+ * 		* checks if a user is registered
+ * 
+ * @author arathy
+ *
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+	@Autowired
+	private ReactiveUserRepository userRepository;
+
+	@Autowired
+	private ReactiveSequenceGeneratorService sequenceService;
+
+	@Autowired(required = false)
+	private UserExistenceFilter userExistenceFilter;
+
+	/**
+	 * Registers a new user
+	 * 
+	 * If username is already present in the storage, appropriate error is
+	 * signalled, else user is saved in the storage
+	 * 
+	 * @param userDto - input request containing user details like first name, last
+	 *                name and user name
+	 * 
+	 * @return created userId, or EntityExistsException if username already exists
+	 */
+	public Mono<String> registerUser(UserDTO userDto) {
+
+		return userRepository.findByUserName(userDto.getUserName())
+				.flatMap(existingUser -> Mono.<User>error(new EntityExistsException("Username already exists!")))
+				.switchIfEmpty(Mono.defer(() -> sequenceService.getNextSequenceNumber(Constants.USER_SEQUENCE)
+						.map(userId -> mapUserEntity(userDto, String.valueOf(userId))).flatMap(userRepository::save)))
+				.doOnNext(user -> {
+					if (userExistenceFilter != null) {
+						userExistenceFilter.add(user.getUserId());
+					}
+				}).map(User::getUserId);
+	}
+
+	/**
+	 * Maps the UserDTO object into User entity.
+	 * 
+	 * @param userDto - input UserDto request
+	 * @param userId  - userId generated from USER_ID_SEQUENCE
+	 * 
+	 * @return mapped User entity
+	 */
+	private User mapUserEntity(UserDTO userDto, String userId) {
+
+		User user = new User();
+		user.setFirstName(userDto.getFirstName());
+		user.setLastName(userDto.getLastName());
+		user.setUserName(userDto.getUserName());
+		user.setUserId(userId);
+
+		return user;
+	}
+
+	/**
+	 * Checks if a user is registered.
+	 * 
+	 * If the user existence filter is enabled, users not present in the filter are
+	 * rejected without reading storage on a single node, and confirmed with the
+	 * existence query with several nodes, adding users found to the filter. Users
+	 * present in the filter are trusted, or confirmed with the existence query if
+	 * configured. Else the existence query is run.
+	 * 
+	 * @param userId - unique identifier of user
+	 * 
+	 * @return true if the user is registered
+	 */
+	public Mono<Boolean> isUserPresent(String userId) {
+
+		if (userExistenceFilter != null && userExistenceFilter.isReady()) {
+
+			if (!userExistenceFilter.mightContain(userId)) {
+
+				if (!userExistenceFilter.isConfirmMisses()) {
+					return Mono.just(false);
+				}
+
+				return userRepository.existsByUserId(userId).doOnNext(present -> {
+					if (Boolean.TRUE.equals(present)) {
+						userExistenceFilter.add(userId);
+					}
+				});
+			}
+
+			if (!userExistenceFilter.isConfirmPositives()) {
+				return Mono.just(true);
+			}
+		}
+
+		return userRepository.existsByUserId(userId);
+	}
+
+}
@@ -0,0 +1,362 @@
+package com.bynder.subscription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.exception.LotteryStatusException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.service.LotteryService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Clients waiting for the result of an open lottery as Server-Sent Events,
+ * keyed by lotteryId.
+ *
+ * A subscription is an asynchronous request which holds no thread while it
+ * waits. Once the lottery is closed, its result is sent as one "result" event
+ * and the stream is completed. Results are sent on a pool of
+ * lottery.result-stream.fan-out-threads threads, each sending to a share of
+ * the subscribers, from the serialized result of the lottery result cache.
+ *
+ * Sends block while the network buffer of a slow client is full. If a send
+ * takes longer than lottery.result-stream.write-timeout-ms, the rest of its
+ * share is continued on another fan-out thread, so one slow client does not
+ * hold back the others. The blocked thread is freed once the server's write
+ * timeout, server.tomcat.connection-timeout, fails the send.
+ *
+ * Lotteries closed on this node are pushed as soon as their close is
+ * committed. Lotteries closed by another node are found by checking the status
+ * of the subscribed lotteries every lottery.result-stream.poll-interval-ms.
+ * Subscriptions end after lottery.result-stream.timeout-ms, after which
+ * clients reconnect.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@Slf4j
+public class LotteryResultSubscriptions {
+
+	private static final String RESULT_EVENT = "result";
+
+	@Autowired
+	private LotteryService lotteryService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${lottery.result-stream.timeout-ms:1800000}")
+	private long timeoutMs;
+
+	@Value("${lottery.result-stream.fan-out-threads:4}")
+	private int fanOutThreads;
+
+	@Value("${lottery.result-stream.write-timeout-ms:5000}")
+	private long writeTimeoutMs;
+
+	private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	private ExecutorService fanOutExecutor;
+
+	private ScheduledExecutorService writeTimeoutScheduler;
+
+	/**
+	 * Creates the fan-out threads and registers the subscriber gauge
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		fanOutExecutor = Executors.newFixedThreadPool(fanOutThreads, runnable -> {
+			Thread thread = new Thread(runnable, "lottery-result-fan-out-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		writeTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "lottery-result-write-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Gauge.builder("lottery.result-stream.subscribers", subscriberCount, AtomicInteger::get)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Completes the open subscriptions, so clients reconnect to another node
+	 *
+	 */
+	@PreDestroy
+	public void shutdown() {
+
+		fanOutExecutor.shutdownNow();
+		writeTimeoutScheduler.shutdownNow();
+
+		for (String lotteryId : new ArrayList<>(subscribers.keySet())) {
+
+			Set<SseEmitter> emitters = subscribers.remove(lotteryId);
+
+			if (emitters != null) {
+				emitters.forEach(SseEmitter::complete);
+			}
+		}
+	}
+
+	/**
+	 * Subscribes to the result of a lottery.
+	 *
+	 * If the lottery is closed already, its result is sent right away.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return event stream the result is sent to
+	 *
+	 * @throws ResourceNotFoundException - exception thrown if the lottery is not
+	 *                                   present
+	 */
+	public SseEmitter subscribe(String lotteryId) throws ResourceNotFoundException {
+
+		String status = lotteryService.getLotteryStatus(lotteryId);
+
+		if (status == null) {
+			throw new ResourceNotFoundException("Lottery not found");
+		}
+
+		SseEmitter emitter = new SseEmitter(timeoutMs);
+
+		if (!StringUtils.equalsIgnoreCase(status, Constants.OPEN)) {
+
+			sendResult(lotteryId, Collections.singletonList(emitter));
+			return emitter;
+		}
+
+		emitter.onCompletion(() -> unsubscribe(lotteryId, emitter));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(exception -> unsubscribe(lotteryId, emitter));
+
+		subscribers.compute(lotteryId, (id, emitters) -> {
+			Set<SseEmitter> lotteryEmitters = emitters == null ? ConcurrentHashMap.newKeySet() : emitters;
+			lotteryEmitters.add(emitter);
+			return lotteryEmitters;
+		});
+		subscriberCount.incrementAndGet();
+
+		// the lottery may have been closed on this node before the emitter was added
+		if (!StringUtils.equalsIgnoreCase(lotteryService.getLotteryStatus(lotteryId), Constants.OPEN)) {
+			publish(lotteryId);
+		}
+
+		return emitter;
+	}
+
+	/**
+	 * Pushes the result of a lottery closed on this node
+	 *
+	 * @param event - event of the closed lottery
+	 */
+	@EventListener
+	public void lotteryClosed(LotteryClosedEvent event) {
+
+		publish(event.getLotteryId());
+	}
+
+	/**
+	 * Pushes the results of subscribed lotteries closed by another node.
+	 *
+	 * Statuses are read through the lottery status cache, so a lottery is read
+	 * from storage at most once per cache time to live, however many clients are
+	 * subscribed to it.
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${lottery.result-stream.poll-interval-ms:1000}")
+	public void pollClosedLotteries() {
+
+		for (String lotteryId : subscribers.keySet()) {
+
+			if (!StringUtils.equalsIgnoreCase(lotteryService.getLotteryStatus(lotteryId), Constants.OPEN)) {
+				publish(lotteryId);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of clients waiting for a lottery result on this node
+	 *
+	 * @return number of subscribers
+	 */
+	public int getSubscriberCount() {
+
+		return subscriberCount.get();
+	}
+
+	/**
+	 * Removes the subscribers of a lottery and sends them its result, split
+	 * between the fan-out threads
+	 */
+	private void publish(String lotteryId) {
+
+		Set<SseEmitter> emitters = subscribers.remove(lotteryId);
+
+		if (emitters == null) {
+			return;
+		}
+
+		List<SseEmitter> emitterList = new ArrayList<>(emitters);
+		subscriberCount.addAndGet(-emitterList.size());
+
+		int shareSize = (emitterList.size() + fanOutThreads - 1) / fanOutThreads;
+
+		for (int from = 0; from < emitterList.size(); from += shareSize) {
+
+			List<SseEmitter> share = emitterList.subList(from, Math.min(from + shareSize, emitterList.size()));
+			fanOutExecutor.execute(() -> sendResult(lotteryId, share));
+		}
+	}
+
+	private void unsubscribe(String lotteryId, SseEmitter emitter) {
+
+		subscribers.computeIfPresent(lotteryId, (id, emitters) -> {
+
+			if (emitters.remove(emitter)) {
+				subscriberCount.decrementAndGet();
+			}
+
+			return emitters.isEmpty() ? null : emitters;
+		});
+	}
+
+	/**
+	 * Sends the result of a closed lottery to the given emitters and completes
+	 * them
+	 */
+	private void sendResult(String lotteryId, List<SseEmitter> emitters) {
+
+		EncodedLotteryResult result;
+
+		try {
+
+			result = lotteryService.getEncodedLotteryResult(lotteryId);
+
+		} catch (ResourceNotFoundException | LotteryStatusException | RuntimeException exception) {
+
+			log.error("Failed to read the result of lottery {} for {} subscribers", lotteryId, emitters.size(),
+					exception);
+			emitters.forEach(emitter -> emitter.completeWithError(exception));
+			return;
+		}
+
+		new ResultSender(lotteryId, result, emitters).run();
+	}
+
+	/**
+	 * Sends a result to a share of the subscribers. Several fan-out threads can
+	 * run the same sender, each taking the next emitter of the share, so the
+	 * share is continued by another thread while a send is blocked.
+	 */
+	private final class ResultSender implements Runnable {
+
+		private final String lotteryId;
+
+		private final EncodedLotteryResult result;
+
+		private final List<SseEmitter> emitters;
+
+		private final AtomicInteger nextEmitter = new AtomicInteger();
+
+		private ResultSender(String lotteryId, EncodedLotteryResult result, List<SseEmitter> emitters) {
+			this.lotteryId = lotteryId;
+			this.result = result;
+			this.emitters = emitters;
+		}
+
+		public void run() {
+
+			int index;
+
+			while ((index = nextEmitter.getAndIncrement()) < emitters.size()) {
+
+				SseEmitter emitter = emitters.get(index);
+				ScheduledFuture<?> writeTimeout = writeTimeoutScheduler.schedule(this::continueElsewhere,
+						writeTimeoutMs, TimeUnit.MILLISECONDS);
+
+				try {
+
+					// an event builder is consumed by sending it, the serialized result is shared
+					emitter.send(SseEmitter.event().name(RESULT_EVENT).id(result.getETag()).data(result.getBody(),
+							MediaType.APPLICATION_JSON));
+					emitter.complete();
+
+				} catch (IOException | IllegalStateException exception) {
+
+					// the client has gone away, or did not read the result within the server's write timeout
+					emitter.completeWithError(exception);
+
+				} finally {
+
+					writeTimeout.cancel(false);
+				}
+			}
+		}
+
+		/**
+		 * Continues the share on another fan-out thread while the current send is
+		 * blocked
+		 */
+		private void continueElsewhere() {
+
+			if (nextEmitter.get() >= emitters.size()) {
+				return;
+			}
+
+			log.warn("Sending the result of lottery {} to a subscriber takes more than {} ms", lotteryId,
+					writeTimeoutMs);
+
+			try {
+				fanOutExecutor.execute(this);
+			} catch (RejectedExecutionException exception) {
+				// shutting down, the share is continued by the blocked thread once its send returns
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.bynder.subscription;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.service.reactive.ReactiveLotteryService;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Reactive counterpart of LotteryResultSubscriptions, for clients waiting for
+ * the result of an open lottery as Server-Sent Events on the reactive stack.
+ *
+ * All clients waiting for a lottery subscribe to one sink of the lottery, so a
+ * waiting client is a subscription to the sink and holds no thread. Once the
+ * lottery is closed, its result is read once from the lottery result cache,
+ * turned into one "result" event and emitted to every subscriber, whose stream
+ * is then completed. Netty queues the event on the connection of each client,
+ * so a slow client does not hold back the others and no fan-out threads are
+ * needed.
+ *
+ * Lotteries closed on this node are pushed as soon as their close is
+ * committed. Lotteries closed by another node are found by checking the status
+ * of the subscribed lotteries every lottery.result-stream.poll-interval-ms.
+ * Subscriptions end after lottery.result-stream.timeout-ms, after which
+ * clients reconnect. The sink of a lottery is kept until the lottery is
+ * closed, so there is at most one per open lottery.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@Slf4j
+public class ReactiveLotteryResultSubscriptions {
+
+	private static final String RESULT_EVENT = "result";
+
+	@Autowired
+	private ReactiveLotteryService lotteryService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${lottery.result-stream.timeout-ms:1800000}")
+	private long timeoutMs;
+
+	private final Map<String, Sinks.One<ServerSentEvent<String>>> results = new ConcurrentHashMap<>();
+
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+
+	/**
+	 * Registers the subscriber gauge
+	 *
+	 */
+	@PostConstruct
+	public void init() {
+
+		Gauge.builder("lottery.result-stream.subscribers", subscriberCount, AtomicInteger::get)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Completes the open subscriptions, so clients reconnect to another node
+	 *
+	 */
+	@PreDestroy
+	public void shutdown() {
+
+		for (String lotteryId : new ArrayList<>(results.keySet())) {
+
+			Sinks.One<ServerSentEvent<String>> sink = results.remove(lotteryId);
+
+			if (sink != null) {
+				sink.tryEmitEmpty();
+			}
+		}
+	}
+
+	/**
+	 * Subscribes to the result of a lottery.
+	 *
+	 * If the lottery is closed already, its result is sent right away.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return result event, empty if the lottery is not closed within the
+	 *         subscription timeout, or ResourceNotFoundException if the lottery
+	 *         is not present
+	 */
+	public Mono<ServerSentEvent<String>> subscribe(String lotteryId) {
+
+		return lotteryService.getLotteryStatus(lotteryId)
+				.switchIfEmpty(Mono.error(new ResourceNotFoundException("Lottery not found")))
+				.flatMap(status -> StringUtils.equalsIgnoreCase(status, Constants.OPEN) ? awaitResult(lotteryId)
+						: lotteryService.getEncodedLotteryResult(lotteryId).map(this::toEvent));
+	}
+
+	/**
+	 * Pushes the result of a lottery closed on this node
+	 *
+	 * @param event - event of the closed lottery
+	 */
+	@EventListener
+	public void lotteryClosed(LotteryClosedEvent event) {
+
+		publish(event.getLotteryId());
+	}
+
+	/**
+	 * Pushes the results of subscribed lotteries closed by another node.
+	 *
+	 * Statuses are read through the lottery status cache, so a lottery is read
+	 * from storage at most once per cache time to live, however many clients are
+	 * subscribed to it.
+	 *
+	 */
+	@Scheduled(fixedDelayString = "${lottery.result-stream.poll-interval-ms:1000}")
+	public void pollClosedLotteries() {
+
+		for (String lotteryId : results.keySet()) {
+			publishIfClosed(lotteryId);
+		}
+	}
+
+	/**
+	 * Returns the number of clients waiting for a lottery result on this node
+	 *
+	 * @return number of subscribers
+	 */
+	public int getSubscriberCount() {
+
+		return subscriberCount.get();
+	}
+
+	/**
+	 * Waits for the result of an open lottery on its sink, which replays the
+	 * result to clients subscribing after it was emitted
+	 */
+	private Mono<ServerSentEvent<String>> awaitResult(String lotteryId) {
+
+		Sinks.One<ServerSentEvent<String>> sink = results.computeIfAbsent(lotteryId, id -> Sinks.one());
+
+		return sink.asMono().doOnSubscribe(subscription -> {
+
+			subscriberCount.incrementAndGet();
+
+			// the lottery may have been closed on this node before the sink was added
+			publishIfClosed(lotteryId);
+
+		}).doFinally(signal -> subscriberCount.decrementAndGet())
+				.timeout(Duration.ofMillis(timeoutMs), Mono.empty());
+	}
+
+	private void publishIfClosed(String lotteryId) {
+
+		lotteryService.getLotteryStatus(lotteryId)
+				.filter(status -> !StringUtils.equalsIgnoreCase(status, Constants.OPEN))
+				.subscribe(status -> publish(lotteryId), exception -> log
+						.warn("Failed to read the status of lottery {} for its subscribers", lotteryId, exception));
+	}
+
+	/**
+	 * Removes the sink of a lottery and emits its result to the subscribers
+	 */
+	private void publish(String lotteryId) {
+
+		Sinks.One<ServerSentEvent<String>> sink = results.remove(lotteryId);
+
+		if (sink == null) {
+			return;
+		}
+
+		lotteryService.getEncodedLotteryResult(lotteryId).map(this::toEvent).subscribe(sink::tryEmitValue,
+				exception -> {
+
+					log.error("Failed to read the result of lottery {} for {} subscribers", lotteryId,
+							sink.currentSubscriberCount(), exception);
+					sink.tryEmitError(exception);
+				});
+	}
+
+	/**
+	 * Builds the result event once per result, the serialized result is shared
+	 * by all subscribers
+	 */
+	private ServerSentEvent<String> toEvent(EncodedLotteryResult result) {
+
+		// a String is written as is, other data would be serialized again by the JSON encoder
+		return ServerSentEvent.builder(new String(result.getBody(), StandardCharsets.UTF_8)).event(RESULT_EVENT)
+				.id(result.getETag()).build();
+	}
+
+}
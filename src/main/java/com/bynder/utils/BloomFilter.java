@@ -0,0 +1,150 @@
+package com.bynder.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter over string keys
+ * 		* answers whether a key might have been added or definitely was not added.
+ * 		* sized from a memory budget and the expected number of keys.
+ * 
+ * @author arathy
+ *
+ */
+public class BloomFilter {
+
+	private static final int MAX_HASH_FUNCTIONS = 16;
+
+	private final AtomicLongArray bits;
+
+	private final long bitCount;
+
+	private final int hashFunctions;
+
+	/**
+	 * Creates a filter which uses at most the given memory budget
+	 * 
+	 * @param memoryBudgetBytes  - maximum size of the bit array in bytes
+	 * @param expectedInsertions - expected number of keys, used to choose the
+	 *                           number of hash functions
+	 */
+	public BloomFilter(long memoryBudgetBytes, long expectedInsertions) {
+
+		int words = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, memoryBudgetBytes / Long.BYTES));
+
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words * Long.SIZE;
+
+		long insertions = Math.max(1, expectedInsertions);
+		int optimalHashFunctions = (int) Math.round((double) bitCount / insertions * Math.log(2));
+		this.hashFunctions = Math.max(1, Math.min(MAX_HASH_FUNCTIONS, optimalHashFunctions));
+	}
+
+	/**
+	 * Adds a key to the filter
+	 * 
+	 * @param key - key to be added
+	 */
+	public void put(String key) {
+
+		long hash1 = hash(key);
+		long hash2 = mix(hash1) | 1;
+
+		for (int i = 0; i < hashFunctions; i++) {
+
+			long bitIndex = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+			int wordIndex = (int) (bitIndex >>> 6);
+			long mask = 1L << bitIndex;
+
+			long word;
+			do {
+				word = bits.get(wordIndex);
+				if ((word & mask) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(wordIndex, word, word | mask));
+		}
+	}
+
+	/**
+	 * Checks if a key might have been added to the filter
+	 * 
+	 * @param key - key to be checked
+	 * 
+	 * @return false if the key was definitely not added, true if it might have
+	 *         been added
+	 */
+	public boolean mightContain(String key) {
+
+		long hash1 = hash(key);
+		long hash2 = mix(hash1) | 1;
+
+		for (int i = 0; i < hashFunctions; i++) {
+
+			long bitIndex = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+
+			if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the expected false positive probability after the given number of
+	 * keys are added
+	 * 
+	 * @param insertions - number of keys added
+	 * 
+	 * @return expected false positive probability
+	 */
+	public double expectedFalsePositiveRate(long insertions) {
+
+		return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions / bitCount), hashFunctions);
+	}
+
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	public int getHashFunctions() {
+		return hashFunctions;
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of the characters of the key, finalized with a mix step
+	 * 
+	 * @param key - key to be hashed
+	 * 
+	 * @return hash of the key
+	 */
+	private static long hash(String key) {
+
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		return mix(hash);
+	}
+
+	/**
+	 * Murmur3 64 bit finalizer
+	 * 
+	 * @param value - value to be mixed
+	 * 
+	 * @return mixed value
+	 */
+	private static long mix(long value) {
+
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+}
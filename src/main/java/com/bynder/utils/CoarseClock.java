@@ -0,0 +1,47 @@
+package com.bynder.utils;
+
+import java.util.Date;
+
+/**
+ * Util class providing the current time at a resolution of one second, the
+ * resolution dates of created ballots and closed lotteries are stored at
+ * 		* current time in epoch milliseconds, truncated to the second
+ * 		* current date, truncated to the second
+ *
+ * The system clock is read on every call, nothing is cached: the time is only
+ * truncated, so dates no longer have to be formatted and parsed back to drop
+ * their milliseconds.
+ *
+ * @author arathy
+ *
+ */
+public class CoarseClock {
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private CoarseClock() {
+
+	}
+
+	/**
+	 * Returns the current time truncated to the second
+	 *
+	 * @return epoch milliseconds of the current second
+	 */
+	public static long currentTimeMillis() {
+
+		return Math.floorDiv(System.currentTimeMillis(), 1000L) * 1000L;
+	}
+
+	/**
+	 * Returns the current date truncated to the second
+	 *
+	 * @return current date
+	 */
+	public static Date currentDate() {
+
+		return new Date(currentTimeMillis());
+	}
+
+}
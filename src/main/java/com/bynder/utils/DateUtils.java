@@ -1,8 +1,22 @@
 package com.bynder.utils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.bynder.exception.InvalidRequestException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -10,6 +24,15 @@ import lombok.extern.slf4j.Slf4j;
  * Util class related to date operations 
  * 		* converts date object to a string of particular date format 
  * 		* converts string date to a date object of particular format
+ * 		* resolves lottery close times in the time zone of the lottery
+ * 
+ * Dates are converted with java.time formatters, which are thread safe and
+ * cached per date format, so no formatter is created per call. Time zones
+ * resolved from their ids are cached as well.
+ * 
+ * Dates are parsed as leniently as with SimpleDateFormat: numbers may have
+ * fewer digits than their pattern, e.g. a single-digit month, and values out
+ * of range roll over into the next field. Close times are parsed strictly.
  * 
  * @author arathy
  *
@@ -17,6 +40,14 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DateUtils {
 
+	private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<String, DateTimeFormatter> LENIENT_PARSERS = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<String, ZoneId> ZONES = new ConcurrentHashMap<>();
+
+	private static final ZoneId SYSTEM_ZONE = ZoneId.systemDefault();
+
 	/**
 	 * private constructor to hide implicit public constructor
 	 */
@@ -34,16 +65,29 @@ public class DateUtils {
 	 */
 	public static String formatDate(Date date, String dateFormat) {
 
-		String formattedDate = null;
-		if (date != null) {
-			SimpleDateFormat formatter = new SimpleDateFormat(dateFormat);
-			formattedDate = formatter.format(date);
-		}
-		return formattedDate;
+		return date == null ? null : formatDate(date.getTime(), dateFormat, SYSTEM_ZONE);
+	}
+
+	/**
+	 * Converts epoch milliseconds to a string of particular date format in the
+	 * given time zone
+	 * 
+	 * @param epochMillis - milliseconds since the epoch
+	 * @param dateFormat  - format to which date needs to be converted
+	 * @param zone        - time zone of the formatted date
+	 * 
+	 * @return formatted date string
+	 */
+	public static String formatDate(long epochMillis, String dateFormat, ZoneId zone) {
+
+		return formatter(dateFormat).format(Instant.ofEpochMilli(epochMillis).atZone(zone));
 	}
 
 	/**
-	 * Converts a string date to a Date object of particular format
+	 * Converts a string date to a Date object of particular format.
+	 * 
+	 * Text following the date format, like fractions of seconds, is ignored, and
+	 * the date is parsed leniently, as with SimpleDateFormat.
 	 * 
 	 * @param date       - date to be converted
 	 * @param dateFormat - format to which date needs to be converted
@@ -54,14 +98,119 @@ public class DateUtils {
 
 		Date formattedDate = null;
 		if (date != null) {
-			SimpleDateFormat formatter = new SimpleDateFormat(dateFormat);
 			try {
-				formattedDate = formatter.parse(date);
-			} catch (ParseException exception) {
+				LocalDateTime dateTime = LocalDateTime.from(lenientParser(dateFormat).parse(date, new ParsePosition(0)));
+				formattedDate = new Date(dateTime.atZone(SYSTEM_ZONE).toInstant().toEpochMilli());
+			} catch (DateTimeException exception) {
 				log.error("Error while parsing date {} using format {}", date, dateFormat);
 			}
 		}
 		return formattedDate;
 	}
 
+	/**
+	 * Converts a date object to a string of particular date format in the given
+	 * time zone
+	 * 
+	 * @param date       - date to be converted
+	 * @param dateFormat - format to which date needs to be converted
+	 * @param timeZone   - time zone id of the formatted date, the system time
+	 *                   zone if null
+	 * 
+	 * @return formatted date string
+	 */
+	public static String formatDate(Date date, String dateFormat, String timeZone) {
+
+		if (date == null) {
+			return null;
+		}
+
+		ZoneId zone = timeZone == null ? SYSTEM_ZONE : ZONES.computeIfAbsent(timeZone, ZoneId::of);
+		return formatDate(date.getTime(), dateFormat, zone);
+	}
+
+	/**
+	 * Resolves a time zone id, falling back to the system time zone if none is
+	 * given
+	 * 
+	 * @param timeZone - time zone id, e.g. Europe/Amsterdam
+	 * 
+	 * @return resolved time zone
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the time zone id is
+	 *                                 unknown
+	 */
+	public static ZoneId toZoneId(String timeZone) throws InvalidRequestException {
+
+		if (StringUtils.isBlank(timeZone)) {
+			return SYSTEM_ZONE;
+		}
+
+		try {
+			return ZONES.computeIfAbsent(timeZone, ZoneId::of);
+		} catch (DateTimeException exception) {
+			throw new InvalidRequestException("Unknown time zone " + timeZone);
+		}
+	}
+
+	/**
+	 * Resolves the close date of a lottery from its local close time in the time
+	 * zone of the lottery.
+	 * 
+	 * If no close time is given, the lottery closes at the next midnight of its
+	 * time zone.
+	 * 
+	 * @param closeTime  - local close time in the given date format
+	 * @param dateFormat - format of the close time
+	 * @param zone       - time zone of the lottery
+	 * 
+	 * @return close date
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the close time cannot
+	 *                                 be parsed or is not in the future
+	 */
+	public static Date toCloseDate(String closeTime, String dateFormat, ZoneId zone) throws InvalidRequestException {
+
+		if (StringUtils.isBlank(closeTime)) {
+			return nextMidnight(zone);
+		}
+
+		Date closeDate;
+
+		try {
+			closeDate = Date.from(LocalDateTime.parse(closeTime, formatter(dateFormat)).atZone(zone).toInstant());
+		} catch (DateTimeParseException exception) {
+			throw new InvalidRequestException("closeTime must be formatted as " + dateFormat);
+		}
+
+		if (!closeDate.after(new Date())) {
+			throw new InvalidRequestException("closeTime must be in the future");
+		}
+
+		return closeDate;
+	}
+
+	/**
+	 * Returns the start of the next day in the given time zone
+	 * 
+	 * @param zone - time zone
+	 * 
+	 * @return next midnight
+	 */
+	public static Date nextMidnight(ZoneId zone) {
+
+		return Date.from(LocalDate.now(zone).plusDays(1).atStartOfDay(zone).toInstant());
+	}
+
+	private static DateTimeFormatter formatter(String dateFormat) {
+
+		return FORMATTERS.computeIfAbsent(dateFormat, DateTimeFormatter::ofPattern);
+	}
+
+	private static DateTimeFormatter lenientParser(String dateFormat) {
+
+		return LENIENT_PARSERS.computeIfAbsent(dateFormat, pattern -> new DateTimeFormatterBuilder().parseLenient()
+				.appendPattern(pattern).toFormatter().withResolverStyle(ResolverStyle.LENIENT));
+	}
+
 }
@@ -0,0 +1,68 @@
+package com.bynder.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Util class to write newline delimited JSON
+ * 
+ * @author arathy
+ *
+ */
+public class NdjsonUtils {
+
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private NdjsonUtils() {
+
+	}
+
+	/**
+	 * Writes every value of the iterator as one JSON line.
+	 * 
+	 * Values are written one at a time through the buffered generator, without
+	 * flushing per value, so memory use does not depend on the number of values.
+	 * The output stream is left open.
+	 * 
+	 * @param objectMapper - object mapper used to serialise the values
+	 * @param values       - values to be written
+	 * @param mapper       - maps each value into the object to be serialised
+	 * @param outputStream - stream to write to
+	 * 
+	 * @throws IOException - thrown if writing fails
+	 */
+	public static <T, R> void writeLines(ObjectMapper objectMapper, Iterator<T> values, Function<T, R> mapper,
+			OutputStream outputStream) throws IOException {
+
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).withRootValueSeparator("\n");
+
+		boolean written = false;
+
+		try (SequenceWriter sequenceWriter = writer.writeValues(outputStream)) {
+
+			while (values.hasNext()) {
+				sequenceWriter.write(mapper.apply(values.next()));
+				written = true;
+			}
+		}
+
+		// the separator is only written between values, terminates the last line
+		if (written) {
+			outputStream.write('\n');
+		}
+		outputStream.flush();
+	}
+
+}
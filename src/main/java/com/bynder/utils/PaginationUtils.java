@@ -0,0 +1,144 @@
+package com.bynder.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+
+/**
+ * Util class related to keyset pagination
+ * 		* encodes the key of the last returned item into an opaque cursor
+ * 		* decodes a cursor back into the key to continue after
+ * 		* resolves the requested page size
+ * 		* builds a page from the items read for it
+ * 
+ * Cursors carry the kind of item they were issued for, so a cursor of one
+ * listing is rejected by another.
+ * 
+ * Keys are compared as Strings by the range queries, so items are paginated
+ * in the lexicographic order of their keys: ballotId and lotteryId "10" come
+ * before "9".
+ * 
+ * @author arathy
+ *
+ */
+public class PaginationUtils {
+
+	private static final String SEPARATOR = ":";
+
+	/**
+	 * private constructor to hide implicit public constructor
+	 */
+	private PaginationUtils() {
+
+	}
+
+	/**
+	 * Encodes the key of the last returned item into a cursor
+	 * 
+	 * @param kind - kind of items being paginated
+	 * @param key  - key of the last returned item
+	 * 
+	 * @return opaque cursor
+	 */
+	public static String encodeCursor(String kind, String key) {
+
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((kind + SEPARATOR + key).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a cursor into the key of the last returned item
+	 * 
+	 * @param kind   - kind of items being paginated
+	 * @param cursor - cursor returned with the previous page, may be null
+	 * 
+	 * @return key to continue after, null if no cursor is given
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the cursor was not
+	 *                                 issued for this kind of items
+	 */
+	public static String decodeCursor(String kind, String cursor) throws InvalidRequestException {
+
+		if (cursor == null || cursor.trim().isEmpty()) {
+			return null;
+		}
+
+		String decoded;
+		try {
+			decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException exception) {
+			throw new InvalidRequestException("Invalid cursor");
+		}
+
+		String prefix = kind + SEPARATOR;
+		if (!decoded.startsWith(prefix) || decoded.length() == prefix.length()) {
+			throw new InvalidRequestException("Invalid cursor");
+		}
+
+		return decoded.substring(prefix.length());
+	}
+
+	/**
+	 * Returns the page size to be used
+	 * 
+	 * @param limit        - requested page size, may be null
+	 * @param defaultLimit - page size used if none is requested
+	 * @param maxLimit     - maximum page size
+	 * 
+	 * @return page size
+	 * 
+	 * @throws InvalidRequestException - exception thrown if the requested page
+	 *                                 size is out of range
+	 */
+	public static int resolveLimit(Integer limit, int defaultLimit, int maxLimit) throws InvalidRequestException {
+
+		if (limit == null) {
+			return defaultLimit;
+		}
+
+		if (limit < 1 || limit > maxLimit) {
+			throw new InvalidRequestException("limit must be between 1 and " + maxLimit);
+		}
+
+		return limit;
+	}
+
+	/**
+	 * Builds a page from the items read for it.
+	 * 
+	 * Pages are read with one more item than the page size, the extra item only
+	 * tells that another page follows and is not returned.
+	 * 
+	 * @param items  - items read for the page, at most limit + 1
+	 * @param limit  - page size
+	 * @param kind   - kind of items being paginated
+	 * @param key    - returns the key of an item, which must be the key the items
+	 *               are ordered by
+	 * @param mapper - maps each item into the returned object
+	 * 
+	 * @return page with the cursor of the next page, if another page follows
+	 */
+	public static <T, R> PageDTO<R> toPage(List<T> items, int limit, String kind, Function<T, String> key,
+			Function<T, R> mapper) {
+
+		if (items == null || items.isEmpty()) {
+			return new PageDTO<>(new ArrayList<>(), null);
+		}
+
+		List<T> pageItems = items.size() > limit ? items.subList(0, limit) : items;
+		String nextCursor = items.size() > limit ? encodeCursor(kind, key.apply(pageItems.get(limit - 1))) : null;
+
+		List<R> mappedItems = new ArrayList<>(pageItems.size());
+		for (T item : pageItems) {
+			mappedItems.add(mapper.apply(item));
+		}
+
+		return new PageDTO<>(mappedItems, nextCursor);
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.bynder.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding items until their deadline
+ * 		* the lowest wheel has buckets of one tick, each higher wheel has
+ * 		  buckets spanning a whole turn of the wheel below it.
+ * 		* wheels above the lowest one are created when an item is added beyond
+ * 		  the span of the existing wheels, so far deadlines only cost one level
+ * 		  per factor of the wheel size.
+ * 		* when the clock enters a bucket of a higher wheel, its items are moved
+ * 		  down to the wheels below, until they reach the lowest wheel.
+ * 		* an item is due once the tick containing its deadline has passed, so
+ * 		  it is never returned before its deadline and at most one tick after.
+ * 
+ * Adding an item and advancing the clock by one tick take constant time,
+ * independent of the number of items held.
+ * 
+ * Not thread safe, callers have to synchronize access.
+ * 
+ * @author arathy
+ *
+ * @param <T> - type of items held
+ */
+public class TimingWheel<T> {
+
+	private final long tickMs;
+
+	private final int wheelSize;
+
+	private final long intervalMs;
+
+	private final List<List<Entry<T>>> buckets;
+
+	// start of the current tick, a multiple of tickMs
+	private long currentTime;
+
+	private TimingWheel<T> overflowWheel;
+
+	/**
+	 * Creates a wheel starting at the given time
+	 * 
+	 * @param tickMs    - length of a tick of the lowest wheel
+	 * @param wheelSize - number of buckets of each wheel
+	 * @param startMs   - current time
+	 */
+	public TimingWheel(long tickMs, int wheelSize, long startMs) {
+
+		if (tickMs <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("Tick and wheel size must be positive");
+		}
+
+		this.tickMs = tickMs;
+		this.wheelSize = wheelSize;
+		this.intervalMs = tickMs * wheelSize;
+		this.currentTime = startMs - Math.floorMod(startMs, tickMs);
+		this.buckets = new ArrayList<>(wheelSize);
+
+		for (int i = 0; i < wheelSize; i++) {
+			buckets.add(new ArrayList<>());
+		}
+	}
+
+	/**
+	 * Adds an item to be returned once its deadline has passed
+	 * 
+	 * @param item       - item to be held
+	 * @param deadlineMs - deadline of the item
+	 * 
+	 * @return false if the deadline is before the current tick, in which case the
+	 *         item is due already and not added
+	 */
+	public boolean add(T item, long deadlineMs) {
+
+		return add(new Entry<>(item, deadlineMs));
+	}
+
+	private boolean add(Entry<T> entry) {
+
+		if (entry.deadlineMs < currentTime) {
+			return false;
+		}
+
+		if (entry.deadlineMs < currentTime + intervalMs) {
+			buckets.get(bucketIndex(entry.deadlineMs)).add(entry);
+			return true;
+		}
+
+		if (overflowWheel == null) {
+			overflowWheel = new TimingWheel<>(intervalMs, wheelSize, currentTime);
+		}
+
+		return overflowWheel.add(entry);
+	}
+
+	/**
+	 * Advances the clock tick by tick up to the given time and passes every item
+	 * which became due to the consumer, in order of their ticks
+	 * 
+	 * @param nowMs - current time
+	 * @param due   - consumer of the items which became due
+	 */
+	public void advanceClock(long nowMs, Consumer<T> due) {
+
+		while (nowMs >= currentTime + tickMs) {
+
+			// the tick has passed, so all its items are due
+			List<Entry<T>> bucket = buckets.get(bucketIndex(currentTime));
+			bucket.forEach(entry -> due.accept(entry.item));
+			bucket.clear();
+
+			currentTime += tickMs;
+
+			if (overflowWheel != null) {
+				overflowWheel.cascade(currentTime, this::add);
+			}
+		}
+	}
+
+	/**
+	 * Moves this overflow wheel forward to the given time of the wheel below it,
+	 * and hands the items of every bucket the clock enters down to it
+	 * 
+	 * @param lowerTime - current time of the wheel below
+	 * @param moveDown  - adds an item to the wheel below
+	 */
+	private void cascade(long lowerTime, Consumer<Entry<T>> moveDown) {
+
+		while (lowerTime >= currentTime + tickMs) {
+
+			currentTime += tickMs;
+
+			// items moved down from above may land in the bucket being entered
+			if (overflowWheel != null) {
+				overflowWheel.cascade(currentTime, this::add);
+			}
+
+			List<Entry<T>> bucket = buckets.get(bucketIndex(currentTime));
+			List<Entry<T>> entries = new ArrayList<>(bucket);
+			bucket.clear();
+
+			entries.forEach(moveDown);
+		}
+	}
+
+	/**
+	 * Returns the number of items held by this wheel and the wheels above it
+	 * 
+	 * @return number of items
+	 */
+	public int size() {
+
+		int size = buckets.stream().mapToInt(List::size).sum();
+		return overflowWheel == null ? size : size + overflowWheel.size();
+	}
+
+	private int bucketIndex(long timeMs) {
+
+		return (int) Math.floorMod(timeMs / tickMs, (long) wheelSize);
+	}
+
+	/**
+	 * Item held until its deadline
+	 */
+	private static final class Entry<T> {
+
+		private final T item;
+
+		private final long deadlineMs;
+
+		private Entry(T item, long deadlineMs) {
+
+			this.item = item;
+			this.deadlineMs = deadlineMs;
+		}
+
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.bynder.winner;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.bynder.winner.UniformBallotDraw.DrawnBallot;
+
+/**
+ * Winner selection drawing a random ordinal among the lottery's ballots at
+ * close time, which reads a single ballot through an index for any number of
+ * ballots.
+ *
+ * Used unless lottery.winner-selection is set to another strategy.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "lottery.winner-selection", havingValue = "ordinal", matchIfMissing = true)
+public class OrdinalWinnerSelectionStrategy implements WinnerSelectionStrategy {
+
+	@Autowired
+	private UniformBallotDraw uniformBallotDraw;
+
+	/**
+	 * Selects a random ballot of the lottery as winner
+	 *
+	 * @param lotteryId - identifier of lottery for which winner needs to be
+	 *                  determined
+	 *
+	 * @return ballotId of the winner, -1 if the lottery has no ballots
+	 */
+	public String selectWinner(String lotteryId) {
+
+		DrawnBallot drawnBallot = uniformBallotDraw.draw(lotteryId);
+		return drawnBallot == null ? UniformBallotDraw.NO_WINNER : drawnBallot.getBallotId();
+	}
+
+}
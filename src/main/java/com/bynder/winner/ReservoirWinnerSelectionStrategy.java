@@ -0,0 +1,190 @@
+package com.bynder.winner;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.bynder.constants.Constants;
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+import com.bynder.winner.UniformBallotDraw.DrawnBallot;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Winner selection keeping a uniformly sampled ballot of every open lottery in
+ * the reservoirBallot field of the lottery, so closing a lottery only reads it.
+ *
+ * The reservoir is a sample of size one over the ballot ordinals: the ballot
+ * with ordinal m replaces the reservoir with probability 1/m. The reservoir
+ * ends up holding the highest ordinal whose replacement succeeded, which
+ * leaves every one of n ballots in the reservoir with probability 1/n. As the
+ * replacement only applies if the reservoir holds a lower ordinal, ballots
+ * stored concurrently by several nodes can be applied in any order.
+ *
+ * The sample is only uniform if the ordinals of the lottery have no gaps. An
+ * ordinal left unused by a failed insert, or by a node which reserved a block
+ * of ordinals but did not use all of it, skews it, e.g. the ballot following
+ * the gap replaces the reservoir with a lower probability than it should. A
+ * lottery whose ballot count differs from the highest ordinal assigned to its
+ * ballots is therefore drawn with a uniform draw when it is closed, which
+ * redraws unused ordinals, and its reservoir is not used. Ordinals reserved
+ * but never assigned lie above the highest assigned one, so a single node
+ * numbering ballots in blocks keeps using the reservoir.
+ *
+ * A replacement lost in a crash between storing the ballot and updating the
+ * reservoir is repaired at startup: the reservoir of every open lottery is set
+ * to a ballot drawn uniformly among the ordinals assigned so far, replacing a
+ * reservoir up to the last of these ordinals, and later ballots continue the
+ * sample from there.
+ *
+ * Enabled by setting lottery.winner-selection=reservoir.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "lottery.winner-selection", havingValue = "reservoir")
+@Slf4j
+public class ReservoirWinnerSelectionStrategy implements WinnerSelectionStrategy {
+
+	@Autowired
+	private LotteryRepository lotteryRepository;
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Autowired
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Autowired
+	private UniformBallotDraw uniformBallotDraw;
+
+	@Value("${lottery.reservoir.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup;
+
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * Offers the stored ballots to the reservoir of their lottery.
+	 *
+	 * Only the ballot with the highest ordinal whose replacement succeeded
+	 * replaces the reservoir, so the reservoir of each lottery is updated at most
+	 * once per call. Ballots without ordinal are ignored.
+	 *
+	 * @param ballots - stored ballots
+	 */
+	@Override
+	public void ballotsCreated(List<Ballot> ballots) {
+
+		Map<String, Ballot> replacements = new LinkedHashMap<>();
+
+		for (Ballot ballot : ballots) {
+
+			Long ordinal = ballot.getOrdinal();
+
+			if (ordinal == null || !replaces(ordinal)) {
+				continue;
+			}
+
+			replacements.merge(ballot.getLotteryId(), ballot,
+					(current, offered) -> offered.getOrdinal() > current.getOrdinal() ? offered : current);
+		}
+
+		replacements.forEach((lotteryId, ballot) -> lotteryRepository.updateReservoir(lotteryId,
+				ballot.getBallotId(), ballot.getOrdinal()));
+	}
+
+	/**
+	 * Returns whether the ballot with the given ordinal replaces the reservoir,
+	 * which is the case with probability 1/ordinal
+	 *
+	 * @param ordinal - ordinal of the ballot
+	 *
+	 * @return true if the ballot replaces the reservoir
+	 */
+	private boolean replaces(long ordinal) {
+
+		return random.longs(1, 0, ordinal).findFirst().getAsLong() == 0;
+	}
+
+	/**
+	 * Returns the reservoir ballot of the lottery as winner.
+	 *
+	 * Lotteries without a reservoir, with ballots created before ordinals were
+	 * assigned, or with ordinals left unused below the highest assigned one,
+	 * i.e. whose ballot count is not their highest assigned ordinal, are drawn
+	 * with a uniform draw instead.
+	 *
+	 * @param lotteryId - identifier of lottery for which winner needs to be
+	 *                  determined
+	 *
+	 * @return ballotId of the winner, -1 if the lottery has no ballots
+	 */
+	public String selectWinner(String lotteryId) {
+
+		lotteryBallotCounter.flush();
+
+		Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+
+		if (lottery != null && lottery.getReservoirBallot() != null
+				&& lottery.getBallotCount() == ballotRepository.findLastOrdinal(lotteryId)) {
+			return lottery.getReservoirBallot();
+		}
+
+		DrawnBallot drawnBallot = uniformBallotDraw.draw(lotteryId);
+		return drawnBallot == null ? UniformBallotDraw.NO_WINNER : drawnBallot.getBallotId();
+	}
+
+	/**
+	 * Rebuilds the reservoirs of open lotteries at startup, if enabled
+	 *
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+
+		if (rebuildOnStartup) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Sets the reservoir of every open lottery to a ballot drawn uniformly among
+	 * the ordinals assigned so far.
+	 *
+	 * The drawn ballot is stored with the last assigned ordinal of the draw, so
+	 * it is not replaced by ballots numbered up to that ordinal. It replaces a
+	 * reservoir holding any ordinal up to and including that one, which was left
+	 * behind by a lost replacement, but not a reservoir replaced by a later
+	 * ballot.
+	 *
+	 */
+	public void rebuild() {
+
+		List<Lottery> openLotteries = lotteryRepository.findByStatus(Constants.OPEN);
+
+		for (Lottery lottery : openLotteries) {
+
+			DrawnBallot drawnBallot = uniformBallotDraw.draw(lottery.getLotteryId());
+
+			if (drawnBallot != null && drawnBallot.getLastOrdinal() > 0) {
+				lotteryRepository.rebuildReservoir(lottery.getLotteryId(), drawnBallot.getBallotId(),
+						drawnBallot.getLastOrdinal());
+			}
+		}
+
+		log.info("Rebuilt reservoirs of {} open lotteries", openLotteries.size());
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.bynder.winner;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+
+/**
+ * Winner selection sampling one of the lottery's ballots with a $match and
+ * $sample aggregation at close time. Does not depend on ballot ordinals.
+ *
+ * Enabled by setting lottery.winner-selection=sample.
+ *
+ * @author arathy
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "lottery.winner-selection", havingValue = "sample")
+public class SampleWinnerSelectionStrategy implements WinnerSelectionStrategy {
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Autowired
+	private LotteryRepository lotteryRepository;
+
+	@Autowired
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	/**
+	 * Selects a random ballot of the lottery as winner.
+	 *
+	 * A zero ballot count is confirmed by checking whether any ballot exists, as
+	 * ballots of other nodes may not be counted yet.
+	 *
+	 * @param lotteryId - identifier of lottery for which winner needs to be
+	 *                  determined
+	 *
+	 * @return ballotId of the winner, -1 if the lottery has no ballots
+	 */
+	public String selectWinner(String lotteryId) {
+
+		lotteryBallotCounter.flush();
+
+		Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+		long ballotCount = lottery == null ? 0 : lottery.getBallotCount();
+
+		if (ballotCount == 0 && !ballotRepository.existsByLotteryId(lotteryId)) {
+			return UniformBallotDraw.NO_WINNER;
+		}
+
+		Ballot winnerBallot = ballotRepository.findRandomBallot(lotteryId);
+		return winnerBallot == null ? UniformBallotDraw.NO_WINNER : winnerBallot.getBallotId();
+	}
+
+}
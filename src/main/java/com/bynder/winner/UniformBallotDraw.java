@@ -0,0 +1,139 @@
+package com.bynder.winner;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+
+/**
+ * Component to draw a uniformly random ballot of a lottery.
+ *
+ * The ballot is drawn by picking a random ordinal between 1 and the highest
+ * ordinal assigned to a stored ballot of the lottery and reading its ballot
+ * through the (lotteryId, ordinal) index. Ordinals reserved in blocks but not
+ * assigned yet lie above it and are never drawn. An ordinal left unused by a
+ * failed insert, or still unused in the block of another node, is redrawn,
+ * which keeps the draw uniform over the stored ballots. Lotteries with ballots
+ * created before ordinals were assigned, or without a ballot found within the
+ * maximum number of attempts, fall back to a random sample of their ballots.
+ *
+ * @author arathy
+ *
+ */
+@Component
+public class UniformBallotDraw {
+
+	public static final String NO_WINNER = "-1";
+
+	@Autowired
+	private BallotRepository ballotRepository;
+
+	@Autowired
+	private LotteryRepository lotteryRepository;
+
+	@Autowired
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Value("${lottery.draw.max-ordinal-attempts:16}")
+	private int maxOrdinalAttempts;
+
+	private final Random random = new SecureRandom();
+
+	/**
+	 * Draws a random ballot of the lottery.
+	 *
+	 * The maintained ballot count of the lottery is used instead of counting its
+	 * ballots. As ballots of other nodes may not be counted yet, a zero count is
+	 * confirmed by checking whether any ballot exists.
+	 *
+	 * @param lotteryId - unique identifier of lottery
+	 *
+	 * @return drawn ballot together with the last assigned ordinal of the
+	 *         lottery at the time of the draw, null if the lottery has no
+	 *         ballots
+	 */
+	public DrawnBallot draw(String lotteryId) {
+
+		// writes the ballots counted by this node, so the stored count includes them
+		lotteryBallotCounter.flush();
+
+		Lottery lottery = lotteryRepository.findByLotteryId(lotteryId);
+		long ballotCount = lottery == null ? 0 : lottery.getBallotCount();
+		long lastOrdinal = ballotRepository.findLastOrdinal(lotteryId);
+
+		if (ballotCount == 0 && lastOrdinal == 0 && !ballotRepository.existsByLotteryId(lotteryId)) {
+			return null;
+		}
+
+		// more ballots than ordinals means some ballots were created without an ordinal
+		if (lastOrdinal > 0 && ballotCount <= lastOrdinal) {
+
+			Ballot ballot = drawByOrdinal(lotteryId, lastOrdinal);
+			if (ballot != null) {
+				return new DrawnBallot(ballot.getBallotId(), lastOrdinal);
+			}
+		}
+
+		Ballot ballot = ballotRepository.findRandomBallot(lotteryId);
+		return ballot == null ? null : new DrawnBallot(ballot.getBallotId(), lastOrdinal);
+	}
+
+	/**
+	 * Draws random ordinals of the lottery until one of them belongs to a stored
+	 * ballot.
+	 *
+	 * @param lotteryId   - unique identifier of lottery
+	 * @param lastOrdinal - last ordinal assigned to a ballot of the lottery
+	 *
+	 * @return drawn ballot, null if no ballot is found within the maximum number
+	 *         of attempts
+	 */
+	private Ballot drawByOrdinal(String lotteryId, long lastOrdinal) {
+
+		for (int attempt = 0; attempt < maxOrdinalAttempts; attempt++) {
+
+			long ordinal = random.longs(1, 1, lastOrdinal + 1).findFirst().getAsLong();
+			Ballot ballot = ballotRepository.findByLotteryIdAndOrdinal(lotteryId, ordinal);
+
+			if (ballot != null) {
+				return ballot;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Ballot drawn among the ballots numbered up to the last ordinal
+	 */
+	public static final class DrawnBallot {
+
+		private final String ballotId;
+
+		private final long lastOrdinal;
+
+		DrawnBallot(String ballotId, long lastOrdinal) {
+
+			this.ballotId = ballotId;
+			this.lastOrdinal = lastOrdinal;
+		}
+
+		public String getBallotId() {
+			return ballotId;
+		}
+
+		public long getLastOrdinal() {
+			return lastOrdinal;
+		}
+
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.bynder.winner;
+
+import java.util.List;
+
+import com.bynder.model.Ballot;
+
+/**
+ * Strategy to select the winner ballot of a lottery when it is closed.
+ *
+ * The strategy is chosen with lottery.winner-selection:
+ * 		* ordinal (default) - draws a random ordinal among the lottery's ballots.
+ * 		* sample - counts the lottery's ballots and samples one of them.
+ * 		* reservoir - keeps a uniformly sampled winner up to date while ballots
+ * 		  are created, so closing only reads it.
+ *
+ * @author arathy
+ *
+ */
+public interface WinnerSelectionStrategy {
+
+	/**
+	 * Called once ballots with assigned ordinals are stored
+	 *
+	 * @param ballots - stored ballots
+	 */
+	default void ballotsCreated(List<Ballot> ballots) {
+
+	}
+
+	/**
+	 * Selects the winner ballot of a lottery
+	 *
+	 * @param lotteryId - identifier of lottery for which winner needs to be
+	 *                  determined
+	 *
+	 * @return ballotId of the winner, -1 if the lottery has no ballots
+	 */
+	String selectWinner(String lotteryId);
+
+}
@@ -0,0 +1,269 @@
+package com.bynder.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.codec.BallotSegmentCodec;
+import com.bynder.constants.Constants;
+import com.bynder.model.Ballot;
+import com.bynder.model.BallotSegment;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Test class for archiving the ballots of closed lotteries and merging
+ * archived ballots with the ballots of BALLOT
+ *
+ *
+ * @author arathy
+ *
+ */
+public class BallotArchiveTest {
+
+	@Mock
+	private MongoOperations mongoOperations;
+
+	@Mock
+	private BallotRepository ballotRepository;
+
+	@InjectMocks
+	private BallotArchive ballotArchive;
+
+	// segments written by the archive, read back when ballots are purged
+	private List<BallotSegment> segments;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(ballotArchive, "segmentSize", 2);
+		ReflectionTestUtils.setField(ballotArchive, "claimTimeoutMs", 600000L);
+
+		segments = new ArrayList<>();
+
+		Mockito.when(mongoOperations.insert(ArgumentMatchers.any(BallotSegment.class))).thenAnswer(invocation -> {
+			segments.add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		Mockito.when(
+				mongoOperations.stream(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(BallotSegment.class)))
+				.thenAnswer(invocation -> iterator(new ArrayList<>(segments)));
+		Mockito.when(mongoOperations.updateFirst(ArgumentMatchers.any(Query.class), ArgumentMatchers.any(Update.class),
+				ArgumentMatchers.eq(Lottery.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+		Mockito.when(mongoOperations.remove(ArgumentMatchers.any(Query.class), ArgumentMatchers.eq(Ballot.class)))
+				.thenAnswer(invocation -> DeleteResult.acknowledged(ballotIdsOf(invocation.getArgument(0)).size()));
+		Mockito.when(mongoOperations.remove(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.eq(BallotSegment.class))).thenReturn(DeleteResult.acknowledged(0));
+		Mockito.when(ballotRepository.streamBallots(null, "12"))
+				.thenAnswer(invocation -> iterator(ballots("1", "2", "3")));
+	}
+
+	/**
+	 * Tests that a lottery claimed by another node is not archived
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testArchiveLottery_ClaimedByAnotherNode() throws Exception {
+
+		assertFalse(ballotArchive.archiveLottery("12"));
+
+		Mockito.verify(ballotRepository, Mockito.never()).streamBallots(ArgumentMatchers.any(), ArgumentMatchers.any());
+		Mockito.verify(mongoOperations, Mockito.never()).remove(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.eq(Ballot.class));
+	}
+
+	/**
+	 * Tests that the ballots of a lottery are written into segments and only the
+	 * archived ballots are deleted from BALLOT, one segment at a time
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testArchiveLottery_PurgesArchivedBallots() throws Exception {
+
+		claim(null);
+
+		assertTrue(ballotArchive.archiveLottery("12"));
+
+		assertEquals(2, segments.size());
+		assertEquals(Arrays.asList(Arrays.asList("1", "2"), Collections.singletonList("3")), purgedBallotIds());
+		assertEquals(Arrays.asList(Constants.ARCHIVING, Constants.PURGING, Constants.ARCHIVED), archiveStatuses());
+	}
+
+	/**
+	 * Tests that a PURGING lottery taken over from another node is purged again
+	 * from its segments, without reading BALLOT
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testArchiveLottery_TakeOverPurging() throws Exception {
+
+		BallotSegment segment = new BallotSegment();
+		segment.setLotteryId("12");
+		segment.setFirstBallotId("1");
+		segment.setLastBallotId("2");
+		segment.setData(BallotSegmentCodec.encode(ballots("1", "2")));
+		segments.add(segment);
+
+		claim(Constants.PURGING);
+
+		assertTrue(ballotArchive.archiveLottery("12"));
+
+		Mockito.verify(ballotRepository, Mockito.never()).streamBallots(ArgumentMatchers.any(), ArgumentMatchers.any());
+		Mockito.verify(mongoOperations, Mockito.never()).insert(ArgumentMatchers.any(BallotSegment.class));
+		assertEquals(Collections.singletonList(Arrays.asList("1", "2")), purgedBallotIds());
+		assertEquals(Collections.singletonList(Constants.ARCHIVED), archiveStatuses());
+	}
+
+	/**
+	 * Tests that archiving stops without deleting any ballot once the claim is
+	 * found taken over by another node
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testArchiveLottery_ClaimTakenOver() throws Exception {
+
+		claim(null);
+
+		Mockito.when(mongoOperations.updateFirst(ArgumentMatchers.any(Query.class), ArgumentMatchers.any(Update.class),
+				ArgumentMatchers.eq(Lottery.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null)).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertThrows(OptimisticLockingFailureException.class, () -> ballotArchive.archiveLottery("12"));
+
+		assertEquals(1, segments.size());
+		Mockito.verify(mongoOperations, Mockito.never()).remove(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.eq(Ballot.class));
+	}
+
+	/**
+	 * Tests that pages are merged in ballotId string order, ballots present in
+	 * both pages are returned once and one ballot more than the page size is kept
+	 */
+	@Test
+	public void testMergePages() {
+
+		assertEquals(Arrays.asList("1", "10", "2", "3"),
+				ballotIds(BallotArchive.mergePages(ballots("10", "3"), ballots("1", "2", "3"), 3)));
+		assertEquals(Arrays.asList("1", "10", "2"),
+				ballotIds(BallotArchive.mergePages(ballots("10", "2", "3"), ballots("1", "2", "3"), 2)));
+		assertEquals(Arrays.asList("4", "5"), ballotIds(BallotArchive.mergePages(ballots(), ballots("4", "5"), 2)));
+		assertEquals(Arrays.asList(), ballotIds(BallotArchive.mergePages(ballots(), ballots(), 2)));
+	}
+
+	private void claim(String archiveStatus) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId("12");
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setArchiveStatus(archiveStatus);
+
+		Mockito.when(mongoOperations.findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(Update.class), ArgumentMatchers.eq(Lottery.class))).thenReturn(lottery);
+	}
+
+	private List<List<String>> purgedBallotIds() {
+
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		Mockito.verify(mongoOperations, Mockito.atLeastOnce()).remove(queries.capture(),
+				ArgumentMatchers.eq(Ballot.class));
+
+		return queries.getAllValues().stream().map(BallotArchiveTest::ballotIdsOf).collect(Collectors.toList());
+	}
+
+	private List<Object> archiveStatuses() {
+
+		ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+		Mockito.verify(mongoOperations, Mockito.atLeastOnce()).updateFirst(ArgumentMatchers.any(Query.class),
+				updates.capture(), ArgumentMatchers.eq(Lottery.class));
+
+		return updates.getAllValues().stream().map(update -> update.getUpdateObject().get("$set", Document.class))
+				.filter(set -> set.containsKey("archiveStatus")).map(set -> set.get("archiveStatus"))
+				.collect(Collectors.toList());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> ballotIdsOf(Query query) {
+
+		return new ArrayList<>(
+				(Collection<String>) query.getQueryObject().get("ballotId", Document.class).get("$in"));
+	}
+
+	private static <T> CloseableIterator<T> iterator(List<T> items) {
+
+		Iterator<T> iterator = items.iterator();
+
+		return new CloseableIterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+
+				return iterator.hasNext();
+			}
+
+			@Override
+			public T next() {
+
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+
+				// nothing is held open
+			}
+		};
+	}
+
+	private static List<Ballot> ballots(String... ballotIds) {
+
+		List<Ballot> ballots = new ArrayList<>();
+
+		for (String ballotId : ballotIds) {
+			Ballot ballot = new Ballot();
+			ballot.setBallotId(ballotId);
+			ballot.setLotteryId("12");
+			ballot.setUserId("3");
+			ballots.add(ballot);
+		}
+
+		return ballots;
+	}
+
+	private static List<String> ballotIds(List<Ballot> ballots) {
+
+		return ballots.stream().map(Ballot::getBallotId).collect(Collectors.toList());
+	}
+
+}
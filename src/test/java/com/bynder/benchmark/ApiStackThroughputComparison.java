@@ -0,0 +1,132 @@
+package com.bynder.benchmark;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.bynder.LotteryServiceApplication;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Throughput comparison of the servlet and the reactive stack: starts the
+ * application once per stack, then sends the same number of ballot creations
+ * and lottery listings with the same concurrency and reports requests per
+ * second and latency percentiles.
+ * 
+ * Requests are sent with a non-blocking client, so the client is not limited by
+ * its own threads. Requires a local Mongo instance, data is written into a
+ * separate benchmark database which is dropped afterwards.
+ * 
+ * Arguments: [mongoUri] [requests] [concurrency]
+ * 
+ * @author arathy
+ *
+ */
+public class ApiStackThroughputComparison {
+
+	private static final String DATABASE = "LOTTERY_BENCHMARK_DB";
+
+	public static void main(String[] args) {
+
+		String mongoUri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		run("servlet", "default", mongoUri, requests, concurrency);
+		run("reactive", "reactive", mongoUri, requests, concurrency);
+	}
+
+	private static void run(String stack, String profile, String mongoUri, int requests, int concurrency) {
+
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(LotteryServiceApplication.class)
+				.profiles(profile).properties("server.port=0", "spring.data.mongodb.uri=" + mongoUri + "/" + DATABASE,
+						"end.lottery.event=-", "logging.level.root=WARN")
+				.run();
+
+		try {
+
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			WebClient client = WebClient.builder().baseUrl(baseUrl).build();
+
+			String lotteryId = extractId(post(client, "/lottery",
+					"{\"name\":\"Benchmark\",\"prizeMoney\":100,\"startDate\":\"2023-01-01T00:00:00\"}").block());
+			String userId = extractId(post(client, "/register",
+					"{\"userName\":\"benchmark" + stack + "\",\"firstName\":\"Bench\",\"lastName\":\"Mark\"}").block());
+			String ballotRequest = "{\"userId\":\"" + userId + "\",\"lotteryId\":\"" + lotteryId + "\"}";
+
+			// warm up
+			measure(Flux.range(0, Math.min(requests, 2000)), concurrency, i -> post(client, "/ballot", ballotRequest));
+
+			report(stack, "POST /ballot",
+					measure(Flux.range(0, requests), concurrency, i -> post(client, "/ballot", ballotRequest)));
+			report(stack, "GET /lotteries", measure(Flux.range(0, requests), concurrency,
+					i -> client.get().uri("/lotteries?status=OPEN").retrieve().bodyToMono(String.class)));
+
+		} finally {
+
+			context.getBean(MongoTemplate.class).getDb().drop();
+			context.close();
+		}
+	}
+
+	private static Mono<String> post(WebClient client, String uri, String body) {
+
+		return client.post().uri(uri).contentType(MediaType.APPLICATION_JSON).bodyValue(body).retrieve()
+				.bodyToMono(String.class);
+	}
+
+	private static String extractId(String response) {
+
+		return response.substring(response.lastIndexOf(':') + 1);
+	}
+
+	/**
+	 * Sends the requests with the given concurrency
+	 * 
+	 * @return elapsed time in nanoseconds followed by the latency of each request
+	 *         in nanoseconds
+	 */
+	private static long[] measure(Flux<Integer> requests, int concurrency,
+			Function<Integer, Mono<String>> request) {
+
+		long start = System.nanoTime();
+
+		long[] latencies = requests.flatMap(i -> {
+			long requestStart = System.nanoTime();
+			return request.apply(i).map(response -> System.nanoTime() - requestStart);
+		}, concurrency).collectList().timeout(Duration.ofMinutes(10)).block().stream().mapToLong(Long::longValue)
+				.toArray();
+
+		long[] result = new long[latencies.length + 1];
+		result[0] = System.nanoTime() - start;
+		System.arraycopy(latencies, 0, result, 1, latencies.length);
+		return result;
+	}
+
+	private static void report(String stack, String operation, long[] result) {
+
+		long[] latencies = Arrays.copyOfRange(result, 1, result.length);
+		Arrays.sort(latencies);
+
+		double seconds = result[0] / (double) TimeUnit.SECONDS.toNanos(1);
+
+		System.out.printf("%-8s %-15s %8d requests %10.0f req/s  p50 %6.1f ms  p99 %6.1f ms%n", stack, operation,
+				latencies.length, latencies.length / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99));
+	}
+
+	private static double percentile(long[] sortedLatencies, double percentile) {
+
+		int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+	}
+
+}
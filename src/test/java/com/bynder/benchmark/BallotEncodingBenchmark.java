@@ -0,0 +1,137 @@
+package com.bynder.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.bynder.codec.BallotColumnarCodec;
+import com.bynder.constants.Constants;
+import com.bynder.dto.BallotDTO;
+import com.bynder.utils.DateUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmark of the encodings of a page of ballots as returned by GET /ballots:
+ * JSON, Smile and the columnar encoding of BallotColumnarCodec, each written
+ * and read back.
+ *
+ * The page holds 1000 ballots of 10 lotteries and 200 users with consecutive
+ * ballotIds, as read in ballotId order. The payload size of each encoding is
+ * printed once before the run.
+ *
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BallotEncodingBenchmark {
+
+	private static final TypeReference<List<BallotDTO>> BALLOT_LIST = new TypeReference<List<BallotDTO>>() {
+	};
+
+	// built as by the application, whose parameter names module reads ballots
+	// through their constructor
+	private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+	private final List<BallotDTO> ballots = new ArrayList<>();
+
+	private byte[] json;
+
+	private byte[] smile;
+
+	private byte[] columnar;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+
+		long createdSecond = 1688995800L;
+
+		for (int ballotId = 1; ballotId <= 1000; ballotId++) {
+
+			createdSecond += ballotId % 3;
+			ballots.add(new BallotDTO(String.valueOf(ballotId % 10 + 1), String.valueOf(ballotId % 200 + 1),
+					String.valueOf(100000 + ballotId),
+					DateUtils.formatDate(createdSecond * 1000L, Constants.LOTTERY_DATE_FORMAT, ZoneOffset.UTC)));
+		}
+
+		json = writeJson();
+		smile = writeSmile();
+		columnar = writeColumnar();
+
+		System.out.printf("%nPayload size of %d ballots: json=%d bytes, smile=%d bytes, columnar=%d bytes%n",
+				ballots.size(), json.length, smile.length, columnar.length);
+	}
+
+	@Benchmark
+	public byte[] writeJson() throws IOException {
+
+		return jsonMapper.writeValueAsBytes(ballots);
+	}
+
+	@Benchmark
+	public byte[] writeSmile() throws IOException {
+
+		return smileMapper.writeValueAsBytes(ballots);
+	}
+
+	@Benchmark
+	public byte[] writeColumnar() throws IOException {
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BallotColumnarCodec.encode(ballots, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	@Benchmark
+	public List<BallotDTO> readJson() throws IOException {
+
+		return jsonMapper.readValue(json, BALLOT_LIST);
+	}
+
+	@Benchmark
+	public List<BallotDTO> readSmile() throws IOException {
+
+		return smileMapper.readValue(smile, BALLOT_LIST);
+	}
+
+	@Benchmark
+	public List<BallotDTO> readColumnar() throws IOException {
+
+		return BallotColumnarCodec.decode(new ByteArrayInputStream(columnar));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(BallotEncodingBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.bynder.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.log.LogBallotRepository;
+import com.bynder.repository.memory.InMemoryBallotRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+
+/**
+ * Benchmark of ingesting ballots: 100,000 ballots of 10 lotteries and 10,000
+ * users are inserted in batches of 1000 into an empty ballot log, into an
+ * empty in-memory ballot repository and into an empty BALLOT collection with
+ * the indexes of the application, with unordered inserts as done for ballots.
+ *
+ * Every invocation starts from empty storage, so the time of a whole ingest is
+ * measured. Run with the GC profiler, as done by the main method, to compare
+ * the bytes allocated per ingest.
+ *
+ * Requires a local Mongo instance, ballots are written into a separate
+ * benchmark database which is dropped afterwards.
+ *
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class BallotLogBenchmark {
+
+	private static final int BALLOTS = 100_000;
+
+	private static final int BATCH_SIZE = 1000;
+
+	@Param({ "mongodb://localhost:27017" })
+	public String mongoUri;
+
+	private final List<List<Ballot>> batches = new ArrayList<>();
+
+	private final List<List<Document>> documentBatches = new ArrayList<>();
+
+	private Path directory;
+
+	private LogBallotRepository logBallotRepository;
+
+	private InMemoryBallotRepository inMemoryBallotRepository;
+
+	private MongoClient mongoClient;
+
+	private MongoCollection<Document> ballotCollection;
+
+	@Setup(Level.Trial)
+	public void createBallots() {
+
+		mongoClient = MongoClients.create(mongoUri);
+		ballotCollection = mongoClient.getDatabase("LOTTERY_BENCHMARK_DB").getCollection("BALLOT");
+
+		long[] ordinals = new long[10];
+
+		for (int i = 0; i < BALLOTS; i += BATCH_SIZE) {
+
+			List<Ballot> batch = new ArrayList<>();
+			List<Document> documentBatch = new ArrayList<>();
+
+			for (int j = i; j < i + BATCH_SIZE; j++) {
+
+				Ballot ballot = new Ballot();
+				ballot.setBallotId(String.valueOf(j + 1));
+				ballot.setLotteryId(String.valueOf(j % 10 + 1));
+				ballot.setUserId(String.valueOf(j % 10_000 + 1));
+				ballot.setCreatedDate(new Date(1688995800000L + j));
+				ballot.setOrdinal(++ordinals[j % 10]);
+				batch.add(ballot);
+
+				documentBatch.add(new Document("ballotId", ballot.getBallotId())
+						.append("lotteryId", ballot.getLotteryId()).append("userId", ballot.getUserId())
+						.append("createdDate", ballot.getCreatedDate()).append("ordinal", ballot.getOrdinal()));
+			}
+
+			batches.add(batch);
+			documentBatches.add(documentBatch);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void dropBallots() {
+
+		ballotCollection.drop();
+		mongoClient.close();
+	}
+
+	@Setup(Level.Invocation)
+	public void createStorage() throws IOException {
+
+		directory = Files.createTempDirectory("ballot-log-benchmark");
+
+		logBallotRepository = new LogBallotRepository();
+		ReflectionTestUtils.setField(logBallotRepository, "directory", directory.toString());
+		ReflectionTestUtils.setField(logBallotRepository, "segmentRecords", 1 << 20);
+		ReflectionTestUtils.setField(logBallotRepository, "singleNode", true);
+		logBallotRepository.open();
+
+		inMemoryBallotRepository = new InMemoryBallotRepository();
+
+		ballotCollection.drop();
+		ballotCollection.createIndex(Indexes.ascending("ballotId"), new IndexOptions().unique(true));
+		ballotCollection.createIndex(Indexes.ascending("lotteryId", "ballotId"));
+		ballotCollection.createIndex(Indexes.ascending("userId", "ballotId"));
+		ballotCollection.createIndex(Indexes.ascending("lotteryId", "ordinal"), new IndexOptions().unique(true)
+				.partialFilterExpression(new Document("ordinal", new Document("$exists", true))));
+	}
+
+	@TearDown(Level.Invocation)
+	public void deleteStorage() throws IOException {
+
+		logBallotRepository.close();
+
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Benchmark
+	public long ingestBallotLog() {
+
+		batches.forEach(logBallotRepository::insertUnordered);
+		return logBallotRepository.count();
+	}
+
+	@Benchmark
+	public long ingestInMemory() {
+
+		batches.forEach(inMemoryBallotRepository::insertUnordered);
+		return inMemoryBallotRepository.count();
+	}
+
+	@Benchmark
+	public long ingestMongo() {
+
+		InsertManyOptions options = new InsertManyOptions().ordered(false);
+		documentBatches.forEach(batch -> ballotCollection.insertMany(batch, options));
+		return ballotCollection.estimatedDocumentCount();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(BallotLogBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
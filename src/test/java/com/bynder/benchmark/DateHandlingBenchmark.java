@@ -0,0 +1,94 @@
+package com.bynder.benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.bynder.constants.Constants;
+import com.bynder.utils.CoarseClock;
+import com.bynder.utils.DateUtils;
+
+/**
+ * Benchmark of the date handling done per ballot and per lottery: formatting a
+ * date and getting the current date, with a SimpleDateFormat created per call
+ * as done before against the cached formatters of DateUtils and CoarseClock.
+ *
+ * Run with the GC profiler, as done by the main method, to compare the bytes
+ * allocated per operation (gc.alloc.rate.norm) besides the time.
+ *
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class DateHandlingBenchmark {
+
+	private final Date date = new Date(1688995800000L);
+
+	private final String formattedDate = "2023-07-10T13:30:00";
+
+	@Benchmark
+	public String formatSimpleDateFormat() {
+
+		return new SimpleDateFormat(Constants.LOTTERY_DATE_FORMAT).format(date);
+	}
+
+	@Benchmark
+	public String formatDateUtils() {
+
+		return DateUtils.formatDate(date, Constants.LOTTERY_DATE_FORMAT);
+	}
+
+	@Benchmark
+	public Date parseSimpleDateFormat() throws ParseException {
+
+		return new SimpleDateFormat(Constants.LOTTERY_DATE_FORMAT).parse(formattedDate);
+	}
+
+	@Benchmark
+	public Date parseDateUtils() {
+
+		return DateUtils.toDate(formattedDate, Constants.LOTTERY_DATE_FORMAT);
+	}
+
+	@Benchmark
+	public Date currentDateParsed() throws ParseException {
+
+		return new SimpleDateFormat(Constants.LOTTERY_DATE_FORMAT).parse(LocalDateTime.now().toString());
+	}
+
+	@Benchmark
+	public Date currentDateCoarseClock() {
+
+		return CoarseClock.currentDate();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(DateHandlingBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
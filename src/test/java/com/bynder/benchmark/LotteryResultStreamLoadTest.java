@@ -0,0 +1,211 @@
+package com.bynder.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.bynder.LotteryServiceApplication;
+import com.bynder.model.Lottery;
+import com.bynder.scheduler.LotteryScheduler;
+import com.bynder.service.LotteryService;
+import com.bynder.subscription.LotteryResultSubscriptions;
+
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Load test of GET /lotteryResult/stream: starts the application, subscribes
+ * the given number of clients to the result of one open lottery, reports the
+ * heap and threads used while they wait, then closes the lottery through the
+ * lottery scheduler and reports how long it took until every client received
+ * the result. Fails if not every client connected within the connect timeout
+ * or received the result, if the heap used per subscriber or the p99 delivery
+ * latency exceed their limits, or if the number of threads grew with the
+ * number of subscribers.
+ *
+ * Clients are opened with a non-blocking client, 10,000 per second, and are
+ * spread over the loopback addresses 127.0.0.1 to 127.0.0.n, as the ephemeral
+ * ports of one address pair do not suffice for 100,000 connections. The client
+ * runs in the same JVM, so the reported heap includes both sides of every
+ * connection. The open file limit has to exceed twice the number of
+ * subscribers. Requires a local Mongo instance, data is written into a separate
+ * benchmark database which is dropped afterwards.
+ *
+ * Arguments: [mongoUri] [subscribers] [loopbackAddresses]
+ * [maxHeapKbPerSubscriber] [maxP99Ms]
+ *
+ * @author arathy
+ *
+ */
+public class LotteryResultStreamLoadTest {
+
+	private static final String DATABASE = "LOTTERY_BENCHMARK_DB";
+
+	private static final int CONNECT_BATCH = 1000;
+
+	// threads a node may start while clients connect, e.g. request threads, however many clients wait
+	private static final int MAX_ADDED_THREADS = 250;
+
+	private static final long CONNECT_TIMEOUT_SECONDS = 120;
+
+	public static void main(String[] args) throws Exception {
+
+		String mongoUri = args.length > 0 ? args[0] : "mongodb://localhost:27017";
+		int subscribers = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+		int loopbackAddresses = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		double maxHeapKbPerSubscriber = args.length > 3 ? Double.parseDouble(args[3]) : 32;
+		double maxP99Ms = args.length > 4 ? Double.parseDouble(args[4]) : 2000;
+
+		List<String> failures = new ArrayList<>();
+
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(LotteryServiceApplication.class)
+				.profiles("result-stream")
+				.properties("server.port=0", "spring.data.mongodb.uri=" + mongoUri + "/" + DATABASE,
+						"end.lottery.event=-", "logging.level.root=WARN",
+						"server.tomcat.max-connections=" + (subscribers + 1000))
+				.run();
+
+		try {
+
+			String port = context.getEnvironment().getProperty("local.server.port");
+			LotteryResultSubscriptions subscriptions = context.getBean(LotteryResultSubscriptions.class);
+
+			ConnectionProvider connectionProvider = ConnectionProvider.builder("lottery-result-stream")
+					.maxConnections(subscribers).pendingAcquireMaxCount(-1).build();
+			ReactorClientHttpConnector connector = new ReactorClientHttpConnector(
+					HttpClient.create(connectionProvider));
+
+			List<WebClient> clients = new ArrayList<>();
+			for (int i = 1; i <= loopbackAddresses; i++) {
+				clients.add(WebClient.builder().clientConnector(connector).baseUrl("http://127.0.0." + i + ":" + port)
+						.build());
+			}
+
+			String lotteryId = createLottery(clients.get(0));
+
+			long heapBefore = usedHeap();
+			int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+			long connectStart = System.nanoTime();
+
+			// completes with the time each client received the result
+			CompletableFuture<List<Long>> receiveTimes = Flux.range(0, subscribers).buffer(CONNECT_BATCH)
+					.delayElements(Duration.ofMillis(100)).flatMapIterable(batch -> batch)
+					.flatMap(i -> clients.get(i % clients.size()).get()
+							.uri("/lotteryResult/stream?lotteryId={lotteryId}", lotteryId)
+							.accept(MediaType.TEXT_EVENT_STREAM).retrieve()
+							.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+							}).next().map(event -> System.nanoTime()), subscribers)
+					.collectList().toFuture();
+
+			long connectDeadline = connectStart + TimeUnit.SECONDS.toNanos(CONNECT_TIMEOUT_SECONDS);
+
+			while (subscriptions.getSubscriberCount() < subscribers && System.nanoTime() < connectDeadline) {
+
+				if (receiveTimes.isDone()) {
+					receiveTimes.join();
+				}
+				TimeUnit.MILLISECONDS.sleep(100);
+			}
+
+			long connectNanos = System.nanoTime() - connectStart;
+			int connected = subscriptions.getSubscriberCount();
+			long heapSubscribed = usedHeap();
+			int threadsSubscribed = ManagementFactory.getThreadMXBean().getThreadCount();
+
+			double heapKbPerSubscriber = (heapSubscribed - heapBefore) / 1024.0 / subscribers;
+
+			System.out.printf("%d subscribers connected in %.1f s%n", connected, seconds(connectNanos));
+			System.out.printf("heap %d MB -> %d MB (%.1f KB per subscriber, client and server)%n",
+					heapBefore >> 20, heapSubscribed >> 20, heapKbPerSubscriber);
+			System.out.printf("threads %d -> %d%n", threadsBefore, threadsSubscribed);
+
+			if (connected < subscribers) {
+				throw new AssertionError(String.format("Load test failed: only %d of %d subscribers connected in %d s",
+						connected, subscribers, CONNECT_TIMEOUT_SECONDS));
+			}
+
+			check(failures, heapKbPerSubscriber <= maxHeapKbPerSubscriber,
+					"%.1f KB of heap per subscriber exceeds %.1f KB", heapKbPerSubscriber, maxHeapKbPerSubscriber);
+			check(failures, threadsSubscribed - threadsBefore <= MAX_ADDED_THREADS,
+					"%d threads were started while subscribing, more than %d", threadsSubscribed - threadsBefore,
+					MAX_ADDED_THREADS);
+
+			Lottery lottery = context.getBean(LotteryService.class).getLottery(lotteryId);
+
+			long closeStart = System.nanoTime();
+			context.getBean(LotteryScheduler.class).closeLotteries(Collections.singletonList(lottery));
+
+			long[] latencies = receiveTimes.get(10, TimeUnit.MINUTES).stream()
+					.mapToLong(receiveTime -> receiveTime - closeStart).sorted().toArray();
+
+			System.out.printf("%d results received after close: p50 %.1f ms  p99 %.1f ms  max %.1f ms%n",
+					latencies.length, percentile(latencies, 0.50), percentile(latencies, 0.99),
+					latencies[latencies.length - 1] / 1_000_000.0);
+
+			check(failures, latencies.length == subscribers, "only %d of %d subscribers received the result",
+					latencies.length, subscribers);
+			check(failures, percentile(latencies, 0.99) <= maxP99Ms, "p99 latency %.1f ms exceeds %.1f ms",
+					percentile(latencies, 0.99), maxP99Ms);
+
+			connectionProvider.dispose();
+
+		} finally {
+
+			context.getBean(MongoTemplate.class).getDb().drop();
+			context.close();
+		}
+
+		if (!failures.isEmpty()) {
+			throw new AssertionError("Load test failed: " + String.join("; ", failures));
+		}
+	}
+
+	private static void check(List<String> failures, boolean passed, String message, Object... args) {
+
+		if (!passed) {
+			failures.add(String.format(message, args));
+		}
+	}
+
+	private static String createLottery(WebClient client) {
+
+		String response = client.post().uri("/lottery").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"name\":\"Load test\",\"prizeMoney\":100,\"startDate\":\"2023-01-01T00:00:00\"}")
+				.retrieve().bodyToMono(String.class).block();
+
+		return response.substring(response.lastIndexOf(':') + 1);
+	}
+
+	private static long usedHeap() {
+
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static double seconds(long nanos) {
+
+		return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	private static double percentile(long[] sortedLatencies, double percentile) {
+
+		int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.bynder.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.bynder.utils.BloomFilter;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+
+/**
+ * Benchmark of the user check done for every ballot: reading the user document
+ * from storage, as done without the user existence filter, against the filter
+ * lookup and the projected existence query used to confirm positives.
+ * 
+ * Requires a local Mongo instance, users are seeded into a separate benchmark
+ * database which is dropped afterwards.
+ * 
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserExistenceCheckBenchmark {
+
+	@Param({ "mongodb://localhost:27017" })
+	public String mongoUri;
+
+	@Param({ "100000" })
+	public int users;
+
+	private MongoClient mongoClient;
+
+	private MongoCollection<Document> userCollection;
+
+	private BloomFilter filter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mongoClient = MongoClients.create(mongoUri);
+		userCollection = mongoClient.getDatabase("LOTTERY_BENCHMARK_DB").getCollection("USER");
+		userCollection.drop();
+		userCollection.createIndex(Indexes.ascending("userId"));
+
+		filter = new BloomFilter(16L * 1024 * 1024, users);
+
+		List<Document> batch = new ArrayList<>();
+		for (int userId = 1; userId <= users; userId++) {
+
+			batch.add(new Document("userId", String.valueOf(userId)).append("userName", "user" + userId)
+					.append("firstName", "First").append("lastName", "Last"));
+			filter.put(String.valueOf(userId));
+
+			if (batch.size() == 10000) {
+				userCollection.insertMany(batch);
+				batch.clear();
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			userCollection.insertMany(batch);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		userCollection.drop();
+		mongoClient.close();
+	}
+
+	private String randomUserId() {
+
+		return String.valueOf(ThreadLocalRandom.current().nextInt(1, users + 1));
+	}
+
+	@Benchmark
+	public Document findUserDocument() {
+
+		return userCollection.find(Filters.eq("userId", randomUserId())).first();
+	}
+
+	@Benchmark
+	public Document projectedExistenceQuery() {
+
+		return userCollection.find(Filters.eq("userId", randomUserId())).projection(Projections.include("_id"))
+				.limit(1).first();
+	}
+
+	@Benchmark
+	public boolean filterLookup() {
+
+		return filter.mightContain(randomUserId());
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(UserExistenceCheckBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
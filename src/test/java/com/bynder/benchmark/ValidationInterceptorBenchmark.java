@@ -0,0 +1,138 @@
+package com.bynder.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Parameter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+
+import com.bynder.controller.BallotController;
+import com.bynder.controller.LotteryController;
+import com.bynder.dto.BallotDTO;
+import com.bynder.interceptors.ValidationInterceptor;
+
+/**
+ * Benchmark of the validation of mandatory request parameters per request:
+ * resolving the required parameters of the handler method by reflection on
+ * every request, as done before, against the metadata cached per method by
+ * ValidationInterceptor.
+ *
+ * Handlers are POST /ballot, which has no request parameters, and GET
+ * /lotteryResult, which has one required request parameter. Run with the GC
+ * profiler, as done by the main method, to compare the bytes allocated per
+ * request.
+ *
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationInterceptorBenchmark {
+
+	private final ValidationInterceptor validationInterceptor = new ValidationInterceptor();
+
+	private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	private HandlerMethod createBallot;
+
+	private HandlerMethod getLotteryResult;
+
+	@Setup(Level.Trial)
+	public void setup() throws NoSuchMethodException {
+
+		createBallot = new HandlerMethod(new BallotController(), BallotController.class.getMethod("createBallot",
+				String.class, BallotDTO.class));
+		getLotteryResult = new HandlerMethod(new LotteryController(),
+				LotteryController.class.getMethod("getLotteryResult", String.class));
+		request.setParameter("lotteryId", "12");
+	}
+
+	@Benchmark
+	public boolean createBallotCached() throws Exception {
+
+		return validationInterceptor.preHandle(request, response, createBallot);
+	}
+
+	@Benchmark
+	public boolean createBallotReflective() {
+
+		return reflectivePreHandle(createBallot);
+	}
+
+	@Benchmark
+	public boolean getLotteryResultCached() throws Exception {
+
+		return validationInterceptor.preHandle(request, response, getLotteryResult);
+	}
+
+	@Benchmark
+	public boolean getLotteryResultReflective() {
+
+		return reflectivePreHandle(getLotteryResult);
+	}
+
+	/**
+	 * Validation as done before the metadata was cached: the parameters and
+	 * annotations of the handler method are read and collected into a map per
+	 * parameter on every request
+	 */
+	private boolean reflectivePreHandle(HandlerMethod handlerMethod) {
+
+		for (Parameter parameter : handlerMethod.getMethod().getParameters()) {
+
+			Map<String, Object> parameterDetails = new HashMap<>();
+
+			for (Annotation annotation : parameter.getAnnotations()) {
+
+				if (annotation.annotationType().equals(RequestParam.class)) {
+
+					RequestParam param = (RequestParam) annotation;
+					parameterDetails.put("required", param.required());
+					parameterDetails.put("name", param.value());
+					parameterDetails.put("value", request.getParameter(param.value()));
+				}
+			}
+
+			if (Boolean.TRUE.equals(parameterDetails.get("required"))
+					&& StringUtils.isBlank((String) parameterDetails.get("value"))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(ValidationInterceptorBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.bynder.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+
+/**
+ * Benchmark of the winner draw of a large lottery: a random sample of the
+ * lottery's ballots, as done by findRandomBallot, against reading the ballot
+ * of a random ordinal through the (lotteryId, ordinal) index.
+ *
+ * Requires a local Mongo instance, ballots are seeded into a separate
+ * benchmark database which is dropped afterwards. Seeding the default of 10
+ * million ballots takes several minutes.
+ *
+ * @author arathy
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WinnerDrawBenchmark {
+
+	private static final String LOTTERY_ID = "1";
+
+	@Param({ "mongodb://localhost:27017" })
+	public String mongoUri;
+
+	@Param({ "10000000" })
+	public int ballots;
+
+	private MongoClient mongoClient;
+
+	private MongoCollection<Document> ballotCollection;
+
+	private List<Document> samplePipeline;
+
+	@Setup(Level.Trial)
+	public void setup() {
+
+		mongoClient = MongoClients.create(mongoUri);
+		ballotCollection = mongoClient.getDatabase("LOTTERY_BENCHMARK_DB").getCollection("BALLOT");
+		ballotCollection.drop();
+		ballotCollection.createIndex(Indexes.ascending("lotteryId", "ballotId"));
+		ballotCollection.createIndex(Indexes.ascending("lotteryId", "ordinal"));
+
+		Date createdDate = new Date();
+		List<Document> batch = new ArrayList<>();
+		for (long ordinal = 1; ordinal <= ballots; ordinal++) {
+
+			batch.add(new Document("ballotId", String.valueOf(ordinal)).append("lotteryId", LOTTERY_ID)
+					.append("userId", String.valueOf(ordinal % 100000)).append("createdDate", createdDate)
+					.append("ordinal", ordinal));
+
+			if (batch.size() == 10000) {
+				ballotCollection.insertMany(batch);
+				batch.clear();
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			ballotCollection.insertMany(batch);
+		}
+
+		samplePipeline = Arrays.asList(new Document("$match", new Document("lotteryId", LOTTERY_ID)),
+				new Document("$sample", new Document("size", 1)));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		ballotCollection.drop();
+		mongoClient.close();
+	}
+
+	@Benchmark
+	public Document countAndSample() {
+
+		ballotCollection.countDocuments(Filters.eq("lotteryId", LOTTERY_ID));
+		return ballotCollection.aggregate(samplePipeline).first();
+	}
+
+	@Benchmark
+	public Document sample() {
+
+		return ballotCollection.aggregate(samplePipeline).first();
+	}
+
+	@Benchmark
+	public Document ordinalLookup() {
+
+		long ordinal = ThreadLocalRandom.current().nextLong(1, ballots + 1L);
+		return ballotCollection.find(Filters.and(Filters.eq("lotteryId", LOTTERY_ID), Filters.eq("ordinal", ordinal)))
+				.first();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(WinnerDrawBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.bynder.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for LotteryStatusCache methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class LotteryStatusCacheTest {
+
+	private static final long CLOSE_MS = 1689028200000L;
+
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Before
+	public void setupContext() {
+
+		lotteryStatusCache = new LotteryStatusCache();
+		ReflectionTestUtils.setField(lotteryStatusCache, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(lotteryStatusCache, "maximumSize", 100L);
+		ReflectionTestUtils.setField(lotteryStatusCache, "ttlMs", 60000L);
+		lotteryStatusCache.init();
+	}
+
+	/**
+	 * Tests that a status is loaded once and served from the cache afterwards,
+	 * and that a missing lottery is not cached
+	 *
+	 */
+	@Test
+	public void testGetStatus_Cached() {
+
+		AtomicInteger loads = new AtomicInteger();
+
+		assertEquals(Constants.OPEN, lotteryStatusCache.getStatus("12", id -> {
+			loads.incrementAndGet();
+			return lottery(id, Constants.OPEN, null);
+		}));
+		assertEquals(Constants.OPEN, lotteryStatusCache.getStatus("12", id -> {
+			loads.incrementAndGet();
+			return lottery(id, Constants.CLOSED, null);
+		}));
+		assertEquals(1, loads.get());
+
+		assertNull(lotteryStatusCache.getStatus("13", id -> null));
+		assertNull(lotteryStatusCache.getCachedStatus("13", CLOSE_MS));
+	}
+
+	/**
+	 * Tests that an open lottery is reported as closed from its close date on,
+	 * while its cached status stays open until the closing node writes it
+	 *
+	 */
+	@Test
+	public void testGetStatus_CloseDatePassed() {
+
+		lotteryStatusCache.getStatus("12", id -> lottery(id, Constants.OPEN, new Date(CLOSE_MS)));
+
+		assertEquals(Constants.OPEN, lotteryStatusCache.getStatus("12", CLOSE_MS - 1, id -> null));
+		assertEquals(Constants.CLOSED, lotteryStatusCache.getStatus("12", CLOSE_MS, id -> null));
+		assertEquals(Constants.CLOSED, lotteryStatusCache.getCachedStatus("12", CLOSE_MS + 1));
+		assertEquals(Constants.OPEN, lotteryStatusCache.getStatus("12", id -> null));
+
+		// a lottery without close date is open until its status is changed
+		assertEquals(Constants.OPEN,
+				lotteryStatusCache.cacheStatus(lottery("13", Constants.OPEN, null), Long.MAX_VALUE));
+	}
+
+	/**
+	 * Tests that a status changed on this node replaces the cached status and
+	 * keeps the cached close date
+	 *
+	 */
+	@Test
+	public void testUpdateStatus() {
+
+		lotteryStatusCache.cacheStatus(lottery("12", Constants.OPEN, new Date(CLOSE_MS)), CLOSE_MS - 1);
+		lotteryStatusCache.updateStatus("12", Constants.CLOSED);
+
+		assertEquals(Constants.CLOSED, lotteryStatusCache.getCachedStatus("12", CLOSE_MS - 1));
+
+		lotteryStatusCache.updateStatus("13", Constants.CLOSED);
+		assertEquals(Constants.CLOSED, lotteryStatusCache.getStatus("13", id -> null));
+
+		lotteryStatusCache.invalidateAll();
+		assertNull(lotteryStatusCache.getCachedStatus("12", CLOSE_MS - 1));
+	}
+
+	private static Lottery lottery(String lotteryId, String status, Date closeDate) {
+
+		Lottery lottery = new Lottery(lotteryId, "Lottery " + lotteryId, 100, new Date());
+		lottery.setStatus(status);
+		lottery.setCloseDate(closeDate);
+		return lottery;
+	}
+
+}
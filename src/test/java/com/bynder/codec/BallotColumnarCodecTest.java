@@ -0,0 +1,110 @@
+package com.bynder.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bynder.dto.BallotDTO;
+
+/**
+ * Test class for BallotColumnarCodec methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class BallotColumnarCodecTest {
+
+	/**
+	 * Tests that ballots with numeric ballotIds and formatted created dates are
+	 * decoded to the same values and written smaller than their ids and dates
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testEncode_DeltaColumns() throws IOException {
+
+		List<BallotDTO> ballots = new ArrayList<>();
+
+		for (int ballotId = 1; ballotId <= 500; ballotId++) {
+			ballots.add(new BallotDTO(String.valueOf(ballotId % 5), "user" + ballotId % 50,
+					String.valueOf(900 + ballotId), String.format("2023-07-10T13:%02d:%02d", ballotId / 60 % 60,
+							ballotId % 60)));
+		}
+
+		byte[] encoded = encode(ballots);
+
+		assertBallots(ballots, decode(encoded));
+		// ballotId and createdDate alone take 22 bytes per ballot as strings
+		assertTrue(encoded.length < ballots.size() * 8);
+	}
+
+	/**
+	 * Tests that ballotIds and created dates which cannot be written as
+	 * differences, and null values, are decoded to the same values
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testEncode_StringColumns() throws IOException {
+
+		List<BallotDTO> ballots = Arrays.asList(new BallotDTO("12", "13", "007", "2023-02-30T10:00:00"),
+				new BallotDTO(null, "13", "abc", "10000-01-01T00:00:00"),
+				new BallotDTO("12", null, "-9223372036854775808", null), new BallotDTO("14", "ü", null, "2023"));
+
+		assertBallots(ballots, decode(encode(ballots)));
+
+		List<BallotDTO> nullBallots = Arrays.asList(new BallotDTO("12", "13", null, null),
+				new BallotDTO("12", "13", "-5", "1969-12-31T23:59:59"));
+
+		assertBallots(nullBallots, decode(encode(nullBallots)));
+		assertBallots(new ArrayList<>(), decode(encode(new ArrayList<>())));
+	}
+
+	/**
+	 * Tests that truncated input is rejected
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testDecode_Truncated() throws IOException {
+
+		byte[] encoded = encode(Arrays.asList(new BallotDTO("12", "13", "14", "2023-07-10T13:30:00")));
+
+		assertThrows(IOException.class, () -> decode(Arrays.copyOf(encoded, encoded.length - 1)));
+	}
+
+	private static byte[] encode(List<BallotDTO> ballots) throws IOException {
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BallotColumnarCodec.encode(ballots, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	private static List<BallotDTO> decode(byte[] encoded) throws IOException {
+
+		return BallotColumnarCodec.decode(new ByteArrayInputStream(encoded));
+	}
+
+	private static void assertBallots(List<BallotDTO> expected, List<BallotDTO> actual) {
+
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getLotteryId(), actual.get(i).getLotteryId());
+			assertEquals(expected.get(i).getUserId(), actual.get(i).getUserId());
+			assertEquals(expected.get(i).getBallotId(), actual.get(i).getBallotId());
+			assertEquals(expected.get(i).getCreatedDate(), actual.get(i).getCreatedDate());
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.bynder.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.bynder.model.Ballot;
+
+/**
+ * Test class for BallotSegmentCodec methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class BallotSegmentCodecTest {
+
+	/**
+	 * Tests that the ballots of a lottery with numeric ballotIds are decoded to
+	 * the same values and compressed to a few bytes per ballot
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testEncode_DeltaColumns() throws IOException {
+
+		List<Ballot> ballots = new ArrayList<>();
+
+		for (int i = 1; i <= 1000; i++) {
+			ballots.add(ballot(String.valueOf(100000 + i * 7), "user" + i % 100, new Date(1688995800000L + i * 250L),
+					(long) i));
+		}
+
+		byte[] encoded = BallotSegmentCodec.encode(ballots);
+
+		assertBallots(ballots, BallotSegmentCodec.decode(encoded, "12"));
+		// the same ballots take about 80 bytes each as BSON documents
+		assertTrue(encoded.length < ballots.size() * 4);
+	}
+
+	/**
+	 * Tests that ballotIds which cannot be written as differences, and null
+	 * values, are decoded to the same values
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testEncode_StringColumns() throws IOException {
+
+		List<Ballot> ballots = Arrays.asList(ballot("007", "13", new Date(0), 1L),
+				ballot("abc", null, null, null), ballot(null, "ü", new Date(-5), Long.MAX_VALUE));
+
+		assertBallots(ballots, BallotSegmentCodec.decode(BallotSegmentCodec.encode(ballots), "12"));
+
+		List<Ballot> nullBallots = Arrays.asList(ballot(null, "13", null, null),
+				ballot("-9223372036854775807", "13", new Date(Long.MAX_VALUE), Long.MIN_VALUE + 1));
+
+		assertBallots(nullBallots, BallotSegmentCodec.decode(BallotSegmentCodec.encode(nullBallots), "12"));
+		assertBallots(new ArrayList<>(),
+				BallotSegmentCodec.decode(BallotSegmentCodec.encode(new ArrayList<>()), "12"));
+	}
+
+	/**
+	 * Tests that truncated input is rejected
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testDecode_Truncated() throws IOException {
+
+		List<Ballot> ballots = new ArrayList<>();
+
+		for (int i = 1; i <= 100; i++) {
+			ballots.add(ballot(String.valueOf(i), "user" + i, new Date(), (long) i));
+		}
+
+		byte[] encoded = BallotSegmentCodec.encode(ballots);
+
+		// the deflate trailer is not verified, so the data is cut within the columns
+		assertThrows(IOException.class,
+				() -> BallotSegmentCodec.decode(Arrays.copyOf(encoded, encoded.length / 2), "12"));
+	}
+
+	private static Ballot ballot(String ballotId, String userId, Date createdDate, Long ordinal) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(ballotId);
+		ballot.setLotteryId("12");
+		ballot.setUserId(userId);
+		ballot.setCreatedDate(createdDate);
+		ballot.setOrdinal(ordinal);
+		return ballot;
+	}
+
+	private static void assertBallots(List<Ballot> expected, List<Ballot> actual) {
+
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getBallotId(), actual.get(i).getBallotId());
+			assertEquals(expected.get(i).getLotteryId(), actual.get(i).getLotteryId());
+			assertEquals(expected.get(i).getUserId(), actual.get(i).getUserId());
+			assertEquals(expected.get(i).getCreatedDate(), actual.get(i).getCreatedDate());
+			assertEquals(expected.get(i).getOrdinal(), actual.get(i).getOrdinal());
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.bynder.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Test class for StorageEngineEnvironmentPostProcessor
+ *
+ *
+ * @author arathy
+ *
+ */
+public class StorageEngineEnvironmentPostProcessorTest {
+
+	private final StorageEngineEnvironmentPostProcessor postProcessor = new StorageEngineEnvironmentPostProcessor(
+			Supplier::get);
+
+	/**
+	 * Tests that storage.engine=memory alone excludes the Mongo
+	 * auto-configurations next to the configured exclusions, and switches the
+	 * Mongo-backed features to their in-memory equivalent
+	 *
+	 */
+	@Test
+	public void testPostProcessEnvironment_Memory() {
+
+		MockEnvironment environment = new MockEnvironment().withProperty("storage.engine", "memory")
+				.withProperty("spring.autoconfigure.exclude", "com.example.OtherAutoConfiguration")
+				.withProperty("mongo.index.reconcile", "true").withProperty("sequence.generator", "mongo")
+				.withProperty("idempotency.store", "mongo").withProperty("scheduler.coordination", "lease");
+
+		postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+		List<String> excludes = Arrays.asList(environment.getProperty("spring.autoconfigure.exclude", String[].class));
+		assertEquals(1 + StorageEngineEnvironmentPostProcessor.MONGO_AUTO_CONFIGURATIONS.length, excludes.size());
+		assertTrue(excludes.contains("com.example.OtherAutoConfiguration"));
+		assertTrue(excludes.contains("org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration"));
+
+		assertEquals("false", environment.getProperty("mongo.index.reconcile"));
+		assertEquals("memory", environment.getProperty("sequence.generator"));
+		assertEquals("memory", environment.getProperty("idempotency.store"));
+		assertEquals("none", environment.getProperty("scheduler.coordination"));
+	}
+
+	/**
+	 * Tests that settings which do not need Mongo are kept, and the environment
+	 * is unchanged with the Mongo storage engine
+	 *
+	 */
+	@Test
+	public void testPostProcessEnvironment_KeptSettings() {
+
+		MockEnvironment environment = new MockEnvironment().withProperty("storage.engine", "memory")
+				.withProperty("sequence.generator", "snowflake");
+
+		postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+		assertEquals("snowflake", environment.getProperty("sequence.generator"));
+		assertEquals("false", environment.getProperty("mongo.index.reconcile"));
+		assertNull(environment.getPropertySources().get(StorageEngineEnvironmentPostProcessor.PROPERTY_SOURCE_NAME)
+				.getProperty("idempotency.store"));
+
+		MockEnvironment mongoEnvironment = new MockEnvironment().withProperty("storage.engine", "mongo");
+
+		postProcessor.postProcessEnvironment(mongoEnvironment, new SpringApplication());
+
+		assertNull(mongoEnvironment.getProperty("spring.autoconfigure.exclude"));
+		assertNull(mongoEnvironment.getPropertySources()
+				.get(StorageEngineEnvironmentPostProcessor.PROPERTY_SOURCE_NAME));
+	}
+
+}
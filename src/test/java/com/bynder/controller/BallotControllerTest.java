@@ -1,11 +1,18 @@
 package com.bynder.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -21,15 +28,23 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestContextManager;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import com.bynder.cache.LotteryStatusCache;
+import com.bynder.codec.BallotColumnarCodec;
+import com.bynder.codec.BallotColumnarHttpMessageConverter;
 import com.bynder.constants.Constants;
+import com.bynder.dto.BallotDTO;
+import com.bynder.idempotency.IdempotencyHandler;
+import com.bynder.idempotency.IdempotencyStore;
 import com.bynder.model.Ballot;
 import com.bynder.model.Lottery;
 import com.bynder.model.User;
 import com.bynder.repository.BallotRepository;
 import com.bynder.repository.LotteryRepository;
 import com.bynder.repository.UserRepository;
+import com.bynder.service.BallotOrdinalService;
 import com.bynder.service.SequenceGeneratorService;
 import com.bynder.service.impl.BallotServiceImpl;
 
@@ -45,7 +60,7 @@ import junitparams.Parameters;
  *
  */
 @RunWith(JUnitParamsRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = { "mongo.index.reconcile=false", "lottery.ballot-counter.reconcile-on-startup=false" })
 @AutoConfigureMockMvc
 public class BallotControllerTest {
 
@@ -61,6 +76,18 @@ public class BallotControllerTest {
 	@MockBean
 	private BallotRepository ballotRepository;
 
+	@MockBean
+	private BallotOrdinalService ballotOrdinalService;
+
+	@Autowired
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private IdempotencyHandler idempotencyHandler;
+
 	@Mock
 	private SequenceGeneratorService sequenceService;
 
@@ -76,11 +103,15 @@ public class BallotControllerTest {
 	private static final String LOTTERY_CLOSED = "LOTTERY_CLOSED";
 	private static final String USER_NOT_PRESENT = "USER_NOT_PRESENT";
 	private static final String LOTTERY_NOT_PRESENT = "LOTTERY_NOT_PRESENT";
+	private static final String EMPTY_BATCH = "EMPTY_BATCH";
 
 	@Before
 	public void setUpContext() throws Exception {
 
 		new TestContextManager(getClass()).prepareTestInstance(this);
+
+		// lottery status is mocked per scenario, so it must not be served from cache
+		lotteryStatusCache.invalidateAll();
 	}
 
 	/**
@@ -108,32 +139,36 @@ public class BallotControllerTest {
 
 		case SUCCESS_USERID:
 
-			Mockito.when(ballotRepository.findByUserId(ArgumentMatchers.any())).thenReturn(ballots);
+			Mockito.when(ballotRepository.findPage(ArgumentMatchers.eq("12"), ArgumentMatchers.any(),
+					ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(ballots);
 
 			break;
 
 		case SUCCESS_LOTTERYID:
 
-			Mockito.when(ballotRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(ballots);
+			Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.eq("11"),
+					ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(ballots);
 
 			break;
 
 		case SUCCESS_USERID_LOTTERYID:
 
-			Mockito.when(ballotRepository.findByUserIdAndLotteryId(ArgumentMatchers.any(), ArgumentMatchers.any()))
-					.thenReturn(ballots);
+			Mockito.when(ballotRepository.findPage(ArgumentMatchers.eq("12"), ArgumentMatchers.eq("11"),
+					ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(ballots);
 
 			break;
 
 		case SUCCESS_ALL:
 
-			Mockito.when(ballotRepository.findAll()).thenReturn(ballots);
+			Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+					ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(ballots);
 
 			break;
 
 		case NO_BALLOTS:
 
-			Mockito.when(ballotRepository.findAll()).thenReturn(null);
+			Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+					ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(new ArrayList<>());
 			break;
 
 		}
@@ -160,6 +195,85 @@ public class BallotControllerTest {
 				{ NO_BALLOTS, " ", " ", 404 } };
 	}
 
+	/**
+	 * Tests paging through getBallot API
+	 * 
+	 * scenarios: a cursor is returned while more ballots follow and is accepted
+	 * for the next page, invalid limit or cursor is rejected
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetBallots_Pagination() throws Throwable {
+
+		List<Ballot> firstPage = new ArrayList<>();
+		for (int ballotId = 1; ballotId <= 3; ballotId++) {
+			Ballot ballot = new Ballot();
+			ballot.setBallotId(String.valueOf(ballotId));
+			firstPage.add(ballot);
+		}
+
+		Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.isNull(), ArgumentMatchers.eq(2))).thenReturn(firstPage);
+		Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.eq("2"), ArgumentMatchers.eq(2))).thenReturn(firstPage.subList(2, 3));
+
+		String nextCursor = mockMvc.perform(get("/ballots").param("limit", "2")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2)).andExpect(header().exists(Constants.NEXT_CURSOR_HEADER))
+				.andReturn().getResponse().getHeader(Constants.NEXT_CURSOR_HEADER);
+
+		mockMvc.perform(get("/ballots").param("limit", "2").param("after", nextCursor)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(header().doesNotExist(Constants.NEXT_CURSOR_HEADER));
+
+		mockMvc.perform(get("/ballots").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/ballots").param("after", "not-a-cursor")).andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Tests content negotiation of getBallot API
+	 * 
+	 * scenarios: JSON is returned by default, ballots are returned in the columnar
+	 * encoding if requested, errors are returned as JSON to columnar clients
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetBallots_ColumnarEncoding() throws Throwable {
+
+		List<Ballot> ballots = new ArrayList<>();
+		for (int ballotId = 1; ballotId <= 3; ballotId++) {
+			Ballot ballot = new Ballot();
+			ballot.setBallotId(String.valueOf(ballotId));
+			ballot.setLotteryId("12");
+			ballot.setUserId("13");
+			ballots.add(ballot);
+		}
+
+		Mockito.when(ballotRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.isNull(), ArgumentMatchers.anyInt())).thenReturn(ballots);
+
+		mockMvc.perform(get("/ballots").accept(MediaType.ALL)).andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+		byte[] body = mockMvc
+				.perform(get("/ballots").accept(BallotColumnarHttpMessageConverter.MEDIA_TYPE,
+						MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(BallotColumnarHttpMessageConverter.MEDIA_TYPE))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		List<BallotDTO> decoded = BallotColumnarCodec.decode(new ByteArrayInputStream(body));
+		assertEquals(3, decoded.size());
+		assertEquals("3", decoded.get(2).getBallotId());
+		assertEquals("12", decoded.get(2).getLotteryId());
+		assertEquals("13", decoded.get(2).getUserId());
+
+		mockMvc.perform(get("/ballots").param("limit", "0").accept(BallotColumnarHttpMessageConverter.MEDIA_TYPE,
+				MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
 	/**
 	 * Tests CreateBallot API
 	 * 
@@ -238,4 +352,153 @@ public class BallotControllerTest {
 				{ SUCCESS, 200 }, { USER_NOT_PRESENT, 404 }, { LOTTERY_NOT_PRESENT, 404 }, { LOTTERY_CLOSED, 400 } };
 	}
 
+	/**
+	 * Tests that a retry of createBallot API with the same Idempotency-Key returns
+	 * the original response without creating another ballot
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testCreateBallot_IdempotentRetry() throws Throwable {
+
+		String requestBody = "{\"lotteryId\": \"123\",\"userId\": \"3\"}";
+		String idempotencyKey = UUID.randomUUID().toString();
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.OPEN);
+
+		// mocks are shared by the parameterized tests of this class
+		Mockito.clearInvocations(ballotRepository);
+		Mockito.when(userRepository.findByUserId(ArgumentMatchers.any())).thenReturn(new User());
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery);
+		Mockito.when(ballotRepository.save(ArgumentMatchers.any())).thenReturn(null);
+
+		String response = createBallot(idempotencyKey, requestBody).andExpect(status().isOk()).andReturn()
+				.getResponse().getContentAsString();
+
+		createBallot(idempotencyKey, requestBody).andExpect(status().isOk()).andExpect(content().string(response));
+
+		Mockito.verify(ballotRepository, Mockito.times(1)).save(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that createBallot API returns 409 while a request with the same
+	 * Idempotency-Key is processed, and 422 if the key is reused for another
+	 * request, without creating a ballot
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testCreateBallot_IdempotencyConflict() throws Throwable {
+
+		String requestBody = "{\"lotteryId\": \"123\",\"userId\": \"3\"}";
+		String otherRequestBody = "{\"lotteryId\": \"124\",\"userId\": \"3\"}";
+		String idempotencyKey = UUID.randomUUID().toString();
+
+		Mockito.clearInvocations(ballotRepository);
+
+		// the key is held by a request still being processed
+		idempotencyStore.claim("ballot:" + idempotencyKey,
+				idempotencyHandler.requestHash(new BallotDTO("123", "3", null, null)), UUID.randomUUID().toString());
+
+		mockMvc.perform(post("/ballot").header("Idempotency-Key", idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody)).andExpect(status().isConflict());
+		mockMvc.perform(post("/ballot").header("Idempotency-Key", idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content(otherRequestBody))
+				.andExpect(status().isUnprocessableEntity());
+
+		Mockito.verify(ballotRepository, Mockito.never()).save(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests createBallots batch API
+	 * 
+	 * scenarios: successful creation with a list of ballots and with a quantity,
+	 * empty batch, user not present in storage, lottery is closed
+	 * 
+	 * @param scenario           - scenario to be tested
+	 * @param requestBody        - batch request
+	 * @param expectedStatusCode - expected HTTP status code of API
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	@Parameters(method = "testCreateBallotBatch_Params")
+	public void testCreateBallotBatch(String scenario, String requestBody, int expectedStatusCode) throws Throwable {
+
+		Lottery lottery = new Lottery();
+
+		switch (scenario) {
+
+		case SUCCESS:
+
+			Mockito.when(userRepository.findByUserId(ArgumentMatchers.any())).thenReturn(new User());
+
+			lottery.setStatus(Constants.OPEN);
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery);
+
+			Mockito.doNothing().when(ballotRepository).insertUnordered(ArgumentMatchers.any());
+
+			break;
+
+		case USER_NOT_PRESENT:
+
+			Mockito.when(userRepository.findByUserId(ArgumentMatchers.any())).thenReturn(null);
+			break;
+
+		case LOTTERY_CLOSED:
+
+			Mockito.when(userRepository.findByUserId(ArgumentMatchers.any())).thenReturn(new User());
+
+			lottery.setStatus(Constants.CLOSED);
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery);
+			break;
+
+		}
+
+		ResultActions actions = mockMvc
+				.perform(post("/ballots/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody));
+
+		actions.andExpect(status().is(expectedStatusCode));
+	}
+
+	/**
+	 * Parameters related to different scenarios for testing createBallots batch
+	 * API
+	 * 
+	 * @return scenario parameters
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@SuppressWarnings("unused")
+	private static Object[][] testCreateBallotBatch_Params() throws Throwable {
+
+		String ballotList = "{\"ballots\": [{\"lotteryId\": \"123\",\"userId\": \"3\"},{\"lotteryId\": \"124\",\"userId\": \"3\"}]}";
+		String ballotQuantity = "{\"lotteryId\": \"123\",\"userId\": \"3\",\"quantity\": 5}";
+
+		return new Object[][] {
+
+				{ SUCCESS, ballotList, 200 }, { SUCCESS, ballotQuantity, 200 }, { EMPTY_BATCH, "{}", 400 },
+				{ USER_NOT_PRESENT, ballotQuantity, 404 }, { LOTTERY_CLOSED, ballotList, 400 } };
+	}
+
+	/**
+	 * Posts a ballot with an Idempotency-Key and waits for its asynchronous
+	 * response
+	 * 
+	 * @param idempotencyKey - key identifying retries of the same request
+	 * @param requestBody    - ballot request
+	 * 
+	 * @return result of the dispatched response
+	 * 
+	 * @throws Exception - thrown if the request fails
+	 */
+	private ResultActions createBallot(String idempotencyKey, String requestBody) throws Exception {
+
+		MvcResult result = mockMvc.perform(post("/ballot").header("Idempotency-Key", idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody)).andReturn();
+
+		return mockMvc.perform(asyncDispatch(result));
+	}
+
 }
@@ -2,6 +2,9 @@ package com.bynder.controller;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
@@ -19,16 +22,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestContextManager;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import com.bynder.cache.LotteryResultCache;
+import com.bynder.cache.LotteryStatusCache;
 import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
 import com.bynder.model.Lottery;
 import com.bynder.repository.LotteryRepository;
 import com.bynder.service.SequenceGeneratorService;
 import com.bynder.service.impl.LotteryServiceImpl;
+import com.bynder.subscription.LotteryResultSubscriptions;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -42,7 +51,7 @@ import junitparams.Parameters;
  *
  */
 @RunWith(JUnitParamsRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = { "mongo.index.reconcile=false", "lottery.ballot-counter.reconcile-on-startup=false" })
 @AutoConfigureMockMvc
 public class LotteryControllerTest {
 
@@ -52,6 +61,15 @@ public class LotteryControllerTest {
 	@MockBean
 	private LotteryRepository lotteryRepository;
 
+	@Autowired
+	private LotteryResultCache lotteryResultCache;
+
+	@Autowired
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Autowired
+	private LotteryResultSubscriptions lotteryResultSubscriptions;
+
 	@Mock
 	private SequenceGeneratorService sequenceService;
 
@@ -66,11 +84,15 @@ public class LotteryControllerTest {
 	private static final String INVALID_REQUEST = "INVALID_REQUEST";
 	private static final String SUCCESS_NO_WINNER = "SUCCESS_NO_WINNER";
 	private static final String OPEN_LOTTERY = "OPEN_LOTTERY";
+	private static final String PAST_CLOSE_TIME = "PAST_CLOSE_TIME";
 
 	@Before
 	public void setUpContext() throws Exception {
 
 		new TestContextManager(getClass()).prepareTestInstance(this);
+
+		// results cached by a previous scenario of the shared context
+		lotteryResultCache.invalidateAll();
 	}
 
 	/**
@@ -95,19 +117,21 @@ public class LotteryControllerTest {
 
 		case SUCCESS_ALL_LOTTERIES:
 
-			Mockito.when(lotteryRepository.findAll()).thenReturn(lotteries);
+			Mockito.when(lotteryRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.isNull(),
+					ArgumentMatchers.anyInt())).thenReturn(lotteries);
 
 			break;
 
 		case SUCCESS_OPEN_LOTTERIES:
 
-			Mockito.when(lotteryRepository.findByStatus(ArgumentMatchers.any())).thenReturn(lotteries);
+			Mockito.when(lotteryRepository.findPage(ArgumentMatchers.eq("OPEN"), ArgumentMatchers.isNull(),
+					ArgumentMatchers.anyInt())).thenReturn(lotteries);
 			break;
 
 		case NO_LOTTERY:
 
-			lotteries = null;
-			Mockito.when(lotteryRepository.findAll()).thenReturn(null);
+			Mockito.when(lotteryRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.isNull(),
+					ArgumentMatchers.anyInt())).thenReturn(new ArrayList<>());
 			break;
 
 		}
@@ -204,10 +228,89 @@ public class LotteryControllerTest {
 				{ NO_LOTTERY, "12", 404 }, { OPEN_LOTTERY, "12", 400 } };
 	}
 
+	/**
+	 * Tests that the result of a closed lottery is returned with an ETag and as
+	 * immutable, and that a request with a matching If-None-Match header gets
+	 * 304 without reading the lottery again
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetLotteryResult_NotModified() throws Throwable {
+
+		// the mock is shared with the other tests of the context
+		Mockito.reset(lotteryRepository);
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("11");
+		lottery.setEndDate(new Date());
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+
+		String eTag = mockMvc.perform(get("/lotteryResult").param("lotteryId", "12")).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/lotteryResult").param("lotteryId", "12").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+		mockMvc.perform(get("/lotteryResult").param("lotteryId", "12").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+				.andExpect(status().isOk());
+
+		Mockito.verify(lotteryRepository, Mockito.times(1)).findByLotteryId("12");
+	}
+
+	/**
+	 * Tests streamLotteryResult API
+	 * 
+	 * scenarios: the result of an open lottery is pushed once it is closed, the
+	 * result of a closed lottery is sent right away
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testStreamLotteryResult() throws Throwable {
+
+		Mockito.reset(lotteryRepository);
+		lotteryStatusCache.invalidateAll();
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.OPEN);
+		lottery.setWinnerBallot("11");
+		lottery.setEndDate(new Date());
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+
+		MvcResult openResult = mockMvc.perform(get("/lotteryResult/stream").param("lotteryId", "12"))
+				.andExpect(status().isOk()).andReturn();
+
+		assertTrue(openResult.getRequest().isAsyncStarted());
+		assertEquals(1, lotteryResultSubscriptions.getSubscriberCount());
+
+		// as done by closing the lottery
+		lottery.setStatus(Constants.CLOSED);
+		lotteryStatusCache.updateStatus("12", Constants.CLOSED);
+		lotteryResultSubscriptions.lotteryClosed(new LotteryClosedEvent("12"));
+
+		openResult.getAsyncResult(5000);
+		assertTrue(openResult.getResponse().getContentAsString().contains("event:result"));
+		assertTrue(openResult.getResponse().getContentAsString().contains("\"winnerBallot\":\"11\""));
+		assertEquals(0, lotteryResultSubscriptions.getSubscriberCount());
+
+		MvcResult closedResult = mockMvc.perform(get("/lotteryResult/stream").param("lotteryId", "12"))
+				.andExpect(status().isOk()).andReturn();
+
+		closedResult.getAsyncResult(5000);
+		assertTrue(closedResult.getResponse().getContentAsString().contains("\"winnerBallot\":\"11\""));
+
+		mockMvc.perform(get("/lotteryResult/stream").param("lotteryId", "13")).andExpect(status().isNotFound());
+	}
+
 	/**
 	 * Tests createLottery API
 	 * 
-	 * scenarios: successful creation
+	 * scenarios: successful creation, unknown time zone, close time in the past
 	 * 
 	 * @param scenario           - scenario to be tested
 	 * @param expectedStatusCode - expected HTTP status code of API
@@ -229,6 +332,16 @@ public class LotteryControllerTest {
 
 			break;
 
+		case INVALID_REQUEST:
+
+			requestBody = "{\"name\": \"Lottery B\",\"prizeMoney\": 3601,\"timeZone\": \"Mars/Olympus\"}";
+			break;
+
+		case PAST_CLOSE_TIME:
+
+			requestBody = "{\"name\": \"Lottery B\",\"prizeMoney\": 3601,\"closeTime\": \"2023-07-10T13:30:00\"}";
+			break;
+
 		}
 
 		ResultActions actions = mockMvc
@@ -249,7 +362,7 @@ public class LotteryControllerTest {
 
 		return new Object[][] {
 
-				{ SUCCESS, 200 } };
+				{ SUCCESS, 200 }, { INVALID_REQUEST, 400 }, { PAST_CLOSE_TIME, 400 } };
 	}
 
 }
@@ -0,0 +1,177 @@
+package com.bynder.controller;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestContextManager;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.bynder.cache.LotteryResultCache;
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.bynder.repository.reactive.ReactiveLotteryRepository;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for ReactiveLotteryController methods, checks that the reactive
+ * stack returns the same status codes and error shape as the servlet stack
+ * 
+ * Runs as a parameterized test class
+ * 
+ * @author arathy
+ *
+ */
+@RunWith(JUnitParamsRunner.class)
+@SpringBootTest(properties = { "spring.main.web-application-type=reactive", "mongo.index.reconcile=false",
+		"lottery.ballot-counter.reconcile-on-startup=false" })
+@AutoConfigureWebTestClient
+public class ReactiveLotteryControllerTest {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@MockBean
+	private ReactiveLotteryRepository lotteryRepository;
+
+	@Autowired
+	private LotteryResultCache lotteryResultCache;
+
+	private static final String SUCCESS = "SUCCESS";
+	private static final String INVALID_REQUEST = "INVALID_REQUEST";
+	private static final String SUCCESS_NO_WINNER = "SUCCESS_NO_WINNER";
+	private static final String NO_LOTTERY = "NO_LOTTERY";
+	private static final String OPEN_LOTTERY = "OPEN_LOTTERY";
+
+	@Before
+	public void setUpContext() throws Exception {
+
+		new TestContextManager(getClass()).prepareTestInstance(this);
+
+		// results cached by a previous scenario of the shared context
+		lotteryResultCache.invalidateAll();
+	}
+
+	/**
+	 * Tests getLotteryResult API
+	 * 
+	 * scenarios: get lottery result with/without winner, lotteryId missing,
+	 * lottery not present, lottery is open
+	 * 
+	 * @param scenario           - scenario to be tested
+	 * @param lotteryId          - unique identifier related to a lottery
+	 * @param expectedStatusCode - expected HTTP status code of API
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	@Parameters(method = "testGetLotteryResult_Params")
+	public void testGetLotteryResult(String scenario, String lotteryId, int expectedStatusCode) throws Throwable {
+
+		Lottery lottery = new Lottery();
+
+		switch (scenario) {
+
+		case SUCCESS:
+
+			lottery.setStatus(Constants.CLOSED);
+			lottery.setWinnerBallot("11");
+			lottery.setEndDate(new Date());
+
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(Mono.just(lottery));
+			break;
+
+		case SUCCESS_NO_WINNER:
+
+			lottery.setStatus(Constants.CLOSED);
+			lottery.setWinnerBallot("-1");
+
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(Mono.just(lottery));
+			break;
+
+		case NO_LOTTERY:
+
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(Mono.empty());
+			break;
+
+		case OPEN_LOTTERY:
+
+			lottery.setStatus(Constants.OPEN);
+			Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(Mono.just(lottery));
+			break;
+
+		}
+
+		WebTestClient.BodyContentSpec body = webTestClient.get()
+				.uri(uriBuilder -> uriBuilder.path("/lotteryResult").queryParamIfPresent("lotteryId",
+						Optional.ofNullable(lotteryId)).build())
+				.exchange().expectStatus().isEqualTo(expectedStatusCode).expectBody();
+
+		if (expectedStatusCode != 200) {
+			body.jsonPath("$.errorMessage").isNotEmpty().jsonPath("$.timestamp").isNotEmpty();
+		}
+	}
+
+	/**
+	 * Tests that the result of a closed lottery is returned with the same ETag
+	 * and cache headers as on the servlet stack, and that a request with a
+	 * matching If-None-Match header gets 304 without reading the lottery again
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetLotteryResult_NotModified() throws Throwable {
+
+		// the mock is shared with the other tests of the context
+		Mockito.reset(lotteryRepository);
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("11");
+		lottery.setEndDate(new Date());
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(Mono.just(lottery));
+
+		String eTag = webTestClient.get().uri("/lotteryResult?lotteryId=12").exchange().expectStatus().isOk()
+				.expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable")
+				.expectBody().jsonPath("$.winnerBallot").isEqualTo("11").returnResult().getResponseHeaders()
+				.getETag();
+
+		webTestClient.get().uri("/lotteryResult?lotteryId=12").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+				.expectStatus().isNotModified().expectHeader().valueEquals(HttpHeaders.ETAG, eTag);
+
+		webTestClient.get().uri("/lotteryResult?lotteryId=12").header(HttpHeaders.IF_NONE_MATCH, "\"0\"").exchange()
+				.expectStatus().isOk();
+
+		Mockito.verify(lotteryRepository, Mockito.times(1)).findByLotteryId("12");
+	}
+
+	/**
+	 * Parameters related to different scenarios for testing getLotteryResult API
+	 * 
+	 * @return scenario parameters
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@SuppressWarnings("unused")
+	private static Object[][] testGetLotteryResult_Params() throws Throwable {
+
+		return new Object[][] {
+
+				{ SUCCESS, "12", 200 }, { SUCCESS_NO_WINNER, "12", 200 }, { INVALID_REQUEST, null, 400 },
+				{ NO_LOTTERY, "12", 404 }, { OPEN_LOTTERY, "12", 400 } };
+	}
+
+}
@@ -1,8 +1,11 @@
 package com.bynder.controller;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.UUID;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,7 +39,7 @@ import junitparams.Parameters;
  *
  */
 @RunWith(JUnitParamsRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = { "mongo.index.reconcile=false", "lottery.ballot-counter.reconcile-on-startup=false" })
 @AutoConfigureMockMvc
 public class UserControllerTest {
 
@@ -99,6 +102,33 @@ public class UserControllerTest {
 		actions.andExpect(status().is(expectedStatusCode));
 	}
 
+	/**
+	 * Tests that a retry of registerUser API with the same Idempotency-Key returns
+	 * the original response without registering the user again
+	 * 
+	 * @throws Throwable - thrown if any exception occurs
+	 */
+	@Test
+	public void testRegisterUser_IdempotentRetry() throws Throwable {
+
+		String requestBody = "{\"userName\": \"jdoe\",\"firstName\": \"Jane\",\"lastName\": \"Doe\"}";
+		String idempotencyKey = UUID.randomUUID().toString();
+
+		Mockito.when(userRepository.findByUserName(ArgumentMatchers.any())).thenReturn(null);
+		Mockito.when(userRepository.save(ArgumentMatchers.any())).thenReturn(null);
+
+		String response = mockMvc
+				.perform(post("/register").header("Idempotency-Key", idempotencyKey)
+						.contentType(MediaType.APPLICATION_JSON).content(requestBody))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+		mockMvc.perform(post("/register").header("Idempotency-Key", idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody)).andExpect(status().isOk())
+				.andExpect(content().string(response));
+
+		Mockito.verify(userRepository, Mockito.times(1)).save(ArgumentMatchers.any());
+	}
+
 	/**
 	 * Parameters related to different scenarios for testing registerUser API
 	 * 
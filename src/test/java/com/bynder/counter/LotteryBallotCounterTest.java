@@ -0,0 +1,212 @@
+package com.bynder.counter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+
+/**
+ * Test class for LotteryBallotCounter methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class LotteryBallotCounterTest {
+
+	@Mock
+	private LotteryRepository lotteryRepository;
+
+	@Mock
+	private BallotRepository ballotRepository;
+
+	@InjectMocks
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Before
+	public void setupContext() {
+		MockitoAnnotations.openMocks(this);
+	}
+
+	/**
+	 * Tests that ballots counted since the last flush are written once per
+	 * lottery
+	 *
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFlush_WritesCountedBallots() {
+
+		lotteryBallotCounter.increment("12", 1);
+		lotteryBallotCounter.increment("12", 4);
+		lotteryBallotCounter.increment("13", 1);
+
+		ArgumentCaptor<Map<String, Long>> increments = ArgumentCaptor.forClass(Map.class);
+
+		lotteryBallotCounter.flush();
+		lotteryBallotCounter.flush();
+
+		Mockito.verify(lotteryRepository).incrementBallotCounts(increments.capture());
+
+		Map<String, Long> expected = new HashMap<>();
+		expected.put("12", 5L);
+		expected.put("13", 1L);
+		assertEquals(expected, increments.getValue());
+	}
+
+	/**
+	 * Tests that counts which could not be written are retried with the next
+	 * flush
+	 *
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFlush_RetriesFailedWrite() {
+
+		Mockito.doThrow(new IllegalStateException("unavailable")).doNothing().when(lotteryRepository)
+				.incrementBallotCounts(ArgumentMatchers.any());
+
+		lotteryBallotCounter.increment("12", 2);
+		lotteryBallotCounter.flush();
+		lotteryBallotCounter.increment("12", 1);
+		lotteryBallotCounter.flush();
+
+		ArgumentCaptor<Map<String, Long>> increments = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(lotteryRepository, Mockito.times(2)).incrementBallotCounts(increments.capture());
+
+		assertEquals(Collections.singletonMap("12", 3L), increments.getAllValues().get(1));
+	}
+
+	/**
+	 * Tests that lotteries are kept in memory until a failed write is retried,
+	 * and removed once a flush finds no new ballots
+	 *
+	 */
+	@Test
+	public void testFlush_RemovesIdleLotteries() {
+
+		Mockito.doThrow(new IllegalStateException("unavailable")).doNothing().when(lotteryRepository)
+				.incrementBallotCounts(ArgumentMatchers.any());
+
+		lotteryBallotCounter.increment("12", 2);
+		lotteryBallotCounter.flush();
+
+		Map<?, ?> pendingCounts = (Map<?, ?>) ReflectionTestUtils.getField(lotteryBallotCounter, "pendingCounts");
+		assertEquals(2L, ((LongAdder) pendingCounts.get("12")).sum());
+
+		lotteryBallotCounter.flush();
+
+		assertTrue(pendingCounts.containsKey("12"));
+
+		lotteryBallotCounter.flush();
+
+		assertTrue(pendingCounts.isEmpty());
+		Mockito.verify(lotteryRepository, Mockito.times(2)).incrementBallotCounts(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that no ballot is lost or counted twice while flushes remove idle
+	 * lotteries concurrently with increments
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFlush_ConcurrentIncrements() throws Exception {
+
+		AtomicLong flushed = new AtomicLong();
+		Mockito.doAnswer(invocation -> {
+			((Map<String, Long>) invocation.getArgument(0)).values().forEach(flushed::addAndGet);
+			return null;
+		}).when(lotteryRepository).incrementBallotCounts(ArgumentMatchers.any());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> incrementers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			incrementers.add(executor.submit(() -> {
+				for (int j = 0; j < 100000; j++) {
+					lotteryBallotCounter.increment(j % 50 == 0 ? "12" : "13", 1);
+				}
+			}));
+		}
+
+		while (incrementers.stream().anyMatch(incrementer -> !incrementer.isDone())) {
+			lotteryBallotCounter.flush();
+		}
+		for (Future<?> incrementer : incrementers) {
+			incrementer.get();
+		}
+		executor.shutdown();
+
+		lotteryBallotCounter.flush();
+
+		assertEquals(400000L, flushed.get());
+	}
+
+	/**
+	 * Tests that stored counts of open lotteries are corrected by the difference
+	 * to the number of their ballots with increments, taking the stored counts
+	 * read after the ballots were counted, so flushes while they are counted are
+	 * not added twice
+	 *
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testReconcile() {
+
+		Mockito.when(lotteryRepository.findByStatus(Constants.OPEN))
+				.thenReturn(Arrays.asList(lottery("12", 7), lottery("13", 2), lottery("14", 1)))
+				.thenReturn(Arrays.asList(lottery("12", 7), lottery("13", 4), lottery("14", 1), lottery("15", 0)));
+
+		Map<String, Long> ballotCounts = new HashMap<>();
+		ballotCounts.put("12", 7L);
+		ballotCounts.put("13", 5L);
+		Mockito.when(ballotRepository.countByLotteryIds(ArgumentMatchers.any())).thenReturn(ballotCounts);
+
+		lotteryBallotCounter.reconcile();
+
+		ArgumentCaptor<Map<String, Long>> corrections = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(lotteryRepository).incrementBallotCounts(corrections.capture());
+
+		Map<String, Long> expected = new HashMap<>();
+		expected.put("13", 1L);
+		expected.put("14", -1L);
+		assertEquals(expected, corrections.getValue());
+		Mockito.verify(lotteryRepository, Mockito.never()).setBallotCount(ArgumentMatchers.any(),
+				ArgumentMatchers.anyLong());
+	}
+
+	private Lottery lottery(String lotteryId, long ballotCount) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId(lotteryId);
+		lottery.setBallotCount(ballotCount);
+		return lottery;
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.bynder.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.exception.IdempotencyConflictException;
+
+/**
+ * Test class for InMemoryIdempotencyStore methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class InMemoryIdempotencyStoreTest {
+
+	private InMemoryIdempotencyStore idempotencyStore;
+
+	@Before
+	public void setupContext() {
+
+		idempotencyStore = new InMemoryIdempotencyStore();
+		ReflectionTestUtils.setField(idempotencyStore, "maximumSize", 100L);
+		ReflectionTestUtils.setField(idempotencyStore, "ttlSeconds", 60L);
+		ReflectionTestUtils.setField(idempotencyStore, "pendingLeaseMs", 200L);
+		idempotencyStore.init();
+	}
+
+	/**
+	 * Tests that a completed key returns its response, and a released key can
+	 * be claimed again
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testClaim_CompletedAndReleased() throws Exception {
+
+		assertNull(idempotencyStore.claim("ballot:1", "hash", "first"));
+		assertThrows(IdempotencyConflictException.class, () -> idempotencyStore.claim("ballot:1", "hash", "second"));
+
+		idempotencyStore.complete("ballot:1", "first", "response");
+		assertEquals("response", idempotencyStore.claim("ballot:1", "hash", "second"));
+
+		assertNull(idempotencyStore.claim("ballot:2", "hash", "first"));
+		idempotencyStore.release("ballot:2", "first");
+		assertNull(idempotencyStore.claim("ballot:2", "hash", "second"));
+	}
+
+	/**
+	 * Tests that a request whose lease expired and was taken over by a retry
+	 * neither releases nor completes the claim of the retry
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testClaim_ExpiredLeaseTakenOver() throws Exception {
+
+		assertNull(idempotencyStore.claim("ballot:1", "hash", "first"));
+
+		Thread.sleep(300);
+
+		assertNull(idempotencyStore.claim("ballot:1", "hash", "second"));
+
+		idempotencyStore.release("ballot:1", "first");
+		assertThrows(IdempotencyConflictException.class, () -> idempotencyStore.claim("ballot:1", "hash", "third"));
+
+		idempotencyStore.complete("ballot:1", "first", "first response");
+		idempotencyStore.complete("ballot:1", "second", "second response");
+		assertEquals("second response", idempotencyStore.claim("ballot:1", "hash", "third"));
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.bynder.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+/**
+ * Test class for IndexReconciler methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class IndexReconcilerTest {
+
+	/**
+	 * Tests that an index matching the declared options, including its partial
+	 * filter, is not reported
+	 *
+	 */
+	@Test
+	public void testDifferingOptions_Matching() {
+
+		IndexInfo existingIndex = IndexInfo.indexInfoOf(Document.parse("{ 'key' : { 'lotteryId' : 1, 'ordinal' : 1 }, "
+				+ "'name' : 'lotteryId_ordinal', 'unique' : true, "
+				+ "'partialFilterExpression' : { 'ordinal' : { '$exists' : true } } }"));
+
+		Document declaredOptions = new Document("name", "lotteryId_ordinal").append("unique", true)
+				.append("partialFilterExpression", Document.parse("{ 'ordinal' : { '$exists' : true } }"));
+
+		assertTrue(IndexReconciler.differingOptions(declaredOptions, existingIndex).isEmpty());
+	}
+
+	/**
+	 * Tests that an index with the declared keys and uniqueness, but without the
+	 * declared partial filter and with another expiry, is reported
+	 *
+	 */
+	@Test
+	public void testDifferingOptions_PartialFilterAndExpiry() {
+
+		IndexInfo existingIndex = IndexInfo.indexInfoOf(Document.parse("{ 'key' : { 'lotteryId' : 1, 'ordinal' : 1 }, "
+				+ "'name' : 'lotteryId_ordinal', 'unique' : true, 'expireAfterSeconds' : 60 }"));
+
+		Document declaredOptions = new Document("unique", true)
+				.append("partialFilterExpression", Document.parse("{ 'ordinal' : { '$exists' : true } }"));
+
+		List<String> differences = IndexReconciler.differingOptions(declaredOptions, existingIndex);
+
+		assertEquals(2, differences.size());
+		assertTrue(differences.get(0).startsWith("partialFilterExpression: null, declared "));
+		assertEquals("expireAfterSeconds: 60, declared null", differences.get(1));
+	}
+
+}
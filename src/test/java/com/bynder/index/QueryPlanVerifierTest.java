@@ -0,0 +1,183 @@
+package com.bynder.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.repository.BallotQueries;
+import com.bynder.repository.BallotSegmentQueries;
+import com.bynder.repository.LotteryQueries;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * Test class for QueryPlanVerifier methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class QueryPlanVerifierTest {
+
+	private static final Document INDEX_SCAN = Document
+			.parse("{ 'queryPlanner' : { 'winningPlan' : { 'stage' : 'IXSCAN' } } }");
+
+	private static final Document COLLECTION_SCAN = Document
+			.parse("{ 'queryPlanner' : { 'winningPlan' : { 'stage' : 'COLLSCAN' } } }");
+
+	@Mock
+	private MongoOperations mongoOperations;
+
+	@Mock
+	private MongoCollection<Document> collection;
+
+	@Mock
+	private FindIterable<Document> indexedFind;
+
+	@Mock
+	private FindIterable<Document> scanningFind;
+
+	@Mock
+	private AggregateIterable<Document> aggregate;
+
+	private QueryPlanVerifier queryPlanVerifier;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+
+		Mockito.when(mongoOperations.getCollectionName(ArgumentMatchers.any())).thenReturn("COLLECTION");
+		Mockito.when(mongoOperations.getCollection("COLLECTION")).thenReturn(collection);
+
+		Mockito.when(collection.find(ArgumentMatchers.any(Bson.class))).thenReturn(indexedFind);
+		stubFind(indexedFind, INDEX_SCAN);
+		stubFind(scanningFind, COLLECTION_SCAN);
+
+		Mockito.when(collection.aggregate(ArgumentMatchers.anyList())).thenReturn(aggregate);
+		Mockito.when(aggregate.explain()).thenReturn(INDEX_SCAN);
+
+		queryPlanVerifier = new QueryPlanVerifier();
+		ReflectionTestUtils.setField(queryPlanVerifier, "mongoOperations", mongoOperations);
+		ReflectionTestUtils.setField(queryPlanVerifier, "queryPlanCheck", QueryPlanVerifier.FAIL);
+	}
+
+	/**
+	 * Tests that the queries are built by the query factories the repositories
+	 * and the archive use
+	 *
+	 */
+	@Test
+	public void testVerify_RepositoryQueries() {
+
+		queryPlanVerifier.verify();
+
+		Mockito.verify(collection).find(LotteryQueries.openLottery("0").getQueryObject());
+		Mockito.verify(collection)
+				.find(BallotSegmentQueries.claimedLottery("0", new Date(0)).getQueryObject());
+		Mockito.verify(collection).find(BallotSegmentQueries.unarchivedLotteries().getQueryObject());
+		Mockito.verify(collection).aggregate(BallotQueries.randomBallot("0").toPipeline(Aggregation.DEFAULT_CONTEXT));
+	}
+
+	/**
+	 * Tests that a query resolved to a collection scan aborts the startup, naming
+	 * the method issuing it
+	 *
+	 */
+	@Test
+	public void testVerify_Fail() {
+
+		Mockito.when(collection.find(LotteryQueries.openLottery("0").getQueryObject())).thenReturn(scanningFind);
+
+		IllegalStateException exception = assertThrows(IllegalStateException.class, () -> queryPlanVerifier.verify());
+
+		assertEquals("Repository queries resolved to a collection scan: [LotteryRepository.closeLotteries]",
+				exception.getMessage());
+	}
+
+	/**
+	 * Tests that a collection scan is only reported if the check warns, and that
+	 * no query is explained if the check is off
+	 *
+	 */
+	@Test
+	public void testVerify_WarnAndOff() {
+
+		Mockito.when(collection.find(ArgumentMatchers.any(Bson.class))).thenReturn(scanningFind);
+
+		ReflectionTestUtils.setField(queryPlanVerifier, "queryPlanCheck", "warn");
+		queryPlanVerifier.verify();
+
+		Mockito.clearInvocations(mongoOperations);
+		ReflectionTestUtils.setField(queryPlanVerifier, "queryPlanCheck", QueryPlanVerifier.OFF);
+		queryPlanVerifier.verify();
+
+		Mockito.verifyNoInteractions(mongoOperations);
+	}
+
+	/**
+	 * Tests that a find served by an index is accepted
+	 *
+	 */
+	@Test
+	public void testUsesCollectionScan_IndexScan() {
+
+		Document explain = Document.parse("{ 'queryPlanner' : { 'winningPlan' : { 'stage' : 'FETCH', "
+				+ "'inputStage' : { 'stage' : 'IXSCAN', 'indexName' : 'lotteryId_ballotId' } }, "
+				+ "'rejectedPlans' : [ { 'stage' : 'COLLSCAN' } ] } }");
+
+		assertFalse(QueryPlanVerifier.usesCollectionScan(explain));
+	}
+
+	/**
+	 * Tests that a find scanning the collection is detected
+	 *
+	 */
+	@Test
+	public void testUsesCollectionScan_CollectionScan() {
+
+		Document explain = Document.parse("{ 'queryPlanner' : { 'winningPlan' : { 'stage' : 'SORT', "
+				+ "'inputStage' : { 'stage' : 'COLLSCAN', 'filter' : { 'status' : { '$eq' : 'OPEN' } } } } } }");
+
+		assertTrue(QueryPlanVerifier.usesCollectionScan(explain));
+	}
+
+	/**
+	 * Tests that a collection scan nested in the plan of an aggregation pipeline
+	 * is detected
+	 *
+	 */
+	@Test
+	public void testUsesCollectionScan_AggregationPipeline() {
+
+		Document explain = Document.parse("{ 'stages' : [ { '$cursor' : { 'queryPlanner' : { 'winningPlan' : "
+				+ "{ 'queryPlan' : { 'stage' : 'COLLSCAN' } } } } }, { '$sample' : { 'size' : 1 } } ] }");
+
+		assertTrue(QueryPlanVerifier.usesCollectionScan(explain));
+	}
+
+	private static void stubFind(FindIterable<Document> find, Document explain) {
+
+		Mockito.when(find.projection(ArgumentMatchers.any())).thenReturn(find);
+		Mockito.when(find.sort(ArgumentMatchers.any())).thenReturn(find);
+		Mockito.when(find.limit(ArgumentMatchers.anyInt())).thenReturn(find);
+		Mockito.when(find.explain()).thenReturn(explain);
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.bynder.lease;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lease store keeping leases in memory, shared by the application contexts of
+ * a test to stand in for the LEASES collection
+ * 
+ * Expiry is based on a clock advanced by the test, so leases expire without
+ * waiting.
+ * 
+ * @author arathy
+ *
+ */
+public class InMemoryLeaseStore implements LeaseStore {
+
+	private final ConcurrentMap<String, HeldLease> leases = new ConcurrentHashMap<>();
+
+	private final AtomicLong clockMs = new AtomicLong();
+
+	/**
+	 * Moves the clock of the store forward
+	 * 
+	 * @param ms - time to advance the clock by
+	 */
+	public void advance(long ms) {
+
+		clockMs.addAndGet(ms);
+	}
+
+	public boolean acquire(String name, String owner, long ttlMs) {
+
+		long now = clockMs.get();
+
+		HeldLease lease = leases.compute(name,
+				(key, current) -> current == null || current.owner.equals(owner) || current.expiresAt < now
+						? new HeldLease(owner, now + ttlMs)
+						: current);
+
+		return lease.owner.equals(owner);
+	}
+
+	public int renew(String owner, long ttlMs) {
+
+		long expiresAt = clockMs.get() + ttlMs;
+		AtomicInteger renewed = new AtomicInteger();
+
+		leases.replaceAll((name, current) -> {
+			if (!current.owner.equals(owner)) {
+				return current;
+			}
+			renewed.incrementAndGet();
+			return new HeldLease(owner, expiresAt);
+		});
+
+		return renewed.get();
+	}
+
+	public void release(String name, String owner) {
+
+		leases.computeIfPresent(name, (key, current) -> current.owner.equals(owner) ? null : current);
+	}
+
+	private static final class HeldLease {
+
+		private final String owner;
+
+		private final long expiresAt;
+
+		private HeldLease(String owner, long expiresAt) {
+
+			this.owner = owner;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.bynder.lease;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Lottery;
+import com.bynder.scheduler.LotteryScheduler;
+import com.bynder.service.BallotService;
+import com.bynder.service.LotteryCloseResult;
+import com.bynder.service.LotteryService;
+
+/**
+ * Test class for LeaseCoordinator methods, with one application context per
+ * node sharing the same lease store, whose clock is advanced by the tests
+ * 
+ * 
+ * @author arathy
+ *
+ */
+public class LeaseCoordinatorTest {
+
+	private static final long TTL_MS = 300;
+
+	private InMemoryLeaseStore leaseStore;
+
+	private AnnotationConfigApplicationContext firstNode;
+
+	private AnnotationConfigApplicationContext secondNode;
+
+	@Before
+	public void setupContext() {
+
+		leaseStore = new InMemoryLeaseStore();
+		firstNode = startNode("node-1");
+		secondNode = startNode("node-2");
+	}
+
+	@After
+	public void closeContext() {
+
+		firstNode.close();
+		secondNode.close();
+	}
+
+	/**
+	 * Tests that a slice is held by one node at a time and taken over by another
+	 * node once the lease of its holder expires
+	 * 
+	 */
+	@Test
+	public void testTryAcquire_HandoffAfterExpiry() {
+
+		LeaseCoordinator first = firstNode.getBean(LeaseCoordinator.class);
+		LeaseCoordinator second = secondNode.getBean(LeaseCoordinator.class);
+
+		assertTrue(first.tryAcquire(0));
+		assertFalse(second.tryAcquire(0));
+		assertTrue(second.tryAcquire(1));
+
+		// the first node stops renewing, as if it died
+		leaseStore.advance(TTL_MS);
+		assertFalse(second.tryAcquire(0));
+
+		leaseStore.advance(1);
+		assertTrue(second.tryAcquire(0));
+		assertFalse(first.tryAcquire(0));
+	}
+
+	/**
+	 * Tests that a renewed lease is kept beyond its time to live
+	 * 
+	 */
+	@Test
+	public void testRenew_KeepsLease() {
+
+		LeaseCoordinator first = firstNode.getBean(LeaseCoordinator.class);
+		LeaseCoordinator second = secondNode.getBean(LeaseCoordinator.class);
+
+		assertTrue(first.tryAcquire(0));
+
+		for (int i = 0; i < 4; i++) {
+			leaseStore.advance(TTL_MS / 2);
+			first.renew();
+		}
+
+		assertFalse(second.tryAcquire(0));
+	}
+
+	/**
+	 * Tests that two schedulers running the closing job at the same time, one
+	 * per node, draw and close every lottery exactly once
+	 * 
+	 * @throws Exception - thrown if a job fails or does not finish in time
+	 */
+	@Test
+	public void testEndLotteryEvent_ExactlyOnce() throws Exception {
+
+		Map<String, String> statuses = new ConcurrentHashMap<>();
+		Map<String, AtomicInteger> draws = new ConcurrentHashMap<>();
+		AtomicInteger lostCloses = new AtomicInteger();
+
+		for (int lotteryId = 0; lotteryId < 40; lotteryId++) {
+			statuses.put(String.valueOf(lotteryId), Constants.OPEN);
+			draws.put(String.valueOf(lotteryId), new AtomicInteger());
+		}
+
+		// stands in for LOTTERY, where a close only matches a lottery which is still open
+		LotteryService lotteryService = Mockito.mock(LotteryService.class);
+		Mockito.when(lotteryService.getActiveLotteries()).thenAnswer(invocation -> statuses.entrySet().stream()
+				.filter(entry -> Constants.OPEN.equals(entry.getValue())).map(entry -> lottery(entry.getKey()))
+				.collect(Collectors.toList()));
+		Mockito.when(lotteryService.closeLotteries(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenAnswer(invocation -> {
+
+					Map<String, String> winnerBallots = invocation.getArgument(0);
+					Set<String> alreadyClosed = new HashSet<>();
+
+					winnerBallots.keySet().forEach(lotteryId -> {
+						if (!statuses.replace(lotteryId, Constants.OPEN, Constants.CLOSED)) {
+							alreadyClosed.add(lotteryId);
+							lostCloses.incrementAndGet();
+						}
+					});
+
+					return new LotteryCloseResult(Collections.emptySet(), alreadyClosed);
+				});
+
+		BallotService ballotService = Mockito.mock(BallotService.class);
+		Mockito.when(ballotService.awaitBufferedBallots(ArgumentMatchers.anyLong())).thenReturn(true);
+		Mockito.when(ballotService.getLotteryWinner(ArgumentMatchers.any())).thenAnswer(invocation -> {
+			draws.get(invocation.<String>getArgument(0)).incrementAndGet();
+			return "1";
+		});
+
+		LotteryScheduler firstScheduler = scheduler(firstNode, lotteryService, ballotService);
+		LotteryScheduler secondScheduler = scheduler(secondNode, lotteryService, ballotService);
+
+		CompletableFuture<Void> firstJob = CompletableFuture.runAsync(firstScheduler::endLotteryEvent);
+		CompletableFuture<Void> secondJob = CompletableFuture.runAsync(secondScheduler::endLotteryEvent);
+		CompletableFuture.allOf(firstJob, secondJob).get(30, TimeUnit.SECONDS);
+
+		statuses.forEach((lotteryId, status) -> assertEquals(Constants.CLOSED, status, lotteryId));
+		draws.forEach((lotteryId, count) -> assertEquals(1, count.get(), lotteryId));
+		assertEquals(0, lostCloses.get());
+	}
+
+	/**
+	 * Tests that leases are released when a node shuts down, so another node
+	 * takes them over without waiting for them to expire
+	 * 
+	 */
+	@Test
+	public void testShutdown_ReleasesLeases() {
+
+		assertTrue(firstNode.getBean(LeaseCoordinator.class).tryAcquire(0));
+
+		firstNode.close();
+
+		assertTrue(secondNode.getBean(LeaseCoordinator.class).tryAcquire(0));
+	}
+
+	/**
+	 * Tests that lotteries are assigned to slices by lotteryId, the same way on
+	 * every node
+	 * 
+	 */
+	@Test
+	public void testSliceOf() {
+
+		LeaseCoordinator first = firstNode.getBean(LeaseCoordinator.class);
+		LeaseCoordinator second = secondNode.getBean(LeaseCoordinator.class);
+
+		for (int lotteryId = 0; lotteryId < 100; lotteryId++) {
+
+			int slice = first.sliceOf(String.valueOf(lotteryId));
+			assertEquals(slice, second.sliceOf(String.valueOf(lotteryId)));
+			assertTrue(slice >= 0 && slice < first.getSlices());
+		}
+
+		assertNotEquals(first.getNodeId(), second.getNodeId());
+	}
+
+	private static LotteryScheduler scheduler(AnnotationConfigApplicationContext node, LotteryService lotteryService,
+			BallotService ballotService) {
+
+		LotteryScheduler scheduler = new LotteryScheduler();
+		ReflectionTestUtils.setField(scheduler, "lotteryService", lotteryService);
+		ReflectionTestUtils.setField(scheduler, "ballotService", ballotService);
+		ReflectionTestUtils.setField(scheduler, "leaseCoordinator", node.getBean(LeaseCoordinator.class));
+		ReflectionTestUtils.setField(scheduler, "concurrency", 4);
+		ReflectionTestUtils.setField(scheduler, "timeoutMs", 5000L);
+		ReflectionTestUtils.setField(scheduler, "pollIntervalMs", 10L);
+		ReflectionTestUtils.setField(scheduler, "jobTimeoutMs", 10000L);
+		return scheduler;
+	}
+
+	private static Lottery lottery(String lotteryId) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId(lotteryId);
+		lottery.setStatus(Constants.OPEN);
+		return lottery;
+	}
+
+	private AnnotationConfigApplicationContext startNode(String nodeId) {
+
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+
+		TestPropertyValues.of("scheduler.coordination=lease", "scheduler.lease.node-id=" + nodeId,
+				"scheduler.lease.slices=4", "scheduler.lease.ttl-ms=" + TTL_MS).applyTo(context);
+
+		context.getBeanFactory().registerSingleton("leaseStore", leaseStore);
+		context.register(LeaseCoordinator.class);
+		context.refresh();
+
+		return context;
+	}
+
+}
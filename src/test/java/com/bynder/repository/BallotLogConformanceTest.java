@@ -0,0 +1,123 @@
+package com.bynder.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.repository.log.LogBallotRepository;
+
+/**
+ * Conformance tests of the ballot log in place of the ballot repository of the
+ * in-memory storage engine, and tests of reopening the log
+ *
+ * Segments of two records are used, so most tests append to several segments.
+ *
+ * @author arathy
+ *
+ */
+public class BallotLogConformanceTest extends InMemoryStorageConformanceTest {
+
+	@Rule
+	public TemporaryFolder ballotLogFolder = new TemporaryFolder();
+
+	private LogBallotRepository logBallotRepository;
+
+	@Override
+	protected void createStorage() throws IOException {
+
+		super.createStorage();
+		openBallotLog();
+	}
+
+	@Override
+	protected void closeStorage() {
+
+		logBallotRepository.close();
+	}
+
+	/**
+	 * Tests that the ballots and indexes of a reopened log are restored
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testReopen() throws IOException {
+
+		ballotRepository.insertUnordered(Arrays.asList(ballot("1", "12", "21", 1L), ballot("2", "12", "22", 2L),
+				ballot("3", "14", "21", 1L)));
+		logBallotRepository.close();
+
+		openBallotLog();
+		ballotRepository.save(ballot("4", "12", "21", 3L));
+
+		assertEquals(Arrays.asList("1", "2", "4"), ballotIds(ballotRepository.findPage(null, "12", null, 5)));
+		assertEquals(Arrays.asList("1", "3", "4"), ballotIds(ballotRepository.findByUserId("21")));
+		assertEquals("2", ballotRepository.findByLotteryIdAndOrdinal("12", 2).getBallotId());
+		assertEquals(3, ballotRepository.findLastOrdinal("12"));
+		assertEquals(ballot("3", "14", "21", 1L).getCreatedDate(),
+				ballotRepository.findByLotteryId("14").get(0).getCreatedDate());
+		assertEquals(4, ballotRepository.count());
+
+		assertThrows(DuplicateKeyException.class, () -> ballotRepository.save(ballot("3", "14", "21", 2L)));
+		assertThrows(DuplicateKeyException.class, () -> ballotRepository.save(ballot("5", "14", "21", 1L)));
+	}
+
+	/**
+	 * Tests that ballots are paged in the string order of their ballotIds, and
+	 * that ids which are not positive decimal numbers are rejected
+	 *
+	 */
+	@Test
+	public void testBallotIdOrder() {
+
+		ballotRepository.insertUnordered(Arrays.asList(ballot("9", "12", "21", 1L), ballot("10", "12", "21", 2L),
+				ballot("100", "12", "21", 3L), ballot("11", "12", "21", 4L), ballot("1", "12", "21", 5L),
+				ballot("99", "12", "21", 6L)));
+
+		assertEquals(Arrays.asList("1", "10", "100", "11", "9", "99"),
+				ballotIds(ballotRepository.findPage(null, "12", null, 10)));
+		assertEquals(Arrays.asList("100", "11"), ballotIds(ballotRepository.findPage("21", null, "10", 1)));
+		assertEquals(Arrays.asList("9", "99"), ballotIds(ballotRepository.findPage(null, null, "2", 5)));
+
+		assertThrows(InvalidDataAccessApiUsageException.class,
+				() -> ballotRepository.save(ballot("012", "12", "21", null)));
+		assertThrows(InvalidDataAccessApiUsageException.class,
+				() -> ballotRepository.save(ballot("13", "lottery", "21", null)));
+		assertEquals(6, ballotRepository.count());
+	}
+
+	/**
+	 * Tests that the ballot log is not opened unless the deployment is declared
+	 * as a single node
+	 *
+	 */
+	@Test
+	public void testOpen_NotSingleNode() {
+
+		LogBallotRepository multiNodeRepository = new LogBallotRepository();
+		ReflectionTestUtils.setField(multiNodeRepository, "directory", ballotLogFolder.getRoot().toString());
+
+		assertThrows(IllegalStateException.class, multiNodeRepository::open);
+	}
+
+	private void openBallotLog() throws IOException {
+
+		logBallotRepository = new LogBallotRepository();
+		ReflectionTestUtils.setField(logBallotRepository, "directory", ballotLogFolder.getRoot().toString());
+		ReflectionTestUtils.setField(logBallotRepository, "segmentRecords", 2);
+		ReflectionTestUtils.setField(logBallotRepository, "singleNode", true);
+		logBallotRepository.open();
+
+		ballotRepository = logBallotRepository;
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.bynder.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Ballot;
+import com.bynder.repository.memory.InMemoryBallotRepository;
+import com.bynder.repository.memory.InMemoryLotteryRepository;
+import com.bynder.repository.memory.InMemoryLotteryResultRepository;
+import com.bynder.repository.memory.InMemoryStorage;
+import com.bynder.repository.memory.InMemoryUserRepository;
+import com.bynder.service.impl.InMemoryBallotOrdinalServiceImpl;
+import com.bynder.service.impl.InMemorySequenceGeneratorServiceImpl;
+
+/**
+ * Conformance tests of the in-memory storage engine, and tests of its snapshot
+ *
+ *
+ * @author arathy
+ *
+ */
+public class InMemoryStorageConformanceTest extends StorageConformanceTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private InMemoryStorage storage;
+
+	@Override
+	protected void createStorage() throws IOException {
+
+		createStorage("");
+	}
+
+	/**
+	 * Tests that documents and sequences written to a snapshot are restored by
+	 * the next storage using the snapshot file
+	 *
+	 * @throws IOException - thrown if any exception occurs
+	 */
+	@Test
+	public void testSnapshot() throws IOException {
+
+		String snapshotPath = temporaryFolder.getRoot().toPath().resolve("snapshot.json").toString();
+		createStorage(snapshotPath);
+
+		// no snapshot is present yet
+		assertNull(lotteryRepository.findByLotteryId("1"));
+
+		lotteryRepository.save(lottery("1", Constants.OPEN));
+		lotteryRepository.updateReservoir("1", "2", 2);
+		userRepository.save(user("21", "alice"));
+		lotteryResultRepository.insertResults(Arrays.asList(result("2", "2023-07-10")));
+		List<Ballot> ballots = Arrays.asList(ballot("1", "1", "21", null), ballot("2", "1", "21", null));
+		ballotOrdinalService.assignOrdinals(ballots);
+		ballotRepository.insertUnordered(ballots);
+		sequenceService.getNextSequenceNumbers(Constants.BALLOT_SEQUENCE, 3);
+
+		storage.writeSnapshot();
+
+		// changes after the snapshot are lost
+		ballotRepository.save(ballot("3", "1", "21", 3L));
+
+		createStorage(snapshotPath);
+
+		assertEquals(Arrays.asList("1", "2"), ballotIds(ballotRepository.findPage(null, "1", null, 10)));
+		assertEquals("2", ballotRepository.findByLotteryIdAndOrdinal("1", 2).getBallotId());
+		assertEquals(lottery("1", Constants.OPEN).getStartDate(), lotteryRepository.findByLotteryId("1")
+				.getStartDate());
+		assertEquals(2L, lotteryRepository.findByLotteryId("1").getReservoirOrdinal());
+		assertEquals("alice", userRepository.findByUserId("21").getUserName());
+		assertEquals("2023-07-10", lotteryResultRepository.findByLotteryId("2").getResultDate());
+		assertEquals(2, ballotOrdinalService.getLastOrdinal("1"));
+		assertEquals(4, sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE));
+	}
+
+	/**
+	 * Creates empty storage, restored from the snapshot if present
+	 */
+	private void createStorage(String snapshotPath) throws IOException {
+
+		storage = new InMemoryStorage();
+		ReflectionTestUtils.setField(storage, "snapshotPath", snapshotPath);
+		storage.restoreSequences();
+
+		InMemoryBallotRepository inMemoryBallotRepository = new InMemoryBallotRepository();
+		InMemoryLotteryRepository inMemoryLotteryRepository = new InMemoryLotteryRepository();
+		InMemoryUserRepository inMemoryUserRepository = new InMemoryUserRepository();
+		InMemoryLotteryResultRepository inMemoryLotteryResultRepository = new InMemoryLotteryResultRepository();
+
+		for (Object repository : Arrays.asList(inMemoryBallotRepository, inMemoryLotteryRepository,
+				inMemoryUserRepository, inMemoryLotteryResultRepository)) {
+			ReflectionTestUtils.setField(repository, "storage", storage);
+		}
+
+		inMemoryBallotRepository.register();
+		inMemoryLotteryRepository.register();
+		inMemoryUserRepository.register();
+		inMemoryLotteryResultRepository.register();
+
+		ballotRepository = inMemoryBallotRepository;
+		lotteryRepository = inMemoryLotteryRepository;
+		userRepository = inMemoryUserRepository;
+		lotteryResultRepository = inMemoryLotteryResultRepository;
+
+		ballotOrdinalService = new InMemoryBallotOrdinalServiceImpl();
+		ReflectionTestUtils.setField(ballotOrdinalService, "storage", storage);
+
+		sequenceService = new InMemorySequenceGeneratorServiceImpl();
+		ReflectionTestUtils.setField(sequenceService, "storage", storage);
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.bynder.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.Assume;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.config.SequenceProperties;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.model.LotteryResult;
+import com.bynder.model.Sequences;
+import com.bynder.model.User;
+import com.bynder.service.impl.BallotOrdinalServiceImpl;
+import com.bynder.service.impl.SequenceGeneratorServiceImpl;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Conformance tests of the Mongo storage engine against a Mongo server on
+ * localhost:27017, skipped if no server is reachable.
+ *
+ * Every test starts from an empty LOTTERY_CONFORMANCE_TEST database with the
+ * indexes declared on the models.
+ *
+ * @author arathy
+ *
+ */
+public class MongoStorageConformanceTest extends StorageConformanceTest {
+
+	private static final String CONNECTION_STRING = "mongodb://localhost:27017";
+
+	private static final String DATABASE = "LOTTERY_CONFORMANCE_TEST";
+
+	// block size of lottery.ordinal.block-size in application.properties
+	private static final long ORDINAL_BLOCK_SIZE = 100;
+
+	private MongoClient mongoClient;
+
+	@Override
+	protected void createStorage() {
+
+		mongoClient = MongoClients.create(MongoClientSettings.builder()
+				.applyConnectionString(new ConnectionString(CONNECTION_STRING))
+				.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(1, TimeUnit.SECONDS)).build());
+
+		try {
+			mongoClient.getDatabase(DATABASE).runCommand(new Document("ping", 1));
+		} catch (RuntimeException exception) {
+			mongoClient.close();
+			Assume.assumeNoException("Mongo is not available on " + CONNECTION_STRING, exception);
+		}
+
+		MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, DATABASE);
+		mongoTemplate.getDb().drop();
+
+		MongoPersistentEntityIndexResolver indexResolver = new MongoPersistentEntityIndexResolver(
+				new MongoMappingContext());
+
+		for (Class<?> type : Arrays.asList(Ballot.class, Lottery.class, User.class, Sequences.class,
+				LotteryResult.class)) {
+
+			IndexOperations indexOperations = mongoTemplate.indexOps(type);
+			for (IndexDefinition index : indexResolver.resolveIndexFor(type)) {
+				indexOperations.ensureIndex(index);
+			}
+		}
+
+		MongoRepositoryFactory repositoryFactory = new MongoRepositoryFactory(mongoTemplate);
+
+		BallotRepositoryCustomImpl ballotRepositoryCustom = new BallotRepositoryCustomImpl();
+		ReflectionTestUtils.setField(ballotRepositoryCustom, "mongoOperations", mongoTemplate);
+		ballotRepository = repositoryFactory.getRepository(BallotRepository.class,
+				RepositoryFragments.just(ballotRepositoryCustom));
+
+		LotteryRepositoryCustomImpl lotteryRepositoryCustom = new LotteryRepositoryCustomImpl();
+		ReflectionTestUtils.setField(lotteryRepositoryCustom, "mongoOperations", mongoTemplate);
+		lotteryRepository = repositoryFactory.getRepository(LotteryRepository.class,
+				RepositoryFragments.just(lotteryRepositoryCustom));
+
+		userRepository = repositoryFactory.getRepository(UserRepository.class);
+
+		LotteryResultRepositoryCustomImpl lotteryResultRepositoryCustom = new LotteryResultRepositoryCustomImpl();
+		ReflectionTestUtils.setField(lotteryResultRepositoryCustom, "mongoOperations", mongoTemplate);
+		lotteryResultRepository = repositoryFactory.getRepository(LotteryResultRepository.class,
+				RepositoryFragments.just(lotteryResultRepositoryCustom));
+
+		BallotOrdinalServiceImpl mongoBallotOrdinalService = new BallotOrdinalServiceImpl();
+		ReflectionTestUtils.setField(mongoBallotOrdinalService, "mongoOperations", mongoTemplate);
+		ReflectionTestUtils.setField(mongoBallotOrdinalService, "blockSize", ORDINAL_BLOCK_SIZE);
+		ReflectionTestUtils.setField(mongoBallotOrdinalService, "blockIdleMs", 3600000L);
+		mongoBallotOrdinalService.init();
+		ballotOrdinalService = mongoBallotOrdinalService;
+
+		sequenceService = new SequenceGeneratorServiceImpl();
+		ReflectionTestUtils.setField(sequenceService, "mongoOperations", mongoTemplate);
+		ReflectionTestUtils.setField(sequenceService, "sequenceProperties", new SequenceProperties());
+		ReflectionTestUtils.setField(sequenceService, "meterRegistry", new SimpleMeterRegistry());
+	}
+
+	@Override
+	protected void closeStorage() {
+
+		if (mongoClient != null) {
+			mongoClient.close();
+		}
+	}
+
+}
@@ -0,0 +1,467 @@
+package com.bynder.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.util.CloseableIterator;
+
+import com.bynder.constants.Constants;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.model.LotteryResult;
+import com.bynder.model.User;
+import com.bynder.service.BallotOrdinalService;
+import com.bynder.service.SequenceGeneratorService;
+import com.mongodb.bulk.BulkWriteError;
+
+/**
+ * Conformance tests of a storage engine: the repositories, the sequence
+ * generator and the ballot ordinals have to behave the same with every engine.
+ *
+ * Every storage engine has a subclass creating empty storage before every
+ * test.
+ *
+ * @author arathy
+ *
+ */
+public abstract class StorageConformanceTest {
+
+	protected BallotRepository ballotRepository;
+
+	protected LotteryRepository lotteryRepository;
+
+	protected UserRepository userRepository;
+
+	protected LotteryResultRepository lotteryResultRepository;
+
+	protected BallotOrdinalService ballotOrdinalService;
+
+	protected SequenceGeneratorService sequenceService;
+
+	/**
+	 * Creates empty storage and sets the repositories and services
+	 *
+	 * @throws Exception - thrown if storage cannot be created
+	 */
+	protected abstract void createStorage() throws Exception;
+
+	/**
+	 * Releases the storage created for a test
+	 *
+	 */
+	protected void closeStorage() {
+
+	}
+
+	@Before
+	public void setUpStorage() throws Exception {
+
+		createStorage();
+	}
+
+	@After
+	public void tearDownStorage() {
+
+		closeStorage();
+	}
+
+	/**
+	 * Tests that a ballot with a taken ballotId or a taken ordinal of its lottery
+	 * is rejected without being stored
+	 *
+	 */
+	@Test
+	public void testSaveBallot_DuplicateKeys() {
+
+		ballotRepository.save(ballot("1", "12", "13", 1L));
+
+		assertThrows(DuplicateKeyException.class, () -> ballotRepository.save(ballot("1", "14", "13", 1L)));
+		assertThrows(DuplicateKeyException.class, () -> ballotRepository.save(ballot("2", "12", "13", 1L)));
+
+		ballotRepository.save(ballot("3", "14", "13", 1L));
+		ballotRepository.save(ballot("4", "12", "13", null));
+
+		assertEquals(Arrays.asList("1", "3", "4"), ballotIds(ballotRepository.findPage(null, null, null, 10)));
+		assertEquals("1", ballotRepository.findByLotteryIdAndOrdinal("12", 1).getBallotId());
+		assertEquals("3", ballotRepository.findByLotteryIdAndOrdinal("14", 1).getBallotId());
+		assertNull(ballotRepository.findByLotteryIdAndOrdinal("12", 2));
+	}
+
+	/**
+	 * Tests that an unordered insert stores all ballots but the duplicate ones and
+	 * reports the duplicates by their index
+	 *
+	 */
+	@Test
+	public void testInsertUnordered() {
+
+		ballotRepository.save(ballot("1", "12", "13", 1L));
+
+		BulkOperationException exception = assertThrows(BulkOperationException.class,
+				() -> ballotRepository.insertUnordered(Arrays.asList(ballot("2", "12", "13", 2L),
+						ballot("1", "12", "13", 3L), ballot("3", "12", "13", 1L), ballot("4", "12", "13", 4L))));
+
+		assertEquals(Arrays.asList(1, 2),
+				exception.getErrors().stream().map(BulkWriteError::getIndex).sorted().collect(Collectors.toList()));
+		assertEquals(Arrays.asList("1", "2", "4"), ballotIds(sorted(ballotRepository.findByLotteryId("12"))));
+		assertEquals("4", ballotRepository.findByLotteryIdAndOrdinal("12", 4).getBallotId());
+		assertNull(ballotRepository.findByLotteryIdAndOrdinal("12", 3));
+
+		ballotRepository.insertUnordered(Collections.emptyList());
+	}
+
+	/**
+	 * Tests ballot queries by userId and lotteryId: pages in ballotId order
+	 * continuing after the cursor, streams, counts and random ballots
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testBallotQueries() throws Exception {
+
+		ballotRepository.insertUnordered(Arrays.asList(ballot("5", "12", "21", 1L), ballot("1", "12", "22", 2L),
+				ballot("3", "14", "21", 1L), ballot("2", "12", "21", 3L), ballot("4", "14", "22", 2L)));
+
+		// one more ballot than the limit is returned if another page follows
+		assertEquals(Arrays.asList("1", "2", "3"), ballotIds(ballotRepository.findPage(null, null, null, 2)));
+		assertEquals(Arrays.asList("4", "5"), ballotIds(ballotRepository.findPage(null, null, "3", 2)));
+		assertEquals(Arrays.asList("1", "2", "5"), ballotIds(ballotRepository.findPage(null, "12", null, 5)));
+		assertEquals(Arrays.asList("5"), ballotIds(ballotRepository.findPage(null, "12", "2", 5)));
+		assertEquals(Arrays.asList("2", "3", "5"), ballotIds(ballotRepository.findPage("21", "", null, 5)));
+		assertEquals(Arrays.asList("2", "5"), ballotIds(ballotRepository.findPage("21", "12", null, 5)));
+		assertTrue(ballotRepository.findPage("23", null, null, 5).isEmpty());
+
+		List<Ballot> streamed = new ArrayList<>();
+		try (CloseableIterator<Ballot> iterator = ballotRepository.streamBallots("22", null)) {
+			iterator.forEachRemaining(streamed::add);
+		}
+		assertEquals(Arrays.asList("1", "4"), ballotIds(streamed));
+		assertEquals("12", streamed.get(0).getLotteryId());
+		assertEquals(2L, streamed.get(0).getOrdinal());
+
+		assertEquals(Arrays.asList("1", "2", "5"), ballotIds(sorted(ballotRepository.findByUserIdAndLotteryId("22",
+				"12"), ballotRepository.findByUserIdAndLotteryId("21", "12"))));
+		assertEquals(Arrays.asList("2", "3", "5"), ballotIds(sorted(ballotRepository.findByUserId("21"))));
+
+		Map<String, Long> expectedCounts = new HashMap<>();
+		expectedCounts.put("12", 3L);
+		expectedCounts.put("14", 2L);
+		assertEquals(expectedCounts, ballotRepository.countByLotteryIds(Arrays.asList("12", "14", "15")));
+		assertTrue(ballotRepository.countByLotteryIds(Collections.emptyList()).isEmpty());
+
+		assertTrue(ballotRepository.existsByLotteryId("14"));
+		assertFalse(ballotRepository.existsByLotteryId("15"));
+
+		assertTrue(Arrays.asList("3", "4").contains(ballotRepository.findRandomBallot("14").getBallotId()));
+		assertNull(ballotRepository.findRandomBallot("15"));
+	}
+
+	/**
+	 * Tests that a lottery with a taken lotteryId is rejected, and lottery queries
+	 * by status in lotteryId order
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testLotteryQueries() throws Exception {
+
+		lotteryRepository.save(lottery("2", Constants.OPEN));
+		lotteryRepository.save(lottery("1", Constants.CLOSED));
+		lotteryRepository.save(lottery("3", Constants.OPEN));
+
+		assertThrows(DuplicateKeyException.class, () -> lotteryRepository.save(lottery("2", Constants.CLOSED)));
+
+		Lottery lottery = lotteryRepository.findByLotteryId("2");
+		assertEquals(Constants.OPEN, lottery.getStatus());
+		assertEquals("Lottery 2", lottery.getName());
+		assertEquals(new Date(1688995800000L), lottery.getStartDate());
+		assertNull(lotteryRepository.findByLotteryId("4"));
+
+		// changes to a returned lottery are not stored
+		lottery.setStatus(Constants.CLOSED);
+		assertEquals(Constants.OPEN, lotteryRepository.findByLotteryId("2").getStatus());
+
+		assertEquals(Arrays.asList("2", "3"),
+				lotteryIds(sortedLotteries(lotteryRepository.findByStatus(Constants.OPEN))));
+		assertEquals(Arrays.asList("1", "2", "3"), lotteryIds(lotteryRepository.findPage(null, null, 5)));
+		assertEquals(Arrays.asList("2", "3"), lotteryIds(lotteryRepository.findPage(null, "1", 1)));
+		assertEquals(Arrays.asList("3"), lotteryIds(lotteryRepository.findPage(Constants.OPEN, "2", 1)));
+
+		List<Lottery> streamed = new ArrayList<>();
+		try (CloseableIterator<Lottery> iterator = lotteryRepository.streamLotteries(Constants.CLOSED)) {
+			iterator.forEachRemaining(streamed::add);
+		}
+		assertEquals(Arrays.asList("1"), lotteryIds(streamed));
+	}
+
+	/**
+	 * Tests lottery updates: ballot counts, reservoir replacements, closing only
+	 * open lotteries and the unconditional update
+	 *
+	 */
+	@Test
+	public void testLotteryUpdates() {
+
+		lotteryRepository.save(lottery("1", Constants.OPEN));
+		lotteryRepository.save(lottery("2", Constants.OPEN));
+
+		Lottery closedLottery = lottery("3", Constants.CLOSED);
+		closedLottery.setWinnerBallot("30");
+		lotteryRepository.save(closedLottery);
+
+		Map<String, Long> increments = new LinkedHashMap<>();
+		increments.put("1", 3L);
+		increments.put("2", 1L);
+		lotteryRepository.incrementBallotCounts(increments);
+		lotteryRepository.incrementBallotCounts(Collections.singletonMap("1", 2L));
+		lotteryRepository.setBallotCount("2", 7);
+
+		assertEquals(5, lotteryRepository.findByLotteryId("1").getBallotCount());
+		assertEquals(7, lotteryRepository.findByLotteryId("2").getBallotCount());
+
+		assertTrue(lotteryRepository.updateReservoir("1", "11", 2));
+		assertFalse(lotteryRepository.updateReservoir("1", "10", 1));
+		assertFalse(lotteryRepository.updateReservoir("1", "12", 2));
+		assertTrue(lotteryRepository.updateReservoir("1", "13", 3));
+		assertEquals("13", lotteryRepository.findByLotteryId("1").getReservoirBallot());
+		assertEquals(3L, lotteryRepository.findByLotteryId("1").getReservoirOrdinal());
+
+		assertFalse(lotteryRepository.rebuildReservoir("1", "11", 2));
+		assertTrue(lotteryRepository.rebuildReservoir("1", "12", 3));
+		assertEquals("12", lotteryRepository.findByLotteryId("1").getReservoirBallot());
+
+		Date endDate = new Date(1689000000000L);
+		Map<String, String> winnerBallots = new LinkedHashMap<>();
+		winnerBallots.put("1", "13");
+		winnerBallots.put("3", "31");
+		assertEquals(Collections.singleton("3"), lotteryRepository.closeLotteries(winnerBallots, endDate));
+		assertTrue(lotteryRepository.closeLotteries(Collections.emptyMap(), endDate).isEmpty());
+
+		Lottery lottery = lotteryRepository.findByLotteryId("1");
+		assertEquals(Constants.CLOSED, lottery.getStatus());
+		assertEquals("13", lottery.getWinnerBallot());
+		assertEquals(endDate, lottery.getEndDate());
+		assertEquals(5, lottery.getBallotCount());
+		assertEquals("30", lotteryRepository.findByLotteryId("3").getWinnerBallot());
+
+		lotteryRepository.updateLottery("2", endDate, "-1", Constants.CLOSED);
+		assertEquals("-1", lotteryRepository.findByLotteryId("2").getWinnerBallot());
+		assertTrue(lotteryRepository.findByStatus(Constants.OPEN).isEmpty());
+	}
+
+	/**
+	 * Tests that results are inserted once per lottery, and result pages by
+	 * date range in resultDate and lotteryId order
+	 *
+	 */
+	@Test
+	public void testResultQueries() {
+
+		lotteryResultRepository.insertResults(Arrays.asList(result("2", "2023-07-10"), result("1", "2023-07-11"),
+				result("10", "2023-07-10"), result("3", "2023-07-12")));
+
+		// a result written again keeps its stored date
+		lotteryResultRepository.insertResults(Arrays.asList(result("2", "2023-07-12"), result("4", "2023-07-09")));
+		lotteryResultRepository.insertResults(new ArrayList<>());
+
+		assertEquals("2023-07-10", lotteryResultRepository.findByLotteryId("2").getResultDate());
+		assertEquals("Lottery 2", lotteryResultRepository.findByLotteryId("2").getName());
+		assertEquals(new Date(1688995800000L), lotteryResultRepository.findByLotteryId("2").getEndDate());
+		assertNull(lotteryResultRepository.findByLotteryId("5"));
+
+		assertEquals(Arrays.asList("10", "2"),
+				resultLotteryIds(lotteryResultRepository.findPage("2023-07-10", "2023-07-10", null, null, 5)));
+		assertEquals(Arrays.asList("10", "2", "1", "3"),
+				resultLotteryIds(lotteryResultRepository.findPage("2023-07-10", "2023-07-12", null, null, 5)));
+		assertEquals(Arrays.asList("2", "1"), resultLotteryIds(
+				lotteryResultRepository.findPage("2023-07-10", "2023-07-12", "2023-07-10", "10", 1)));
+		assertEquals(Arrays.asList("3"), resultLotteryIds(
+				lotteryResultRepository.findPage("2023-07-10", "2023-07-12", "2023-07-11", "1", 5)));
+		assertEquals(Arrays.asList("4", "10"),
+				resultLotteryIds(lotteryResultRepository.findPage("2023-07-01", "2023-07-10", null, null, 1)));
+		assertTrue(lotteryResultRepository.findPage("2023-07-13", "2023-07-31", null, null, 5).isEmpty());
+	}
+
+	/**
+	 * Tests that a user with a taken userId is rejected, and user queries by
+	 * userId and userName
+	 *
+	 */
+	@Test
+	public void testUserQueries() {
+
+		userRepository.save(user("1", "alice"));
+		userRepository.save(user("2", "bob"));
+
+		assertThrows(DuplicateKeyException.class, () -> userRepository.save(user("1", "carol")));
+
+		assertEquals("alice", userRepository.findByUserId("1").getUserName());
+		assertEquals("Last alice", userRepository.findByUserId("1").getLastName());
+		assertNull(userRepository.findByUserId("3"));
+		assertEquals("2", userRepository.findByUserName("bob").getUserId());
+		assertNull(userRepository.findByUserName("carol"));
+		assertTrue(userRepository.existsByUserId("2"));
+		assertFalse(userRepository.existsByUserId("3"));
+
+		try (Stream<User> users = userRepository.streamAllUserIds()) {
+
+			List<User> userIds = users.sorted((first, second) -> first.getUserId().compareTo(second.getUserId()))
+					.collect(Collectors.toList());
+
+			assertEquals(2, userIds.size());
+			assertEquals("1", userIds.get(0).getUserId());
+			assertNull(userIds.get(0).getUserName());
+		}
+	}
+
+	/**
+	 * Tests that sequences start at 1 and hand out contiguous ranges, that the
+	 * ballots of a lottery numbered by one node get consecutive ordinals, and
+	 * that the last ordinal covers every assigned ordinal, whether ordinals are
+	 * reserved one by one or in blocks
+	 *
+	 */
+	@Test
+	public void testSequences() {
+
+		assertEquals(1, sequenceService.getNextSequenceNumber(Constants.LOTTERY_SEQUENCE));
+		assertEquals(2, sequenceService.getNextSequenceNumber(Constants.LOTTERY_SEQUENCE));
+		assertArrayEquals(new long[] { 3, 4, 5 },
+				sequenceService.getNextSequenceNumbers(Constants.LOTTERY_SEQUENCE, 3));
+		assertEquals(0, sequenceService.getNextSequenceNumbers(Constants.LOTTERY_SEQUENCE, 0).length);
+		assertEquals(1, sequenceService.getNextSequenceNumber(Constants.USER_SEQUENCE));
+
+		assertEquals(0, ballotOrdinalService.getLastOrdinal("12"));
+
+		List<Ballot> ballots = Arrays.asList(ballot(null, "12", "21", null), ballot(null, "14", "21", null),
+				ballot(null, "12", "22", null));
+		Ballot nextBallot = ballot(null, "12", "21", null);
+		ballotOrdinalService.assignOrdinals(ballots);
+		ballotOrdinalService.assignOrdinals(Collections.singletonList(nextBallot));
+
+		assertEquals(1L, ballots.get(0).getOrdinal());
+		assertEquals(1L, ballots.get(1).getOrdinal());
+		assertEquals(2L, ballots.get(2).getOrdinal());
+		assertEquals(3L, nextBallot.getOrdinal());
+		assertTrue(ballotOrdinalService.getLastOrdinal("12") >= 3);
+		assertTrue(ballotOrdinalService.getLastOrdinal("14") >= 1);
+	}
+
+	/**
+	 * Tests that the last ordinal of a lottery is the highest ordinal of its
+	 * stored ballots, however many ordinals the node reserved
+	 *
+	 */
+	@Test
+	public void testFindLastOrdinal() {
+
+		assertEquals(0, ballotRepository.findLastOrdinal("12"));
+
+		List<Ballot> ballots = Arrays.asList(ballot("1", "12", "21", null), ballot("2", "12", "22", null),
+				ballot("3", "12", "21", null));
+		ballotOrdinalService.assignOrdinals(ballots);
+		ballots.forEach(ballotRepository::save);
+		ballotRepository.save(ballot("4", "12", "23", null));
+		ballotRepository.save(ballot("5", "14", "23", null));
+
+		assertEquals(3, ballotRepository.findLastOrdinal("12"));
+		assertTrue(ballotOrdinalService.getLastOrdinal("12") >= 3);
+		assertEquals(0, ballotRepository.findLastOrdinal("14"));
+	}
+
+	protected static Ballot ballot(String ballotId, String lotteryId, String userId, Long ordinal) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(ballotId);
+		ballot.setLotteryId(lotteryId);
+		ballot.setUserId(userId);
+		ballot.setCreatedDate(new Date(1688995800000L));
+		ballot.setOrdinal(ordinal);
+		return ballot;
+	}
+
+	protected static Lottery lottery(String lotteryId, String status) {
+
+		Lottery lottery = new Lottery(lotteryId, "Lottery " + lotteryId, 100, new Date(1688995800000L));
+		lottery.setStatus(status);
+		return lottery;
+	}
+
+	protected static LotteryResult result(String lotteryId, String resultDate) {
+
+		LotteryResult result = new LotteryResult();
+		result.setLotteryId(lotteryId);
+		result.setResultDate(resultDate);
+		result.setName("Lottery " + lotteryId);
+		result.setPrizeMoney(100);
+		result.setWinnerBallot("1");
+		result.setEndDate(new Date(1688995800000L));
+		return result;
+	}
+
+	protected static User user(String userId, String userName) {
+
+		User user = new User();
+		user.setUserId(userId);
+		user.setUserName(userName);
+		user.setFirstName("First " + userName);
+		user.setLastName("Last " + userName);
+		return user;
+	}
+
+	protected static List<String> ballotIds(List<Ballot> ballots) {
+
+		return ballots.stream().map(Ballot::getBallotId).collect(Collectors.toList());
+	}
+
+	protected static List<String> resultLotteryIds(List<LotteryResult> results) {
+
+		return results.stream().map(LotteryResult::getLotteryId).collect(Collectors.toList());
+	}
+
+	protected static List<String> lotteryIds(List<Lottery> lotteries) {
+
+		return lotteries.stream().map(Lottery::getLotteryId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Orders ballots by ballotId, for queries whose order is not defined
+	 */
+	@SafeVarargs
+	private static List<Ballot> sorted(List<Ballot>... ballots) {
+
+		return Stream.of(ballots).flatMap(List::stream)
+				.sorted((first, second) -> first.getBallotId().compareTo(second.getBallotId()))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Orders lotteries by lotteryId, for queries whose order is not defined
+	 */
+	private static List<Lottery> sortedLotteries(List<Lottery> lotteries) {
+
+		return lotteries.stream().sorted((first, second) -> first.getLotteryId().compareTo(second.getLotteryId()))
+				.collect(Collectors.toList());
+	}
+
+}
@@ -1,21 +1,36 @@
 package com.bynder.scheduler;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.bynder.constants.Constants;
+import com.bynder.lease.LeaseCoordinator;
 import com.bynder.model.Ballot;
 import com.bynder.model.Lottery;
+import com.bynder.service.LotteryCloseResult;
 import com.bynder.service.impl.BallotServiceImpl;
 import com.bynder.service.impl.LotteryServiceImpl;
+import com.bynder.utils.DateUtils;
 
 /**
  * Test class for LotteryScheduler methods
@@ -39,6 +54,13 @@ public class LotterySchedulerTest {
 	@Before
 	public void setupContext() {
 		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(lotteryScheduler, "concurrency", 4);
+		ReflectionTestUtils.setField(lotteryScheduler, "timeoutMs", 500L);
+		ReflectionTestUtils.setField(lotteryScheduler, "tickMs", 1000L);
+		ReflectionTestUtils.setField(lotteryScheduler, "wheelSize", 60);
+		Mockito.when(ballotService.awaitBufferedBallots(ArgumentMatchers.anyLong())).thenReturn(true);
+		Mockito.when(lotteryService.closeLotteries(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(new LotteryCloseResult(Collections.emptySet(), Collections.emptySet()));
 	}
 
 	/**
@@ -46,25 +68,26 @@ public class LotterySchedulerTest {
 	 * 
 	 */
 	@Test
+	@SuppressWarnings("unchecked")
 	public void testEndLotteryEvent_Success() {
 
-		Lottery lottery = new Lottery();
-		lottery.setLotteryId("12");
 		List<Lottery> lotteries = new ArrayList<>();
-		lotteries.add(lottery);
+		lotteries.add(lottery("12"));
 
 		Ballot ballot = new Ballot();
 		ballot.setBallotId("11");
 
 		Mockito.when(lotteryService.getActiveLotteries()).thenReturn(lotteries);
 		Mockito.when(ballotService.getLotteryWinner(ArgumentMatchers.any())).thenReturn(ballot.getBallotId());
-		Mockito.doNothing().when(lotteryService).closeLottery(ArgumentMatchers.any(), ArgumentMatchers.any(),
-				ArgumentMatchers.any(), ArgumentMatchers.any());
 
 		lotteryScheduler.endLotteryEvent();
 
+		ArgumentCaptor<Map<String, String>> winnerBallots = ArgumentCaptor.forClass(Map.class);
+
 		Mockito.verify(lotteryService).getActiveLotteries();
 		Mockito.verify(ballotService).getLotteryWinner("12");
+		Mockito.verify(lotteryService).closeLotteries(winnerBallots.capture(), ArgumentMatchers.any());
+		assertEquals(Collections.singletonMap("12", "11"), winnerBallots.getValue());
 
 	}
 
@@ -79,7 +102,229 @@ public class LotterySchedulerTest {
 
 		lotteryScheduler.endLotteryEvent();
 		Mockito.verify(lotteryService).getActiveLotteries();
+		Mockito.verify(lotteryService, Mockito.never()).closeLotteries(ArgumentMatchers.any(),
+				ArgumentMatchers.any());
+
+	}
+
+	/**
+	 * Tests that a failed or timed out winner selection leaves its lottery open
+	 * without affecting the other lotteries
+	 * 
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCloseLotteries_FailureIsolation() {
+
+		Mockito.when(ballotService.getLotteryWinner("12")).thenReturn("11");
+		Mockito.when(ballotService.getLotteryWinner("13")).thenThrow(new IllegalStateException("unavailable"));
+		Mockito.when(ballotService.getLotteryWinner("14")).thenAnswer(invocation -> {
+			Thread.sleep(5000);
+			return "15";
+		});
+
+		LotteryCloseSummary summary = lotteryScheduler
+				.closeLotteries(Arrays.asList(lottery("12"), lottery("13"), lottery("14")));
+
+		ArgumentCaptor<Map<String, String>> winnerBallots = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(lotteryService).closeLotteries(winnerBallots.capture(), ArgumentMatchers.any());
+
+		assertEquals(Collections.singletonMap("12", "11"), winnerBallots.getValue());
+		assertEquals(3, summary.getLotteries());
+		assertEquals(1, summary.getClosed());
+		assertEquals("unavailable", summary.getFailures().get("13"));
+		assertTrue(summary.getFailures().get("14").startsWith("timed out"));
+		assertTrue(summary.getDurationMs() < 5000);
+	}
+
+	/**
+	 * Tests that a lottery is closed as soon as its winner is selected, without
+	 * waiting for the slower selections
+	 * 
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testCloseLotteries_ClosedAsSelected() {
+
+		Mockito.when(ballotService.getLotteryWinner("12")).thenReturn("11");
+		Mockito.when(ballotService.getLotteryWinner("13")).thenAnswer(invocation -> {
+			Thread.sleep(200);
+			return "14";
+		});
+
+		LotteryCloseSummary summary = lotteryScheduler.closeLotteries(Arrays.asList(lottery("12"), lottery("13")));
+
+		ArgumentCaptor<Map<String, String>> winnerBallots = ArgumentCaptor.forClass(Map.class);
+		Mockito.verify(lotteryService, Mockito.times(2)).closeLotteries(winnerBallots.capture(),
+				ArgumentMatchers.any());
 
+		assertEquals(Arrays.asList(Collections.singletonMap("12", "11"), Collections.singletonMap("13", "14")),
+				winnerBallots.getAllValues());
+		assertEquals(2, summary.getClosed());
+	}
+
+	/**
+	 * Tests that lotteries whose status write failed are reported as failed
+	 * 
+	 */
+	@Test
+	public void testCloseLotteries_StatusWriteFailed() {
+
+		Map<String, String> winners = new HashMap<>();
+		winners.put("12", "11");
+		winners.put("13", "-1");
+
+		Mockito.when(ballotService.getLotteryWinner(ArgumentMatchers.any()))
+				.thenAnswer(invocation -> winners.get(invocation.<String>getArgument(0)));
+		Mockito.when(lotteryService.closeLotteries(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(new LotteryCloseResult(Collections.singleton("13"), Collections.emptySet()));
+
+		LotteryCloseSummary summary = lotteryScheduler.closeLotteries(Arrays.asList(lottery("12"), lottery("13")));
+
+		assertEquals(1, summary.getClosed());
+		assertEquals(Collections.singleton("13"), summary.getFailures().keySet());
+	}
+
+	/**
+	 * Tests that lotteries closed by another node before their winner was written
+	 * are reported as already closed, neither as closed nor as failed
+	 * 
+	 */
+	@Test
+	public void testCloseLotteries_AlreadyClosed() {
+
+		Mockito.when(ballotService.getLotteryWinner(ArgumentMatchers.any())).thenReturn("11");
+		Mockito.when(lotteryService.closeLotteries(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(new LotteryCloseResult(Collections.emptySet(), Collections.singleton("13")));
+
+		LotteryCloseSummary summary = lotteryScheduler.closeLotteries(Arrays.asList(lottery("12"), lottery("13")));
+
+		assertEquals(1, summary.getClosed());
+		assertEquals(1, summary.getAlreadyClosed());
+		assertTrue(summary.getFailures().isEmpty());
+	}
+
+	/**
+	 * Tests that no winner is drawn while ballots buffered on this node are not
+	 * written
+	 * 
+	 */
+	@Test
+	public void testCloseLotteries_BufferedBallotsNotWritten() {
+
+		Mockito.when(ballotService.awaitBufferedBallots(ArgumentMatchers.anyLong())).thenReturn(false);
+
+		LotteryCloseSummary summary = lotteryScheduler.closeLotteries(Arrays.asList(lottery("12"), lottery("13")));
+
+		assertEquals(0, summary.getClosed());
+		assertEquals(2, summary.getFailures().size());
+		Mockito.verify(ballotService, Mockito.never()).getLotteryWinner(ArgumentMatchers.any());
+		Mockito.verify(lotteryService, Mockito.never()).closeLotteries(ArgumentMatchers.any(),
+				ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that only the lotteries of slices whose lease is acquired are closed
+	 * 
+	 */
+	@Test
+	public void testEndLotteryEvent_LeasedSlices() {
+
+		LeaseCoordinator leaseCoordinator = Mockito.mock(LeaseCoordinator.class);
+		ReflectionTestUtils.setField(lotteryScheduler, "leaseCoordinator", leaseCoordinator);
+		ReflectionTestUtils.setField(lotteryScheduler, "pollIntervalMs", 0L);
+		ReflectionTestUtils.setField(lotteryScheduler, "jobTimeoutMs", 0L);
+
+		Mockito.when(lotteryService.getActiveLotteries()).thenReturn(Arrays.asList(lottery("12"), lottery("13")));
+		Mockito.when(leaseCoordinator.sliceOf("12")).thenReturn(0);
+		Mockito.when(leaseCoordinator.sliceOf("13")).thenReturn(1);
+		Mockito.when(leaseCoordinator.tryAcquire(0)).thenReturn(true);
+		Mockito.when(leaseCoordinator.tryAcquire(1)).thenReturn(false);
+		Mockito.when(ballotService.getLotteryWinner("12")).thenReturn("11");
+
+		lotteryScheduler.endLotteryEvent();
+
+		Mockito.verify(ballotService).getLotteryWinner("12");
+		Mockito.verify(ballotService, Mockito.never()).getLotteryWinner("13");
+		Mockito.verify(leaseCoordinator).release(0);
+		Mockito.verify(lotteryService).closeLotteries(ArgumentMatchers.eq(Collections.singletonMap("12", "11")),
+				ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that lotteries loaded into the timing wheel are closed once their
+	 * close date and the grace period have passed, and only if they are still
+	 * open
+	 * 
+	 */
+	@Test
+	public void testCloseDueLotteries() {
+
+		ReflectionTestUtils.setField(lotteryScheduler, "graceMs", 1000L);
+		long nowMs = System.currentTimeMillis();
+
+		Lottery soon = lottery("12");
+		soon.setCloseDate(new Date(nowMs + 5000));
+		Lottery later = lottery("13");
+		later.setCloseDate(new Date(nowMs + 600000));
+		Lottery closedLater = lottery("13");
+		closedLater.setStatus(Constants.CLOSED);
+
+		Mockito.when(lotteryService.getActiveLotteries()).thenReturn(Arrays.asList(soon, later));
+		Mockito.when(lotteryService.getLottery("12")).thenReturn(soon);
+		Mockito.when(lotteryService.getLottery("13")).thenReturn(closedLater);
+		Mockito.when(ballotService.getLotteryWinner("12")).thenReturn("11");
+
+		lotteryScheduler.reloadCloses();
+
+		lotteryScheduler.closeDueLotteries(nowMs + 1000);
+		lotteryScheduler.closeDueLotteries(nowMs + 5500);
+		Mockito.verify(lotteryService, Mockito.never()).closeLotteries(ArgumentMatchers.any(),
+				ArgumentMatchers.any());
+
+		lotteryScheduler.closeDueLotteries(nowMs + 7000);
+		lotteryScheduler.closeDueLotteries(nowMs + 700000);
+
+		Mockito.verify(lotteryService).getLottery("13");
+		Mockito.verify(ballotService, Mockito.never()).getLotteryWinner("13");
+		Mockito.verify(lotteryService).closeLotteries(ArgumentMatchers.eq(Collections.singletonMap("12", "11")),
+				ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that a lottery without close date whose close failed at midnight is
+	 * closed again once reloaded, not at the next midnight
+	 * 
+	 */
+	@Test
+	public void testCloseDueLotteries_MidnightCloseFailed() {
+
+		long midnightMs = DateUtils.nextMidnight(ZoneId.systemDefault()).getTime();
+		Lottery legacy = lottery("12");
+
+		Mockito.when(lotteryService.getActiveLotteries()).thenReturn(Collections.singletonList(legacy));
+		Mockito.when(lotteryService.getLottery("12")).thenReturn(legacy);
+		Mockito.when(ballotService.getLotteryWinner("12")).thenReturn("11");
+		Mockito.when(lotteryService.closeLotteries(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(
+				new LotteryCloseResult(Collections.singleton("12"), Collections.emptySet()),
+				new LotteryCloseResult(Collections.emptySet(), Collections.emptySet()));
+
+		lotteryScheduler.reloadCloses();
+		lotteryScheduler.closeDueLotteries(midnightMs + 1000);
+
+		lotteryScheduler.reloadCloses();
+		lotteryScheduler.closeDueLotteries(midnightMs + 2000);
+
+		Mockito.verify(lotteryService, Mockito.times(2))
+				.closeLotteries(ArgumentMatchers.eq(Collections.singletonMap("12", "11")), ArgumentMatchers.any());
+	}
+
+	private Lottery lottery(String lotteryId) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId(lotteryId);
+		lottery.setStatus(Constants.OPEN);
+		return lottery;
 	}
 
 }
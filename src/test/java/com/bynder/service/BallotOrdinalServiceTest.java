@@ -0,0 +1,146 @@
+package com.bynder.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.model.Ballot;
+import com.bynder.model.Sequences;
+import com.bynder.service.impl.BallotOrdinalServiceImpl;
+
+/**
+ * Test class for BallotOrdinalService methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class BallotOrdinalServiceTest {
+
+	@Mock
+	private MongoOperations mongoOperations;
+
+	@InjectMocks
+	private BallotOrdinalServiceImpl ballotOrdinalService;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+
+		ReflectionTestUtils.setField(ballotOrdinalService, "blockSize", 1L);
+		ReflectionTestUtils.setField(ballotOrdinalService, "blockIdleMs", 60000L);
+		ballotOrdinalService.init();
+	}
+
+	/**
+	 * Tests that ballots of several lotteries get consecutive ordinals of their
+	 * lottery, reserved with one increment per lottery
+	 *
+	 */
+	@Test
+	public void testAssignOrdinals() {
+
+		Mockito.when(mongoOperations.findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(Update.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class))).thenAnswer(invocation -> {
+
+					Query query = invocation.getArgument(0);
+					String seqName = query.getQueryObject().getString(Constants.SEQ_NAME);
+
+					// lottery 12 already has 10 ballots, lottery 13 has none
+					return sequence(seqName.endsWith("12") ? 13 : 2);
+				});
+
+		List<Ballot> ballots = Arrays.asList(ballot("12"), ballot("13"), ballot("12"), ballot("12"), ballot("13"));
+
+		ballotOrdinalService.assignOrdinals(ballots);
+
+		assertEquals(Long.valueOf(11), ballots.get(0).getOrdinal());
+		assertEquals(Long.valueOf(1), ballots.get(1).getOrdinal());
+		assertEquals(Long.valueOf(12), ballots.get(2).getOrdinal());
+		assertEquals(Long.valueOf(13), ballots.get(3).getOrdinal());
+		assertEquals(Long.valueOf(2), ballots.get(4).getOrdinal());
+
+		Mockito.verify(mongoOperations, Mockito.times(2)).findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(Update.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class));
+	}
+
+	/**
+	 * Tests that ordinals are handed out from a reserved block, a new block is
+	 * reserved once it is exhausted, and the block and ordinal document of a
+	 * closed lottery are removed
+	 *
+	 */
+	@Test
+	public void testAssignOrdinals_Blocks() {
+
+		ReflectionTestUtils.setField(ballotOrdinalService, "blockSize", 3L);
+
+		long[] lastOrdinal = new long[1];
+		Mockito.when(mongoOperations.findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(Update.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class))).thenAnswer(invocation -> {
+
+					Update update = invocation.getArgument(1);
+					Number increment = (Number) update.getUpdateObject().get("$inc", Document.class)
+							.get(Constants.SEQ_VALUE);
+					lastOrdinal[0] += increment.longValue();
+					return sequence(lastOrdinal[0]);
+				});
+
+		List<Ballot> ballots = Arrays.asList(ballot("12"), ballot("12"));
+		ballotOrdinalService.assignOrdinals(ballots);
+
+		List<Ballot> nextBallots = Arrays.asList(ballot("12"), ballot("12"));
+		ballotOrdinalService.assignOrdinals(nextBallots);
+
+		assertEquals(Long.valueOf(1), ballots.get(0).getOrdinal());
+		assertEquals(Long.valueOf(2), ballots.get(1).getOrdinal());
+		assertEquals(Long.valueOf(3), nextBallots.get(0).getOrdinal());
+		assertEquals(Long.valueOf(4), nextBallots.get(1).getOrdinal());
+		assertEquals(6, lastOrdinal[0]);
+
+		ballotOrdinalService.lotteryClosed(new LotteryClosedEvent("12"));
+		Mockito.verify(mongoOperations).remove(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.eq(Sequences.class));
+
+		// the block of the closed lottery is not used any more
+		List<Ballot> lateBallots = Arrays.asList(ballot("12"));
+		ballotOrdinalService.assignOrdinals(lateBallots);
+		assertEquals(Long.valueOf(7), lateBallots.get(0).getOrdinal());
+	}
+
+	private Ballot ballot(String lotteryId) {
+
+		Ballot ballot = new Ballot();
+		ballot.setLotteryId(lotteryId);
+		return ballot;
+	}
+
+	private Sequences sequence(long seqValue) {
+
+		Sequences sequence = new Sequences();
+		sequence.setSeqValue(seqValue);
+		return sequence;
+	}
+
+}
@@ -1,7 +1,13 @@
 package com.bynder.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.BsonDocument;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
@@ -10,10 +16,21 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
-
-import com.bynder.model.Ballot;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.dto.BallotBatchDTO;
+import com.bynder.dto.BallotDTO;
+import com.bynder.exception.InvalidRequestException;
 import com.bynder.repository.BallotRepository;
 import com.bynder.service.impl.BallotServiceImpl;
+import com.bynder.winner.WinnerSelectionStrategy;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 
 /**
  * Test class for BallotService methods
@@ -25,15 +42,34 @@ import com.bynder.service.impl.BallotServiceImpl;
 @SpringBootTest
 public class BallotServiceTest {
 
+	@Mock
+	private WinnerSelectionStrategy winnerSelectionStrategy;
+
 	@Mock
 	private BallotRepository ballotRepository;
 
+	@Mock
+	private LotteryService lotteryService;
+
+	@Mock
+	private UserService userService;
+
+	@Mock
+	private SequenceGeneratorService sequenceService;
+
+	@Mock
+	private BallotOrdinalService ballotOrdinalService;
+
+	@Mock
+	private LotteryBallotCounter lotteryBallotCounter;
+
 	@InjectMocks
 	private BallotServiceImpl ballotService;
 
 	@Before
 	public void setupContext() {
 		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(ballotService, "maxBatchSize", 1000);
 	}
 
 	/**
@@ -43,11 +79,7 @@ public class BallotServiceTest {
 	@Test
 	public void testGetLotteryWinner() {
 
-		Ballot ballot = new Ballot();
-		ballot.setBallotId("11");
-
-		Mockito.when(ballotRepository.countByLotteryId(ArgumentMatchers.any())).thenReturn(3L);
-		Mockito.when(ballotRepository.findRandomBallot(ArgumentMatchers.any())).thenReturn(ballot);
+		Mockito.when(winnerSelectionStrategy.selectWinner("12")).thenReturn("11");
 
 		String response = ballotService.getLotteryWinner("12");
 		assertEquals("11", response);
@@ -62,11 +94,100 @@ public class BallotServiceTest {
 	@Test
 	public void testGetLotteryWinner_NoWinner() {
 
-		Mockito.when(ballotRepository.countByLotteryId(ArgumentMatchers.any())).thenReturn(0L);
+		Mockito.when(winnerSelectionStrategy.selectWinner("12")).thenReturn("-1");
 
 		String response = ballotService.getLotteryWinner("12");
 		assertEquals("-1", response);
 
 	}
 
+	/**
+	 * Tests that a batch checks every distinct user and lottery once and reserves
+	 * all its ballotIds at once
+	 * 
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testCreateBallots() throws Exception {
+
+		mockOpenLotteries(new long[] { 1, 2, 3, 4 });
+
+		List<BallotDTO> ballots = ballotService.createBallots(new BallotBatchDTO(Arrays.asList(ballot("123", "3"),
+				ballot("124", "3"), ballot("123", "4"), ballot("123", "3")), null, null, null));
+
+		assertEquals(4, ballots.size());
+		assertEquals("4", ballots.get(3).getBallotId());
+
+		Mockito.verify(userService).isUserPresent("3");
+		Mockito.verify(userService).isUserPresent("4");
+		Mockito.verifyNoMoreInteractions(userService);
+
+		Mockito.verify(lotteryService).getLotteryStatus(ArgumentMatchers.eq("123"), ArgumentMatchers.any());
+		Mockito.verify(lotteryService).getLotteryStatus(ArgumentMatchers.eq("124"), ArgumentMatchers.any());
+		Mockito.verifyNoMoreInteractions(lotteryService);
+
+		Mockito.verify(sequenceService).getNextSequenceNumbers(Constants.BALLOT_SEQUENCE, 4);
+		Mockito.verifyNoMoreInteractions(sequenceService);
+
+		Mockito.verify(ballotRepository).insertUnordered(ArgumentMatchers.any());
+		Mockito.verify(lotteryBallotCounter).increment("123", 3);
+		Mockito.verify(lotteryBallotCounter).increment("124", 1);
+	}
+
+	/**
+	 * Tests that a batch with a ballot without userId or lotteryId is rejected
+	 * before any user or lottery is read
+	 * 
+	 */
+	@Test
+	public void testCreateBallots_MissingIds() {
+
+		assertThrows(InvalidRequestException.class, () -> ballotService.createBallots(
+				new BallotBatchDTO(Arrays.asList(ballot("123", "3"), ballot("123", " ")), null, null, null)));
+		assertThrows(InvalidRequestException.class,
+				() -> ballotService.createBallots(new BallotBatchDTO(null, "3", null, 5)));
+
+		Mockito.verifyNoInteractions(userService, lotteryService, sequenceService, ballotRepository);
+	}
+
+	/**
+	 * Tests that only the ballots written by a partly failed bulk insert are
+	 * counted and returned
+	 * 
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testCreateBallots_PartialFailure() throws Exception {
+
+		mockOpenLotteries(new long[] { 1, 2, 3 });
+
+		BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+		Mockito.doThrow(new BulkOperationException("Bulk write operation error",
+				new MongoBulkWriteException(BulkWriteResult.acknowledged(2, 0, 0, 0,
+						Collections.emptyList()), Collections.singletonList(error), null, new ServerAddress(),
+						Collections.emptySet())))
+				.when(ballotRepository).insertUnordered(ArgumentMatchers.any());
+
+		List<BallotDTO> ballots = ballotService.createBallots(new BallotBatchDTO(null, "3", "123", 3));
+
+		assertEquals(2, ballots.size());
+		assertEquals("1", ballots.get(0).getBallotId());
+		assertEquals("3", ballots.get(1).getBallotId());
+		Mockito.verify(lotteryBallotCounter).increment("123", 2);
+	}
+
+	private void mockOpenLotteries(long[] ballotIds) {
+
+		Mockito.when(userService.isUserPresent(ArgumentMatchers.any())).thenReturn(true);
+		Mockito.when(lotteryService.getLotteryStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+				.thenReturn(Constants.OPEN);
+		Mockito.when(sequenceService.getNextSequenceNumbers(Constants.BALLOT_SEQUENCE, ballotIds.length))
+				.thenReturn(ballotIds);
+	}
+
+	private static BallotDTO ballot(String lotteryId, String userId) {
+
+		return new BallotDTO(lotteryId, userId, null, null);
+	}
+
 }
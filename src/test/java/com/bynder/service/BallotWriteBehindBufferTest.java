@@ -0,0 +1,227 @@
+package com.bynder.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.model.Ballot;
+import com.bynder.repository.BallotRepository;
+import com.bynder.service.impl.BallotWriteBehindBuffer;
+import com.mongodb.bulk.BulkWriteError;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for BallotWriteBehindBuffer methods
+ *
+ *
+ * @author arathy
+ *
+ */
+@SpringBootTest
+public class BallotWriteBehindBufferTest {
+
+	@Mock
+	private BallotRepository ballotRepository;
+
+	@InjectMocks
+	private BallotWriteBehindBuffer ballotWriteBehindBuffer;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private List<Integer> insertedBatchSizes;
+
+	@Before
+	public void setupContext() {
+		MockitoAnnotations.openMocks(this);
+
+		meterRegistry = new SimpleMeterRegistry();
+		insertedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "capacity", 1000);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "maxBatchSize", 10);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "maxDelayMs", 200L);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "shutdownTimeoutMs", 5000L);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "closeGraceMs", 1000L);
+
+		Mockito.doAnswer(invocation -> {
+			List<Ballot> ballots = invocation.getArgument(0);
+			insertedBatchSizes.add(ballots.size());
+			return null;
+		}).when(ballotRepository).insertUnordered(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that buffered ballots are written in batches of the maximum batch size
+	 * and callers receive their ballotIds
+	 *
+	 * @throws Exception - thrown if any ballot is not committed
+	 */
+	@Test
+	public void testSubmit_BatchedByCount() throws Exception {
+
+		ballotWriteBehindBuffer.start();
+
+		List<CompletableFuture<String>> results = new ArrayList<>();
+		for (int i = 1; i <= 25; i++) {
+			results.add(ballotWriteBehindBuffer.submit(ballot(String.valueOf(i))));
+		}
+
+		for (int i = 1; i <= 25; i++) {
+			assertEquals(String.valueOf(i), results.get(i - 1).get(5, TimeUnit.SECONDS));
+		}
+
+		ballotWriteBehindBuffer.shutdown();
+
+		assertEquals(25, insertedBatchSizes.stream().mapToInt(Integer::intValue).sum());
+		assertTrue(insertedBatchSizes.stream().allMatch(size -> size <= 10));
+		assertEquals(25.0, meterRegistry.get("ballot.write-behind.batch.size").summary().totalAmount());
+	}
+
+	/**
+	 * Tests that a batch smaller than the maximum batch size is written once the
+	 * maximum delay has passed
+	 *
+	 * @throws Exception - thrown if the ballot is not committed
+	 */
+	@Test
+	public void testSubmit_BatchedByTime() throws Exception {
+
+		ballotWriteBehindBuffer.start();
+
+		CompletableFuture<String> result = ballotWriteBehindBuffer.submit(ballot("1"));
+
+		assertEquals("1", result.get(5, TimeUnit.SECONDS));
+		assertEquals(Collections.singletonList(1), insertedBatchSizes);
+
+		ballotWriteBehindBuffer.shutdown();
+	}
+
+	/**
+	 * Tests that buffered ballots are written on shutdown and ballots submitted
+	 * after shutdown are rejected
+	 *
+	 * @throws Exception - thrown if any ballot is not committed
+	 */
+	@Test
+	public void testShutdown_DrainsBuffer() throws Exception {
+
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "maxDelayMs", 60000L);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "closeGraceMs", 120000L);
+		ballotWriteBehindBuffer.start();
+
+		List<CompletableFuture<String>> results = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			results.add(ballotWriteBehindBuffer.submit(ballot(String.valueOf(i))));
+		}
+
+		ballotWriteBehindBuffer.shutdown();
+
+		for (CompletableFuture<String> result : results) {
+			assertTrue(result.isDone() && !result.isCompletedExceptionally());
+		}
+
+		CompletableFuture<String> rejected = ballotWriteBehindBuffer.submit(ballot("6"));
+		assertThrows(ExecutionException.class, rejected::get);
+	}
+
+	/**
+	 * Tests that waiting for the buffer writes the buffered ballots without
+	 * waiting for the maximum delay
+	 *
+	 * @throws Exception - thrown if any ballot is not committed
+	 */
+	@Test
+	public void testAwaitFlushed() throws Exception {
+
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "maxDelayMs", 60000L);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "closeGraceMs", 120000L);
+		ballotWriteBehindBuffer.start();
+
+		List<CompletableFuture<String>> results = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			results.add(ballotWriteBehindBuffer.submit(ballot(String.valueOf(i))));
+		}
+
+		assertTrue(ballotWriteBehindBuffer.awaitFlushed(5000));
+
+		for (CompletableFuture<String> result : results) {
+			assertTrue(result.isDone() && !result.isCompletedExceptionally());
+		}
+		assertEquals(Collections.singletonList(5), insertedBatchSizes);
+
+		ballotWriteBehindBuffer.shutdown();
+
+		assertTrue(ballotWriteBehindBuffer.awaitFlushed(0));
+	}
+
+	/**
+	 * Tests that the buffer does not start if lotteries could be drawn before
+	 * ballots buffered on other nodes are written
+	 *
+	 */
+	@Test
+	public void testStart_GraceShorterThanDelay() {
+
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "closeGraceMs", 200L);
+
+		assertThrows(IllegalStateException.class, ballotWriteBehindBuffer::start);
+	}
+
+	/**
+	 * Tests that only ballots rejected by storage are failed
+	 *
+	 * @throws Exception - thrown if any committed ballot is not reported
+	 */
+	@Test
+	public void testSubmit_PartialFailure() throws Exception {
+
+		BulkOperationException exception = Mockito.mock(BulkOperationException.class);
+		Mockito.when(exception.getErrors()).thenReturn(
+				Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)));
+
+		Mockito.doThrow(exception).when(ballotRepository).insertUnordered(ArgumentMatchers.any());
+
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "maxDelayMs", 60000L);
+		ReflectionTestUtils.setField(ballotWriteBehindBuffer, "closeGraceMs", 120000L);
+		ballotWriteBehindBuffer.start();
+
+		CompletableFuture<String> first = ballotWriteBehindBuffer.submit(ballot("1"));
+		CompletableFuture<String> second = ballotWriteBehindBuffer.submit(ballot("2"));
+
+		ballotWriteBehindBuffer.shutdown();
+
+		assertEquals("1", first.get());
+		assertThrows(ExecutionException.class, second::get);
+	}
+
+	private Ballot ballot(String ballotId) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(ballotId);
+		ballot.setLotteryId("12");
+		ballot.setUserId("3");
+		return ballot;
+	}
+
+}
@@ -0,0 +1,303 @@
+package com.bynder.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.cache.DailyResultCache;
+import com.bynder.constants.Constants;
+import com.bynder.dto.DailyResultDTO;
+import com.bynder.dto.PageDTO;
+import com.bynder.exception.InvalidRequestException;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.model.Lottery;
+import com.bynder.model.LotteryResult;
+import com.bynder.repository.LotteryRepository;
+import com.bynder.repository.LotteryResultRepository;
+import com.bynder.service.impl.DailyResultServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for DailyResultService methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class DailyResultServiceTest {
+
+	@Mock
+	private LotteryResultRepository lotteryResultRepository;
+
+	@Mock
+	private LotteryRepository lotteryRepository;
+
+	@InjectMocks
+	private DailyResultServiceImpl dailyResultService;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+
+		DailyResultCache dailyResultCache = new DailyResultCache();
+		ReflectionTestUtils.setField(dailyResultCache, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(dailyResultCache, "maximumSize", 100L);
+		ReflectionTestUtils.setField(dailyResultCache, "ttlMs", 60000L);
+		ReflectionTestUtils.setField(dailyResultCache, "cacheDays", 31);
+		dailyResultCache.init();
+
+		ReflectionTestUtils.setField(dailyResultService, "dailyResultCache", dailyResultCache);
+		ReflectionTestUtils.setField(dailyResultService, "defaultPageLimit", 2);
+		ReflectionTestUtils.setField(dailyResultService, "maxPageLimit", 10);
+	}
+
+	/**
+	 * Tests getting the results of a date one page at a time, with the message of
+	 * a lottery nobody won
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetResults_Date() throws Exception {
+
+		Mockito.when(lotteryResultRepository.findPage("2023-07-10", "2023-07-10", null, null, 2)).thenReturn(
+				Arrays.asList(result("10", "2023-07-10", "-1"), result("2", "2023-07-10", "21"),
+						result("3", "2023-07-10", "31")));
+		Mockito.when(lotteryResultRepository.findPage("2023-07-10", "2023-07-10", "2023-07-10", "2", 2))
+				.thenReturn(Collections.singletonList(result("3", "2023-07-10", "31")));
+
+		PageDTO<DailyResultDTO> page = dailyResultService.getResults("2023-07-10", null, null, null, null);
+
+		assertEquals(2, page.getItems().size());
+		assertNull(page.getItems().get(0).getWinnerBallot());
+		assertEquals("Nobody won!", page.getItems().get(0).getMessage());
+		assertEquals("21", page.getItems().get(1).getWinnerBallot());
+		assertEquals("2023-07-10", page.getItems().get(1).getResultDate());
+
+		PageDTO<DailyResultDTO> nextPage = dailyResultService.getResults("2023-07-10", null, null, null,
+				page.getNextCursor());
+
+		assertEquals("3", nextPage.getItems().get(0).getLotteryId());
+		assertNull(nextPage.getNextCursor());
+	}
+
+	/**
+	 * Tests that pages of recent days which are over are read from storage once,
+	 * and pages including the current day on every request
+	 *
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetResults_CachedDays() throws Exception {
+
+		String today = LocalDate.now(ZoneOffset.UTC).toString();
+		String lastWeek = LocalDate.now(ZoneOffset.UTC).minusDays(7).toString();
+		String threeDaysAgo = LocalDate.now(ZoneOffset.UTC).minusDays(3).toString();
+
+		Mockito.when(lotteryResultRepository.findPage(ArgumentMatchers.any(), ArgumentMatchers.any(),
+				ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.anyInt()))
+				.thenReturn(Collections.singletonList(result("12", lastWeek, "21")));
+
+		dailyResultService.getResults(null, lastWeek, threeDaysAgo, 5, null);
+		dailyResultService.getResults(null, lastWeek, threeDaysAgo, 5, null);
+		Mockito.verify(lotteryResultRepository).findPage(lastWeek, threeDaysAgo, null, null, 5);
+
+		dailyResultService.getResults(null, lastWeek, today, 5, null);
+		dailyResultService.getResults(null, lastWeek, today, 5, null);
+		Mockito.verify(lotteryResultRepository, Mockito.times(2)).findPage(lastWeek, today, null, null, 5);
+	}
+
+	/**
+	 * Tests that requests without a valid date or range are rejected, and that
+	 * no results on a date is reported as not found
+	 *
+	 */
+	@Test
+	public void testGetResults_InvalidRequest() {
+
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults(null, null, null, null, null));
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults("2023-07-10", "2023-07-10", null, null, null));
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults(null, "2023-07-10", null, null, null));
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults("10-07-2023", null, null, null, null));
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults(null, "2023-07-11", "2023-07-10", null, null));
+		assertThrows(InvalidRequestException.class,
+				() -> dailyResultService.getResults("2023-07-10", null, null, null, "invalid"));
+		assertThrows(ResourceNotFoundException.class,
+				() -> dailyResultService.getResults("2023-07-10", null, null, null, null));
+	}
+
+	/**
+	 * Tests that results are keyed by the date the lottery was closed on in its
+	 * time zone, and lotteries without an end date are left out
+	 *
+	 */
+	@Test
+	public void testSaveResults() {
+
+		Lottery lottery = new Lottery("12", "Lottery 12", 100, new Date());
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("21");
+		// 2023-07-10T22:30:00Z
+		lottery.setEndDate(new Date(1689028200000L));
+		lottery.setTimeZone("Pacific/Auckland");
+
+		Lottery lotteryWithoutEndDate = new Lottery("13", "Lottery 13", 100, new Date());
+		lotteryWithoutEndDate.setStatus(Constants.CLOSED);
+
+		dailyResultService.saveResults(Arrays.asList(lottery, lotteryWithoutEndDate));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<LotteryResult>> results = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(lotteryResultRepository).insertResults(results.capture());
+
+		assertEquals(1, results.getValue().size());
+		assertEquals("12", results.getValue().get(0).getLotteryId());
+		assertEquals("2023-07-11", results.getValue().get(0).getResultDate());
+		assertEquals("21", results.getValue().get(0).getWinnerBallot());
+	}
+
+	/**
+	 * Tests that results which could not be written are retried until the write
+	 * succeeds, and that lotteries which could not be read are read again
+	 *
+	 */
+	@Test
+	public void testRetryResults() {
+
+		Lottery lottery = new Lottery("12", "Lottery 12", 100, new Date());
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setEndDate(new Date(1689028200000L));
+
+		Lottery unreadLottery = new Lottery("13", "Lottery 13", 100, new Date());
+		unreadLottery.setStatus(Constants.CLOSED);
+		unreadLottery.setEndDate(new Date(1689028200000L));
+
+		Mockito.doThrow(new IllegalStateException("write failed")).when(lotteryResultRepository)
+				.insertResults(ArgumentMatchers.anyList());
+
+		dailyResultService.saveResults(Collections.singletonList(lottery));
+		dailyResultService.queueResults(Collections.singletonList("13"));
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+		Mockito.when(lotteryRepository.findByLotteryId("13")).thenThrow(new IllegalStateException("read failed"));
+
+		// the write fails again, the lottery stays queued
+		dailyResultService.retryResults();
+
+		Mockito.reset(lotteryResultRepository);
+		Mockito.doReturn(unreadLottery).when(lotteryRepository).findByLotteryId("13");
+
+		dailyResultService.retryResults();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<LotteryResult>> results = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(lotteryResultRepository).insertResults(results.capture());
+		assertEquals(2, results.getValue().size());
+
+		Mockito.clearInvocations(lotteryRepository, lotteryResultRepository);
+
+		dailyResultService.retryResults();
+
+		Mockito.verifyNoInteractions(lotteryRepository, lotteryResultRepository);
+	}
+
+	/**
+	 * Tests that the startup backfill runs once, marking it as completed, and is
+	 * skipped once its marker is present
+	 *
+	 */
+	@Test
+	public void testBackfillOnStartup() {
+
+		ReflectionTestUtils.setField(dailyResultService, "backfillOnStartup", true);
+
+		Lottery lottery = new Lottery("12", "Lottery 12", 100, new Date());
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setEndDate(new Date(1689028200000L));
+
+		Iterator<Lottery> lotteries = Collections.singletonList(lottery).iterator();
+		Mockito.when(lotteryRepository.streamLotteries(Constants.CLOSED)).thenReturn(new CloseableIterator<Lottery>() {
+
+			public boolean hasNext() {
+				return lotteries.hasNext();
+			}
+
+			public Lottery next() {
+				return lotteries.next();
+			}
+
+			public void close() {
+			}
+
+		});
+
+		dailyResultService.backfillOnStartup();
+
+		Mockito.verify(lotteryResultRepository).insertResults(ArgumentMatchers.anyList());
+		Mockito.verify(lotteryResultRepository).markBackfilled();
+
+		Mockito.clearInvocations(lotteryRepository, lotteryResultRepository);
+		Mockito.when(lotteryResultRepository.isBackfilled()).thenReturn(true);
+
+		dailyResultService.backfillOnStartup();
+
+		Mockito.verifyNoInteractions(lotteryRepository);
+		Mockito.verify(lotteryResultRepository, Mockito.never()).markBackfilled();
+	}
+
+	/**
+	 * Tests that a backfill whose results could not be written is not marked as
+	 * completed, so it runs again at the next start
+	 *
+	 */
+	@Test
+	public void testBackfillOnStartup_Failed() {
+
+		ReflectionTestUtils.setField(dailyResultService, "backfillOnStartup", true);
+		Mockito.when(lotteryRepository.streamLotteries(Constants.CLOSED))
+				.thenThrow(new IllegalStateException("cursor failed"));
+
+		dailyResultService.backfillOnStartup();
+
+		Mockito.verify(lotteryResultRepository, Mockito.never()).markBackfilled();
+	}
+
+	private static LotteryResult result(String lotteryId, String resultDate, String winnerBallot) {
+
+		LotteryResult result = new LotteryResult();
+		result.setLotteryId(lotteryId);
+		result.setResultDate(resultDate);
+		result.setName("Lottery " + lotteryId);
+		result.setPrizeMoney(100);
+		result.setWinnerBallot(winnerBallot);
+		result.setEndDate(new Date(1688995800000L));
+		return result;
+	}
+
+}
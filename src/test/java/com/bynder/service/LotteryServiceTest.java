@@ -1,11 +1,16 @@
 package com.bynder.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.bson.BsonDocument;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
@@ -14,10 +19,18 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.cache.LotteryResultCache;
+import com.bynder.cache.LotteryStatusCache;
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
 import com.bynder.model.Lottery;
 import com.bynder.repository.LotteryRepository;
 import com.bynder.service.impl.LotteryServiceImpl;
+import com.mongodb.bulk.BulkWriteError;
 
 /**
  * Test class for LotteryService methods
@@ -32,6 +45,18 @@ public class LotteryServiceTest {
 	@Mock
 	private LotteryRepository lotteryRepository;
 
+	@Mock
+	private LotteryStatusCache lotteryStatusCache;
+
+	@Mock
+	private LotteryResultCache lotteryResultCache;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private DailyResultService dailyResultService;
+
 	@InjectMocks
 	private LotteryServiceImpl lotteryService;
 
@@ -70,8 +95,135 @@ public class LotteryServiceTest {
 		Mockito.doNothing().when(lotteryRepository).updateLottery(ArgumentMatchers.any(), ArgumentMatchers.any(),
 				ArgumentMatchers.any(), ArgumentMatchers.any());
 
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId("12");
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("11");
+		lottery.setEndDate(date);
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+
 		lotteryService.closeLottery("12", date, "11", "CLOSED");
 		Mockito.verify(lotteryRepository).updateLottery("12", date, "11", "CLOSED");
+		Mockito.verify(lotteryStatusCache).updateStatus("12", "CLOSED");
+		Mockito.verify(dailyResultService).saveResults(Collections.singletonList(lottery));
+		Mockito.verify(eventPublisher).publishEvent(ArgumentMatchers.any(LotteryClosedEvent.class));
+
+	}
+
+	/**
+	 * Tests that a closed lottery which cannot be read is queued, so its result is
+	 * written into RESULTS by the retry
+	 * 
+	 */
+	@Test
+	public void testCloseLottery_ResultNotRead() {
+
+		Date date = new Date();
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenThrow(new IllegalStateException("read failed"));
+
+		lotteryService.closeLottery("12", date, "11", "CLOSED");
+		Mockito.verify(dailyResultService, Mockito.never()).saveResults(ArgumentMatchers.anyList());
+		Mockito.verify(dailyResultService).queueResults(Collections.singletonList("12"));
+		Mockito.verify(eventPublisher).publishEvent(ArgumentMatchers.any(LotteryClosedEvent.class));
+
+	}
+
+	/**
+	 * Tests closing several lotteries, where the status write of one of them
+	 * fails
+	 * 
+	 */
+	@Test
+	public void testCloseLotteries_PartialFailure() {
+
+		Date date = new Date();
+		Map<String, String> winnerBallots = new LinkedHashMap<>();
+		winnerBallots.put("12", "11");
+		winnerBallots.put("13", "-1");
+
+		BulkOperationException exception = Mockito.mock(BulkOperationException.class);
+		Mockito.when(exception.getErrors())
+				.thenReturn(Collections.singletonList(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)));
+		Mockito.doThrow(exception).when(lotteryRepository).closeLotteries(winnerBallots, date);
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("11");
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+
+		assertEquals(Collections.singleton("13"),
+				lotteryService.closeLotteries(winnerBallots, date).getFailedLotteryIds());
+		Mockito.verify(lotteryStatusCache).updateStatus("12", "CLOSED");
+		Mockito.verify(lotteryStatusCache, Mockito.never()).updateStatus(ArgumentMatchers.eq("13"),
+				ArgumentMatchers.any());
+		Mockito.verify(lotteryResultCache).putResult(ArgumentMatchers.eq("12"), ArgumentMatchers.any());
+		Mockito.verify(lotteryResultCache, Mockito.never()).putResult(ArgumentMatchers.eq("13"),
+				ArgumentMatchers.any());
+		Mockito.verify(dailyResultService).saveResults(Collections.singletonList(lottery));
+		Mockito.verify(eventPublisher).publishEvent(
+				ArgumentMatchers.<LotteryClosedEvent>argThat(event -> "12".equals(event.getLotteryId())));
+		Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(ArgumentMatchers.any(Object.class));
+
+	}
+
+	/**
+	 * Tests that lotteries closed by another node before the bulk write are
+	 * returned as already closed, without writing their result or announcing
+	 * their close again
+	 * 
+	 */
+	@Test
+	public void testCloseLotteries_AlreadyClosed() {
+
+		Date date = new Date();
+		Map<String, String> winnerBallots = new LinkedHashMap<>();
+		winnerBallots.put("12", "11");
+		winnerBallots.put("13", "-1");
+
+		Mockito.when(lotteryRepository.closeLotteries(winnerBallots, date)).thenReturn(Collections.singleton("13"));
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus(Constants.CLOSED);
+		lottery.setWinnerBallot("11");
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+
+		LotteryCloseResult result = lotteryService.closeLotteries(winnerBallots, date);
+
+		assertEquals(Collections.emptySet(), result.getFailedLotteryIds());
+		assertEquals(Collections.singleton("13"), result.getAlreadyClosedLotteryIds());
+		Mockito.verify(lotteryStatusCache).updateStatus("13", "CLOSED");
+		Mockito.verify(lotteryResultCache, Mockito.never()).putResult(ArgumentMatchers.eq("13"),
+				ArgumentMatchers.any());
+		Mockito.verify(dailyResultService).saveResults(Collections.singletonList(lottery));
+		Mockito.verify(eventPublisher).publishEvent(
+				ArgumentMatchers.<LotteryClosedEvent>argThat(event -> "12".equals(event.getLotteryId())));
+		Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(ArgumentMatchers.any(Object.class));
+	}
+
+	/**
+	 * Tests that a cached lottery result is returned without reading the lottery,
+	 * and that results of lotteries which are not in CLOSED status are not cached
+	 * 
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testGetEncodedLotteryResult() throws Exception {
+
+		EncodedLotteryResult cachedResult = new EncodedLotteryResult(new byte[0], "\"0\"");
+		Mockito.when(lotteryResultCache.getResult("12")).thenReturn(cachedResult);
+
+		assertSame(cachedResult, lotteryService.getEncodedLotteryResult("12"));
+		Mockito.verify(lotteryRepository, Mockito.never()).findByLotteryId("12");
+
+		Lottery lottery = new Lottery();
+		lottery.setStatus("PENDING");
+		lottery.setWinnerBallot("11");
+		Mockito.when(lotteryRepository.findByLotteryId("13")).thenReturn(lottery);
+
+		lotteryService.getEncodedLotteryResult("13");
+		Mockito.verify(lotteryResultCache).encode(ArgumentMatchers.any());
+		Mockito.verify(lotteryResultCache, Mockito.never()).putResult(ArgumentMatchers.eq("13"),
+				ArgumentMatchers.any());
 
 	}
 
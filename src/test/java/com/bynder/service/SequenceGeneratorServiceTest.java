@@ -0,0 +1,154 @@
+package com.bynder.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.config.SequenceProperties;
+import com.bynder.constants.Constants;
+import com.bynder.model.Sequences;
+import com.bynder.service.impl.SequenceGeneratorServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class for SequenceGeneratorService methods
+ *
+ *
+ * @author arathy
+ *
+ */
+@SpringBootTest
+public class SequenceGeneratorServiceTest {
+
+	@Mock
+	private MongoOperations mongoOperations;
+
+	@InjectMocks
+	private SequenceGeneratorServiceImpl sequenceService;
+
+	private SequenceProperties sequenceProperties;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private AtomicLong storedSequenceValue;
+
+	@Before
+	public void setupContext() {
+		MockitoAnnotations.openMocks(this);
+
+		sequenceProperties = new SequenceProperties();
+		meterRegistry = new SimpleMeterRegistry();
+		storedSequenceValue = new AtomicLong();
+
+		ReflectionTestUtils.setField(sequenceService, "sequenceProperties", sequenceProperties);
+		ReflectionTestUtils.setField(sequenceService, "meterRegistry", meterRegistry);
+
+		// simulates the atomic increment of the sequence document in storage
+		Mockito.when(mongoOperations.findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class))).thenAnswer(invocation -> {
+
+					UpdateDefinition update = invocation.getArgument(1);
+					Number incrementBy = (Number) update.getUpdateObject().get("$inc", Document.class)
+							.get(Constants.SEQ_VALUE);
+
+					Sequences sequence = new Sequences();
+					sequence.setSeqValue(storedSequenceValue.addAndGet(incrementBy.longValue()));
+					return sequence;
+				});
+	}
+
+	/**
+	 * Tests that every sequence number is read from storage if no block size is
+	 * configured
+	 *
+	 */
+	@Test
+	public void testGetNextSequenceNumber_NoBlock() {
+
+		assertEquals(1L, sequenceService.getNextSequenceNumber(Constants.USER_SEQUENCE));
+		assertEquals(2L, sequenceService.getNextSequenceNumber(Constants.USER_SEQUENCE));
+
+		Mockito.verify(mongoOperations, Mockito.times(2)).findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class));
+	}
+
+	/**
+	 * Tests that sequence numbers are served from a reserved block and storage is
+	 * only called once the block is exhausted
+	 *
+	 */
+	@Test
+	public void testGetNextSequenceNumber_Block() {
+
+		sequenceProperties.getBlockSize().put(Constants.BALLOT_SEQUENCE, 10L);
+
+		for (long expected = 1; expected <= 15; expected++) {
+			assertEquals(expected, sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE));
+		}
+
+		Mockito.verify(mongoOperations, Mockito.times(2)).findAndModify(ArgumentMatchers.any(Query.class),
+				ArgumentMatchers.any(UpdateDefinition.class), ArgumentMatchers.any(FindAndModifyOptions.class),
+				ArgumentMatchers.eq(Sequences.class));
+		assertEquals(2L, meterRegistry.get("sequence.block.refill").timer().count());
+	}
+
+	/**
+	 * Tests that sequence numbers handed out concurrently from blocks are unique
+	 *
+	 * @throws Exception - thrown if any worker fails
+	 */
+	@Test
+	public void testGetNextSequenceNumber_BlockConcurrent() throws Exception {
+
+		sequenceProperties.getBlockSize().put(Constants.BALLOT_SEQUENCE, 100L);
+
+		int threads = 8;
+		int callsPerThread = 5000;
+		Set<Long> sequenceNumbers = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(() -> {
+				for (int call = 0; call < callsPerThread; call++) {
+					sequenceNumbers.add(sequenceService.getNextSequenceNumber(Constants.BALLOT_SEQUENCE));
+				}
+			}));
+		}
+
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(threads * callsPerThread, sequenceNumbers.size());
+		assertEquals((long) threads * callsPerThread, storedSequenceValue.get());
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.bynder.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.constants.Constants;
+import com.bynder.service.impl.SnowflakeSequenceGeneratorServiceImpl;
+
+/**
+ * Test class for SnowflakeSequenceGeneratorService methods
+ *
+ *
+ * @author arathy
+ *
+ */
+@SpringBootTest
+public class SnowflakeSequenceGeneratorServiceTest {
+
+	/**
+	 * Tests that ids generated concurrently by several nodes are unique
+	 *
+	 * @throws Exception - thrown if any worker fails
+	 */
+	@Test
+	public void testGetNextSequenceNumber_UniqueAcrossThreadsAndNodes() throws Exception {
+
+		List<SnowflakeSequenceGeneratorServiceImpl> nodes = new ArrayList<>();
+		nodes.add(createGenerator(1, Clock.systemUTC()));
+		nodes.add(createGenerator(2, Clock.systemUTC()));
+		nodes.add(createGenerator(SnowflakeSequenceGeneratorServiceImpl.MAX_NODE_ID, Clock.systemUTC()));
+
+		int threadsPerNode = 4;
+		int idsPerThread = 50000;
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executor = Executors.newFixedThreadPool(nodes.size() * threadsPerNode);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (SnowflakeSequenceGeneratorServiceImpl node : nodes) {
+			for (int i = 0; i < threadsPerNode; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int id = 0; id < idsPerThread; id++) {
+						ids.add(node.getNextSequenceNumber(Constants.BALLOT_SEQUENCE));
+					}
+					return null;
+				}));
+			}
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(nodes.size() * threadsPerNode * idsPerThread, ids.size());
+		assertTrue(ids.stream().allMatch(id -> id > 0));
+	}
+
+	/**
+	 * Tests that ids of a node keep increasing when the clock moves backwards
+	 *
+	 */
+	@Test
+	public void testGetNextSequenceNumber_ClockRegression() {
+
+		MutableClock clock = new MutableClock(SnowflakeSequenceGeneratorServiceImpl.CUSTOM_EPOCH + 10000);
+		SnowflakeSequenceGeneratorServiceImpl generator = createGenerator(7, clock);
+
+		long beforeRegression = generator.getNextSequenceNumber(Constants.BALLOT_SEQUENCE);
+
+		clock.setMillis(SnowflakeSequenceGeneratorServiceImpl.CUSTOM_EPOCH + 5000);
+		long previous = beforeRegression;
+
+		// more ids than fit in one millisecond, so the generator has to borrow ahead
+		for (int i = 0; i < 10000; i++) {
+			long id = generator.getNextSequenceNumber(Constants.BALLOT_SEQUENCE);
+			assertTrue(id > previous);
+			previous = id;
+		}
+
+		clock.setMillis(SnowflakeSequenceGeneratorServiceImpl.CUSTOM_EPOCH + 20000);
+		assertTrue(generator.getNextSequenceNumber(Constants.BALLOT_SEQUENCE) > previous);
+	}
+
+	/**
+	 * Tests that ids are ordered by the time they were generated
+	 *
+	 */
+	@Test
+	public void testGetNextSequenceNumber_TimeOrdered() {
+
+		MutableClock clock = new MutableClock(SnowflakeSequenceGeneratorServiceImpl.CUSTOM_EPOCH + 1000);
+		SnowflakeSequenceGeneratorServiceImpl firstNode = createGenerator(900, clock);
+		SnowflakeSequenceGeneratorServiceImpl secondNode = createGenerator(3, clock);
+
+		long earlier = firstNode.getNextSequenceNumber(Constants.BALLOT_SEQUENCE);
+		clock.setMillis(SnowflakeSequenceGeneratorServiceImpl.CUSTOM_EPOCH + 1001);
+		long later = secondNode.getNextSequenceNumber(Constants.BALLOT_SEQUENCE);
+
+		assertTrue(later > earlier);
+	}
+
+	/**
+	 * Tests that an out of range node id is rejected
+	 *
+	 */
+	@Test
+	public void testValidateNodeId_OutOfRange() {
+
+		SnowflakeSequenceGeneratorServiceImpl generator = new SnowflakeSequenceGeneratorServiceImpl();
+		ReflectionTestUtils.setField(generator, "nodeId", SnowflakeSequenceGeneratorServiceImpl.MAX_NODE_ID + 1);
+
+		assertThrows(IllegalStateException.class, generator::validateNodeId);
+	}
+
+	private SnowflakeSequenceGeneratorServiceImpl createGenerator(long nodeId, Clock clock) {
+
+		SnowflakeSequenceGeneratorServiceImpl generator = new SnowflakeSequenceGeneratorServiceImpl();
+		ReflectionTestUtils.setField(generator, "nodeId", nodeId);
+		ReflectionTestUtils.setField(generator, "clock", clock);
+		generator.validateNodeId();
+
+		return generator;
+	}
+
+	/**
+	 * Clock whose time is set by the test
+	 */
+	private static class MutableClock extends Clock {
+
+		private volatile long millis;
+
+		MutableClock(long millis) {
+			this.millis = millis;
+		}
+
+		void setMillis(long millis) {
+			this.millis = millis;
+		}
+
+		@Override
+		public long millis() {
+			return millis;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.bynder.subscription;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.cache.EncodedLotteryResult;
+import com.bynder.constants.Constants;
+import com.bynder.event.LotteryClosedEvent;
+import com.bynder.exception.ResourceNotFoundException;
+import com.bynder.service.reactive.ReactiveLotteryService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for ReactiveLotteryResultSubscriptions methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class ReactiveLotteryResultSubscriptionsTest {
+
+	private static final EncodedLotteryResult RESULT = new EncodedLotteryResult(
+			"{\"winnerBallotId\":\"7\"}".getBytes(StandardCharsets.UTF_8), "\"0abc\"");
+
+	@InjectMocks
+	private ReactiveLotteryResultSubscriptions lotteryResultSubscriptions;
+
+	@Mock
+	private ReactiveLotteryService lotteryService;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(lotteryResultSubscriptions, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(lotteryResultSubscriptions, "timeoutMs", 60000L);
+		lotteryResultSubscriptions.init();
+
+		when(lotteryService.getEncodedLotteryResult("12")).thenReturn(Mono.just(RESULT));
+	}
+
+	/**
+	 * Tests that the result of a closed lottery is sent right away
+	 *
+	 */
+	@Test
+	public void testSubscribe_Closed() {
+
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.just(Constants.CLOSED));
+
+		assertResultEvent(lotteryResultSubscriptions.subscribe("12").block(Duration.ofSeconds(5)));
+		assertEquals(0, lotteryResultSubscriptions.getSubscriberCount());
+	}
+
+	/**
+	 * Tests that a subscription to a lottery which is not present fails
+	 *
+	 */
+	@Test
+	public void testSubscribe_NotFound() {
+
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.empty());
+
+		assertThrows(ResourceNotFoundException.class, () -> {
+			try {
+				lotteryResultSubscriptions.subscribe("12").block(Duration.ofSeconds(5));
+			} catch (RuntimeException exception) {
+				// checked exceptions are wrapped by block
+				throw Exceptions.unwrap(exception);
+			}
+		});
+	}
+
+	/**
+	 * Tests that the clients waiting for an open lottery get its result once it
+	 * is closed on this node, and that the result is read once for all of them
+	 *
+	 */
+	@Test
+	public void testSubscribe_ClosedOnThisNode() {
+
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.just(Constants.OPEN));
+
+		List<ServerSentEvent<String>> events = new CopyOnWriteArrayList<>();
+		lotteryResultSubscriptions.subscribe("12").subscribe(events::add);
+		lotteryResultSubscriptions.subscribe("12").subscribe(events::add);
+
+		assertTrue(events.isEmpty());
+		assertEquals(2, lotteryResultSubscriptions.getSubscriberCount());
+
+		lotteryResultSubscriptions.lotteryClosed(new LotteryClosedEvent("12"));
+
+		assertEquals(2, events.size());
+		events.forEach(this::assertResultEvent);
+		assertEquals(0, lotteryResultSubscriptions.getSubscriberCount());
+		verify(lotteryService, times(1)).getEncodedLotteryResult("12");
+	}
+
+	/**
+	 * Tests that the result of a lottery closed by another node is sent by the
+	 * next poll
+	 *
+	 */
+	@Test
+	public void testPollClosedLotteries() {
+
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.just(Constants.OPEN));
+
+		List<ServerSentEvent<String>> events = new CopyOnWriteArrayList<>();
+		lotteryResultSubscriptions.subscribe("12").subscribe(events::add);
+
+		lotteryResultSubscriptions.pollClosedLotteries();
+		assertTrue(events.isEmpty());
+
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.just(Constants.CLOSED));
+		lotteryResultSubscriptions.pollClosedLotteries();
+
+		assertEquals(1, events.size());
+		assertResultEvent(events.get(0));
+	}
+
+	/**
+	 * Tests that a subscription ends without a result after the subscription
+	 * timeout, so the client reconnects
+	 *
+	 */
+	@Test
+	public void testSubscribe_Timeout() {
+
+		ReflectionTestUtils.setField(lotteryResultSubscriptions, "timeoutMs", 50L);
+		when(lotteryService.getLotteryStatus("12")).thenReturn(Mono.just(Constants.OPEN));
+
+		assertNull(lotteryResultSubscriptions.subscribe("12").block(Duration.ofSeconds(5)));
+		assertEquals(0, lotteryResultSubscriptions.getSubscriberCount());
+	}
+
+	private void assertResultEvent(ServerSentEvent<String> event) {
+
+		assertEquals("result", event.event());
+		assertEquals("\"0abc\"", event.id());
+		assertEquals("{\"winnerBallotId\":\"7\"}", event.data());
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.bynder.utils;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for BloomFilter methods
+ * 
+ * 
+ * @author arathy
+ *
+ */
+public class BloomFilterTest {
+
+	/**
+	 * Tests that every added key is found and the false positive rate stays close
+	 * to the expected rate
+	 * 
+	 */
+	@Test
+	public void testMightContain() {
+
+		int insertions = 100000;
+		BloomFilter filter = new BloomFilter(128 * 1024, insertions);
+
+		for (int userId = 0; userId < insertions; userId++) {
+			filter.put(String.valueOf(userId));
+		}
+
+		for (int userId = 0; userId < insertions; userId++) {
+			assertTrue(filter.mightContain(String.valueOf(userId)));
+		}
+
+		int falsePositives = 0;
+		for (int userId = insertions; userId < 2 * insertions; userId++) {
+			if (filter.mightContain(String.valueOf(userId))) {
+				falsePositives++;
+			}
+		}
+
+		double falsePositiveRate = (double) falsePositives / insertions;
+		assertTrue(falsePositiveRate < 2 * filter.expectedFalsePositiveRate(insertions) + 0.001);
+	}
+
+}
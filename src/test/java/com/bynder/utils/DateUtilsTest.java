@@ -0,0 +1,70 @@
+package com.bynder.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.bynder.constants.Constants;
+import com.bynder.exception.InvalidRequestException;
+
+/**
+ * Test class for DateUtils methods
+ * 
+ * 
+ * @author arathy
+ *
+ */
+public class DateUtilsTest {
+
+	/**
+	 * Tests that dates are formatted and parsed as with SimpleDateFormat, i.e.
+	 * leniently, and that text following the date format is ignored when parsing
+	 * 
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testFormatAndParse() throws Exception {
+
+		SimpleDateFormat formatter = new SimpleDateFormat(Constants.LOTTERY_DATE_FORMAT);
+		Date date = formatter.parse("2023-07-10T13:30:00");
+
+		assertEquals(formatter.format(date), DateUtils.formatDate(date, Constants.LOTTERY_DATE_FORMAT));
+		assertEquals(date, DateUtils.toDate("2023-07-10T13:30:00", Constants.LOTTERY_DATE_FORMAT));
+		assertEquals(date, DateUtils.toDate("2023-07-10T13:30:00.123", Constants.LOTTERY_DATE_FORMAT));
+		assertEquals(date, DateUtils.toDate("2023-7-10T13:30:0", Constants.LOTTERY_DATE_FORMAT));
+		assertEquals(formatter.parse("2023-08-01T00:30:00"),
+				DateUtils.toDate("2023-07-31T24:30:00", Constants.LOTTERY_DATE_FORMAT));
+		assertNull(DateUtils.toDate("10-07-2023", Constants.LOTTERY_DATE_FORMAT));
+		assertNull(DateUtils.formatDate(null, Constants.LOTTERY_DATE_FORMAT));
+
+		assertEquals("1970-01-01T05:30:00",
+				DateUtils.formatDate(new Date(0), Constants.LOTTERY_DATE_FORMAT, "Asia/Kolkata"));
+	}
+
+	/**
+	 * Tests that close times are resolved in the time zone of the lottery and
+	 * rejected if they are not in the future
+	 * 
+	 * @throws Exception - thrown if any exception occurs
+	 */
+	@Test
+	public void testToCloseDate() throws Exception {
+
+		ZoneId zone = DateUtils.toZoneId("Asia/Kolkata");
+
+		assertEquals(32503660200000L,
+				DateUtils.toCloseDate("3000-01-01T00:00:00", Constants.LOTTERY_DATE_FORMAT, zone).getTime());
+		assertEquals(DateUtils.nextMidnight(zone), DateUtils.toCloseDate(null, Constants.LOTTERY_DATE_FORMAT, zone));
+
+		assertThrows(InvalidRequestException.class,
+				() -> DateUtils.toCloseDate("2023-07-10T13:30:00", Constants.LOTTERY_DATE_FORMAT, zone));
+		assertThrows(InvalidRequestException.class, () -> DateUtils.toZoneId("Mars/Olympus"));
+	}
+
+}
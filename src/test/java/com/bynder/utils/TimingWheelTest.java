@@ -0,0 +1,86 @@
+package com.bynder.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for TimingWheel methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class TimingWheelTest {
+
+	/**
+	 * Tests that items spread over several wheel levels are returned once, not
+	 * before their deadline and at most one tick after it
+	 *
+	 */
+	@Test
+	public void testAdvanceClock() {
+
+		long tickMs = 10;
+		long startMs = 1005;
+		TimingWheel<Integer> wheel = new TimingWheel<>(tickMs, 8, startMs);
+
+		Random random = new Random(7);
+		Map<Integer, Long> deadlines = new HashMap<>();
+
+		for (int item = 0; item < 2000; item++) {
+			long deadlineMs = startMs + random.nextInt(100000);
+			deadlines.put(item, deadlineMs);
+			assertTrue(wheel.add(item, deadlineMs));
+		}
+
+		assertEquals(2000, wheel.size());
+
+		Map<Integer, Long> fired = new HashMap<>();
+
+		for (long nowMs = startMs; nowMs <= startMs + 100100; nowMs += 1 + random.nextInt(25)) {
+
+			long firedMs = nowMs;
+			wheel.advanceClock(nowMs, item -> assertNull(fired.put(item, firedMs)));
+		}
+
+		assertEquals(deadlines.keySet(), fired.keySet());
+		assertEquals(0, wheel.size());
+
+		deadlines.forEach((item, deadlineMs) -> {
+			assertTrue(fired.get(item) >= deadlineMs);
+			assertTrue(fired.get(item) < deadlineMs + 2 * tickMs + 25);
+		});
+	}
+
+	/**
+	 * Tests that an item whose deadline has passed is not added
+	 *
+	 */
+	@Test
+	public void testAdd_PastDeadline() {
+
+		TimingWheel<String> wheel = new TimingWheel<>(1000, 60, 10000);
+
+		assertFalse(wheel.add("12", 5000));
+		assertTrue(wheel.add("13", 10500));
+
+		List<String> fired = new ArrayList<>();
+		wheel.advanceClock(10999, fired::add);
+		assertTrue(fired.isEmpty());
+
+		wheel.advanceClock(11000, fired::add);
+		assertEquals(1, fired.size());
+		assertEquals("13", fired.get(0));
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.bynder.winner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.bynder.constants.Constants;
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+
+/**
+ * Test class for ReservoirWinnerSelectionStrategy methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class ReservoirWinnerSelectionStrategyTest {
+
+	@Mock
+	private LotteryRepository lotteryRepository;
+
+	@Mock
+	private BallotRepository ballotRepository;
+
+	@Mock
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@Mock
+	private UniformBallotDraw uniformBallotDraw;
+
+	@InjectMocks
+	private ReservoirWinnerSelectionStrategy reservoirStrategy;
+
+	// reservoir of the simulated lottery, as ballotId and ordinal
+	private String reservoirBallot;
+
+	private long reservoirOrdinal;
+
+	@Before
+	public void setupContext() {
+
+		MockitoAnnotations.openMocks(this);
+
+		Mockito.when(lotteryRepository.updateReservoir(ArgumentMatchers.eq("12"), ArgumentMatchers.any(),
+				ArgumentMatchers.anyLong())).thenAnswer(invocation -> {
+
+					long ordinal = invocation.getArgument(2);
+					if (ordinal <= reservoirOrdinal) {
+						return false;
+					}
+
+					reservoirBallot = invocation.getArgument(1);
+					reservoirOrdinal = ordinal;
+					return true;
+				});
+		Mockito.when(lotteryRepository.rebuildReservoir(ArgumentMatchers.eq("12"), ArgumentMatchers.any(),
+				ArgumentMatchers.anyLong())).thenAnswer(invocation -> {
+
+					long ordinal = invocation.getArgument(2);
+					if (ordinal < reservoirOrdinal) {
+						return false;
+					}
+
+					reservoirBallot = invocation.getArgument(1);
+					reservoirOrdinal = ordinal;
+					return true;
+				});
+	}
+
+	/**
+	 * Tests that the reservoir holds every ballot with the same probability, when
+	 * ballots are stored in any order, with a chi-squared test at a significance
+	 * level of 0.001
+	 *
+	 */
+	@Test
+	public void testBallotsCreated_ReservoirIsUniform() {
+
+		int ballots = 10;
+		int trials = 50000;
+
+		List<Ballot> ballotList = new ArrayList<>();
+		for (long ordinal = 1; ordinal <= ballots; ordinal++) {
+			ballotList.add(ballot(String.valueOf(ordinal), ordinal));
+		}
+
+		Random shuffle = new Random(42);
+		int[] wins = new int[ballots + 1];
+
+		for (int trial = 0; trial < trials; trial++) {
+
+			reservoirBallot = null;
+			reservoirOrdinal = 0;
+
+			// ballots stored concurrently by several nodes arrive out of ordinal order
+			Collections.shuffle(ballotList, shuffle);
+			for (Ballot ballot : ballotList) {
+				reservoirStrategy.ballotsCreated(Collections.singletonList(ballot));
+			}
+
+			wins[Integer.parseInt(reservoirBallot)]++;
+		}
+
+		double expected = (double) trials / ballots;
+		double chiSquared = 0;
+		for (int ordinal = 1; ordinal <= ballots; ordinal++) {
+			double deviation = wins[ordinal] - expected;
+			chiSquared += deviation * deviation / expected;
+		}
+
+		// critical value of the chi-squared distribution with 9 degrees of freedom
+		assertTrue(chiSquared < 27.88, "chi-squared " + chiSquared);
+	}
+
+	/**
+	 * Tests that a batch replaces the reservoir of a lottery at most once, and
+	 * that the first ballot of a lottery always does
+	 *
+	 */
+	@Test
+	public void testBallotsCreated_Batch() {
+
+		reservoirStrategy.ballotsCreated(Arrays.asList(ballot("1", 1L), ballot("2", 2L), ballot("3", 3L)));
+
+		Mockito.verify(lotteryRepository, Mockito.times(1)).updateReservoir(ArgumentMatchers.eq("12"),
+				ArgumentMatchers.any(), ArgumentMatchers.anyLong());
+		assertTrue(reservoirOrdinal >= 1);
+	}
+
+	/**
+	 * Tests that the reservoir ballot is returned without drawing, whichever
+	 * ordinals are reserved but not assigned yet
+	 *
+	 */
+	@Test
+	public void testSelectWinner() {
+
+		Lottery lottery = lottery(5);
+		lottery.setReservoirBallot("11");
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+		Mockito.when(ballotRepository.findLastOrdinal("12")).thenReturn(5L);
+
+		assertEquals("11", reservoirStrategy.selectWinner("12"));
+		Mockito.verify(uniformBallotDraw, Mockito.never()).draw(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that a lottery with ballots created before ordinals were assigned is
+	 * drawn instead
+	 *
+	 */
+	@Test
+	public void testSelectWinner_BallotsWithoutOrdinal() {
+
+		Lottery lottery = lottery(5);
+		lottery.setReservoirBallot("11");
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+		Mockito.when(ballotRepository.findLastOrdinal("12")).thenReturn(2L);
+		Mockito.when(uniformBallotDraw.draw("12")).thenReturn(new UniformBallotDraw.DrawnBallot("13", 2L));
+
+		assertEquals("13", reservoirStrategy.selectWinner("12"));
+	}
+
+	/**
+	 * Tests that a lottery with ordinals left unused by failed inserts, or in the
+	 * block of another node, is drawn instead, as its reservoir is not a uniform
+	 * sample
+	 *
+	 */
+	@Test
+	public void testSelectWinner_OrdinalGaps() {
+
+		Lottery lottery = lottery(5);
+		lottery.setReservoirBallot("11");
+
+		Mockito.when(lotteryRepository.findByLotteryId("12")).thenReturn(lottery);
+		Mockito.when(ballotRepository.findLastOrdinal("12")).thenReturn(6L);
+		Mockito.when(uniformBallotDraw.draw("12")).thenReturn(new UniformBallotDraw.DrawnBallot("13", 6L));
+
+		assertEquals("13", reservoirStrategy.selectWinner("12"));
+	}
+
+	/**
+	 * Tests that the reservoir is rebuilt with a drawn ballot covering the
+	 * ordinals assigned so far, replacing a reservoir with the last of these
+	 * ordinals but not a reservoir with a higher ordinal
+	 *
+	 */
+	@Test
+	public void testRebuild() {
+
+		Mockito.when(lotteryRepository.findByStatus(Constants.OPEN)).thenReturn(Collections.singletonList(lottery(7)));
+		Mockito.when(uniformBallotDraw.draw("12")).thenReturn(new UniformBallotDraw.DrawnBallot("4", 7L));
+
+		reservoirBallot = "7";
+		reservoirOrdinal = 7;
+
+		reservoirStrategy.rebuild();
+
+		assertEquals("4", reservoirBallot);
+		assertEquals(7L, reservoirOrdinal);
+
+		reservoirBallot = "9";
+		reservoirOrdinal = 9;
+
+		reservoirStrategy.rebuild();
+
+		assertEquals("9", reservoirBallot);
+	}
+
+	private Ballot ballot(String ballotId, Long ordinal) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(ballotId);
+		ballot.setLotteryId("12");
+		ballot.setOrdinal(ordinal);
+		return ballot;
+	}
+
+	private Lottery lottery(long ballotCount) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId("12");
+		lottery.setBallotCount(ballotCount);
+		return lottery;
+	}
+
+}
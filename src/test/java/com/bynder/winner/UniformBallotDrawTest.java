@@ -0,0 +1,197 @@
+package com.bynder.winner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.bynder.counter.LotteryBallotCounter;
+import com.bynder.model.Ballot;
+import com.bynder.model.Lottery;
+import com.bynder.repository.BallotRepository;
+import com.bynder.repository.LotteryRepository;
+import com.bynder.winner.UniformBallotDraw.DrawnBallot;
+
+/**
+ * Test class for UniformBallotDraw methods
+ *
+ *
+ * @author arathy
+ *
+ */
+public class UniformBallotDrawTest {
+
+	@Mock
+	private BallotRepository ballotRepository;
+
+	@Mock
+	private LotteryRepository lotteryRepository;
+
+	@Mock
+	private LotteryBallotCounter lotteryBallotCounter;
+
+	@InjectMocks
+	private UniformBallotDraw uniformBallotDraw;
+
+	@Before
+	public void setupContext() {
+		MockitoAnnotations.openMocks(this);
+		ReflectionTestUtils.setField(uniformBallotDraw, "maxOrdinalAttempts", 16);
+	}
+
+	/**
+	 * Tests draw for a successful random draw of a lottery
+	 *
+	 */
+	@Test
+	public void testDraw() {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId("11");
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(3));
+		Mockito.when(ballotRepository.findRandomBallot(ArgumentMatchers.any())).thenReturn(ballot);
+
+		assertEquals("11", uniformBallotDraw.draw("12").getBallotId());
+
+		Mockito.verify(lotteryBallotCounter).flush();
+		Mockito.verify(ballotRepository, Mockito.never()).existsByLotteryId(ArgumentMatchers.any());
+
+	}
+
+	/**
+	 * Tests draw for a lottery without ballots
+	 *
+	 */
+	@Test
+	public void testDraw_NoBallots() {
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(0));
+		Mockito.when(ballotRepository.existsByLotteryId(ArgumentMatchers.any())).thenReturn(false);
+
+		assertNull(uniformBallotDraw.draw("12"));
+
+	}
+
+	/**
+	 * Tests draw for a lottery whose ballots are not counted yet
+	 *
+	 */
+	@Test
+	public void testDraw_NotCountedYet() {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId("11");
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(0));
+		Mockito.when(ballotRepository.existsByLotteryId(ArgumentMatchers.any())).thenReturn(true);
+		Mockito.when(ballotRepository.findRandomBallot(ArgumentMatchers.any())).thenReturn(ballot);
+
+		assertEquals("11", uniformBallotDraw.draw("12").getBallotId());
+
+	}
+
+	/**
+	 * Tests that ballots drawn by ordinal are uniformly distributed over the
+	 * ballots of a lottery, with a chi-squared test at a significance level of
+	 * 0.001
+	 *
+	 */
+	@Test
+	public void testDraw_OrdinalDrawIsUniform() {
+
+		int ballots = 20;
+		int draws = 100000;
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(ballots));
+		Mockito.when(ballotRepository.findLastOrdinal(ArgumentMatchers.any())).thenReturn((long) ballots);
+		Mockito.when(ballotRepository.findByLotteryIdAndOrdinal(ArgumentMatchers.any(), ArgumentMatchers.anyLong()))
+				.thenAnswer(invocation -> ballot(String.valueOf(invocation.<Long>getArgument(1))));
+
+		Map<String, Integer> wins = new HashMap<>();
+		for (int i = 0; i < draws; i++) {
+			wins.merge(uniformBallotDraw.draw("12").getBallotId(), 1, Integer::sum);
+		}
+
+		double expected = (double) draws / ballots;
+		double chiSquared = 0;
+		for (int ordinal = 1; ordinal <= ballots; ordinal++) {
+			double deviation = wins.getOrDefault(String.valueOf(ordinal), 0) - expected;
+			chiSquared += deviation * deviation / expected;
+		}
+
+		// critical value of the chi-squared distribution with 19 degrees of freedom
+		assertEquals(ballots, wins.size());
+		assertTrue(chiSquared < 43.82, "chi-squared " + chiSquared);
+		Mockito.verify(ballotRepository, Mockito.never()).findRandomBallot(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that an ordinal left unused by a failed insert is redrawn
+	 *
+	 */
+	@Test
+	public void testDraw_UnusedOrdinalRedrawn() {
+
+		// seeded, so no draw misses the used ordinal on every attempt and falls back to a sample
+		ReflectionTestUtils.setField(uniformBallotDraw, "random", new Random(42));
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(1));
+		Mockito.when(ballotRepository.findLastOrdinal(ArgumentMatchers.any())).thenReturn(2L);
+		Mockito.when(ballotRepository.findByLotteryIdAndOrdinal(ArgumentMatchers.any(), ArgumentMatchers.eq(2L)))
+				.thenReturn(ballot("11"));
+
+		for (int i = 0; i < 100; i++) {
+			DrawnBallot drawnBallot = uniformBallotDraw.draw("12");
+			assertEquals("11", drawnBallot.getBallotId());
+			assertEquals(2L, drawnBallot.getLastOrdinal());
+		}
+
+		Mockito.verify(ballotRepository, Mockito.never()).findRandomBallot(ArgumentMatchers.any());
+	}
+
+	/**
+	 * Tests that a lottery with ballots created before ordinals were assigned is
+	 * drawn by a random sample
+	 *
+	 */
+	@Test
+	public void testDraw_BallotsWithoutOrdinal() {
+
+		Mockito.when(lotteryRepository.findByLotteryId(ArgumentMatchers.any())).thenReturn(lottery(5));
+		Mockito.when(ballotRepository.findLastOrdinal(ArgumentMatchers.any())).thenReturn(2L);
+		Mockito.when(ballotRepository.findRandomBallot(ArgumentMatchers.any())).thenReturn(ballot("11"));
+
+		assertEquals("11", uniformBallotDraw.draw("12").getBallotId());
+		Mockito.verify(ballotRepository, Mockito.never()).findByLotteryIdAndOrdinal(ArgumentMatchers.any(),
+				ArgumentMatchers.anyLong());
+	}
+
+	private Ballot ballot(String ballotId) {
+
+		Ballot ballot = new Ballot();
+		ballot.setBallotId(ballotId);
+		return ballot;
+	}
+
+	private Lottery lottery(long ballotCount) {
+
+		Lottery lottery = new Lottery();
+		lottery.setLotteryId("12");
+		lottery.setBallotCount(ballotCount);
+		return lottery;
+	}
+
+}